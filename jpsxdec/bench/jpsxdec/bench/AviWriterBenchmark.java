@@ -0,0 +1,148 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import jpsxdec.formats.YCbCrImage;
+import jpsxdec.psxvideo.mdec.MdecDecoder_double;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
+import jpsxdec.util.BinaryDataNotRecognized;
+import jpsxdec.util.IO;
+import jpsxdec.util.aviwriter.AviWriter;
+import jpsxdec.util.aviwriter.AviWriterDIB;
+import jpsxdec.util.aviwriter.AviWriterMJPG;
+import jpsxdec.util.aviwriter.AviWriterYV12;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writing one 320x240 frame and its audio to each kind of AVI.
+ * A new AVI is started for every iteration. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AviWriterBenchmark {
+
+    @Param({"DIB", "MJPG", "YV12"})
+    public String format;
+
+    /** 18.75 frames/second, the rate of the {@link SyntheticDisc} movies. */
+    private static final long FRAMES = 75, PER_SECOND = 4;
+    private static final AudioFormat AUDIO_FORMAT = new AudioFormat(37800, 16, 2, true, false);
+
+    private int[] _aiRgb;
+    private BufferedImage _rgbImage;
+    private YCbCrImage _ycbcrImage;
+    /** Audio for 1 frame. */
+    private byte[] _abAudio;
+
+    private File _aviFile;
+    private AviWriter _avi;
+
+    @Setup
+    public void setup() throws BinaryDataNotRecognized, MdecException.EndOfStream,
+                               MdecException.ReadCorruption, IOException
+    {
+        int iWidth = BenchSupport.WIDTH, iHeight = BenchSupport.HEIGHT;
+        MdecDecoder_double decoder = new MdecDecoder_double(new PsxMdecIDCT_double(), iWidth, iHeight);
+        decoder.decode(BenchSupport.createMdecStream());
+
+        _aiRgb = new int[iWidth * iHeight];
+        decoder.readDecodedRgb(iWidth, iHeight, _aiRgb);
+        _rgbImage = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+        _rgbImage.setRGB(0, 0, iWidth, iHeight, _aiRgb, 0, iWidth);
+        _ycbcrImage = new YCbCrImage(iWidth, iHeight);
+        decoder.readDecoded_Rec601_YCbCr420(_ycbcrImage);
+
+        int iSampleFrames = (int)(AUDIO_FORMAT.getSampleRate() * PER_SECOND / FRAMES);
+        AudioInputStream tones = SyntheticDisc.createTones(iSampleFrames, 2, AUDIO_FORMAT.getSampleRate());
+        _abAudio = IO.readEntireStream(tones);
+    }
+
+    @Setup(Level.Iteration)
+    public void openAvi() throws IOException {
+        _aviFile = File.createTempFile("bench", ".avi");
+        _aviFile.deleteOnExit();
+        int iWidth = BenchSupport.WIDTH, iHeight = BenchSupport.HEIGHT;
+        if ("DIB".equals(format))
+            _avi = new AviWriterDIB(_aviFile, iWidth, iHeight, FRAMES, PER_SECOND, AUDIO_FORMAT);
+        else if ("MJPG".equals(format))
+            _avi = new AviWriterMJPG(_aviFile, iWidth, iHeight, FRAMES, PER_SECOND, AUDIO_FORMAT);
+        else if ("YV12".equals(format))
+            _avi = new AviWriterYV12(_aviFile, iWidth, iHeight, FRAMES, PER_SECOND, AUDIO_FORMAT);
+        else
+            throw new IllegalArgumentException("Unknown AVI format " + format);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeAvi() throws IOException {
+        _avi.close();
+        _aviFile.delete();
+    }
+
+    @Benchmark
+    public void writeFrame() throws IOException {
+        if (_avi instanceof AviWriterDIB)
+            ((AviWriterDIB)_avi).writeFrameRGB(_aiRgb, 0, BenchSupport.WIDTH);
+        else if (_avi instanceof AviWriterMJPG)
+            ((AviWriterMJPG)_avi).writeFrame(_rgbImage);
+        else
+            ((AviWriterYV12)_avi).write(_ycbcrImage.getY(), _ycbcrImage.getCb(), _ycbcrImage.getCr());
+        _avi.writeAudio(_abAudio);
+    }
+
+}
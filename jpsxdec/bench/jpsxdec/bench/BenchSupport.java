@@ -0,0 +1,163 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_Iki;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_Lain;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv1;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv3;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
+import jpsxdec.sectors.IdentifiedSectorIterator;
+import jpsxdec.util.BinaryDataNotRecognized;
+import jpsxdec.util.ProgressLogger;
+
+/** Input shared by the benchmarks. */
+class BenchSupport {
+
+    /** Frames in each movie of the generated disc images. Enough to index
+     * like a real disc while still generating in a few seconds. */
+    public static final int FRAMES_PER_MOVIE = 60;
+
+    public static final int WIDTH = SyntheticDisc.VIDEO_WIDTH;
+    public static final int HEIGHT = SyntheticDisc.VIDEO_HEIGHT;
+    /** Gives frames about the size of those in {@link SyntheticDisc} images. */
+    public static final int QUANTIZATION_SCALE = 3;
+    /** Synthetic frame used as the source of all video benchmarks. */
+    private static final int FRAME_NUMBER = 30;
+
+    /** Writes a synthetic disc image to a temporary file that will be
+     * deleted when the JVM exits. */
+    public static @Nonnull File createDiscImage(int iSectorSize) throws IOException {
+        File file = File.createTempFile("synthetic", "." + iSectorSize);
+        file.deleteOnExit();
+        new SyntheticDisc(FRAMES_PER_MOVIE).write(file, iSectorSize);
+        return file;
+    }
+
+    /** Same as {@code SectorTypeCache.CACHE_EXTENSION}, which isn't public. */
+    private static final String SECTOR_TYPE_CACHE_EXTENSION = ".sectorcache";
+
+    /** The file {@link IdentifiedSectorIterator} saves the sector types of
+     * a disc image in when the cache is enabled, which makes later passes
+     * over the disc much faster. */
+    public static @Nonnull File sectorTypeCacheFile(@Nonnull File discImage) {
+        return new File(discImage.getPath() + SECTOR_TYPE_CACHE_EXTENSION);
+    }
+
+    /** Iterates over the whole disc so the sector type cache is created.
+     * The cache must be enabled. */
+    public static void createSectorTypeCache(@Nonnull CdFileSectorReader cd) throws IOException {
+        IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
+        while (it.hasNext())
+            it.next();
+        if (!sectorTypeCacheFile(cd.getSourceFile()).exists())
+            throw new IllegalStateException("Sector type cache was not created");
+    }
+
+    /** Discards everything written to it. */
+    private static final OutputStream NULL_OUTPUT = new OutputStream() {
+        public void write(int b) {}
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    /** Doesn't report anything so the benchmark output stays clean. */
+    public static @Nonnull ProgressLogger quietProgressLogger() {
+        return new ProgressLogger("bench", new PrintStream(NULL_OUTPUT)) {
+            protected void handleProgressStart() {}
+            protected void handleProgressUpdate(double dblPercentComplete) {}
+            protected void handleProgressEnd() {}
+            public boolean isSeekingEvent() { return false; }
+            public void event(@Nonnull ILocalizedMessage msg) {}
+        };
+    }
+
+    /** Names accepted by {@link #createCompressor(java.lang.String)} and
+     * {@link #createUncompressor(java.lang.String)}. */
+    public static final String STRv1 = "STRv1", STRv2 = "STRv2", STRv3 = "STRv3",
+                               IKI = "Iki", LAIN = "Lain";
+
+    public static @Nonnull BitStreamCompressor createCompressor(@Nonnull String sType) {
+        if (STRv1.equals(sType)) return new BitStreamUncompressor_STRv1.BitStreamCompressor_STRv1();
+        if (STRv2.equals(sType)) return new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2();
+        if (STRv3.equals(sType)) return new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3();
+        if (IKI.equals(sType))   return new BitStreamUncompressor_Iki.BitStreamCompressor_Iki();
+        if (LAIN.equals(sType))  return new BitStreamUncompressor_Lain.BitStreamCompressor_Lain();
+        throw new IllegalArgumentException("Unknown bitstream type " + sType);
+    }
+
+    public static @Nonnull BitStreamUncompressor createUncompressor(@Nonnull String sType) {
+        if (STRv1.equals(sType)) return new BitStreamUncompressor_STRv1();
+        if (STRv2.equals(sType)) return new BitStreamUncompressor_STRv2();
+        if (STRv3.equals(sType)) return new BitStreamUncompressor_STRv3();
+        if (IKI.equals(sType))   return new BitStreamUncompressor_Iki();
+        if (LAIN.equals(sType))  return new BitStreamUncompressor_Lain();
+        throw new IllegalArgumentException("Unknown bitstream type " + sType);
+    }
+
+    /** The synthetic frame compressed to the given bitstream type. */
+    public static @Nonnull byte[] createBitstream(@Nonnull String sType) {
+        return SyntheticDisc.compress(SyntheticDisc.createFrameImage(WIDTH, HEIGHT, FRAME_NUMBER),
+                                      createCompressor(sType), QUANTIZATION_SCALE);
+    }
+
+    /** The synthetic frame as a stream of MDEC codes, so decoders can be
+     * measured without the cost of uncompressing a bitstream. */
+    public static @Nonnull MdecInputStreamReader createMdecStream()
+            throws BinaryDataNotRecognized, MdecException.EndOfStream,
+                   MdecException.ReadCorruption, IOException
+    {
+        BitStreamUncompressor uncompressor = createUncompressor(STRv2);
+        uncompressor.reset(createBitstream(STRv2));
+        ByteArrayOutputStream mdecWords = new ByteArrayOutputStream();
+        MdecInputStreamReader.writeMdecDims(uncompressor, mdecWords, WIDTH, HEIGHT);
+        return new MdecInputStreamReader(mdecWords.toByteArray());
+    }
+
+}
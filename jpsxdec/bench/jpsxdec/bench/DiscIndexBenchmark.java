@@ -0,0 +1,105 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.sectors.IdentifiedSectorIterator;
+import jpsxdec.util.TaskCanceledException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Indexing a whole synthetic disc image, the same as
+ * {@code jpsxdec -f <disc> -x <index>} minus saving the index. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscIndexBenchmark {
+
+    @Param({"2352", "2336", "2048"})
+    public int sectorSize;
+
+    /** If the sector types were already saved by an earlier pass over the disc. */
+    @Param({"false", "true"})
+    public boolean sectorTypeCache;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private File _discImage;
+    private CdFileSectorReader _cd;
+
+    @Setup
+    public void setup() throws IOException {
+        _discImage = BenchSupport.createDiscImage(sectorSize);
+        _cd = new CdFileSectorReader(_discImage);
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(sectorTypeCache);
+        if (sectorTypeCache)
+            BenchSupport.createSectorTypeCache(_cd);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        _cd.close();
+        _discImage.delete();
+        BenchSupport.sectorTypeCacheFile(_discImage).delete();
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(false);
+    }
+
+    @Benchmark
+    public DiscIndex index() throws TaskCanceledException {
+        return new DiscIndex(_cd, BenchSupport.quietProgressLogger(), threads);
+    }
+
+}
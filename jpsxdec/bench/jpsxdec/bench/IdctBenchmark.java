@@ -0,0 +1,139 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jpsxdec.psxvideo.mdec.Calc;
+import jpsxdec.psxvideo.mdec.idct.FastPsxMdecIDCT_int;
+import jpsxdec.psxvideo.mdec.idct.IDCT_double;
+import jpsxdec.psxvideo.mdec.idct.IDCT_int;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
+import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
+import jpsxdec.psxvideo.mdec.idct.StephensIDCT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Inverse DCT of one 320x240 frame's worth of blocks with each IDCT.
+ * Blocks have a DC and a few low frequency AC coefficients,
+ * like typical dequantized video. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdctBenchmark {
+
+    @Param({"PsxMdecIDCT_int", "FastPsxMdecIDCT_int", "SimpleIDCT",
+            "PsxMdecIDCT_double", "StephensIDCT"})
+    public String idct;
+
+    private static final int BLOCK_COUNT = Calc.blocks(BenchSupport.WIDTH, BenchSupport.HEIGHT);
+
+    private IDCT_int _idctInt;
+    private IDCT_double _idctDouble;
+
+    private int[][] _aaiBlocks;
+    private double[][] _aadblBlocks;
+    /** IDCTs may modify the input matrix, so each block is copied here first. */
+    private final int[] _aiMatrix = new int[64];
+    private final double[] _adblMatrix = new double[64];
+    private final int[] _aiOutput = new int[64];
+    private final double[] _adblOutput = new double[64];
+
+    @Setup
+    public void setup() {
+        if ("PsxMdecIDCT_int".equals(idct))
+            _idctInt = new PsxMdecIDCT_int();
+        else if ("FastPsxMdecIDCT_int".equals(idct))
+            _idctInt = new FastPsxMdecIDCT_int();
+        else if ("SimpleIDCT".equals(idct))
+            _idctInt = new SimpleIDCT();
+        else if ("PsxMdecIDCT_double".equals(idct))
+            _idctDouble = new PsxMdecIDCT_double();
+        else if ("StephensIDCT".equals(idct))
+            _idctDouble = new StephensIDCT();
+        else
+            throw new IllegalArgumentException("Unknown IDCT " + idct);
+
+        Random rand = new Random(BLOCK_COUNT);
+        _aaiBlocks = new int[BLOCK_COUNT][64];
+        _aadblBlocks = new double[BLOCK_COUNT][64];
+        for (int iBlock = 0; iBlock < BLOCK_COUNT; iBlock++) {
+            int[] aiBlock = _aaiBlocks[iBlock];
+            aiBlock[0] = rand.nextInt(1024) - 512;
+            int iAcCount = rand.nextInt(10);
+            for (int i = 0; i < iAcCount; i++) {
+                // mostly in the top-left corner
+                int iPos = rand.nextInt(4) * 8 + rand.nextInt(4);
+                aiBlock[iPos] = rand.nextInt(256) - 128;
+            }
+            for (int i = 0; i < 64; i++)
+                _aadblBlocks[iBlock][i] = aiBlock[i];
+        }
+    }
+
+    @Benchmark
+    public Object inverseDct() {
+        if (_idctInt != null) {
+            for (int[] aiBlock : _aaiBlocks) {
+                System.arraycopy(aiBlock, 0, _aiMatrix, 0, 64);
+                _idctInt.IDCT(_aiMatrix, 0, _aiOutput);
+            }
+            return _aiOutput;
+        } else {
+            for (double[] adblBlock : _aadblBlocks) {
+                System.arraycopy(adblBlock, 0, _adblMatrix, 0, 64);
+                _idctDouble.IDCT(_adblMatrix, 0, _adblOutput);
+            }
+            return _adblOutput;
+        }
+    }
+
+}
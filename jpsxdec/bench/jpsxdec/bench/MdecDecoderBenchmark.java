@@ -0,0 +1,110 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import jpsxdec.psxvideo.mdec.MdecDecoder;
+import jpsxdec.psxvideo.mdec.MdecDecoder_double;
+import jpsxdec.psxvideo.mdec.MdecDecoder_double_interpolate;
+import jpsxdec.psxvideo.mdec.MdecDecoder_int;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
+import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
+import jpsxdec.util.BinaryDataNotRecognized;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Decoding one 320x240 frame of MDEC codes, and converting the result
+ * to RGB. The IDCTs on their own are measured by {@link IdctBenchmark}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MdecDecoderBenchmark {
+
+    @Param({"int", "double", "double_interpolate"})
+    public String decoder;
+
+    private MdecInputStreamReader _mdecStream;
+    private MdecDecoder _decoder;
+    private int[] _aiRgb;
+
+    @Setup
+    public void setup() throws BinaryDataNotRecognized, MdecException.EndOfStream,
+                               MdecException.ReadCorruption, IOException
+    {
+        _mdecStream = BenchSupport.createMdecStream();
+        if ("int".equals(decoder))
+            _decoder = new MdecDecoder_int(new PsxMdecIDCT_int(), BenchSupport.WIDTH, BenchSupport.HEIGHT);
+        else if ("double".equals(decoder))
+            _decoder = new MdecDecoder_double(new PsxMdecIDCT_double(), BenchSupport.WIDTH, BenchSupport.HEIGHT);
+        else if ("double_interpolate".equals(decoder))
+            _decoder = new MdecDecoder_double_interpolate(new PsxMdecIDCT_double(), BenchSupport.WIDTH, BenchSupport.HEIGHT);
+        else
+            throw new IllegalArgumentException("Unknown decoder " + decoder);
+        _aiRgb = new int[BenchSupport.WIDTH * BenchSupport.HEIGHT];
+        // so readDecodedRgb() has something to convert
+        decode();
+    }
+
+    @Benchmark
+    public void decode() throws MdecException.EndOfStream, MdecException.ReadCorruption {
+        _mdecStream.reset();
+        _decoder.decode(_mdecStream);
+    }
+
+    @Benchmark
+    public int[] readDecodedRgb() {
+        _decoder.readDecodedRgb(BenchSupport.WIDTH, BenchSupport.HEIGHT, _aiRgb);
+        return _aiRgb;
+    }
+
+}
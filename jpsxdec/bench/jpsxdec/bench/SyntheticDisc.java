@@ -0,0 +1,668 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import jpsxdec.audio.SoundUnitDecoder;
+import jpsxdec.audio.SpuAdpcmDecoder;
+import jpsxdec.audio.SpuAdpcmEncoder;
+import jpsxdec.audio.XaAdpcmDecoder;
+import jpsxdec.audio.XaAdpcmEncoder;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector2352;
+import jpsxdec.cdreaders.CdxaSubHeader.SubMode;
+import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv3;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
+import jpsxdec.psxvideo.mdec.MdecException;
+import jpsxdec.tim.Tim;
+import jpsxdec.util.IO;
+import jpsxdec.util.IncompatibleException;
+
+/** Builds synthetic PlayStation disc images so the benchmarks have
+ * reproducible input without needing real game data.
+ *<p>
+ * The image holds an ISO9660 file system with an STRv2 and an STRv3 movie
+ * interleaved with XA audio, a file of TIM images, and a file of random
+ * data. Everything is generated from fixed seeds, so the same arguments
+ * always produce the same image.
+ *<p>
+ * 2048 byte/sector images have no sub-header to mark a sector as XA audio,
+ * so the movies in those images are video only.
+ */
+public class SyntheticDisc {
+
+    public static final int VIDEO_WIDTH = 320;
+    public static final int VIDEO_HEIGHT = 240;
+    /** Each frame is 7 video sectors followed by 1 XA audio sector.
+     * At 2x disc speed that is 18.75 frames/second, which is exactly the rate
+     * 37800Hz stereo 4 bits/sample XA audio is played. */
+    public static final int VIDEO_SECTORS_PER_FRAME = 7;
+    public static final int DEFAULT_FRAMES_PER_MOVIE = 150;
+
+    /** Size of the ADPCM data in an XA sector (18 sound groups). */
+    public static final int XA_SECTOR_AUDIO_SIZE =
+            XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR * XaAdpcmDecoder.SIZEOF_SOUND_GROUP;
+
+    private static final long VIDEO_SECTOR_MAGIC = 0x80010160L;
+    private static final int VIDEO_SECTOR_HEADER_SIZE = 32;
+    private static final int VIDEO_SECTOR_PAYLOAD_SIZE =
+            CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1 - VIDEO_SECTOR_HEADER_SIZE;
+    private static final int MAX_FRAME_SIZE = VIDEO_SECTORS_PER_FRAME * VIDEO_SECTOR_PAYLOAD_SIZE;
+
+    /** Coding info for 37800Hz, stereo, 4 bits/sample. */
+    private static final int XA_CODING_INFO = 0x01;
+    private static final int MOVIE_CHANNEL = 1;
+    private static final int FILE_NUMBER = 1;
+
+    private static final int ISO_PVD_SECTOR = 16;
+    private static final int ISO_ROOT_DIR_SECTOR = 18;
+    private static final int ISO_FIRST_FILE_SECTOR = 19;
+    /** The first sector of the data track is at 00:02:00. */
+    private static final int LBA_TO_MSF_OFFSET = 150;
+
+    private static final byte[] SYNC_HEADER = {
+        (byte)0x00, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF,
+        (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0x00
+    };
+
+    // -------------------------------------------------------------------------
+
+    /** One mode 2 sector before it is written in a particular format. */
+    private static class Sector {
+        public final int iChannel;
+        public int iSubMode;
+        public final int iCodingInfo;
+        /** 2048 bytes for form 1, 2324 bytes for form 2. */
+        @Nonnull
+        public final byte[] abUserData;
+
+        public Sector(int iChannel, int iSubMode, int iCodingInfo, @Nonnull byte[] abUserData) {
+            this.iChannel = iChannel;
+            this.iSubMode = iSubMode;
+            this.iCodingInfo = iCodingInfo;
+            this.abUserData = abUserData;
+        }
+
+        public int getForm() {
+            return (iSubMode & SubMode.MASK_FORM) == 0 ? 1 : 2;
+        }
+    }
+
+    private static class IsoFile {
+        @Nonnull
+        public final String sName;
+        @Nonnull
+        public final List<Sector> sectors;
+        public final long lngSize;
+        public int iStartSector;
+
+        public IsoFile(@Nonnull String sName, @Nonnull List<Sector> sectors, long lngSize) {
+            this.sName = sName;
+            this.sectors = sectors;
+            this.lngSize = lngSize;
+            // the last sector of every file is marked as the end of the file
+            sectors.get(sectors.size() - 1).iSubMode |= SubMode.MASK_EOF_MARKER;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: SyntheticDisc <output directory> [frames per movie]");
+            return;
+        }
+        File dir = new File(args[0]);
+        IO.makeDirs(dir);
+        int iFrames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES_PER_MOVIE;
+
+        SyntheticDisc disc = new SyntheticDisc(iFrames);
+        int[] aiSectorSizes = { CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+                                CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+                                CdFileSectorReader.SECTOR_SIZE_2048_ISO };
+        for (int iSectorSize : aiSectorSizes) {
+            File file = new File(dir, fileName(iSectorSize));
+            disc.write(file, iSectorSize);
+            System.out.println(file + " " + file.length() + " bytes");
+        }
+    }
+
+    /** Conventional file name for an image with the given sector size. */
+    public static @Nonnull String fileName(int iSectorSize) {
+        if (iSectorSize == CdFileSectorReader.SECTOR_SIZE_2048_ISO)
+            return "synthetic_2048.iso";
+        return "synthetic_" + iSectorSize + ".bin";
+    }
+
+    // -------------------------------------------------------------------------
+
+    private final int _iFramesPerMovie;
+    /** Encoded frames for the STRv2 and STRv3 movies, created when first
+     * needed and reused for every sector size. */
+    @CheckForNull
+    private byte[][] _aabFramesV2, _aabFramesV3;
+    @CheckForNull
+    private byte[] _abXaAudio;
+
+    public SyntheticDisc(int iFramesPerMovie) {
+        if (iFramesPerMovie < 1)
+            throw new IllegalArgumentException("Invalid frame count " + iFramesPerMovie);
+        _iFramesPerMovie = iFramesPerMovie;
+    }
+
+    /** Writes the disc image.
+     * @param iSectorSize 2352, 2336, or 2048. */
+    public void write(@Nonnull File outFile, int iSectorSize) throws IOException {
+        if (iSectorSize != CdFileSectorReader.SECTOR_SIZE_2352_BIN &&
+            iSectorSize != CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC &&
+            iSectorSize != CdFileSectorReader.SECTOR_SIZE_2048_ISO)
+            throw new IllegalArgumentException("Unsupported sector size " + iSectorSize);
+        boolean blnWithAudio = iSectorSize != CdFileSectorReader.SECTOR_SIZE_2048_ISO;
+
+        // the movies are first on the disc because 2336 images are only
+        // detected by finding XA audio near the start of the file
+        List<IsoFile> files = new ArrayList<IsoFile>();
+        files.add(createMovie("MOVIE2.STR;1", 2, blnWithAudio));
+        files.add(createMovie("MOVIE3.STR;1", 3, blnWithAudio));
+        files.add(createDataFile("DATA.BIN;1", 300000));
+        files.add(createTimFile("TEXTURES.TIM;1"));
+
+        int iSector = ISO_FIRST_FILE_SECTOR;
+        for (IsoFile file : files) {
+            file.iStartSector = iSector;
+            iSector += file.sectors.size();
+        }
+        int iTotalSectors = iSector;
+
+        List<Sector> disc = new ArrayList<Sector>(iTotalSectors);
+        for (int i = 0; i < ISO_PVD_SECTOR; i++)
+            disc.add(dataSector(new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1]));
+        disc.add(dataSector(createPrimaryVolumeDescriptor(iTotalSectors)));
+        disc.add(dataSector(createVolumeDescriptorTerminator()));
+        disc.add(dataSector(createRootDirectory(files)));
+        for (IsoFile file : files)
+            disc.addAll(file.sectors);
+
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(outFile));
+        try {
+            byte[] abRaw = new byte[CdFileSectorReader.SECTOR_SIZE_2352_BIN];
+            for (int iLba = 0; iLba < disc.size(); iLba++)
+                writeSector(os, disc.get(iLba), iLba, iSectorSize, abRaw);
+        } finally {
+            os.close();
+        }
+    }
+
+    private static void writeSector(@Nonnull OutputStream os, @Nonnull Sector sector,
+                                    int iLba, int iSectorSize, @Nonnull byte[] abRaw)
+            throws IOException
+    {
+        if (iSectorSize == CdFileSectorReader.SECTOR_SIZE_2048_ISO) {
+            if (sector.getForm() != 1)
+                throw new IllegalStateException("Form 2 sector in a 2048 image");
+            os.write(sector.abUserData);
+            return;
+        }
+
+        Arrays.fill(abRaw, (byte)0);
+        System.arraycopy(SYNC_HEADER, 0, abRaw, 0, SYNC_HEADER.length);
+        int iMsf = iLba + LBA_TO_MSF_OFFSET;
+        abRaw[12] = toBcd(iMsf / (60 * 75));
+        abRaw[13] = toBcd((iMsf / 75) % 60);
+        abRaw[14] = toBcd(iMsf % 75);
+        abRaw[15] = 2; // mode 2
+        // the sub-header is stored twice
+        for (int i = 16; i < 24; i += 4) {
+            abRaw[i  ] = (byte)FILE_NUMBER;
+            abRaw[i+1] = (byte)sector.iChannel;
+            abRaw[i+2] = (byte)sector.iSubMode;
+            abRaw[i+3] = (byte)sector.iCodingInfo;
+        }
+        System.arraycopy(sector.abUserData, 0, abRaw, 24, sector.abUserData.length);
+        CdSector2352.rebuildErrorCorrection(abRaw, sector.getForm());
+
+        if (iSectorSize == CdFileSectorReader.SECTOR_SIZE_2352_BIN)
+            os.write(abRaw);
+        else // 2336 is everything after the sync and header
+            os.write(abRaw, 16, CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC);
+    }
+
+    private static byte toBcd(int i) {
+        return (byte)(((i / 10) << 4) | (i % 10));
+    }
+
+    private static @Nonnull Sector dataSector(@Nonnull byte[] abUserData) {
+        return new Sector(0, SubMode.MASK_DATA, 0, abUserData);
+    }
+
+    // -------------------------------------------------------------------------
+    // -- Files ----------------------------------------------------------------
+    // -------------------------------------------------------------------------
+
+    private static @Nonnull IsoFile createDataFile(@Nonnull String sName, int iSize) {
+        byte[] abData = new byte[iSize];
+        new Random(iSize).nextBytes(abData);
+        return new IsoFile(sName, splitIntoSectors(abData), iSize);
+    }
+
+    private static @Nonnull IsoFile createTimFile(@Nonnull String sName) throws IOException {
+        ByteArrayOutputStream tims = new ByteArrayOutputStream();
+        int[] aiBitsPerPixel = { 4, 8, 16, 24 };
+        for (int i = 0; i < 3; i++) {
+            for (int iBpp : aiBitsPerPixel) {
+                int iColors = iBpp == 4 ? 16 : (iBpp == 8 ? 256 : 0);
+                BufferedImage bi = createTimImage(64 << (i & 1), 64 << (i >> 1), iColors, i * 100 + iBpp);
+                Tim.create(bi, iBpp).write(tims);
+            }
+        }
+        byte[] abTims = tims.toByteArray();
+        return new IsoFile(sName, splitIntoSectors(abTims), abTims.length);
+    }
+
+    private static @Nonnull List<Sector> splitIntoSectors(@Nonnull byte[] abData) {
+        List<Sector> sectors = new ArrayList<Sector>();
+        for (int i = 0; i < abData.length; i += CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1) {
+            byte[] abUserData = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1];
+            System.arraycopy(abData, i, abUserData, 0, Math.min(abUserData.length, abData.length - i));
+            sectors.add(dataSector(abUserData));
+        }
+        return sectors;
+    }
+
+    /** Every frame is padded to {@link #VIDEO_SECTORS_PER_FRAME} sectors,
+     * and is followed by 1 XA sector if there is audio. */
+    private @Nonnull IsoFile createMovie(@Nonnull String sName, int iVersion,
+                                         boolean blnWithAudio)
+            throws IOException
+    {
+        byte[][] aabFrames = getFrames(iVersion);
+        byte[] abAudio = null;
+        if (blnWithAudio) {
+            if (_abXaAudio == null)
+                _abXaAudio = encodeXa(_iFramesPerMovie, 4, true);
+            abAudio = _abXaAudio;
+        }
+
+        List<Sector> sectors = new ArrayList<Sector>();
+        for (int iFrame = 0; iFrame < aabFrames.length; iFrame++) {
+            // frame numbers start at 1
+            addVideoSectors(sectors, aabFrames[iFrame], iFrame + 1);
+
+            if (abAudio != null) {
+                byte[] abUserData = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM2];
+                System.arraycopy(abAudio, iFrame * XA_SECTOR_AUDIO_SIZE, abUserData, 0, XA_SECTOR_AUDIO_SIZE);
+                sectors.add(new Sector(MOVIE_CHANNEL,
+                        SubMode.MASK_REAL_TIME | SubMode.MASK_AUDIO | SubMode.MASK_FORM,
+                        XA_CODING_INFO, abUserData));
+            }
+        }
+        return new IsoFile(sName, sectors, (long)sectors.size() * CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1);
+    }
+
+    private @Nonnull byte[][] getFrames(int iVersion) {
+        if (iVersion == 2 && _aabFramesV2 != null)
+            return _aabFramesV2;
+        if (iVersion == 3 && _aabFramesV3 != null)
+            return _aabFramesV3;
+
+        BitStreamCompressor compressor;
+        if (iVersion == 2)
+            compressor = new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2();
+        else if (iVersion == 3)
+            compressor = new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3();
+        else
+            throw new IllegalArgumentException("Unsupported STR version " + iVersion);
+
+        byte[][] aabFrames = new byte[_iFramesPerMovie][];
+        int iQscale = 1;
+        for (int iFrame = 0; iFrame < aabFrames.length; iFrame++) {
+            PsxYCbCrImage img = createFrameImage(VIDEO_WIDTH, VIDEO_HEIGHT, iFrame);
+            MdecEncoder encoder = new MdecEncoder(img, VIDEO_WIDTH, VIDEO_HEIGHT);
+            // frames are similar, so start near the last frame's quantization scale
+            iQscale = Math.max(1, iQscale - 1);
+            while ((aabFrames[iFrame] = compress(encoder, compressor, iQscale)).length > MAX_FRAME_SIZE)
+                iQscale++;
+        }
+
+        if (iVersion == 2)
+            _aabFramesV2 = aabFrames;
+        else
+            _aabFramesV3 = aabFrames;
+        return aabFrames;
+    }
+
+    private static void addVideoSectors(@Nonnull List<Sector> sectors,
+                                        @Nonnull byte[] abFrame, int iFrameNumber)
+    {
+        // the used demux size is always a multiple of 4
+        int iUsedDemuxSize = (abFrame.length + 3) & ~3;
+        for (int iChunk = 0; iChunk < VIDEO_SECTORS_PER_FRAME; iChunk++) {
+            byte[] abUserData = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1];
+            IO.writeInt32LE(abUserData, 0, VIDEO_SECTOR_MAGIC);
+            IO.writeInt16LE(abUserData, 4, (short)iChunk);
+            IO.writeInt16LE(abUserData, 6, (short)VIDEO_SECTORS_PER_FRAME);
+            IO.writeInt32LE(abUserData, 8, iFrameNumber);
+            IO.writeInt32LE(abUserData, 12, iUsedDemuxSize);
+            IO.writeInt16LE(abUserData, 16, (short)VIDEO_WIDTH);
+            IO.writeInt16LE(abUserData, 18, (short)VIDEO_HEIGHT);
+            // run length code count, 0x3800, quantization scale, and version
+            // are copied from the frame header
+            System.arraycopy(abFrame, 0, abUserData, 20, 8);
+
+            int iStart = iChunk * VIDEO_SECTOR_PAYLOAD_SIZE;
+            if (iStart < abFrame.length) {
+                System.arraycopy(abFrame, iStart, abUserData, VIDEO_SECTOR_HEADER_SIZE,
+                                 Math.min(VIDEO_SECTOR_PAYLOAD_SIZE, abFrame.length - iStart));
+            }
+            sectors.add(new Sector(MOVIE_CHANNEL, SubMode.MASK_REAL_TIME | SubMode.MASK_DATA,
+                                   0, abUserData));
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // -- ISO9660 --------------------------------------------------------------
+    // -------------------------------------------------------------------------
+
+    private static @Nonnull byte[] createPrimaryVolumeDescriptor(int iTotalSectors) {
+        byte[] ab = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1];
+        ab[0] = 1;
+        putString(ab, 1, "CD001", 5);
+        ab[6] = 1;
+        putString(ab, 8, "PLAYSTATION", 32);
+        putString(ab, 40, "SYNTHETIC", 32);
+        putBothEndian32(ab, 80, iTotalSectors);
+        putBothEndian16(ab, 120, 1); // volume set size
+        putBothEndian16(ab, 124, 1); // volume sequence number
+        putBothEndian16(ab, 128, CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1);
+        putBothEndian32(ab, 132, 10); // path table size
+        byte[] abRoot = createDirectoryRecord(new byte[] {0}, ISO_ROOT_DIR_SECTOR,
+                                              CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1, true);
+        System.arraycopy(abRoot, 0, ab, 156, abRoot.length);
+        // creation, modification, expiration, and effective dates are unspecified
+        for (int iOfs = 813; iOfs <= 864; iOfs += 17)
+            Arrays.fill(ab, iOfs, iOfs + 16, (byte)'0');
+        ab[881] = 1; // file structure version
+        return ab;
+    }
+
+    private static @Nonnull byte[] createVolumeDescriptorTerminator() {
+        byte[] ab = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1];
+        ab[0] = (byte)0xFF;
+        putString(ab, 1, "CD001", 5);
+        ab[6] = 1;
+        return ab;
+    }
+
+    private static @Nonnull byte[] createRootDirectory(@Nonnull List<IsoFile> files) {
+        ByteArrayOutputStream dir = new ByteArrayOutputStream();
+        byte[] abSelf = createDirectoryRecord(new byte[] {0}, ISO_ROOT_DIR_SECTOR,
+                                              CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1, true);
+        dir.write(abSelf, 0, abSelf.length);
+        // root's parent is itself
+        byte[] abParent = createDirectoryRecord(new byte[] {1}, ISO_ROOT_DIR_SECTOR,
+                                                CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1, true);
+        dir.write(abParent, 0, abParent.length);
+        // files must be in name order in the directory
+        List<IsoFile> sorted = new ArrayList<IsoFile>(files);
+        Collections.sort(sorted, new Comparator<IsoFile>() {
+            public int compare(IsoFile o1, IsoFile o2) {
+                return o1.sName.compareTo(o2.sName);
+            }
+        });
+        for (IsoFile file : sorted) {
+            byte[] abName = new byte[file.sName.length()];
+            putString(abName, 0, file.sName, abName.length);
+            byte[] abRecord = createDirectoryRecord(abName, file.iStartSector, file.lngSize, false);
+            dir.write(abRecord, 0, abRecord.length);
+        }
+        if (dir.size() > CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1)
+            throw new IllegalStateException("Root directory does not fit in 1 sector");
+        byte[] ab = new byte[CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1];
+        System.arraycopy(dir.toByteArray(), 0, ab, 0, dir.size());
+        return ab;
+    }
+
+    private static @Nonnull byte[] createDirectoryRecord(@Nonnull byte[] abName, int iExtent,
+                                                         long lngSize, boolean blnIsDir)
+    {
+        // records are padded to an even length
+        int iLength = (33 + abName.length + 1) & ~1;
+        byte[] ab = new byte[iLength];
+        ab[0] = (byte)iLength;
+        putBothEndian32(ab, 2, iExtent);
+        putBothEndian32(ab, 10, (int)lngSize);
+        ab[18] = 99; // 1999-01-01 00:00:00 GMT
+        ab[19] = 1;
+        ab[20] = 1;
+        ab[25] = (byte)(blnIsDir ? 2 : 0);
+        putBothEndian16(ab, 28, 1); // volume sequence number
+        ab[32] = (byte)abName.length;
+        System.arraycopy(abName, 0, ab, 33, abName.length);
+        return ab;
+    }
+
+    /** Space padded ASCII. */
+    private static void putString(@Nonnull byte[] ab, int iOfs, @Nonnull String s, int iLength) {
+        for (int i = 0; i < iLength; i++)
+            ab[iOfs + i] = (byte)(i < s.length() ? s.charAt(i) : ' ');
+    }
+
+    private static void putBothEndian16(@Nonnull byte[] ab, int iOfs, int i) {
+        IO.writeInt16LE(ab, iOfs, (short)i);
+        IO.writeInt16BE(ab, iOfs + 2, (short)i);
+    }
+
+    private static void putBothEndian32(@Nonnull byte[] ab, int iOfs, int i) {
+        IO.writeInt32LE(ab, iOfs, i);
+        ab[iOfs+4] = (byte)(i >>> 24);
+        ab[iOfs+5] = (byte)(i >>> 16);
+        ab[iOfs+6] = (byte)(i >>>  8);
+        ab[iOfs+7] = (byte)(i       );
+    }
+
+    // -------------------------------------------------------------------------
+    // -- Content shared with the benchmarks -----------------------------------
+    // -------------------------------------------------------------------------
+
+    /** Smooth moving gradients with a sharp edged box and some noise,
+     * which has roughly the detail of real game video. */
+    public static @Nonnull PsxYCbCrImage createFrameImage(int iWidth, int iHeight, int iFrame) {
+        PsxYCbCrImage img = new PsxYCbCrImage(iWidth, iHeight);
+        Random rand = new Random(iFrame);
+        int iBoxX = (iFrame * 4) % iWidth, iBoxY = (iFrame * 3) % iHeight;
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++) {
+                double dblY = 90 * Math.sin((x + iFrame * 3) * 0.05) * Math.cos((y - iFrame * 2) * 0.04);
+                if (x >= iBoxX && x < iBoxX + 48 && y >= iBoxY && y < iBoxY + 32)
+                    dblY = 100;
+                dblY += rand.nextGaussian() * 4;
+                img.setY(x, y, clamp(dblY));
+            }
+        }
+        for (int y = 0; y < iHeight / 2; y++) {
+            for (int x = 0; x < iWidth / 2; x++) {
+                img.setCb(x, y, clamp(60 * Math.sin(x * 0.03 + iFrame * 0.1)));
+                img.setCr(x, y, clamp(60 * Math.cos(y * 0.05 - iFrame * 0.07)));
+            }
+        }
+        return img;
+    }
+
+    private static double clamp(double dbl) {
+        return Math.max(-128, Math.min(127, dbl));
+    }
+
+    /** Encodes an image into a frame bitstream using the same quantization
+     * scale for every block. */
+    public static @Nonnull byte[] compress(@Nonnull PsxYCbCrImage img,
+                                           @Nonnull BitStreamCompressor compressor,
+                                           int iQscale)
+    {
+        return compress(new MdecEncoder(img, img.getLumaWidth(), img.getLumaHeight()),
+                        compressor, iQscale);
+    }
+
+    private static @Nonnull byte[] compress(@Nonnull MdecEncoder encoder,
+                                            @Nonnull BitStreamCompressor compressor,
+                                            int iQscale)
+    {
+        int[] aiQscales = { iQscale, iQscale, iQscale, iQscale, iQscale, iQscale };
+        for (MacroBlockEncoder mb : encoder)
+            mb.setToFullEncode(aiQscales);
+        try {
+            return compressor.compress(encoder.getStream(),
+                                       encoder.getPixelWidth(), encoder.getPixelHeight());
+        } catch (IncompatibleException ex) {
+            throw new RuntimeException("Compressor can't handle its own encoding", ex);
+        } catch (MdecException.EndOfStream ex) {
+            throw new RuntimeException("Encoder should generate a complete frame", ex);
+        } catch (MdecException.ReadCorruption ex) {
+            throw new RuntimeException("Encoder should generate valid MDEC codes", ex);
+        } catch (MdecException.TooMuchEnergy ex) {
+            throw new RuntimeException("Synthetic frames should not have this much energy", ex);
+        }
+    }
+
+    /** A mix of tones as signed 16-bit little-endian PCM. */
+    public static @Nonnull AudioInputStream createTones(int iSampleFrames, int iChannels,
+                                                       float fltSampleRate)
+    {
+        byte[] abPcm = new byte[iSampleFrames * iChannels * 2];
+        int iPos = 0;
+        for (int i = 0; i < iSampleFrames; i++) {
+            for (int iChannel = 0; iChannel < iChannels; iChannel++) {
+                double dbl = 8000 * Math.sin(2 * Math.PI * i * (220 + 110 * iChannel) / fltSampleRate) +
+                             2000 * Math.sin(2 * Math.PI * i * 1375 / fltSampleRate);
+                int iSample = (int)Math.round(dbl);
+                abPcm[iPos++] = (byte)iSample;
+                abPcm[iPos++] = (byte)(iSample >> 8);
+            }
+        }
+        AudioFormat fmt = new AudioFormat(fltSampleRate, 16, iChannels, true, false);
+        return new AudioInputStream(new ByteArrayInputStream(abPcm), fmt, iSampleFrames);
+    }
+
+    /** Encodes tones to XA ADPCM.
+     * @return {@code iSectorCount} sectors worth of ADPCM sound groups,
+     *         {@link #XA_SECTOR_AUDIO_SIZE} bytes each. */
+    public static @Nonnull byte[] encodeXa(int iSectorCount, int iBitsPerSample, boolean blnStereo)
+            throws IOException
+    {
+        int iChannels = blnStereo ? 2 : 1;
+        int iSampleFrames = iSectorCount *
+                XaAdpcmDecoder.pcmSamplesGeneratedFromXaAdpcmSector(iBitsPerSample) / iChannels;
+        AudioInputStream ais = createTones(iSampleFrames, iChannels, 37800);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(iSectorCount * XA_SECTOR_AUDIO_SIZE);
+        XaAdpcmEncoder encoder = new XaAdpcmEncoder(ais, iBitsPerSample);
+        try {
+            for (int i = 0; i < iSectorCount; i++)
+                encoder.encode1Sector(out);
+        } finally {
+            encoder.close();
+        }
+        return out.toByteArray();
+    }
+
+    /** Encodes tones to SPU ADPCM.
+     * @return One stream of {@code iSoundUnitCount} sound units for each channel. */
+    public static @Nonnull byte[][] encodeSpu(int iSoundUnitCount, boolean blnStereo)
+            throws IOException
+    {
+        int iChannels = blnStereo ? 2 : 1;
+        int iSampleFrames = iSoundUnitCount * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+        SpuAdpcmEncoder encoder = new SpuAdpcmEncoder(createTones(iSampleFrames, iChannels, 44100));
+        ByteArrayOutputStream[] aOut = new ByteArrayOutputStream[iChannels];
+        for (int i = 0; i < iChannels; i++)
+            aOut[i] = new ByteArrayOutputStream(iSoundUnitCount * SpuAdpcmDecoder.SIZEOF_SOUND_UNIT);
+        try {
+            for (int i = 0; i < iSoundUnitCount; i++)
+                encoder.encode1SoundUnit(aOut);
+        } finally {
+            encoder.close();
+        }
+        byte[][] aab = new byte[iChannels][];
+        for (int i = 0; i < iChannels; i++)
+            aab[i] = aOut[i].toByteArray();
+        return aab;
+    }
+
+    /** A pattern of colored tiles.
+     * @param iColors Number of colors to use, or 0 for a smooth gradient. */
+    public static @Nonnull BufferedImage createTimImage(int iWidth, int iHeight, int iColors, long lngSeed) {
+        Random rand = new Random(lngSeed);
+        int[] aiPalette = new int[Math.max(iColors, 1)];
+        for (int i = 0; i < aiPalette.length; i++)
+            aiPalette[i] = rand.nextInt(0x1000000);
+
+        BufferedImage bi = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++) {
+                int iRgb;
+                if (iColors > 0)
+                    iRgb = aiPalette[(x / 4 + (y / 4) * 7) % iColors];
+                else
+                    iRgb = ((x * 255 / iWidth) << 16) | ((y * 255 / iHeight) << 8) | (aiPalette[0] & 0xff);
+                bi.setRGB(x, y, iRgb);
+            }
+        }
+        return bi;
+    }
+
+}
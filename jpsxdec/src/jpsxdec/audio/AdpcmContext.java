@@ -114,6 +114,13 @@ public class AdpcmContext {
         return _dblPreviousPCMSample2;
     }
 
+    /** Replaces the previous two samples. Used by decoders that keep the
+     * previous samples locally while decoding. */
+    public void setPreviousPCMSamples(double dblPreviousPCMSample1, double dblPreviousPCMSample2) {
+        _dblPreviousPCMSample1 = dblPreviousPCMSample1;
+        _dblPreviousPCMSample2 = dblPreviousPCMSample2;
+    }
+
     /** Resets the context as if it has just been constructed. */
     public void reset() {
         _dblPreviousPCMSample1 = 0;
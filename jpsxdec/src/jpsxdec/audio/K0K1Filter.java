@@ -48,6 +48,10 @@ public abstract class K0K1Filter {
     abstract public double getK0(int iIndex);
     /** K1 filter at the supplied index. */
     abstract public double getK1(int iIndex);
+    /** K0 filter at the supplied index, in 1/64 units. */
+    abstract public int getK0x64(int iIndex);
+    /** K1 filter at the supplied index, in 1/64 units. */
+    abstract public int getK1x64(int iIndex);
 
     /** K0 and K1 filters for XA ADPCM audio. */
     public static final K0K1Filter XA = new Xa();
@@ -72,6 +76,9 @@ public abstract class K0K1Filter {
             -0.859375, // -55.0 / 64.0
         };
 
+        static final int[] SoundUnit_K0x64 = { 0, 60, 115,  98 };
+        static final int[] SoundUnit_K1x64 = { 0,  0, -52, -55 };
+
         @Override
         public int getCount() {
             return 4;
@@ -86,6 +93,16 @@ public abstract class K0K1Filter {
         public double getK1(int iIndex) {
             return SoundUnit_K1[iIndex];
         }
+
+        @Override
+        public int getK0x64(int iIndex) {
+            return SoundUnit_K0x64[iIndex];
+        }
+
+        @Override
+        public int getK1x64(int iIndex) {
+            return SoundUnit_K1x64[iIndex];
+        }
     }
 
 
@@ -113,6 +130,8 @@ public abstract class K0K1Filter {
             -0.859375, // -55.0 / 64.0
             -0.9375  , // -60.0 / 64.0 <- one more possible value than XA-ADPCM
         };
+        private final static int K0x64[] = { 0, 60, 115,  98, 122 };
+        private final static int K1x64[] = { 0,  0, -52, -55, -60 };
 
 
         @Override
@@ -129,6 +148,16 @@ public abstract class K0K1Filter {
         public double getK1(int iIndex) {
             return K1[iIndex];
         }
+
+        @Override
+        public int getK0x64(int iIndex) {
+            return K0x64[iIndex];
+        }
+
+        @Override
+        public int getK1x64(int iIndex) {
+            return K1x64[iIndex];
+        }
     }
 
 }
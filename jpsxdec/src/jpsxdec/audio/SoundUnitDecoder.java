@@ -39,6 +39,7 @@ package jpsxdec.audio;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.util.Maths;
 
 
 public class SoundUnitDecoder {
@@ -65,6 +66,16 @@ public class SoundUnitDecoder {
     /** The 'range' parameter. How many bits to shift the ADPCM sample to
      * the right. */
     private int _iRange = -1;
+    /** Filters for the current {@link #_iFilterIndex}. */
+    private double _dblK0, _dblK1;
+    /** Filters for the current {@link #_iFilterIndex}, in 1/64 units. */
+    private int _iK0x64, _iK1x64;
+
+    /** Fraction bits kept in the previous samples for
+     * {@link AdpcmDecodeMode#FIXED_POINT}. */
+    private static final int FIXED_FRACTION_BITS = 24;
+    private static final double FIXED_MULT = 1L << FIXED_FRACTION_BITS;
+    private static final long FIXED_HALF = 1L << (FIXED_FRACTION_BITS - 1);
 
 
     public SoundUnitDecoder(@Nonnull K0K1Filter filterTable) {
@@ -82,6 +93,10 @@ public class SoundUnitDecoder {
             throw new IllegalArgumentException();
         _iFilterIndex = iFilterIndex;
         _iRange = iRange;
+        _dblK0 = _filterTable.getK0(iFilterIndex);
+        _dblK1 = _filterTable.getK1(iFilterIndex);
+        _iK0x64 = _filterTable.getK0x64(iFilterIndex);
+        _iK1x64 = _filterTable.getK1x64(iFilterIndex);
         _iWritePos = 0;
     }
     
@@ -99,6 +114,39 @@ public class SoundUnitDecoder {
     void decodeSoundUnit(@Nonnull AdpcmContext context,
                          @Nonnull short[] asiPcmOutBuffer,
                          @Nonnull IContextCopier loggingContext)
+    {
+        decodeSoundUnit(context, asiPcmOutBuffer, 0, 1, loggingContext, AdpcmDecodeMode.FLOATING_POINT);
+    }
+
+    /** Same as {@link #decodeSoundUnit(AdpcmContext, short[], IContextCopier)}
+     * but can write the samples interleaved with other channels, and can use
+     * integer math.
+     * {@link #TELEMETRY_LISTENER} is only notified for
+     * {@link AdpcmDecodeMode#FLOATING_POINT}.
+     * @param iOutStart  Where to write the first sample.
+     * @param iOutStride Distance between samples in the output
+     *                   (e.g. 2 for stereo). */
+    void decodeSoundUnit(@Nonnull AdpcmContext context,
+                         @Nonnull short[] asiPcmOutBuffer, int iOutStart, int iOutStride,
+                         @Nonnull IContextCopier loggingContext,
+                         @Nonnull AdpcmDecodeMode mode)
+    {
+        switch (mode) {
+            case FIXED_POINT:
+                decodeFixedPoint(context, asiPcmOutBuffer, iOutStart, iOutStride);
+                break;
+            case SPU_HARDWARE:
+                decodeSpuHardware(context, asiPcmOutBuffer, iOutStart, iOutStride);
+                break;
+            default:
+                decodeFloatingPoint(context, asiPcmOutBuffer, iOutStart, iOutStride, loggingContext);
+        }
+        _iWritePos = 0;
+    }
+
+    private void decodeFloatingPoint(@Nonnull AdpcmContext context,
+                                     @Nonnull short[] asiPcmOutBuffer, int iOutStart, int iOutStride,
+                                     @Nonnull IContextCopier loggingContext)
     {
         Telemetry telemetry = null;
             if (TELEMETRY_LISTENER != null)
@@ -111,8 +159,8 @@ public class SoundUnitDecoder {
 
             // adjust according to the filter
             double dblDecodedPcm =
-                iUnRanged + _filterTable.getK0(_iFilterIndex) * context.getPreviousPCMSample1()
-                          + _filterTable.getK1(_iFilterIndex) * context.getPreviousPCMSample2();
+                iUnRanged + _dblK0 * context.getPreviousPCMSample1()
+                          + _dblK1 * context.getPreviousPCMSample2();
 
             if (telemetry != null) {
                 telemetry.asiSourceAdpcmSamples[i] = siAdpcmShortTopSample;
@@ -125,14 +173,78 @@ public class SoundUnitDecoder {
             // let the context scale, round, and clamp
             short siPcmSample = context.saveScaleRoundClampPCMSample(dblDecodedPcm);
             // finally return the polished sample
-            asiPcmOutBuffer[i] = siPcmSample;
+            asiPcmOutBuffer[iOutStart + i * iOutStride] = siPcmSample;
         }
-        _iWritePos = 0;
 
         if (telemetry != null && TELEMETRY_LISTENER != null)
             TELEMETRY_LISTENER.soundUnitDecoded(telemetry);
     }
 
+    /** Same math as {@link #decodeFloatingPoint} with the previous samples
+     * kept in {@link #FIXED_FRACTION_BITS} fixed-point. The filters are
+     * exact in 1/64 units, so the only difference is the fraction bits
+     * lost in the previous samples. */
+    private void decodeFixedPoint(@Nonnull AdpcmContext context,
+                                  @Nonnull short[] asiPcmOutBuffer, int iOutStart, int iOutStride)
+    {
+        final double dblVolume = context.getVolumeScale();
+        long lngPrev1 = Math.round(context.getPreviousPCMSample1() * FIXED_MULT);
+        long lngPrev2 = Math.round(context.getPreviousPCMSample2() * FIXED_MULT);
+        for (int i = 0, iOut = iOutStart; i < SAMPLES_PER_SOUND_UNIT; i++, iOut += iOutStride) {
+            int iUnRanged = _asiShiftedAdpcmBuffer[i] >> _iRange;
+            long lngPcm = ((long)iUnRanged << FIXED_FRACTION_BITS) +
+                          ((_iK0x64 * lngPrev1 + _iK1x64 * lngPrev2) >> 6);
+            lngPrev2 = lngPrev1;
+            lngPrev1 = lngPcm;
+
+            long lngRounded;
+            if (dblVolume == 1.0) {
+                // same rounding as Maths.round()
+                if (lngPcm > 0)
+                    lngRounded =   (lngPcm + FIXED_HALF) >> FIXED_FRACTION_BITS;
+                else
+                    lngRounded = -((-lngPcm + FIXED_HALF) >> FIXED_FRACTION_BITS);
+            } else {
+                lngRounded = Maths.round(lngPcm / FIXED_MULT * dblVolume);
+            }
+            asiPcmOutBuffer[iOut] = clampPcm(lngRounded);
+        }
+        context.setPreviousPCMSamples(lngPrev1 / FIXED_MULT, lngPrev2 / FIXED_MULT);
+    }
+
+    /** The integer math of the PlayStation hardware. */
+    private void decodeSpuHardware(@Nonnull AdpcmContext context,
+                                   @Nonnull short[] asiPcmOutBuffer, int iOutStart, int iOutStride)
+    {
+        final double dblVolume = context.getVolumeScale();
+        // the previous samples will already be integers if only this mode is used
+        int iPrev1 = (int)Maths.round(context.getPreviousPCMSample1());
+        int iPrev2 = (int)Maths.round(context.getPreviousPCMSample2());
+        // reserved ranges act as 9
+        final int iRange = _iRange > 12 ? 9 : _iRange;
+        for (int i = 0, iOut = iOutStart; i < SAMPLES_PER_SOUND_UNIT; i++, iOut += iOutStride) {
+            int iUnRanged = _asiShiftedAdpcmBuffer[i] >> iRange;
+            int iPcm = clampPcm(iUnRanged + ((_iK0x64 * iPrev1 + _iK1x64 * iPrev2 + 32) >> 6));
+            iPrev2 = iPrev1;
+            iPrev1 = iPcm;
+
+            if (dblVolume == 1.0)
+                asiPcmOutBuffer[iOut] = (short)iPcm;
+            else
+                asiPcmOutBuffer[iOut] = clampPcm(Maths.round(iPcm * dblVolume));
+        }
+        context.setPreviousPCMSamples(iPrev1, iPrev2);
+    }
+
+    private static short clampPcm(long lngPcm) {
+        if (lngPcm > Short.MAX_VALUE)
+            return Short.MAX_VALUE;
+        else if (lngPcm < Short.MIN_VALUE)
+            return Short.MIN_VALUE;
+        else
+            return (short) lngPcm;
+    }
+
     // =========================================================================
     // static
 
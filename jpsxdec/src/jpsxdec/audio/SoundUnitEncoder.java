@@ -85,6 +85,17 @@ public class SoundUnitEncoder {
 
     }
 
+    /** How to search for the best sound parameters. */
+    public static enum SearchMode {
+        /** Finds the same sound parameters as encoding with every filter
+         * and range. Encodings that can no longer win are abandoned early. */
+        EXACT,
+        /** Only tries the ranges close to the largest range that can fit
+         * each filter's prediction error. Usually finds the same sound
+         * parameters as {@link #EXACT}, but not always. */
+        FAST,
+    }
+
     /** Encoding equivalent to {@link AdpcmContext}. */
     private static class AdpcmEncodingContext {
         public double dblPrev1 = 0, dblPrev2 = 0;
@@ -100,13 +111,6 @@ public class SoundUnitEncoder {
             dblPrev1 = other.dblPrev1;
             dblPrev2 = other.dblPrev2;
         }
-
-        /** Clone this context. */
-        public @Nonnull AdpcmEncodingContext copy() {
-            AdpcmEncodingContext c = new AdpcmEncodingContext();
-            c.update(this);
-            return c;
-        }
     }
 
     // =========================================================================
@@ -127,6 +131,18 @@ public class SoundUnitEncoder {
     /** Maximum range shift for {@link #_iAdpcmBitsPerSample}. */
     private final int _iMaxRange;
 
+    @Nonnull
+    private SearchMode _searchMode = SearchMode.EXACT;
+
+    /** The encoding being tried, and the best encoding so far.
+     * Reused for every sound unit. */
+    @Nonnull
+    private final FilterRangeEncoder _trialA = new FilterRangeEncoder(),
+                                     _trialB = new FilterRangeEncoder();
+    /** Largest prediction error of each filter for {@link SearchMode#FAST}. */
+    @Nonnull
+    private final double[] _adblFastPredictionError;
+
 
     /** Creates an encoder to encode with the supplied filters and
      * generate ADPCM samples with the supplied bits/sample.
@@ -147,6 +163,16 @@ public class SoundUnitEncoder {
             throw new IllegalArgumentException("Bad bps " + iAdpcmBitsPerSample);
         }
         _filters = filters;
+        _adblFastPredictionError = new double[filters.getCount()];
+    }
+
+    /** Default is {@link SearchMode#EXACT}. */
+    public void setSearchMode(@Nonnull SearchMode searchMode) {
+        _searchMode = searchMode;
+    }
+
+    public @Nonnull SearchMode getSearchMode() {
+        return _searchMode;
     }
 
 
@@ -163,38 +189,130 @@ public class SoundUnitEncoder {
         if (asiPcmSoundUnitSamples.length != SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT)
             throw new IllegalArgumentException();
 
-        FilterRangeEncoder best = null;
-        FilterRangeEncoder zeroRangeFilter = null;
+        FilterRangeEncoder best;
+        if (_searchMode == SearchMode.FAST)
+            best = searchFast(asiPcmSoundUnitSamples, loggingContext);
+        else
+            best = searchExact(asiPcmSoundUnitSamples, loggingContext);
 
-        for (int iRange = _iMaxRange; iRange >= 0; iRange--) {
-            for (int iFilterIdx = 0; iFilterIdx < _filters.getCount(); iFilterIdx++) {
+        // only if all encoding options resulted in clamped samples
+        // do we default to the 0 range, 0 filter encoding
+        if (best == null) {
+            LOG.log(Level.WARNING,
+                    "Had to clamp encoded samples to encode {0}", loggingContext);
+            best = _trialA;
+            best.reset(0, 0, _context);
+            best.encode(asiPcmSoundUnitSamples, loggingContext, false, 0);
+        }
 
-                FilterRangeEncoder encTry = new FilterRangeEncoder(iFilterIdx, iRange,
-                                                                   _context.copy());
+        _context.update(best.getDecodedContext());
 
-                if (iRange == 0 && iFilterIdx == 0)
-                    zeroRangeFilter = encTry;
+        return best.makeEncodedUnit();
+    }
 
-                if (encTry.encode(asiPcmSoundUnitSamples, loggingContext))
+    /** Tries every range and filter, in the same order as always, so ties
+     * are settled the same way. Unless telemetry is being collected,
+     * an encoding is abandoned as soon as it clamps or it is no better than
+     * the best so far.
+     * @return null if every encoding had to clamp. */
+    private @CheckForNull FilterRangeEncoder searchExact(@Nonnull short[] asiPcmSoundUnitSamples,
+                                                         @Nonnull IContextCopier loggingContext)
+    {
+        boolean blnPrune = TELEMETRY_LISTENER == null;
+        FilterRangeEncoder best = null;
+        FilterRangeEncoder trial = _trialA;
+
+        for (int iRange = _iMaxRange; iRange >= 0; iRange--) {
+            for (int iFilterIdx = 0; iFilterIdx < _filters.getCount(); iFilterIdx++) {
+                trial.reset(iFilterIdx, iRange, _context);
+                if (!trial.encode(asiPcmSoundUnitSamples, loggingContext, blnPrune,
+                                  best == null ? Double.POSITIVE_INFINITY : best._dblMaxDelta))
                     continue;
 
-                if (best == null || encTry.isBetterThan(best)) {
-                    best = encTry;
+                if (best == null || trial.isBetterThan(best)) {
+                    best = trial;
+                    trial = (trial == _trialA) ? _trialB : _trialA;
                 }
             }
         }
+        return best;
+    }
 
-        // only if all encoding options resulted in clamped samples
-        // do we default to the 0 range, 0 filter encoding
-        if (best == null) {
-            LOG.log(Level.WARNING,
-                    "Had to clamp encoded samples to encode {0}", loggingContext);
-            best = zeroRangeFilter;
+    /** For each filter, estimates the largest range that won't clamp from
+     * the prediction error of the source samples, then steps down from
+     * there until an encoding doesn't clamp. Filters with the smallest
+     * prediction error are tried first so the rest can be abandoned sooner.
+     * @return null if every encoding had to clamp. */
+    private @CheckForNull FilterRangeEncoder searchFast(@Nonnull short[] asiPcmSoundUnitSamples,
+                                                        @Nonnull IContextCopier loggingContext)
+    {
+        final int iFilterCount = _filters.getCount();
+        for (int iFilterIdx = 0; iFilterIdx < iFilterCount; iFilterIdx++) {
+            double dblK0 = _filters.getK0(iFilterIdx), dblK1 = _filters.getK1(iFilterIdx);
+            double dblPrev1 = _context.dblPrev1, dblPrev2 = _context.dblPrev2;
+            double dblMaxError = 0;
+            for (int i = 0; i < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; i++) {
+                short siPcmSample = asiPcmSoundUnitSamples[i];
+                double dblError = Math.abs(siPcmSample - dblK0 * dblPrev1 - dblK1 * dblPrev2);
+                if (dblError > dblMaxError)
+                    dblMaxError = dblError;
+                dblPrev2 = dblPrev1;
+                dblPrev1 = siPcmSample;
+            }
+            _adblFastPredictionError[iFilterIdx] = dblMaxError;
         }
 
-        _context.update(best.getDecodedContext());
+        boolean blnPrune = TELEMETRY_LISTENER == null;
+        FilterRangeEncoder best = null;
+        FilterRangeEncoder trial = _trialA;
+
+        int iFiltersTried = 0; // bit mask
+        for (int iCount = 0; iCount < iFilterCount; iCount++) {
+            int iFilterIdx = -1;
+            for (int i = 0; i < iFilterCount; i++) {
+                if ((iFiltersTried & (1 << i)) == 0 &&
+                    (iFilterIdx < 0 || _adblFastPredictionError[i] < _adblFastPredictionError[iFilterIdx]))
+                    iFilterIdx = i;
+            }
+            iFiltersTried |= 1 << iFilterIdx;
 
-        return best.makeEncodedUnit();
+            int iRange = _iMaxRange;
+            while (iRange > 0 &&
+                   _adblFastPredictionError[iFilterIdx] * rangeScale(iRange) > _iEncodeMax + 0.5)
+            {
+                iRange--;
+            }
+            // the decoded samples can differ enough from the source samples
+            // that one range larger still fits
+            if (iRange < _iMaxRange)
+                iRange++;
+
+            for (; iRange >= 0; iRange--) {
+                trial.reset(iFilterIdx, iRange, _context);
+                boolean blnOk = trial.encode(asiPcmSoundUnitSamples, loggingContext, blnPrune,
+                                             best == null ? Double.POSITIVE_INFINITY : best._dblMaxDelta);
+                boolean blnClamped = trial._blnHadToClamp;
+                if (blnOk && (best == null || trial.isBetterThan(best))) {
+                    best = trial;
+                    trial = (trial == _trialA) ? _trialB : _trialA;
+                }
+                // smaller ranges only lose precision, so stop
+                // unless this range clamped
+                if (!blnClamped)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /** Multiplier to shift a filtered sample into the ADPCM bits for
+     * the range. Exactly the same as shifting. */
+    private double rangeScale(int iRange) {
+        int iBitsToShift = iRange - (16-_iAdpcmBitsPerSample);
+        if (iBitsToShift < 0)
+            return 1.0 / (1 << -iBitsToShift);
+        else
+            return 1 << iBitsToShift;
     }
 
     /** Encodes the PCM samples into an {@link EncodedUnit}.
@@ -214,9 +332,9 @@ public class SoundUnitEncoder {
             iRange < 0 || iRange > _iMaxRange)
             throw new IllegalArgumentException();
 
-        FilterRangeEncoder encoder = new FilterRangeEncoder(iFilterIdx, iRange,
-                                                            _context.copy());
-        if (encoder.encode(asiPcmSoundUnitSamples, loggingContext))
+        FilterRangeEncoder encoder = _trialA;
+        encoder.reset(iFilterIdx, iRange, _context);
+        if (!encoder.encode(asiPcmSoundUnitSamples, loggingContext, false, 0))
             LOG.log(Level.WARNING,
                     "{0}: Unable to encode with Filter Index {1} Range {2} without clamping",
                     new Object[]{loggingContext, iFilterIdx, iRange});
@@ -240,19 +358,20 @@ public class SoundUnitEncoder {
         return encodeSoundUnit(asiPcmSoundUnitSamples, iFilterIdx, iRange, loggingContext);
     }
 
-    /** Encodes PCM data for a particular filter and range combination.. */
+    /** Encodes PCM data for a particular filter and range combination.
+     * Reused with {@link #reset(int, int, AdpcmEncodingContext)}. */
     private class FilterRangeEncoder {
 
         /** Filter index to use for encoding. */
-        private final int _iFilterIndex;
+        private int _iFilterIndex;
         /** Range to use for encoding. */
-        private final int _iRange;
+        private int _iRange;
 
         /** Local copy of the encoding context, updated during encoding.
          * The running encoding context will be updated with this context
          * if this encoded sound unit is chosen.  */
         @Nonnull
-        private final AdpcmEncodingContext _contextSnapshot;
+        private final AdpcmEncodingContext _contextSnapshot = new AdpcmEncodingContext();
 
         /** Encoded data goes here. */
         private final byte[] _abEncodedAdpcm = new byte[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
@@ -268,12 +387,14 @@ public class SoundUnitEncoder {
 
         /** Will use the supplied sound parameters and a snapshot of the
          * running context for encoding. */
-        private FilterRangeEncoder(int iFilterIndex, int iRange,
-                                   @Nonnull AdpcmEncodingContext contextSnapshot)
+        public void reset(int iFilterIndex, int iRange,
+                          @Nonnull AdpcmEncodingContext runningContext)
         {
             _iFilterIndex = iFilterIndex;
             _iRange = iRange;
-            _contextSnapshot = contextSnapshot;
+            _contextSnapshot.update(runningContext);
+            _blnHadToClamp = false;
+            _dblMaxDelta = 0;
         }
 
         /** Checks if this sound unit provides better encoding than the supplied
@@ -290,33 +411,38 @@ public class SoundUnitEncoder {
         /** Make an {@link EncodedUnit} based of the encoding results
          * to be shared with the outside world */
         public @Nonnull EncodedUnit makeEncodedUnit() {
-            return new EncodedUnit(_iFilterIndex, _iRange, _blnHadToClamp, _abEncodedAdpcm);
+            return new EncodedUnit(_iFilterIndex, _iRange, _blnHadToClamp, _abEncodedAdpcm.clone());
         }
 
-        /** Returns if any samples were clamped. */
+        /** Encodes the samples.
+         * @param blnGiveUp Stop encoding as soon as a sample is clamped or
+         *                  the maximum delta reaches {@code dblGiveUpDelta}.
+         *                  The encoded data is incomplete if it stopped.
+         * @return if all samples were encoded without clamping. */
         private boolean encode(@Nonnull short[] asiPcmSoundUnitSamples,
-                               @Nonnull IContextCopier loggingContext)
+                               @Nonnull IContextCopier loggingContext,
+                               boolean blnGiveUp, double dblGiveUpDelta)
         {
             Telemetry telemetry = TELEMETRY_LISTENER == null ?
                     null
                     :
                     new Telemetry(loggingContext, _iFilterIndex, _iRange);
 
+            final double dblK0 = _filters.getK0(_iFilterIndex);
+            final double dblK1 = _filters.getK1(_iFilterIndex);
+            // do bit shifting via multiplying by a power of 2
+            final double dblRangeScale = rangeScale(_iRange);
+            final int iShiftToTop = 16-_iAdpcmBitsPerSample;
+            double dblPrev1 = _contextSnapshot.dblPrev1;
+            double dblPrev2 = _contextSnapshot.dblPrev2;
+
             for (int i = 0; i < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT; i++) {
                 short siPcmSample = asiPcmSoundUnitSamples[i];
 
-                double dblFiltered = siPcmSample - _filters.getK0(_iFilterIndex) * _contextSnapshot.dblPrev1
-                                                 - _filters.getK1(_iFilterIndex) * _contextSnapshot.dblPrev2;
+                double dblFiltered = siPcmSample - dblK0 * dblPrev1
+                                                 - dblK1 * dblPrev2;
 
-                // do bit shifting via mult/div
-                int iBitsToShift = _iRange - (16-_iAdpcmBitsPerSample);
-                double dblRaned;
-                if (iBitsToShift < 0)
-                    dblRaned = dblFiltered / (1 << -iBitsToShift);
-                else if (iBitsToShift > 0)
-                    dblRaned = dblFiltered * (1 << iBitsToShift);
-                else
-                    dblRaned = dblFiltered;
+                double dblRaned = dblFiltered * dblRangeScale;
 
                 long lngRanged = Math.round(dblRaned);
                 // check if the rounded value will fit in the bits available
@@ -330,6 +456,8 @@ public class SoundUnitEncoder {
                     if (telemetry != null)
                         telemetry.sFailure = "Sample#"+i+"=" + lngRanged + " won't fit between " + _iEncodeMin + " and " + _iEncodeMax;
                     _blnHadToClamp = true;
+                    if (blnGiveUp)
+                        return false;
                 }
                 byte bEncoded = (byte) lngRanged;
                 _abEncodedAdpcm[i] = bEncoded;
@@ -337,25 +465,30 @@ public class SoundUnitEncoder {
                 // now decode what was just encoded -------------------
 
                 // shift to the top of the short
-                short siAdpcmShortTopSample = (short) (bEncoded << (16-_iAdpcmBitsPerSample));
+                short siAdpcmShortTopSample = (short) (bEncoded << iShiftToTop);
                 // shift sound data according to the range, keeping the sign
                 int iUnRanged = (siAdpcmShortTopSample >> _iRange);
 
                 // adjust according to the filter
-                double dblDecodedPcm = iUnRanged + _filters.getK0(_iFilterIndex) * _contextSnapshot.dblPrev1
-                                                 + _filters.getK1(_iFilterIndex) * _contextSnapshot.dblPrev2;
+                double dblDecodedPcm = iUnRanged + dblK0 * dblPrev1
+                                                 + dblK1 * dblPrev2;
 
-                _contextSnapshot.update(dblDecodedPcm);
+                dblPrev2 = dblPrev1;
+                dblPrev1 = dblDecodedPcm;
 
                 double dblDelta = Math.abs(dblDecodedPcm - siPcmSample);
-                if (dblDelta > _dblMaxDelta)
+                if (dblDelta > _dblMaxDelta) {
                     _dblMaxDelta = dblDelta;
+                    // can't be better than the best anymore
+                    if (blnGiveUp && _dblMaxDelta >= dblGiveUpDelta)
+                        return false;
+                }
 
                 if (telemetry != null) {
                     telemetry.ablnSampleClamped[i]       = _blnHadToClamp;
                     telemetry.asiSourcePcmSamples[i]     = siPcmSample;
-                    telemetry.adblPrev1Samples[i]        = _contextSnapshot.dblPrev1;
-                    telemetry.adblPrev2Samples[i]        = _contextSnapshot.dblPrev2;
+                    telemetry.adblPrev1Samples[i]        = dblPrev1;
+                    telemetry.adblPrev2Samples[i]        = dblPrev2;
                     telemetry.adblFilteredSamples[i]     = dblFiltered;
                     telemetry.adblRangedSamples[i]       = dblRaned;
                     telemetry.abEncodedAdpcmSamples[i]   = bEncoded;
@@ -364,12 +497,15 @@ public class SoundUnitEncoder {
                 }
             }
 
+            _contextSnapshot.dblPrev1 = dblPrev1;
+            _contextSnapshot.dblPrev2 = dblPrev2;
+
             if (telemetry != null) {
                 telemetry.dblMaxDelta = _dblMaxDelta;
                 TELEMETRY_LISTENER.soundUnitEncoded(telemetry);
             }
 
-            return _blnHadToClamp;
+            return !_blnHadToClamp;
         }
     }
     
@@ -168,8 +168,13 @@ public abstract class SpuAdpcmDecoder {
 
 
 
-    public SpuAdpcmDecoder(double dblVolume) {
+    /** Holds the PCM bytes of a sound unit (for every channel) before
+     * writing them. */
+    protected final byte[] _abPcmSoundUnit;
+
+    public SpuAdpcmDecoder(double dblVolume, int iChannels) {
         _leftOrMonoSoundUnit = new SpuSoundUnitDecoder(dblVolume, _logContext);
+        _abPcmSoundUnit = new byte[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * 2 * iChannels];
     }
 
 
@@ -201,6 +206,16 @@ public abstract class SpuAdpcmDecoder {
         _leftOrMonoSoundUnit.resetContext();
     }
 
+    /** The math used to decode the ADPCM samples.
+     * Default is {@link AdpcmDecodeMode#FLOATING_POINT}. */
+    public void setDecodeMode(@Nonnull AdpcmDecodeMode mode) {
+        _leftOrMonoSoundUnit.setDecodeMode(mode);
+    }
+
+    public @Nonnull AdpcmDecodeMode getDecodeMode() {
+        return _leftOrMonoSoundUnit.getDecodeMode();
+    }
+
     /** Creates an audio format for this decoder.
      * The sample rate must be provided since the decoder doesn't track it. */
     abstract public @Nonnull AudioFormat getOutputFormat(int iSampleRate);
@@ -208,7 +223,7 @@ public abstract class SpuAdpcmDecoder {
     public static class Mono extends SpuAdpcmDecoder {
 
         public Mono(double dblVolume) {
-            super(dblVolume);
+            super(dblVolume, 1);
         }
 
         @Override
@@ -243,13 +258,15 @@ public abstract class SpuAdpcmDecoder {
             {
                 short[] asiLeftSamples = _leftOrMonoSoundUnit.readSoundUnit(monoStream);
 
-                for (int iSampleIdx = 0;
+                for (int iSampleIdx = 0, iByte = 0;
                      iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSampleIdx++, _logContext.lngSampleFramesWritten++)
+                     iSampleIdx++, iByte+=2)
                 {
-                    IO.writeInt16LE(out, asiLeftSamples[iSampleIdx]);
-                    iOutputSize += 2;
+                    IO.writeInt16LE(_abPcmSoundUnit, iByte, asiLeftSamples[iSampleIdx]);
                 }
+                out.write(_abPcmSoundUnit, 0, SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * 2);
+                _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                iOutputSize += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT * 2;
             }
             _logContext.iChannel = -1;
             return iOutputSize;
@@ -259,10 +276,11 @@ public abstract class SpuAdpcmDecoder {
 
     public static class Stereo extends SpuAdpcmDecoder {
 
+        @Nonnull
         private final SpuSoundUnitDecoder _rightSoundUnit;
 
         public Stereo(double dblVolume) {
-            super(dblVolume);
+            super(dblVolume, 2);
             _rightSoundUnit = new SpuSoundUnitDecoder(dblVolume, _logContext);
         }
 
@@ -278,6 +296,12 @@ public abstract class SpuAdpcmDecoder {
             _rightSoundUnit.setVolume(dblVolume);
         }
 
+        @Override
+        public void setDecodeMode(@Nonnull AdpcmDecodeMode mode) {
+            super.setDecodeMode(mode);
+            _rightSoundUnit.setDecodeMode(mode);
+        }
+
         @Override
         public @Nonnull AudioFormat getOutputFormat(int iSampleRate) {
             return new AudioFormat(iSampleRate, 16, 2, true, false);
@@ -314,15 +338,16 @@ public abstract class SpuAdpcmDecoder {
                 short[] asiRightSamples = _rightSoundUnit.readSoundUnit(rightStream);
                 _logContext.iChannel = -1;
 
-                for (int iSampleIdx = 0; 
+                for (int iSampleIdx = 0, iByte = 0;
                      iSampleIdx < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSampleIdx++, _logContext.lngSampleFramesWritten++)
+                     iSampleIdx++, iByte+=4)
                 {
-                    IO.writeInt16LE(out, asiLeftSamples[iSampleIdx]);
-                    iOutputSize += 2;
-                    IO.writeInt16LE(out, asiRightSamples[iSampleIdx]);
-                    iOutputSize += 2;
+                    IO.writeInt16LE(_abPcmSoundUnit, iByte,   asiLeftSamples[iSampleIdx]);
+                    IO.writeInt16LE(_abPcmSoundUnit, iByte+2, asiRightSamples[iSampleIdx]);
                 }
+                out.write(_abPcmSoundUnit);
+                _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+                iOutputSize += _abPcmSoundUnit.length;
             }
             return iOutputSize;
         }
@@ -412,6 +437,8 @@ public abstract class SpuAdpcmDecoder {
         private final AdpcmContext _adpcmContext;
         private final short[] _asiPcmSampleBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
         private final LogContext _logContext;
+        @Nonnull
+        private AdpcmDecodeMode _decodeMode = AdpcmDecodeMode.FLOATING_POINT;
 
         public SpuSoundUnitDecoder(double dblVolume, @Nonnull LogContext logContext) {
             super(K0K1Filter.SPU);
@@ -438,7 +465,7 @@ public abstract class SpuAdpcmDecoder {
                 addShiftedAdpcmSample((short)((iByte & 0xF0) <<  8));
             }
 
-            decodeSoundUnit(_adpcmContext, _asiPcmSampleBuffer, _logContext);
+            decodeSoundUnit(_adpcmContext, _asiPcmSampleBuffer, 0, 1, _logContext, _decodeMode);
             
             return _asiPcmSampleBuffer;
         }
@@ -519,6 +546,14 @@ public abstract class SpuAdpcmDecoder {
         public void setVolume(double dblVolume) {
             _adpcmContext.setVolumeScale(dblVolume);
         }
+
+        public void setDecodeMode(@Nonnull AdpcmDecodeMode mode) {
+            _decodeMode = mode;
+        }
+
+        public @Nonnull AdpcmDecodeMode getDecodeMode() {
+            return _decodeMode;
+        }
     }
 
 }
@@ -120,6 +120,12 @@ public class SpuAdpcmEncoder implements Closeable {
     public void close() throws IOException {
         _audioShortReader.close();
     }
+
+    /** Default is {@link SoundUnitEncoder.SearchMode#EXACT}. */
+    public void setSearchMode(@Nonnull SoundUnitEncoder.SearchMode searchMode) {
+        for (SoundUnitEncoder encoder : _aoEncoders)
+            encoder.setSearchMode(searchMode);
+    }
     
     /** Manually provide the filter and range parameters for every Sound Unit
      *  via a stream of bytes. Primarily for development/testing purposes. */
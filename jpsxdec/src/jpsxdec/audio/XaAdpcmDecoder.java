@@ -135,12 +135,15 @@ public class XaAdpcmDecoder {
     @CheckForNull
     private final AdpcmContext _rightContext;
 
-    /** Buffer decoded PCM audio for the left channel when stereo or only channel when mono. */
+    /** Decoded PCM samples of a sound group, interleaved when stereo. */
     @Nonnull
-    private final short[] _asiLeftOrMonoPcmBuffer;
-    /** Buffer decoded PCM audio for the right channel when stereo. */
-    @CheckForNull
-    private final short[] _asiRightPcmBuffer;
+    private final short[] _asiPcmSoundGroup;
+    /** {@link #_asiPcmSoundGroup} as little-endian bytes. */
+    @Nonnull
+    private final byte[] _abPcmSoundGroup;
+
+    @Nonnull
+    private AdpcmDecodeMode _decodeMode = AdpcmDecodeMode.FLOATING_POINT;
 
     /** Length will be the number of sound units per sound group. 
      * @see #SOUND_UNITS_IN_4_BIT_SOUND_GROUP
@@ -243,15 +246,23 @@ public class XaAdpcmDecoder {
 
         // create a context for each channel (one for mono, two for stereo)
         _leftMonoContext = new AdpcmContext(dblVolume);
-        _asiLeftOrMonoPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        if (_blnStereo) {
+        if (_blnStereo)
             _rightContext = new AdpcmContext(dblVolume);
-            _asiRightPcmBuffer = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
-        } else {
+        else
             _rightContext = null;
-            _asiRightPcmBuffer = null;
-        }
-        
+
+        _asiPcmSoundGroup = new short[iSoundUnitsPerSoundGroup * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        _abPcmSoundGroup = new byte[_asiPcmSoundGroup.length * 2];
+    }
+
+    /** The math used to decode the ADPCM samples.
+     * Default is {@link AdpcmDecodeMode#FLOATING_POINT}. */
+    public void setDecodeMode(@Nonnull AdpcmDecodeMode mode) {
+        _decodeMode = mode;
+    }
+
+    public @Nonnull AdpcmDecodeMode getDecodeMode() {
+        return _decodeMode;
     }
 
     /** Returns the volume scale that PCM samples are multiplied by before being clamped. */
@@ -338,44 +349,41 @@ public class XaAdpcmDecoder {
         else 
             deinterleave8BitsPerSampleSoundGroup(inStream);
 
-        // read decoded samples and write them to the output stream
+        // decode the whole sound group, then write it to the output stream
         if (_blnStereo) {
             for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnits.length; iSoundUnit+=2) {
+                int iOutStart = iSoundUnit * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+
                 _logContext.iSoundUnit = iSoundUnit;
                 AdpcmSoundUnit leftSoundUnit  = _aoSoundUnits[iSoundUnit];
-                leftSoundUnit.decodeSoundUnit(_leftMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
+                leftSoundUnit.decodeSoundUnit(_leftMonoContext, _asiPcmSoundGroup,
+                                              iOutStart, 2, _logContext, _decodeMode);
 
                 _logContext.iSoundUnit = iSoundUnit+1;
                 AdpcmSoundUnit rightSoundUnit = _aoSoundUnits[iSoundUnit+1];
-                rightSoundUnit.decodeSoundUnit(_rightContext, _asiRightPcmBuffer, _logContext);
+                rightSoundUnit.decodeSoundUnit(_rightContext, _asiPcmSoundGroup,
+                                               iOutStart + 1, 2, _logContext, _decodeMode);
 
                 _logContext.iSoundUnit = -1;
-                
-                for (int iSample = 0;
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                    IO.writeInt16LE(out, _asiRightPcmBuffer[iSample]);
-                }
-
+                _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
             }
         } else {
             for (int iSoundUnit = 0; iSoundUnit < _aoSoundUnits.length; iSoundUnit++) {
                 _logContext.iSoundUnit = iSoundUnit;
                 AdpcmSoundUnit soundUnit = _aoSoundUnits[iSoundUnit];
-                soundUnit.decodeSoundUnit(_leftMonoContext, _asiLeftOrMonoPcmBuffer, _logContext);
+                soundUnit.decodeSoundUnit(_leftMonoContext, _asiPcmSoundGroup,
+                                          iSoundUnit * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT, 1,
+                                          _logContext, _decodeMode);
                 
                 _logContext.iSoundUnit = -1;
-
-                for (int iSample = 0; 
-                     iSample < SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
-                     iSample++, _logContext.lngSampleFramesWritten++)
-                {
-                    IO.writeInt16LE(out, _asiLeftOrMonoPcmBuffer[iSample]);
-                }
+                _logContext.lngSampleFramesWritten += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
             }
         }
+
+        for (int i = 0, j = 0; i < _asiPcmSoundGroup.length; i++, j+=2) {
+            IO.writeInt16LE(_abPcmSoundGroup, j, _asiPcmSoundGroup[i]);
+        }
+        out.write(_abPcmSoundGroup);
     }
 
     /** Reads the sound parameters and ADPCM data for sound groups with
@@ -41,6 +41,12 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.sound.sampled.AudioFormat;
@@ -115,6 +121,21 @@ public class XaAdpcmEncoder implements Closeable {
     @CheckForNull
     private InputStream _presetPrameters = null;
 
+    private static final ThreadFactory CHANNEL_THREAD_FACTORY = new ThreadFactory() {
+        private final ThreadFactory _default = Executors.defaultThreadFactory();
+        public Thread newThread(Runnable r) {
+            Thread t = _default.newThread(r);
+            t.setName("XA encoding " + t.getName());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    /** Encodes the right channel while the left channel is encoded on the
+     * calling thread. Set by {@link #setEncodeChannelsInParallel(boolean)}. */
+    @CheckForNull
+    private ExecutorService _rightChannelExecutor;
+
     /** Create a new encoder for the given audio stream, to be encoded with the
      * given bits.
      * @param ais Must be 16 bits/sample at 37800 Hz or 18900 Hz in mono or stereo.
@@ -161,9 +182,31 @@ public class XaAdpcmEncoder implements Closeable {
     }
 
     public void close() throws IOException {
+        setEncodeChannelsInParallel(false);
         _audioShortReader.close();
     }
 
+    /** Default is {@link SoundUnitEncoder.SearchMode#EXACT}. */
+    public void setSearchMode(@Nonnull SoundUnitEncoder.SearchMode searchMode) {
+        for (SoundUnitEncoder encoder : _aoEncoders)
+            encoder.setSearchMode(searchMode);
+    }
+
+    /** When stereo, encode the left and right channels of each sector on
+     * separate threads. Each channel only depends on its own previous
+     * samples, so the output is the same either way.
+     * Ignored for mono and when preset parameters are used.
+     * {@link #close()} stops the thread. */
+    public void setEncodeChannelsInParallel(boolean blnParallel) {
+        if (blnParallel) {
+            if (_rightChannelExecutor == null && isStereo())
+                _rightChannelExecutor = Executors.newSingleThreadExecutor(CHANNEL_THREAD_FACTORY);
+        } else if (_rightChannelExecutor != null) {
+            _rightChannelExecutor.shutdown();
+            _rightChannelExecutor = null;
+        }
+    }
+
     /** Manually provide the filter and range parameters for every Sound Unit
      *  via a stream of bytes. Primarily for development/testing purposes. */
     public void setPresetParameters(@CheckForNull InputStream presetParameters) {
@@ -177,22 +220,105 @@ public class XaAdpcmEncoder implements Closeable {
      * If the end of the audio stream is reached, silence will be written
      * for the remainder to the output. */
     public void encode1Sector(@Nonnull OutputStream os) throws IOException {
-        for (_logContext.iSoundGroup = 0;
-             _logContext.iSoundGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR;
-             _logContext.iSoundGroup++)
-        {
-            encodeSoundGroup(os);
+        if (_rightChannelExecutor != null && _presetPrameters == null) {
+            encode1SectorParallel(os);
+        } else {
+            for (_logContext.iSoundGroup = 0;
+                 _logContext.iSoundGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR;
+                 _logContext.iSoundGroup++)
+            {
+                encodeSoundGroup(os);
+            }
         }
         _logContext.iSoundGroup = -1;
         _logContext.iEncodedSectorCount++;
     }
-    
-    private void encodeSoundGroup(@Nonnull OutputStream os) throws IOException {
-        SoundUnitEncoder.EncodedUnit[] aoEncoded;
+
+    private int getSoundUnitsPerSoundGroup() {
         if (_blnEncode4BitsElse8Bits)
-            aoEncoded = new SoundUnitEncoder.EncodedUnit[XaAdpcmDecoder.SOUND_UNITS_IN_4_BIT_SOUND_GROUP];
+            return XaAdpcmDecoder.SOUND_UNITS_IN_4_BIT_SOUND_GROUP;
         else
-            aoEncoded = new SoundUnitEncoder.EncodedUnit[XaAdpcmDecoder.SOUND_UNITS_IN_8_BIT_SOUND_GROUP];
+            return XaAdpcmDecoder.SOUND_UNITS_IN_8_BIT_SOUND_GROUP;
+    }
+
+    /** Reads all the samples for the sector, then encodes the right channel
+     * on {@link #_rightChannelExecutor} while the left channel is encoded
+     * on this thread. */
+    private void encode1SectorParallel(@Nonnull OutputStream os) throws IOException {
+        final int iUnitsPerSoundGroup = getSoundUnitsPerSoundGroup();
+        final int iUnitsPerChannel = XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR * iUnitsPerSoundGroup / 2;
+
+        final short[][] aasiLeftSamples = new short[iUnitsPerChannel][];
+        final short[][] aasiRightSamples = new short[iUnitsPerChannel][];
+        for (int i = 0; i < iUnitsPerChannel; i++) {
+            short[][] aasiPcmSoundUnitChannelSamples =
+                    _audioShortReader.readSoundUnitSamples(SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT);
+            aasiLeftSamples[i] = aasiPcmSoundUnitChannelSamples[0];
+            aasiRightSamples[i] = aasiPcmSoundUnitChannelSamples[1];
+        }
+
+        final SoundUnitEncoder.EncodedUnit[] aoLeftEncoded = new SoundUnitEncoder.EncodedUnit[iUnitsPerChannel];
+        final SoundUnitEncoder.EncodedUnit[] aoRightEncoded = new SoundUnitEncoder.EncodedUnit[iUnitsPerChannel];
+        Future<Void> rightFuture = _rightChannelExecutor.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                encodeChannel(1, aasiRightSamples, aoRightEncoded, iUnitsPerSoundGroup);
+                return null;
+            }
+        });
+        try {
+            encodeChannel(0, aasiLeftSamples, aoLeftEncoded, iUnitsPerSoundGroup);
+        } finally {
+            // the right encoder can't be used again until it's done
+            try {
+                rightFuture.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException)cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                throw new RuntimeException(cause);
+            }
+        }
+
+        SoundUnitEncoder.EncodedUnit[] aoEncoded = new SoundUnitEncoder.EncodedUnit[iUnitsPerSoundGroup];
+        for (int iSoundGroup = 0, iChannelUnit = 0;
+             iSoundGroup < XaAdpcmDecoder.ADPCM_SOUND_GROUPS_PER_SECTOR;
+             iSoundGroup++)
+        {
+            for (int i = 0; i < iUnitsPerSoundGroup; i += 2, iChannelUnit++) {
+                aoEncoded[i]   = aoLeftEncoded[iChannelUnit];
+                aoEncoded[i+1] = aoRightEncoded[iChannelUnit];
+            }
+            writeSoundGroup(os, aoEncoded);
+        }
+        _logContext.lngSamplesFramesRead += iUnitsPerChannel * SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+    }
+
+    /** Encodes one channel's sound units for a whole sector.
+     * Uses its own {@link LogContext} so it can run on any thread. */
+    private void encodeChannel(int iChannel, @Nonnull short[][] aasiSamples,
+                               @Nonnull SoundUnitEncoder.EncodedUnit[] aoEncoded,
+                               int iUnitsPerSoundGroup)
+            throws IOException
+    {
+        LogContext logContext = _logContext.copy();
+        logContext.iChannel = iChannel;
+        SoundUnitEncoder encoder = _aoEncoders[iChannel];
+        for (int i = 0; i < aasiSamples.length; i++) {
+            logContext.iSoundGroup = i * 2 / iUnitsPerSoundGroup;
+            logContext.iSoundUnit = i * 2 % iUnitsPerSoundGroup + iChannel;
+            aoEncoded[i] = encoder.encodeSoundUnit(aasiSamples[i], logContext);
+            logContext.lngSamplesFramesRead += SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT;
+        }
+    }
+    
+    private void encodeSoundGroup(@Nonnull OutputStream os) throws IOException {
+        SoundUnitEncoder.EncodedUnit[] aoEncoded =
+                new SoundUnitEncoder.EncodedUnit[getSoundUnitsPerSoundGroup()];
 
         for (_logContext.iSoundUnit = 0; _logContext.iSoundUnit < aoEncoded.length;) {
             short[][] aasiPcmSoundUnitChannelSamples =
@@ -216,7 +342,14 @@ public class XaAdpcmEncoder implements Closeable {
         }
         _logContext.iSoundUnit = -1;
 
-        // write the sound parameters and the encoded samples
+        writeSoundGroup(os, aoEncoded);
+    }
+
+    /** Writes the sound parameters and the encoded samples. */
+    private void writeSoundGroup(@Nonnull OutputStream os,
+                                 @Nonnull SoundUnitEncoder.EncodedUnit[] aoEncoded)
+            throws IOException
+    {
         if (_blnEncode4BitsElse8Bits) {
             // aoEncoded.length == AdpcmSoundGroup.SOUND_UNITS_IN_4_BIT_SOUND_GROUP == 8
         
@@ -43,7 +43,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -66,6 +72,12 @@ import jpsxdec.util.BinaryDataNotRecognized;
  * <li>{@link #SECTOR_SIZE_2352_BIN}
  * <li>{@link #SECTOR_SIZE_2448_BIN_SUBCHANNEL}
  * </ul>
+ * When opened read-only, the disc image is memory-mapped in windows of
+ * whole sectors and sectors are created directly on top of the mapped
+ * memory, so no copying or seeking is needed to read them. Multiple
+ * windows are used so images larger than 2GB can be read.
+ * If mapping fails, or the image is opened for writing, it falls back to
+ * reading the file in blocks of sectors.
  */
 public class CdFileSectorReader implements Closeable {
 
@@ -90,6 +102,13 @@ public class CdFileSectorReader implements Closeable {
     
     private static final int DEFAULT_SECTOR_BUFFER_COUNT   = 16;
 
+    /** Most sectors to hold when batching writes before writing them. */
+    private static final int MAX_PENDING_WRITES = 1024;
+
+    /** Approximate size of each memory-mapped window of the disc image.
+     * Rounded down to whole sectors so a sector never straddles windows. */
+    private static final int MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
     /* ---------------------------------------------------------------------- */
     /* Fields --------------------------------------------------------------- */
     /* ---------------------------------------------------------------------- */
@@ -104,11 +123,27 @@ public class CdFileSectorReader implements Closeable {
     /** Number of full sectors in the disc image. */
     private final int _iSectorCount;
 
-    private int _iCachedSectorStart;
     private int _iSectorsToCache;
+    /** Each thread has its own bulk read buffer, filled by reading at an
+     * explicit file position rather than seeking, so several threads can
+     * read different parts of the disc at once without sharing the file
+     * pointer. */
+    private final ThreadLocal<BulkReadCache> _bulkReadCache = new ThreadLocal<BulkReadCache>();
+    /** Changed whenever sectors are written so every thread's
+     * {@link BulkReadCache} knows to read again. */
+    private volatile int _iCacheGeneration = 0;
+
+    /** Lazily mapped windows of the disc image, or null if not reading
+     * through memory-mapping. */
+    @CheckForNull
+    private ByteBuffer[] _aoMappedWindows;
+    private int _iSectorsPerWindow;
+
+    /** Rebuilt raw sectors waiting to be written, or null if writes
+     * aren't being batched.
+     * @see #beginBatchWrites() */
     @CheckForNull
-    private byte[] _abBulkReadCache;
-    private long _lngCacheFileOffset;
+    private TreeMap<Integer, byte[]> _pendingWrites;
 
     /* ---------------------------------------------------------------------- */
     /* Constructors --------------------------------------------------------- */
@@ -161,6 +196,9 @@ public class CdFileSectorReader implements Closeable {
         _sectorFactory = factory;
 
         _iSectorCount = calculateSectorCount();
+
+        if (!blnAllowWrites)
+            initMemoryMapping();
     }
 
     public CdFileSectorReader(@Nonnull File inputFile, int iSectorSize)
@@ -206,6 +244,9 @@ public class CdFileSectorReader implements Closeable {
         }
 
         _iSectorCount = calculateSectorCount();
+
+        if (!blnAllowWrites)
+            initMemoryMapping();
     }
 
     public CdFileSectorReader(@Nonnull String sSerialization, boolean blnAllowWrites)
@@ -262,6 +303,16 @@ public class CdFileSectorReader implements Closeable {
             throw new DeserializationFail(I.SECTOR_COUNT_MISMATCH(_iSectorCount, iActualSectorCount));
         }
 
+        if (!blnAllowWrites)
+            initMemoryMapping();
+    }
+
+    /** Prepares the (initially empty) list of mapped windows.
+     * The windows themselves are mapped when first needed. */
+    private void initMemoryMapping() {
+        _iSectorsPerWindow = MAPPED_WINDOW_SIZE / _sectorFactory.getRawSectorSize();
+        int iWindowCount = (_iSectorCount + _iSectorsPerWindow - 1) / _iSectorsPerWindow;
+        _aoMappedWindows = new ByteBuffer[iWindowCount];
     }
 
     private int calculateSectorCount() throws IOException {
@@ -307,7 +358,15 @@ public class CdFileSectorReader implements Closeable {
     }
 
     public void close() throws IOException {
-        _inputFile.close();
+        try {
+            flushWrites();
+        } finally {
+            // let the mapped memory be released once the sectors using it are gone
+            _aoMappedWindows = null;
+            _iCacheGeneration++;
+            _bulkReadCache.remove();
+            _inputFile.close();
+        }
     }
 
     //..........................................................................
@@ -345,28 +404,159 @@ public class CdFileSectorReader implements Closeable {
     //..........................................................................
 
     public @Nonnull CdSector getSector(int iSector) throws IOException {
+        if (_pendingWrites != null) {
+            byte[] abPending = _pendingWrites.get(iSector);
+            if (abPending != null)
+                return _sectorFactory.createSector(iSector, ByteBuffer.wrap(abPending), 0, getFilePointer(iSector));
+        }
+        ByteBuffer buff = bufferSector(iSector);
+        return _sectorFactory.createSector(iSector, buff, bufferedSectorOffset(buff, iSector), getFilePointer(iSector));
+    }
+
+    /** Reads the raw CD-XA subheader of a sector without creating a
+     * {@link CdSector} or checking for errors. The 4 bytes of the first copy
+     * (file, channel, submode, coding info) are in the low 32 bits, in that
+     * order starting with the lowest byte, and the second copy is in the
+     * high 32 bits.
+     *<p>
+     * Only meaningful if {@link #hasSectorHeader()}, and only if the sector
+     * is actually a mode 2 sector (i.e. not CD audio or mode 1).
+     * @see CdxaSubHeader */
+    public long readRawSubHeader(int iSector) throws IOException {
+        if (!hasSectorHeader())
+            throw new UnsupportedOperationException("Sectors don't have a header");
+        ByteBuffer buff = bufferSector(iSector);
+        int iOffset = bufferedSectorOffset(buff, iSector);
+        if (_sectorFactory.getRawSectorSize() != SECTOR_SIZE_2336_BIN_NOSYNC)
+            iOffset += CdxaHeader.SIZE;
+        long lngSubHeader = 0;
+        for (int i = CdxaSubHeader.SIZE - 1; i >= 0; i--) {
+            lngSubHeader = (lngSubHeader << 8) | (buff.get(iOffset + i) & 0xff);
+        }
+        return lngSubHeader;
+    }
+
+    /** If the raw data of sectors, as returned by
+     * {@link CdSector#getRawSectorDataCopy()}, can be copied straight from
+     * the disc image with {@link #transferRawSectors(int, long, WritableByteChannel)}.
+     * Not possible when the image has sub-channel data, or while writes are
+     * being held. */
+    public boolean canTransferRawSectors() {
+        return _sectorFactory.getRawSectorSize() != SECTOR_SIZE_2448_BIN_SUBCHANNEL &&
+               (_pendingWrites == null || _pendingWrites.isEmpty());
+    }
+
+    /** Copies {@code lngByteCount} bytes of raw sector data, starting at the
+     * beginning of {@code iStartSector}, from the disc image to {@code out}.
+     * The bytes are moved with {@link FileChannel#transferTo}, so they may
+     * never have to be copied into the JVM.
+     * Only valid if {@link #canTransferRawSectors()}. */
+    public void transferRawSectors(int iStartSector, long lngByteCount,
+                                   @Nonnull WritableByteChannel out)
+            throws IOException
+    {
+        if (!canTransferRawSectors())
+            throw new IllegalStateException("Raw sectors can't be transferred directly");
+        long lngPosition = getFilePointer(iStartSector);
+        long lngEnd = lngPosition + lngByteCount;
+        if (iStartSector < 0 || lngByteCount < 0 || lngEnd > getFilePointer(_iSectorCount))
+            throw new IndexOutOfBoundsException("Sectors starting at "+iStartSector+" not in bounds of CD");
+
+        FileChannel channel = _inputFile.getChannel();
+        while (lngPosition < lngEnd) {
+            long lngTransferred = channel.transferTo(lngPosition, lngEnd - lngPosition, out);
+            if (lngTransferred <= 0)
+                throw new EOFException();
+            lngPosition += lngTransferred;
+        }
+    }
+
+    /** Returns the buffer holding the raw data of the sector,
+     * reading it if necessary.
+     * @see #bufferedSectorOffset(java.nio.ByteBuffer, int) */
+    private @Nonnull ByteBuffer bufferSector(int iSector) throws IOException {
         if (iSector < 0 || iSector >= _iSectorCount)
             throw new IndexOutOfBoundsException("Sector "+iSector+" not in bounds of CD");
 
+        if (_aoMappedWindows != null) {
+            ByteBuffer window = getMappedWindow(iSector / _iSectorsPerWindow);
+            if (window != null)
+                return window;
+        }
 
-        if (iSector >= _iCachedSectorStart + _iSectorsToCache || iSector < _iCachedSectorStart || _abBulkReadCache == null) {
-            _abBulkReadCache = null; // in case of failure, make sure we aren't left with some invalid cache
+        BulkReadCache cache = _bulkReadCache.get();
+        if (cache == null) {
+            cache = new BulkReadCache();
+            _bulkReadCache.set(cache);
+        }
+        if (iSector >= cache.iFirstSector + _iSectorsToCache || iSector < cache.iFirstSector ||
+            cache.buff == null || cache.iGeneration != _iCacheGeneration)
+        {
+            cache.buff = null; // in case of failure, make sure we aren't left with some invalid cache
 
-            _iCachedSectorStart = iSector;
-            _lngCacheFileOffset = getFilePointer(iSector);
-            _inputFile.seek(_lngCacheFileOffset);
+            cache.iFirstSector = iSector;
+            cache.iGeneration = _iCacheGeneration;
             
             byte[] abBulkReadCache = new byte[_sectorFactory.getRawSectorSize() * _iSectorsToCache];
-            int iBytesRead = IO.readByteArrayMax(_inputFile, abBulkReadCache, 0, abBulkReadCache.length);
+            ByteBuffer buff = ByteBuffer.wrap(abBulkReadCache);
+            FileChannel channel = _inputFile.getChannel();
+            long lngFilePointer = getFilePointer(iSector);
+            while (buff.hasRemaining()) {
+                int iBytesRead = channel.read(buff, lngFilePointer + buff.position());
+                if (iBytesRead < 0)
+                    break;
+            }
             
-            if (iBytesRead < _sectorFactory.getRawSectorSize())
+            if (buff.position() < _sectorFactory.getRawSectorSize())
                 throw new LocalizedIOException(I.FAILED_TO_READ_1_SECTOR());
-            _abBulkReadCache = abBulkReadCache;
+            buff.clear();
+            cache.buff = buff;
         }
 
-        int iOffset = _sectorFactory.getRawSectorSize() * (iSector - _iCachedSectorStart);
+        return cache.buff;
+    }
+
+    /** Offset of the sector in the buffer returned by
+     * {@link #bufferSector(int)}. */
+    private int bufferedSectorOffset(@Nonnull ByteBuffer buff, int iSector) {
+        BulkReadCache cache = _bulkReadCache.get();
+        if (cache != null && buff == cache.buff)
+            return _sectorFactory.getRawSectorSize() * (iSector - cache.iFirstSector);
+        else
+            return _sectorFactory.getRawSectorSize() * (iSector % _iSectorsPerWindow);
+    }
+
+    /** One thread's most recently read run of sectors. */
+    private static class BulkReadCache {
+        public int iFirstSector;
+        public int iGeneration;
+        @CheckForNull
+        public ByteBuffer buff;
+    }
 
-        return _sectorFactory.createSector(iSector, _abBulkReadCache, iOffset, _lngCacheFileOffset + iOffset);
+    /** Returns the requested memory-mapped window, mapping it if necessary.
+     * If the mapping fails (e.g. out of address space on 32-bit JVMs),
+     * memory-mapping is disabled and null is returned. */
+    private @CheckForNull ByteBuffer getMappedWindow(int iWindow) {
+        ByteBuffer[] aoWindows = _aoMappedWindows;
+        if (aoWindows == null)
+            return null;
+        ByteBuffer window = aoWindows[iWindow];
+        if (window == null) {
+            int iFirstSector = iWindow * _iSectorsPerWindow;
+            int iSectors = Math.min(_iSectorsPerWindow, _iSectorCount - iFirstSector);
+            try {
+                window = _inputFile.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        getFilePointer(iFirstSector),
+                        (long)iSectors * _sectorFactory.getRawSectorSize());
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Unable to memory-map disc image, falling back to normal reading", ex);
+                _aoMappedWindows = null;
+                return null;
+            }
+            aoWindows[iWindow] = window;
+        }
+        return window;
     }
 
     //..........................................................................
@@ -383,13 +573,77 @@ public class CdFileSectorReader implements Closeable {
         
         byte[] abRawData = cdSector.rebuildRawSector(abSrcUserData);
 
-        long lngOffset = (long)_sectorFactory.get1stSectorOffset() + 
-                         (long)_sectorFactory.getRawSectorSize() * iSector;
+        if (_pendingWrites != null) {
+            _pendingWrites.put(iSector, abRawData);
+            if (_pendingWrites.size() >= MAX_PENDING_WRITES)
+                flushWrites();
+            return;
+        }
 
-        _inputFile.seek(lngOffset);
+        // existing sectors may be using the old read buffer, so leave it be
+        _iCacheGeneration++;
+        _inputFile.seek(getFilePointer(iSector));
         _inputFile.write(abRawData);
     }
 
+    /** Starts holding the sectors passed to
+     * {@link #writeSector(int, byte[])} so runs of contiguous sectors
+     * can be written together. The sectors are written by
+     * {@link #flushWrites()}, {@link #endBatchWrites()} or {@link #close()},
+     * or when too many are being held. Held sectors are still returned by
+     * {@link #getSector(int)}. */
+    public void beginBatchWrites() {
+        if (_pendingWrites == null)
+            _pendingWrites = new TreeMap<Integer, byte[]>();
+    }
+
+    /** Writes any held sectors and goes back to writing sectors
+     * as soon as they are passed to {@link #writeSector(int, byte[])}. */
+    public void endBatchWrites() throws IOException {
+        flushWrites();
+        _pendingWrites = null;
+    }
+
+    /** Writes any sectors held since {@link #beginBatchWrites()}.
+     * Each run of contiguous sectors is written with a single seek. */
+    public void flushWrites() throws IOException {
+        if (_pendingWrites == null || _pendingWrites.isEmpty())
+            return;
+
+        _iCacheGeneration++;
+        FileChannel channel = _inputFile.getChannel();
+        ArrayList<ByteBuffer> run = new ArrayList<ByteBuffer>();
+        long lngRunStart = -1, lngRunEnd = -1;
+        for (Map.Entry<Integer, byte[]> pending : _pendingWrites.entrySet()) {
+            long lngFilePointer = getFilePointer(pending.getKey());
+            // rebuilt sectors don't include sub-channel data, so those
+            // won't be contiguous
+            if (lngFilePointer != lngRunEnd) {
+                writeRun(channel, lngRunStart, lngRunEnd, run);
+                run.clear();
+                lngRunStart = lngRunEnd = lngFilePointer;
+            }
+            run.add(ByteBuffer.wrap(pending.getValue()));
+            lngRunEnd += pending.getValue().length;
+        }
+        writeRun(channel, lngRunStart, lngRunEnd, run);
+        _pendingWrites.clear();
+    }
+
+    private static void writeRun(@Nonnull FileChannel channel,
+                                 long lngStart, long lngEnd,
+                                 @Nonnull ArrayList<ByteBuffer> run)
+            throws IOException
+    {
+        if (run.isEmpty())
+            return;
+        ByteBuffer[] aoRun = run.toArray(new ByteBuffer[run.size()]);
+        channel.position(lngStart);
+        for (long lngRemaining = lngEnd - lngStart; lngRemaining > 0;) {
+            lngRemaining -= channel.write(aoRun);
+        }
+    }
+
     //..........................................................................
 
     @Override
@@ -398,6 +652,8 @@ public class CdFileSectorReader implements Closeable {
     }
 
     public void reopenForWriting() throws IOException {
+        // mapped windows were for reading only, go back to normal reading
+        _aoMappedWindows = null;
         _inputFile.close(); // expose close exception
         _inputFile = new RandomAccessFile(_sourceFile, "rw");
     }
@@ -407,7 +663,8 @@ public class CdFileSectorReader implements Closeable {
     /* ---------------------------------------------------------------------- */
     
     private interface SectorFactory {
-        @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer);
+        /** Only absolute reads may be performed on {@code sectorBuff}. */
+        @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer);
         @Nonnull ILocalizedMessage getTypeDescription();
         boolean hasSectorHeader();
         long get1stSectorOffset();
@@ -426,8 +683,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            return new CdSector2048(abSectorBuff, iOffset, iSector, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            return new CdSector2048(sectorBuff, iOffset, iSector, lngFilePointer);
         }
 
 
@@ -520,8 +777,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            CdSector2336 sector = new CdSector2336(abSectorBuff, iOffset, iSector, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            CdSector2336 sector = new CdSector2336(sectorBuff, iOffset, iSector, lngFilePointer);
             return sector;
         }
 
@@ -610,8 +867,8 @@ public class CdFileSectorReader implements Closeable {
             _lng1stSectorOffset = lngStartOffset;
         }
 
-        public @Nonnull CdSector createSector(int iSector, @Nonnull byte[] abSectorBuff, int iOffset, long lngFilePointer) {
-            CdSector2352 sector = new CdSector2352(abSectorBuff, iOffset, iSector, lngFilePointer);
+        public @Nonnull CdSector createSector(int iSector, @Nonnull ByteBuffer sectorBuff, int iOffset, long lngFilePointer) {
+            CdSector2352 sector = new CdSector2352(sectorBuff, iOffset, iSector, lngFilePointer);
             return sector;
         }
 
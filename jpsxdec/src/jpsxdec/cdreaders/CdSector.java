@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import javax.annotation.Nonnull;
 import jpsxdec.util.ByteArrayFPIS;
 
@@ -46,21 +47,63 @@ public abstract class  CdSector {
     protected final int _iSectorIndex;
     /** Byte offset of this sector in the source file. */
     protected final long _lngFilePointer;
+    /** Where the sector bytes live. Either wraps a heap array or is a
+     * read-only view into a memory-mapped region of the disc image.
+     * Only absolute get methods are used on it so it can be shared
+     * between sectors. */
     @Nonnull
-    protected final byte[] _abSectorBytes;
-    /** Offset in {@link #_abSectorBytes} where this sector begins. */
+    protected final ByteBuffer _sectorBytes;
+    /** Offset in {@link #_sectorBytes} where this sector begins. */
     protected final int _iByteStartOffset;
 
 
     protected CdSector(@Nonnull byte[] abSectorBytes, int iByteStartOffset,
                        int iSectorIndex, long lngFilePointer)
+    {
+        this(ByteBuffer.wrap(abSectorBytes), iByteStartOffset, iSectorIndex, lngFilePointer);
+    }
+
+    protected CdSector(@Nonnull ByteBuffer sectorBytes, int iByteStartOffset,
+                       int iSectorIndex, long lngFilePointer)
     {
         _iSectorIndex = iSectorIndex;
         _lngFilePointer = lngFilePointer;
-        _abSectorBytes = abSectorBytes;
+        _sectorBytes = sectorBytes;
         _iByteStartOffset = iByteStartOffset;
     }
 
+    /** Reads a byte relative to the start of the buffer holding the sector. */
+    protected byte getBufferByte(int iBufferOffset) {
+        return _sectorBytes.get(iBufferOffset);
+    }
+
+    /** Copies bytes relative to the start of the buffer holding the sector. */
+    protected void copyBufferBytes(int iBufferOffset, @Nonnull byte[] abOut, int iOutPos, int iLength) {
+        if (_sectorBytes.hasArray()) {
+            System.arraycopy(_sectorBytes.array(), _sectorBytes.arrayOffset() + iBufferOffset,
+                             abOut, iOutPos, iLength);
+        } else {
+            // duplicate so the shared buffer position is never touched
+            ByteBuffer dup = _sectorBytes.duplicate();
+            dup.position(iBufferOffset);
+            dup.get(abOut, iOutPos, iLength);
+        }
+    }
+
+    /** Creates a stream over bytes relative to the start of the buffer holding the sector.
+     * When the sector lives in a memory-mapped region, the bytes are first
+     * copied to the heap since the stream needs an array. */
+    protected @Nonnull ByteArrayFPIS bufferStream(int iBufferOffset, int iLength, long lngFilePointer) {
+        if (_sectorBytes.hasArray()) {
+            return new ByteArrayFPIS(_sectorBytes.array(), _sectorBytes.arrayOffset() + iBufferOffset,
+                                     iLength, lngFilePointer);
+        } else {
+            byte[] ab = new byte[iLength];
+            copyBufferBytes(iBufferOffset, ab, 0, iLength);
+            return new ByteArrayFPIS(ab, 0, iLength, lngFilePointer);
+        }
+    }
+
     /**
      * @return The sector index from the start of the file.
      */
@@ -37,6 +37,7 @@
 
 package jpsxdec.cdreaders;
 
+import java.nio.ByteBuffer;
 import javax.annotation.Nonnull;
 import jpsxdec.util.ByteArrayFPIS;
 
@@ -47,7 +48,13 @@ public class CdSector2048 extends CdSector {
     public CdSector2048(@Nonnull byte[] abSectorBytes, int iByteStartOffset, 
                         int iSectorIndex, long lngFilePointer)
     {
-        super(abSectorBytes, iByteStartOffset, iSectorIndex, lngFilePointer);
+        this(ByteBuffer.wrap(abSectorBytes), iByteStartOffset, iSectorIndex, lngFilePointer);
+    }
+
+    public CdSector2048(@Nonnull ByteBuffer sectorBytes, int iByteStartOffset,
+                        int iSectorIndex, long lngFilePointer)
+    {
+        super(sectorBytes, iByteStartOffset, iSectorIndex, lngFilePointer);
         // TODO: verify bytes are minimum size
     }
 
@@ -59,7 +66,7 @@ public class CdSector2048 extends CdSector {
     
     public byte readUserDataByte(int i) {
         if (i < 0 || i >= CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1) throw new IndexOutOfBoundsException();
-        return _abSectorBytes[_iByteStartOffset + i];
+        return getBufferByte(_iByteStartOffset + i);
     }
 
     /** Returns copy of the 'user data' portion of the sector. */
@@ -75,14 +82,12 @@ public class CdSector2048 extends CdSector {
         {
             throw new IndexOutOfBoundsException();
         }
-        System.arraycopy(_abSectorBytes, _iByteStartOffset + iSourcePos, 
-                abOut, iOutPos,
-                iLength);
+        copyBufferBytes(_iByteStartOffset + iSourcePos, abOut, iOutPos, iLength);
     }
     
     /** Returns an InputStream of the 'user data' portion of the sector. */
     public @Nonnull ByteArrayFPIS getCdUserDataStream() {
-        return new ByteArrayFPIS(_abSectorBytes, _iByteStartOffset, CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1, _lngFilePointer);
+        return bufferStream(_iByteStartOffset, CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1, _lngFilePointer);
     }
 
     /** Returns direct reference to the underlying sector data, with raw
@@ -38,6 +38,7 @@
 package jpsxdec.cdreaders;
 
 import java.util.logging.Logger;
+import java.nio.ByteBuffer;
 import javax.annotation.Nonnull;
 import jpsxdec.util.ByteArrayFPIS;
 
@@ -58,9 +59,15 @@ public class CdSector2336 extends CdSector {
     public CdSector2336(@Nonnull byte[] abSectorBytes, int iByteStartOffset,
                         int iSectorIndex, long lngFilePointer)
     {
-        super(abSectorBytes, iByteStartOffset, iSectorIndex, lngFilePointer);
+        this(ByteBuffer.wrap(abSectorBytes), iByteStartOffset, iSectorIndex, lngFilePointer);
+    }
+
+    public CdSector2336(@Nonnull ByteBuffer sectorBytes, int iByteStartOffset,
+                        int iSectorIndex, long lngFilePointer)
+    {
+        super(sectorBytes, iByteStartOffset, iSectorIndex, lngFilePointer);
 
-        _subHeader = new CdxaSubHeader(iSectorIndex, abSectorBytes, iByteStartOffset);
+        _subHeader = new CdxaSubHeader(iSectorIndex, sectorBytes, iByteStartOffset);
         _iUserDataOffset = _iByteStartOffset + _subHeader.getSize();
         if (_subHeader.getSubMode().getForm() == 1)
             _iUserDataSize = CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1;
@@ -75,7 +82,7 @@ public class CdSector2336 extends CdSector {
     
     public byte readUserDataByte(int i) {
         if (i < 0 || i >= _iUserDataSize) throw new IndexOutOfBoundsException();
-        return _abSectorBytes[_iUserDataOffset + i];
+        return getBufferByte(_iUserDataOffset + i);
     }
 
     /** Returns copy of the 'user data' portion of the sector. */
@@ -91,20 +98,18 @@ public class CdSector2336 extends CdSector {
         {
             throw new IndexOutOfBoundsException();
         }
-        System.arraycopy(_abSectorBytes, _iUserDataOffset + iSourcePos,
-                abOut, iOutPos,
-                iLength);
+        copyBufferBytes(_iUserDataOffset + iSourcePos, abOut, iOutPos, iLength);
     }
     
     /** Returns an InputStream of the 'user data' portion of the sector. */
     public @Nonnull ByteArrayFPIS getCdUserDataStream() {
-        return new ByteArrayFPIS(_abSectorBytes, _iUserDataOffset, _iUserDataSize, _lngFilePointer);
+        return bufferStream(_iUserDataOffset, _iUserDataSize, _lngFilePointer);
     }
 
     @Override
     public @Nonnull byte[] getRawSectorDataCopy() {
         byte[] ab = new byte[CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC];
-        System.arraycopy(_abSectorBytes, _iByteStartOffset, ab, 0, ab.length);
+        copyBufferBytes(_iByteStartOffset, ab, 0, ab.length);
         return ab;
     }
 
@@ -111,16 +111,68 @@ public class SectorErrorCorrection {
     private static final int L2_Q = 26 * 2 * 2;
     
 
+    /** Size of the data protected by ECC Q. */
+    private static final int Q_DATA_SIZE = 4 + 0x800 + 4 + 8 + L2_P;
+
+    /** {@link #EDC_crctable} extended so the EDC can be calculated 8 bytes
+     * at a time (slice-by-8). {@code EDC_SLICE[0]} is the original table,
+     * and each following table is the effect of one more 0 byte. */
+    private static final int[][] EDC_SLICE = new int[8][256];
+
+    /** For each of the 24 rows of ECC P, the products of every possible
+     * byte with the 2 row coefficients. The product with the 1st
+     * coefficient is in bits 0-7 and the 2nd in bits 8-15. */
+    private static final int[][] ECC_P_PRODUCTS = new int[24][256];
+    /** For each of the 43 columns of ECC Q, the same as
+     * {@link #ECC_P_PRODUCTS}. */
+    private static final int[][] ECC_Q_PRODUCTS = new int[43][256];
+
+    static {
+        for (int i = 0; i < 256; i++)
+            EDC_SLICE[0][i] = (int)EDC_crctable[i];
+        for (int iSlice = 1; iSlice < EDC_SLICE.length; iSlice++) {
+            for (int i = 0; i < 256; i++) {
+                int iPrev = EDC_SLICE[iSlice-1][i];
+                EDC_SLICE[iSlice][i] = EDC_SLICE[0][iPrev & 0xff] ^ (iPrev >>> 8);
+            }
+        }
+
+        for (int i = 0; i < ECC_P_PRODUCTS.length; i++)
+            fillProducts(ECC_P_PRODUCTS[i], DP[0][i], DP[1][i]);
+        for (int i = 0; i < ECC_Q_PRODUCTS.length; i++)
+            fillProducts(ECC_Q_PRODUCTS[i], DQ[0][i], DQ[1][i]);
+    }
+
+    private static void fillProducts(@Nonnull int[] aiProducts, int iCoef0, int iCoef1) {
+        // products with 0 stay 0
+        for (int iData = 1; iData < 256; iData++) {
+            int iLog = rs_l12_log[iData];
+            aiProducts[iData] = rs_l12_alog[(iLog + iCoef0) % ((1 << RS_L12_BITS) - 1)] |
+                               (rs_l12_alog[(iLog + iCoef1) % ((1 << RS_L12_BITS) - 1)] << 8);
+        }
+    }
+
     /** Generate sector EDC. It is a 32-but value, unsigned in a long. */
     public static long generateErrorDetectionAndCorrection(@Nonnull byte[] data, 
                                                            int iStart, int iEnd)
     {
-        long edc_i = 0;
-        for (int i = iStart; i < iEnd; i++) {
-            edc_i = EDC_crctable[(int)((edc_i ^ data[i]) & 0xFF)] ^ (edc_i >> 8);
+        final int[] T0 = EDC_SLICE[0], T1 = EDC_SLICE[1], T2 = EDC_SLICE[2], T3 = EDC_SLICE[3],
+                    T4 = EDC_SLICE[4], T5 = EDC_SLICE[5], T6 = EDC_SLICE[6], T7 = EDC_SLICE[7];
+        int iEdc = 0;
+        int i = iStart;
+        for (; i + 8 <= iEnd; i += 8) {
+            iEdc ^= (data[i  ] & 0xff)        | ((data[i+1] & 0xff) << 8) |
+                   ((data[i+2] & 0xff) << 16) | ((data[i+3] & 0xff) << 24);
+            iEdc = T7[iEdc & 0xff] ^ T6[(iEdc >>> 8) & 0xff] ^
+                   T5[(iEdc >>> 16) & 0xff] ^ T4[iEdc >>> 24] ^
+                   T3[data[i+4] & 0xff] ^ T2[data[i+5] & 0xff] ^
+                   T1[data[i+6] & 0xff] ^ T0[data[i+7] & 0xff];
+        }
+        for (; i < iEnd; i++) {
+            iEdc = T0[(iEdc ^ data[i]) & 0xff] ^ (iEdc >>> 8);
         }
 
-        return edc_i;
+        return iEdc & 0xffffffffL;
     }
     
     /** Generate sector ECC P.
@@ -133,23 +185,13 @@ public class SectorErrorCorrection {
         assert output.length - output_p >= L2_P;
 
         for (int j = 0; j < 43; j++, output_p += 2, data_p += 2) {
-            for (int i = 0; i < 24; i++) {
-                for (int n = 0; n < 2; n++) {
-                    int cdata = data[data_p+ i * 2 * 43 + n] & 0xff;
-                    if (cdata == 0) {
-                        continue;
-                    }
-
-                    int base = rs_l12_log[cdata];
-
-                    for (int t = 0; t < 2; t++) {
-                        int sum = base + DP[t][i];
-                        if (sum >= ((1 << RS_L12_BITS) - 1)) {
-                            sum -= (1 << RS_L12_BITS) - 1;
-                        }
-                        output[output_p+ 43 * 2 * t + n] ^= rs_l12_alog[sum];
-                    }
+            for (int n = 0; n < 2; n++) {
+                int iEcc = 0;
+                for (int i = 0; i < 24; i++) {
+                    iEcc ^= ECC_P_PRODUCTS[i][data[data_p+ i * 2 * 43 + n] & 0xff];
                 }
+                output[output_p+ n]          ^= (byte)iEcc;
+                output[output_p+ 43 * 2 + n] ^= (byte)(iEcc >> 8);
             }
         }
     }
@@ -160,28 +202,22 @@ public class SectorErrorCorrection {
     public static void generateErrorCorrectionCode_Q(@Nonnull byte[] data, int data_p, 
                                                      @Nonnull byte[] output, int output_p)
     {
-        assert data.length - data_p >= 4 + 0x800 + 4 + 8 + L2_P;
+        assert data.length - data_p >= Q_DATA_SIZE;
         assert output.length - output_p >= L2_Q;
 
         for (int j = 0; j < 26; j++, output_p += 2) {
-            for (int i = 0; i < 43; i++) {
-                for (int n = 0; n < 2; n++) {
-                    int cdata = data[data_p+ (j * 43 * 2 + i * 2 * 44 + n) % (4 + 0x800 + 4 + 8 + L2_P)] & 0xff;
-                    if (cdata == 0) {
-                        continue;
-                    }
-
-                    int base = rs_l12_log[cdata];
-
-                    for (int t = 0; t < 2; t++) {
-                        int sum = base + DQ[t][i];
-                        if (sum >= ((1 << RS_L12_BITS) - 1)) {
-                            sum -= (1 << RS_L12_BITS) - 1;
-                        }
-                        output[output_p+ 26 * 2 * t + n] ^= rs_l12_alog[sum];
-
-                    }
+            for (int n = 0; n < 2; n++) {
+                int iEcc = 0;
+                // (j * 43 * 2 + i * 2 * 44 + n) % Q_DATA_SIZE
+                int iOfs = j * 43 * 2 + n;
+                for (int i = 0; i < 43; i++) {
+                    iEcc ^= ECC_Q_PRODUCTS[i][data[data_p+ iOfs] & 0xff];
+                    iOfs += 2 * 44;
+                    if (iOfs >= Q_DATA_SIZE)
+                        iOfs -= Q_DATA_SIZE;
                 }
+                output[output_p+ n]          ^= (byte)iEcc;
+                output[output_p+ 26 * 2 + n] ^= (byte)(iEcc >> 8);
             }
         }
     }
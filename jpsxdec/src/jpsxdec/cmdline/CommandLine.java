@@ -37,6 +37,7 @@
 
 package jpsxdec.cmdline;
 
+import argparser.BooleanHolder;
 import argparser.StringHolder;
 import java.io.BufferedReader;
 import java.io.File;
@@ -55,6 +56,7 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.MiscResources;
 import jpsxdec.indexing.DiscIndex;
+import jpsxdec.sectors.IdentifiedSectorIterator;
 import jpsxdec.util.ArgParser;
 import jpsxdec.util.ConsoleProgressLogger;
 import jpsxdec.util.FeedbackStream;
@@ -76,9 +78,11 @@ public class CommandLine {
 
         StringHolder inputFileArg = ap.addStringOption("-f","-file");
         StringHolder indexFileArg = ap.addStringOption("-x","-index");
+        BooleanHolder sectorCacheArg = ap.addBoolOption("-sectorcache");
 
         Command[] aoCommands = {
             new Command_CopySect(),
+            new Command_DumpFs(),
             new Command_SectorDump(),
             new Command_Static(),
             new Command_Visualize(),
@@ -92,6 +96,8 @@ public class CommandLine {
 
         ap.match();
 
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(sectorCacheArg.value);
+
         Command mainCommand = null;
         for (Command command : aoCommands) {
             if(command.found()) {
@@ -215,7 +221,7 @@ public class CommandLine {
                 I.INDEX_LOG_FILE_BASE_NAME().getLocalizedMessage(), fbs.getUnderlyingStream());
         try {
             cpl.log(Level.INFO, I.CMD_GUI_INDEXING(cd));
-            index = new DiscIndex(cd, cpl);
+            index = new DiscIndex(cd, cpl, Runtime.getRuntime().availableProcessors());
         } catch (TaskCanceledException ex) {
             throw new RuntimeException("Impossible TaskCanceledException during commandline indexing", ex);
         } finally {
@@ -0,0 +1,108 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2013-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cmdline;
+
+import argparser.BooleanHolder;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.discitems.DiscItemISO9660File;
+import jpsxdec.i18n.I;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.util.ArgParser;
+import jpsxdec.util.ConsoleProgressLogger;
+import jpsxdec.util.TaskCanceledException;
+
+
+/** Command to save every file of the disc's ISO9660 file system. */
+class Command_DumpFs extends Command {
+
+    private static final Logger LOG = Logger.getLogger(Command_DumpFs.class.getName());
+
+    @Nonnull
+    private File _outputDir;
+
+    public Command_DumpFs() {
+        super("-dumpfs");
+    }
+
+    protected @CheckForNull ILocalizedMessage validate(@Nonnull String s) {
+        _outputDir = new File(s);
+        return null;
+    }
+
+    public void execute(@Nonnull ArgParser ap) throws CommandLineException {
+        BooleanHolder isoArg = ap.addBoolOption("-iso");
+        ap.match();
+
+        DiscIndex discIndex = getIndex();
+
+        ArrayList<DiscItemISO9660File> files = new ArrayList<DiscItemISO9660File>();
+        for (DiscItem item : discIndex) {
+            if (item instanceof DiscItemISO9660File)
+                files.add((DiscItemISO9660File) item);
+        }
+        if (files.isEmpty()) {
+            _fbs.println(I.CMD_NO_ITEMS_OF_TYPE(DiscItem.GeneralType.File.getName().getLocalizedMessage()));
+            return;
+        }
+
+        _fbs.println(I.CMD_DUMPING_FILESYSTEM(files.size(), _outputDir.toString()));
+        ConsoleProgressLogger saveLog = new ConsoleProgressLogger(
+                I.SAVE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
+        int iFailures;
+        try {
+            iFailures = DiscItemISO9660File.saveAll(files, isoArg.value, _outputDir, saveLog);
+        } catch (TaskCanceledException ex) {
+            LOG.log(Level.SEVERE, "SHOULD NEVER HAPPEN", ex);
+            return;
+        } finally {
+            saveLog.close();
+        }
+
+        if (iFailures > 0)
+            _fbs.printlnWarn(I.CMD_DUMPFS_FAILURES(iFailures));
+        _fbs.println(I.CMD_ALL_ITEMS_COMPLETE());
+    }
+
+}
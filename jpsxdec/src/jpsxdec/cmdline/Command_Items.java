@@ -56,6 +56,7 @@ import jpsxdec.discitems.DiscItemTim;
 import jpsxdec.discitems.DiscItemVideoStream;
 import jpsxdec.discitems.DiscItemXaAudioStream;
 import jpsxdec.discitems.IDiscItemSaver;
+import jpsxdec.discitems.SaverScheduler;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.i18n.UnlocalizedMessage;
@@ -115,7 +116,7 @@ class Command_Items {
             ConsoleProgressLogger replaceLog = new ConsoleProgressLogger(
                     I.REPLACE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
             try {
-                handleItem(item, ap, _fbs, saveLog, replaceLog);
+                handleItem(item, ap, _fbs, saveLog, replaceLog, false);
             } finally {
                 saveLog.close();
                 replaceLog.close();
@@ -136,6 +137,19 @@ class Command_Items {
             return null;
         }
         public void execute(@Nonnull ArgParser ap) throws CommandLineException {
+            StringHolder threadsArg = ap.addStringOption("-threads");
+            ap.match();
+            int iThreads = 1;
+            if (threadsArg.value != null) {
+                try {
+                    iThreads = Integer.parseInt(threadsArg.value);
+                } catch (NumberFormatException ex) {
+                    iThreads = 0;
+                }
+                if (iThreads < 1)
+                    throw new CommandLineException(I.CMD_THREADS_INVALID(threadsArg.value));
+            }
+
             DiscIndex discIndex = getIndex();
 
             boolean blnFound = false;
@@ -145,12 +159,37 @@ class Command_Items {
                     I.REPLACE_LOG_FILE_BASE_NAME().getLocalizedMessage(), _fbs.getUnderlyingStream());
 
             try {
+                // with more than 1 thread, savers are only prepared here
+                // and run together afterwards
+                SaverScheduler scheduler = new SaverScheduler(iThreads);
+                int iSaveCount = 0;
                 for (DiscItem item : discIndex) {
                     if (item.getType().getName().equalsIgnoreCase(_sType)) {
                         blnFound = true;
-                        handleItem(item, ap.copy(), _fbs, saveLog, replaceLog);
-                        _fbs.println(I.CMD_ITEM_COMPLETE());
-                        _fbs.println();
+                        IDiscItemSaver saver = handleItem(item, ap.copy(), _fbs, saveLog, replaceLog, iThreads > 1);
+                        if (saver != null) {
+                            scheduler.add(new ConsoleSaveJob(saver, _fbs, saveLog));
+                            iSaveCount++;
+                        } else {
+                            _fbs.println(I.CMD_ITEM_COMPLETE());
+                            _fbs.println();
+                        }
+                    }
+                }
+                if (iSaveCount > 0) {
+                    _fbs.println(I.CMD_SAVING_CONCURRENTLY(iSaveCount, iThreads));
+                    try {
+                        scheduler.runAll();
+                    } catch (TaskCanceledException ex) {
+                        LOG.log(Level.SEVERE, "SHOULD NEVER HAPPEN", ex);
+                    } catch (InterruptedException ex) {
+                        throw new CommandLineException(ex);
+                    } catch (RuntimeException ex) {
+                        // failure already logged by the job
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        if (cause instanceof LoggedFailure)
+                            throw new CommandLineException(((LoggedFailure)cause).getSourceMessage(), cause);
+                        throw new CommandLineException(I.CMD_ERR_EX_CLASS(cause, cause.getClass().getSimpleName()), cause);
                     }
                 }
             } finally {
@@ -166,11 +205,53 @@ class Command_Items {
         }
     }
 
-    private static void handleItem(@Nonnull DiscItem item,
-                                   @Nonnull ArgParser ap,
-                                   @Nonnull FeedbackStream fbs,
-                                   @Nonnull ConsoleProgressLogger saveLog,
-                                   @Nonnull ConsoleProgressLogger replaceLog)
+    /** Saves an item to be run later by a {@link SaverScheduler},
+     * printing its progress lines prefixed with the item's index. */
+    private static class ConsoleSaveJob extends SaverScheduler.Job {
+
+        @Nonnull
+        private final FeedbackStream _fbs;
+        @Nonnull
+        private final ConsoleProgressLogger _saveLog;
+
+        public ConsoleSaveJob(@Nonnull IDiscItemSaver saver,
+                              @Nonnull FeedbackStream fbs,
+                              @Nonnull ConsoleProgressLogger saveLog)
+        {
+            super(saver);
+            _fbs = fbs;
+            _saveLog = saveLog;
+        }
+
+        protected void save() throws TaskCanceledException {
+            DiscItem item = getSaver().getDiscItem();
+            String sPrefix = "[" + item.getIndex() + "] ";
+            ConsoleProgressLogger cpl = new ConsoleProgressLogger(
+                    _saveLog, sPrefix, _fbs.getUnderlyingStream());
+            try {
+                saveItem(item, getSaver(), _fbs, cpl, sPrefix);
+                _fbs.println(new UnlocalizedMessage(sPrefix + I.CMD_ITEM_COMPLETE().getLocalizedMessage()));
+            } catch (LoggedFailure ex) {
+                // usually already logged to this job's log
+                if (!ex.wasLogged())
+                    ex.log(cpl);
+                throw new RuntimeException(ex);
+            } catch (Throwable ex) {
+                _saveLog.log(Level.SEVERE, I.CMD_ERR_EX_CLASS(ex, ex.getClass().getSimpleName()), ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /** @param blnPrepareSaveOnly If the item is to be saved, only create
+     *                           and return its saver.
+     * @return The saver if {@code blnPrepareSaveOnly}, otherwise null. */
+    private static @CheckForNull IDiscItemSaver handleItem(@Nonnull DiscItem item,
+                                                          @Nonnull ArgParser ap,
+                                                          @Nonnull FeedbackStream fbs,
+                                                          @Nonnull ConsoleProgressLogger saveLog,
+                                                          @Nonnull ConsoleProgressLogger replaceLog,
+                                                          boolean blnPrepareSaveOnly)
             throws CommandLineException
     {
         BooleanHolder fpsDumpArg = ap.addBoolOption("-fpsdump");
@@ -272,7 +353,10 @@ class Command_Items {
                 else
                     dir = null;
                 // decode/extract the desired disc item
-                decodeDiscItem(item, dir, ap, fbs, saveLog);
+                IDiscItemSaver saver = makeSaver(item, dir, ap, fbs);
+                if (blnPrepareSaveOnly)
+                    return saver;
+                saveItem(item, saver, fbs, saveLog, "");
                 fbs.println(I.CMD_PROCESS_COMPLETE());
             }
 
@@ -291,13 +375,12 @@ class Command_Items {
             saveLog.log(Level.SEVERE, msg, ex);
             throw new CommandLineException(msg, ex);
         }
+        return null;
     }
 
-    private static void decodeDiscItem(@Nonnull DiscItem item, @CheckForNull File dir,
-                                       @Nonnull ArgParser ap,
-                                       @Nonnull FeedbackStream fbs,
-                                       @Nonnull ConsoleProgressLogger cpl)
-            throws LoggedFailure
+    private static @Nonnull IDiscItemSaver makeSaver(@Nonnull DiscItem item, @CheckForNull File dir,
+                                                     @Nonnull ArgParser ap,
+                                                     @Nonnull FeedbackStream fbs)
     {
 
         DiscItemSaverBuilder builder = item.makeSaverBuilder();
@@ -312,18 +395,29 @@ class Command_Items {
 
         saver.printSelectedOptions(fbs);
 
+        return saver;
+    }
+
+    /** @param sPrefix Put before the lines printed, to tell items apart
+     *                 when several are being saved at once. */
+    private static void saveItem(@Nonnull DiscItem item, @Nonnull IDiscItemSaver saver,
+                                 @Nonnull FeedbackStream fbs,
+                                 @Nonnull ConsoleProgressLogger cpl,
+                                 @Nonnull String sPrefix)
+            throws LoggedFailure
+    {
         long lngStart, lngEnd;
         lngStart = System.currentTimeMillis();
         try {
             cpl.log(Level.INFO, new UnlocalizedMessage(item.getSourceCd().toString()));
             cpl.log(Level.INFO, new UnlocalizedMessage(item.toString()));
             saver.startSave(cpl);
-            fbs.println(I.CMD_NUM_FILES_CREATED(saver.getGeneratedFiles().length));
+            fbs.println(new UnlocalizedMessage(sPrefix + I.CMD_NUM_FILES_CREATED(saver.getGeneratedFiles().length).getLocalizedMessage()));
         } catch (TaskCanceledException ex) {
             LOG.log(Level.SEVERE, "SHOULD NEVER HAPPEN", ex);
         }
         lngEnd = System.currentTimeMillis();
-        fbs.println(I.PROCESS_TIME((lngEnd - lngStart) / 1000.0));
+        fbs.println(new UnlocalizedMessage(sPrefix + I.PROCESS_TIME((lngEnd - lngStart) / 1000.0).getLocalizedMessage()));
     }
 
 }
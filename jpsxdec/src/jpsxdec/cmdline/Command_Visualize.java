@@ -38,13 +38,22 @@
 package jpsxdec.cmdline;
 
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.discitems.DiscItem;
 import jpsxdec.i18n.I;
@@ -57,7 +66,20 @@ import jpsxdec.util.ArgParser;
 import jpsxdec.util.IO;
 
 
+/** Draws the sectors of a disc, and the disc items over them, to a PDF,
+ * or to a PNG if the output file ends with ".png". */
 class Command_Visualize extends Command {
+
+    private static final int SECTOR_SECTION_SIZE = 32;
+    private static final int TEXT_LINE_HEIGHT = 16;
+    private static final int BOX_AREA_WIDTH = 16;
+    private static final int BOX_MARGIN_LEFT = 2;
+    private static final int BOX_MARGIN_RIGHT = 2;
+    private static final int BOX_WIDTH = BOX_AREA_WIDTH - (BOX_MARGIN_RIGHT + BOX_MARGIN_LEFT);
+    private static final double MAX_PDF_SIZE = 200.0 * 72.0 - 18.0;
+    /** The sectors are squeezed to fit in this many pixels in a PNG. */
+    private static final int MAX_PNG_HEIGHT = 16384;
+
     @Nonnull
     private String _sOutfile;
 
@@ -73,15 +95,8 @@ class Command_Visualize extends Command {
     public void execute(@Nonnull ArgParser ap) throws CommandLineException {
         DiscIndex index = getIndex();
         CdFileSectorReader cd = index.getSourceCd();
-        FileOutputStream pdfStream = null;
+        Drawing drawing = null;
         try {
-            final int SECTOR_SECTION_SIZE = 32;
-            final int TEXT_LINE_HEIGHT = 16;
-            final int BOX_AREA_WIDTH = 16;
-            final int BOX_MARGIN_LEFT = 2;
-            final int BOX_MARGIN_RIGHT = 2;
-            final int BOX_WIDTH = BOX_AREA_WIDTH - (BOX_MARGIN_RIGHT + BOX_MARGIN_LEFT);
-            final double MAX_PDF_SIZE = 200.0 * 72.0 - 18.0;
             /* priority:
              * ISO file
              * video
@@ -92,42 +107,19 @@ class Command_Visualize extends Command {
              */
             _fbs.println(I.CMD_GENERATING_VISUALIZATION());
             int[] aiDataPoints = extractDataPoints(index);
+            TreeMap<Integer, ArrayList<DiscItem>> itemsByStart = indexByStartSector(index);
             // pre-determine the tree-area width based on max point of overalpping items
-            int iMaxOverlap = findMaxOverlap(aiDataPoints, index);
+            int iMaxOverlap = findMaxOverlap(index);
             //########################################################
             int iWidth = SECTOR_SECTION_SIZE + iMaxOverlap * TEXT_LINE_HEIGHT + iMaxOverlap * BOX_AREA_WIDTH;
             int iHeight = cd.getLength() + 1;
-            final double SCALE;
-            if (iHeight < MAX_PDF_SIZE) {
-                SCALE = 1;
-            } else {
-                SCALE = MAX_PDF_SIZE / iHeight;
-            }
-            pdfStream = new FileOutputStream(_sOutfile);
-            com.pdfjet.PDF pdf = new com.pdfjet.PDF(pdfStream);
-            com.pdfjet.Font pdfFont = new com.pdfjet.Font(pdf, "Helvetica");
-            pdfFont.setSize(6 * SCALE);
-            com.pdfjet.Page pdfPage = new com.pdfjet.Page(pdf, new double[]{iWidth * SCALE, iHeight * SCALE});
-            IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
-            for (int iSector = 0; it.hasNext(); iSector++) {
-                try {
-                    IdentifiedSector sector = it.next();
-                    Color c;
-                    if (sector == null)
-                        c = classToColor(UnidentifiedSector.class);
-                    else
-                        c = classToColor(sector.getClass());
-                    int[] aiRgb = {c.getRed(), c.getGreen(), c.getBlue()};
-                    
-                    com.pdfjet.Box pdfBox = new com.pdfjet.Box(0 * SCALE, iSector * SCALE, SECTOR_SECTION_SIZE * SCALE, 1 * SCALE);
-                    pdfBox.setFillShape(true);
-                    pdfBox.setLineWidth(0);
-                    pdfBox.setColor(aiRgb);
-                    pdfBox.drawOn(pdfPage);
-                } catch (IOException ex) {
-                    ex.printStackTrace(); // TODO?
-                }
-            }
+            if (_sOutfile.toLowerCase().endsWith(".png"))
+                drawing = new PngDrawing(iWidth, iHeight);
+            else
+                drawing = new PdfDrawing(new File(_sOutfile), iWidth, iHeight);
+
+            drawSectors(cd, drawing);
+
             DiscItem[] aoRunningItems = new DiscItem[iMaxOverlap];
             /*
              * at each datapoint, there are basically 3 different things that can happen
@@ -141,30 +133,14 @@ class Command_Visualize extends Command {
              */
             for (int iDataPoint : aiDataPoints) {
                 // open
-                for (DiscItem item : index) {
-                    if (item.getStartSector() == iDataPoint) {
+                ArrayList<DiscItem> starting = itemsByStart.get(iDataPoint);
+                if (starting != null) {
+                    for (DiscItem item : starting) {
                         int i = findFree(aoRunningItems);
                         aoRunningItems[i] = item;
-                        double x = (SECTOR_SECTION_SIZE + i * BOX_AREA_WIDTH + BOX_MARGIN_LEFT) * SCALE;
-                        double y = item.getStartSector() * SCALE;
-                        double w = BOX_WIDTH * SCALE;
-                        double h = item.getSectorLength() * SCALE;
-                        // draw box
-                        com.pdfjet.Box pdfBox = new com.pdfjet.Box(x, y, w, h);
-                        Color c = classToColor(item.getClass());
-                        int[] aiRgb = {c.getRed(), c.getGreen(), c.getBlue()};
-                        pdfBox.setColor(aiRgb);
-                        pdfBox.setFillShape(true);
-                        pdfBox.setLineWidth(0);
-                        pdfBox.drawOn(pdfPage);
-                        pdfBox.setFillShape(false);
-                        pdfBox.setColor(com.pdfjet.RGB.WHITE);
-                        pdfBox.setLineWidth(0.3 * SCALE);
-                        pdfBox.drawOn(pdfPage);
-                        com.pdfjet.TextLine pdfText = new com.pdfjet.TextLine(pdfFont, item.toString());
-                        pdfText.setPosition(x, y);
-                        pdfText.setColor(com.pdfjet.RGB.DARK_GRAY);
-                        pdfText.drawOn(pdfPage);
+                        drawing.item(SECTOR_SECTION_SIZE + i * BOX_AREA_WIDTH + BOX_MARGIN_LEFT,
+                                     item.getStartSector(), BOX_WIDTH, item.getSectorLength(),
+                                     classToColor(item.getClass()), item.toString());
                     }
                 }
                 for (int i = 0; i < aoRunningItems.length; i++) {
@@ -175,18 +151,50 @@ class Command_Visualize extends Command {
                     }
                 }
             }
-            pdf.flush();
+            drawing.finish(new File(_sOutfile));
         } catch (Exception ex) {
             throw new CommandLineException(I.CMD_VISUALIZATION_ERR(), ex);
         } finally {
-            IO.closeSilently(pdfStream, Logger.getLogger(Command_Visualize.class.getName()));
+            if (drawing != null)
+                drawing.close();
+        }
+    }
+
+    /** Draws runs of consecutive sectors of the same type as single bands. */
+    private void drawSectors(@Nonnull CdFileSectorReader cd, @Nonnull Drawing drawing)
+            throws Exception
+    {
+        IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
+        Class<?> bandType = null;
+        int iBandStart = 0;
+        int iSector = 0;
+        for (; it.hasNext(); iSector++) {
+            Class<?> sectorType;
+            try {
+                IdentifiedSector sector = it.next();
+                if (sector == null)
+                    sectorType = UnidentifiedSector.class;
+                else
+                    sectorType = sector.getClass();
+            } catch (IOException ex) {
+                ex.printStackTrace(); // TODO?
+                sectorType = null; // leave a gap
+            }
+            if (sectorType != bandType) {
+                if (bandType != null)
+                    drawing.sectors(iBandStart, iSector - iBandStart, SECTOR_SECTION_SIZE, classToColor(bandType));
+                bandType = sectorType;
+                iBandStart = iSector;
+            }
         }
+        if (bandType != null)
+            drawing.sectors(iBandStart, iSector - iBandStart, SECTOR_SECTION_SIZE, classToColor(bandType));
     }
 
     private final HashMap<Class, Color> colorLookup = new HashMap<Class, Color>();
 
     private @Nonnull Color classToColor(@Nonnull Class c) {
-        Color color = colorLookup.get(c.getClass());
+        Color color = colorLookup.get(c);
         if (color == null) {
             int iClr = c.getName().hashCode();
             color = new Color(iClr);
@@ -219,18 +227,198 @@ class Command_Visualize extends Command {
         return aiDataPoints;
     }
 
-    private static int findMaxOverlap(@Nonnull int[] aiDataPoints, @Nonnull DiscIndex index) {
+    /** Items starting at each sector, in the order they are in the index. */
+    private static @Nonnull TreeMap<Integer, ArrayList<DiscItem>> indexByStartSector(@Nonnull DiscIndex index) {
+        TreeMap<Integer, ArrayList<DiscItem>> itemsByStart = new TreeMap<Integer, ArrayList<DiscItem>>();
+        for (DiscItem item : index) {
+            ArrayList<DiscItem> starting = itemsByStart.get(item.getStartSector());
+            if (starting == null) {
+                starting = new ArrayList<DiscItem>();
+                itemsByStart.put(item.getStartSector(), starting);
+            }
+            starting.add(item);
+        }
+        return itemsByStart;
+    }
+
+    /** Most items that include the same sector. Since the count only
+     * goes up at the start of an item, only the starts need to be checked. */
+    private static int findMaxOverlap(@Nonnull DiscIndex index) {
+        int[] aiStarts = new int[index.size()];
+        int[] aiEnds = new int[index.size()];
+        int i = 0;
+        for (DiscItem item : index) {
+            aiStarts[i] = item.getStartSector();
+            aiEnds[i] = item.getEndSector();
+            i++;
+        }
+        Arrays.sort(aiStarts);
+        Arrays.sort(aiEnds);
+
         int iMaxOverlap = 0;
-        for (int iSector : aiDataPoints) {
-            int iSectorOverlap = 0;
-            for (DiscItem item : index) {
-                if (iSector >= item.getStartSector() && iSector <= item.getEndSector())
-                    iSectorOverlap++;
+        int iOverlap = 0;
+        int iEndIdx = 0;
+        for (int iStart : aiStarts) {
+            while (aiEnds[iEndIdx] < iStart) {
+                iOverlap--;
+                iEndIdx++;
             }
-            if (iSectorOverlap > iMaxOverlap)
-                iMaxOverlap = iSectorOverlap;
+            iOverlap++;
+            if (iOverlap > iMaxOverlap)
+                iMaxOverlap = iOverlap;
         }
         return iMaxOverlap;
     }
 
+    //=========================================================================
+
+    /** Where the visualization is drawn. Vertical positions and sizes
+     * are in sectors. */
+    private static abstract class Drawing {
+        /** Draws a band of sectors of the same type. */
+        abstract public void sectors(int iStartSector, int iSectorCount,
+                                     int iWidth, @Nonnull Color c)
+                throws Exception;
+        abstract public void item(int iX, int iStartSector, int iWidth, int iSectorCount,
+                                  @Nonnull Color c, @Nonnull String sLabel)
+                throws Exception;
+        abstract public void finish(@Nonnull File outFile) throws Exception;
+        /** Releases any resources without throwing. */
+        abstract public void close();
+    }
+
+    /** Draws each band and item as a PDF object, scaled to fit the
+     * largest page size PDF allows. */
+    private static class PdfDrawing extends Drawing {
+        @Nonnull
+        private final FileOutputStream _pdfStream;
+        @Nonnull
+        private final com.pdfjet.PDF _pdf;
+        @Nonnull
+        private final com.pdfjet.Font _pdfFont;
+        @Nonnull
+        private final com.pdfjet.Page _pdfPage;
+        private final double SCALE;
+
+        public PdfDrawing(@Nonnull File outFile, int iWidth, int iHeight) throws Exception {
+            if (iHeight < MAX_PDF_SIZE) {
+                SCALE = 1;
+            } else {
+                SCALE = MAX_PDF_SIZE / iHeight;
+            }
+            _pdfStream = new FileOutputStream(outFile);
+            try {
+                _pdf = new com.pdfjet.PDF(_pdfStream);
+                _pdfFont = new com.pdfjet.Font(_pdf, "Helvetica");
+                _pdfFont.setSize(6 * SCALE);
+                _pdfPage = new com.pdfjet.Page(_pdf, new double[]{iWidth * SCALE, iHeight * SCALE});
+            } catch (Exception ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        private static @Nonnull int[] rgb(@Nonnull Color c) {
+            return new int[] {c.getRed(), c.getGreen(), c.getBlue()};
+        }
+
+        public void sectors(int iStartSector, int iSectorCount, int iWidth, @Nonnull Color c) throws Exception {
+            com.pdfjet.Box pdfBox = new com.pdfjet.Box(0 * SCALE, iStartSector * SCALE, iWidth * SCALE, iSectorCount * SCALE);
+            pdfBox.setFillShape(true);
+            pdfBox.setLineWidth(0);
+            pdfBox.setColor(rgb(c));
+            pdfBox.drawOn(_pdfPage);
+        }
+
+        public void item(int iX, int iStartSector, int iWidth, int iSectorCount,
+                         @Nonnull Color c, @Nonnull String sLabel)
+                throws Exception
+        {
+            double x = iX * SCALE;
+            double y = iStartSector * SCALE;
+            double w = iWidth * SCALE;
+            double h = iSectorCount * SCALE;
+            // draw box
+            com.pdfjet.Box pdfBox = new com.pdfjet.Box(x, y, w, h);
+            pdfBox.setColor(rgb(c));
+            pdfBox.setFillShape(true);
+            pdfBox.setLineWidth(0);
+            pdfBox.drawOn(_pdfPage);
+            pdfBox.setFillShape(false);
+            pdfBox.setColor(com.pdfjet.RGB.WHITE);
+            pdfBox.setLineWidth(0.3 * SCALE);
+            pdfBox.drawOn(_pdfPage);
+            com.pdfjet.TextLine pdfText = new com.pdfjet.TextLine(_pdfFont, sLabel);
+            pdfText.setPosition(x, y);
+            pdfText.setColor(com.pdfjet.RGB.DARK_GRAY);
+            pdfText.drawOn(_pdfPage);
+        }
+
+        public void finish(@Nonnull File outFile) throws Exception {
+            _pdf.flush();
+        }
+
+        public void close() {
+            IO.closeSilently(_pdfStream, Logger.getLogger(Command_Visualize.class.getName()));
+        }
+    }
+
+    /** Draws to an image that is then saved as a PNG. Only the height is
+     * scaled, so large discs still fit in a reasonably sized image. */
+    private static class PngDrawing extends Drawing {
+        @Nonnull
+        private final BufferedImage _image;
+        @Nonnull
+        private final Graphics2D _g;
+        /** Pixels per sector. */
+        private final double _dblScale;
+
+        public PngDrawing(int iWidth, int iHeight) {
+            _dblScale = iHeight < MAX_PNG_HEIGHT ? 1 : MAX_PNG_HEIGHT / (double)iHeight;
+            _image = new BufferedImage(iWidth, (int)Math.ceil(iHeight * _dblScale), BufferedImage.TYPE_INT_RGB);
+            _g = _image.createGraphics();
+            _g.setColor(Color.WHITE);
+            _g.fillRect(0, 0, _image.getWidth(), _image.getHeight());
+            _g.setFont(new Font("SansSerif", Font.PLAIN, 6));
+            _g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        }
+
+        private int y(int iSector) {
+            return (int)Math.floor(iSector * _dblScale);
+        }
+
+        /** Every band and item is at least 1 pixel high. */
+        private int height(int iStartSector, int iSectorCount) {
+            return Math.max(1, (int)Math.ceil((iStartSector + iSectorCount) * _dblScale) - y(iStartSector));
+        }
+
+        public void sectors(int iStartSector, int iSectorCount, int iWidth, @Nonnull Color c) {
+            _g.setColor(c);
+            _g.fillRect(0, y(iStartSector), iWidth, height(iStartSector, iSectorCount));
+        }
+
+        public void item(int iX, int iStartSector, int iWidth, int iSectorCount,
+                         @Nonnull Color c, @Nonnull String sLabel)
+        {
+            int iY = y(iStartSector);
+            int iH = height(iStartSector, iSectorCount);
+            _g.setColor(c);
+            _g.fillRect(iX, iY, iWidth, iH);
+            _g.setColor(Color.WHITE);
+            _g.drawRect(iX, iY, iWidth - 1, iH - 1);
+            _g.setColor(Color.DARK_GRAY);
+            _g.drawString(sLabel, iX, iY);
+        }
+
+        public void finish(@Nonnull File outFile) throws IOException {
+            _g.dispose();
+            if (!ImageIO.write(_image, "png", outFile))
+                throw new IOException("Unable to write PNG");
+        }
+
+        public void close() {
+            _g.dispose();
+        }
+    }
+
 }
@@ -46,6 +46,7 @@ import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.i18n.I;
 import jpsxdec.sectors.IVideoSector;
+import jpsxdec.util.ByteArrayPool;
 import jpsxdec.util.LocalizedIncompatibleException;
 import jpsxdec.util.LoggedFailure;
 import jpsxdec.util.ILocalizedLogger;
@@ -182,6 +183,14 @@ public abstract class AbstractDemuxedStrFrame<T extends IVideoSector> implements
         return abBuffer;
     }
 
+    public @Nonnull byte[] leaseDemuxData() {
+        return copyDemuxData(ByteArrayPool.SHARED.borrow(getDemuxSize()));
+    }
+
+    public void releaseDemuxData(@Nonnull byte[] abDemux) {
+        ByteArrayPool.SHARED.giveBack(abDemux);
+    }
+
     public void printSectors(@Nonnull PrintStream ps) {
         for (T vidSector : _aoChunks) {
             ps.println(vidSector);
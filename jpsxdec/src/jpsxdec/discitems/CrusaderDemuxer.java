@@ -388,6 +388,10 @@ public class CrusaderDemuxer implements ISectorFrameDemuxer, ISectorAudioDecoder
     @CheckForNull
     private byte[] _abAudioDemuxBuffer;
     private final SpuAdpcmDecoder.Stereo _audDecoder = new SpuAdpcmDecoder.Stereo(1.0);
+    /** Reused for every audio payload. */
+    private final ReusableBAIS _leftStream = new ReusableBAIS(),
+                               _rightStream = new ReusableBAIS();
+    private final ExposedBAOS _audioBuffer = new ExposedBAOS();
     
     private void audioPayload(final int iSize, @Nonnull ILocalizedLogger log) throws LoggedFailure {
 
@@ -462,13 +466,14 @@ public class CrusaderDemuxer implements ISectorFrameDemuxer, ISectorAudioDecoder
         }
         
         // .. decode the audio data .............................
-        ExposedBAOS audioBuffer = new ExposedBAOS();
+        ExposedBAOS audioBuffer = _audioBuffer;
+        audioBuffer.reset();
         {
             int iChannelSize = iSize / 2; // size is already confirmed to be divisible by 2
+            _leftStream.setBuffer(_abAudioDemuxBuffer, 0, iChannelSize);
+            _rightStream.setBuffer(_abAudioDemuxBuffer, iChannelSize, iChannelSize);
             try {
-                _audDecoder.decode(new ByteArrayInputStream(_abAudioDemuxBuffer, 0, iChannelSize),
-                                   new ByteArrayInputStream(_abAudioDemuxBuffer, iChannelSize, iChannelSize),
-                                   iChannelSize, audioBuffer);
+                _audDecoder.decode(_leftStream, _rightStream, iChannelSize, audioBuffer);
             } catch (IOException ex) {
                 throw new RuntimeException("Should never happen", ex);
             }
@@ -489,6 +494,18 @@ public class CrusaderDemuxer implements ISectorFrameDemuxer, ISectorAudioDecoder
     }
     
     
+    /** {@link ByteArrayInputStream} that can be pointed at new data. */
+    private static class ReusableBAIS extends ByteArrayInputStream {
+        public ReusableBAIS() {
+            super(new byte[0]);
+        }
+        public void setBuffer(@Nonnull byte[] ab, int iOffset, int iLength) {
+            buf = ab;
+            pos = mark = iOffset;
+            count = Math.min(iOffset + iLength, ab.length);
+        }
+    }
+
     /** Must be set before feeding sectors, unless indexing. */
     public void setAudioListener(@Nonnull ISectorTimedAudioWriter audioFeeder) {
         if (_blnIndexing)
@@ -46,6 +46,7 @@ import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.i18n.I;
 import jpsxdec.sectors.SectorCrusader;
+import jpsxdec.util.ByteArrayPool;
 import jpsxdec.util.ILocalizedLogger;
 import jpsxdec.util.LoggedFailure;
 
@@ -118,6 +119,14 @@ public class DemuxedCrusaderFrame implements IDemuxedFrame {
         return abBuffer;
     }
 
+    public @Nonnull byte[] leaseDemuxData() {
+        return copyDemuxData(ByteArrayPool.SHARED.borrow(getDemuxSize()));
+    }
+
+    public void releaseDemuxData(@Nonnull byte[] abDemux) {
+        ByteArrayPool.SHARED.giveBack(abDemux);
+    }
+
     public int getChunksInFrame() {
         return _aoSectors.length;
     }
@@ -176,7 +176,9 @@ public abstract class DiscItem implements Comparable<DiscItem> {
     }
     
     /** Returns how likely the supplied {@link DiscItem} 
-     * is a child of this item. */
+     * is a child of this item.
+     * Must be 0 if the child doesn't overlap this item at all
+     * (the index only asks items that overlap the child). */
     public int getParentRating(@Nonnull DiscItem child) {
         return 0;
     }
@@ -44,6 +44,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -204,6 +207,150 @@ public class DiscItemISO9660File extends DiscItem {
         return GeneralType.File;
     }
 
+    /** Sectors copied between progress updates. Also sets the size of the
+     * buffer used to gather sector data. */
+    private static final int COPY_BATCH_SECTORS = 128;
+
+    /** Saves all the files in one pass over the disc, in order of their
+     * start sector, sharing a single copy buffer. Files that fail are
+     * logged to {@code pl} and skipped.
+     * @param blnSaveIso Save only the 2048 byte user data of each sector,
+     *                   when possible, instead of the raw sectors.
+     * @return The number of files that could not be saved. */
+    public static int saveAll(@Nonnull Collection<DiscItemISO9660File> files,
+                              boolean blnSaveIso, @CheckForNull File outputDir,
+                              @Nonnull ProgressLogger pl)
+            throws TaskCanceledException
+    {
+        ArrayList<DiscItemISO9660File> sorted = new ArrayList<DiscItemISO9660File>(files);
+        Collections.sort(sorted);
+
+        long lngTotalSectors = 0;
+        for (DiscItemISO9660File file : sorted)
+            lngTotalSectors += file.getSectorLength();
+
+        byte[] abBuffer = newCopyBuffer();
+        int iFailures = 0;
+        long lngProgress = 0;
+        pl.progressStart(lngTotalSectors);
+        for (DiscItemISO9660File file : sorted) {
+            ISO9660SaverBuilder builder = file.makeSaverBuilder();
+            builder.setSaveRaw(!blnSaveIso);
+            try {
+                file.writeFile(new File(outputDir, file.getPath().getPath()),
+                               builder.getSaveRaw(), abBuffer, pl, lngProgress);
+            } catch (LoggedFailure ex) {
+                iFailures++;
+            }
+            lngProgress += file.getSectorLength();
+            pl.progressUpdate(lngProgress);
+        }
+        pl.progressEnd();
+        return iFailures;
+    }
+
+    /** Writes the file's sectors to {@code outputFile}.
+     *<p>
+     * When the sectors are stored in the disc image exactly as they are to
+     * be saved (raw sectors, or any sectors of an ISO image), they are
+     * transferred straight from the image. Otherwise each sector's data is
+     * gathered into {@code abBuffer} and written in batches.
+     * When saving only user data, the output is trimmed to the file size.
+     * @param abBuffer Buffer from {@link #newCopyBuffer()} to reuse,
+     *                 or null to allocate one if needed.
+     * @param lngProgressOffset Added to the sector number when reporting
+     *                          progress. */
+    private void writeFile(@Nonnull File outputFile, boolean blnSaveRaw,
+                           @CheckForNull byte[] abBuffer,
+                           @Nonnull ProgressLogger pl, long lngProgressOffset)
+            throws LoggedFailure, TaskCanceledException
+    {
+        try {
+            IO.makeDirsForFile(outputFile);
+        } catch (LocalizedFileNotFoundException ex) {
+            throw new LoggedFailure(pl, Level.SEVERE, ex.getSourceMessage(), ex);
+        }
+
+        FileOutputStream fos;
+        try {
+            fos = new FileOutputStream(outputFile);
+        } catch (FileNotFoundException ex) {
+            throw new LoggedFailure(pl, Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(outputFile.toString()), ex);
+        }
+        try {
+            CdFileSectorReader cd = getSourceCd();
+            int iSectorLength = getSectorLength();
+
+            if (cd.canTransferRawSectors() && (blnSaveRaw || !cd.hasSectorHeader())) {
+                // without a sector header, the raw sector is the user data
+                long lngBytesLeft = (long)iSectorLength * cd.getRawSectorSize();
+                if (!blnSaveRaw)
+                    lngBytesLeft = Math.min(lngBytesLeft, _lngSize);
+                long lngBatchBytes = (long)COPY_BATCH_SECTORS * cd.getRawSectorSize();
+                for (int iSector = 0; lngBytesLeft > 0; iSector += COPY_BATCH_SECTORS) {
+                    long lngBytes = Math.min(lngBatchBytes, lngBytesLeft);
+                    try {
+                        cd.transferRawSectors(getStartSector() + iSector, lngBytes, fos.getChannel());
+                    } catch (IOException ex) {
+                        throw new LoggedFailure(pl, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(outputFile.toString()), ex);
+                    }
+                    lngBytesLeft -= lngBytes;
+                    pl.progressUpdate(lngProgressOffset + iSector + COPY_BATCH_SECTORS);
+                }
+            } else {
+                if (abBuffer == null)
+                    abBuffer = newCopyBuffer();
+                long lngBytesLeft = blnSaveRaw ? Long.MAX_VALUE : _lngSize;
+                int iBufferPos = 0;
+                for (int iSector = 0; iSector < iSectorLength && lngBytesLeft > 0; iSector++) {
+                    CdSector cdSector;
+                    try {
+                        cdSector = getRelativeSector(iSector);
+                    } catch (IOException ex) {
+                        throw new LoggedFailure(pl, Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(
+                                                cd.getSourceFile().toString()), ex);
+                    }
+
+                    if (abBuffer.length - iBufferPos < CdFileSectorReader.SECTOR_SIZE_2352_BIN) {
+                        write(fos, abBuffer, iBufferPos, outputFile, pl);
+                        iBufferPos = 0;
+                    }
+                    if (blnSaveRaw) {
+                        byte[] abRaw = cdSector.getRawSectorDataCopy();
+                        System.arraycopy(abRaw, 0, abBuffer, iBufferPos, abRaw.length);
+                        iBufferPos += abRaw.length;
+                    } else {
+                        int iBytes = (int)Math.min(cdSector.getCdUserDataSize(), lngBytesLeft);
+                        cdSector.getCdUserDataCopy(0, abBuffer, iBufferPos, iBytes);
+                        iBufferPos += iBytes;
+                        lngBytesLeft -= iBytes;
+                    }
+
+                    pl.progressUpdate(lngProgressOffset + iSector);
+                }
+                write(fos, abBuffer, iBufferPos, outputFile, pl);
+            }
+        } finally {
+            IO.closeSilently(fos, LOG);
+        }
+    }
+
+    private static @Nonnull byte[] newCopyBuffer() {
+        // raw sector copies are at most 2352 bytes (sub-channel data is dropped)
+        return new byte[COPY_BATCH_SECTORS * CdFileSectorReader.SECTOR_SIZE_2352_BIN];
+    }
+
+    private static void write(@Nonnull FileOutputStream fos, @Nonnull byte[] ab, int iLength,
+                              @Nonnull File outputFile, @Nonnull ProgressLogger pl)
+            throws LoggedFailure
+    {
+        try {
+            fos.write(ab, 0, iLength);
+        } catch (IOException ex) {
+            throw new LoggedFailure(pl, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(outputFile.toString()), ex);
+        }
+    }
+
     @Override
     public @Nonnull ILocalizedMessage getInterestingDescription() {
         return I.GUI_ISOFILE_DETAILS(_lngSize);
@@ -374,47 +521,9 @@ public class DiscItemISO9660File extends DiscItem {
 
         public void startSave(@Nonnull ProgressLogger pl) throws LoggedFailure, TaskCanceledException {
             File outputFile = new File(__outputDir, _item.getPath().getPath());
-
-            try {
-                IO.makeDirsForFile(outputFile);
-            } catch (LocalizedFileNotFoundException ex) {
-                throw new LoggedFailure(pl, Level.SEVERE, ex.getSourceMessage(), ex);
-            }
-
-            FileOutputStream fos;
-            try {
-                fos = new FileOutputStream(outputFile);
-            } catch (FileNotFoundException ex) {
-                throw new LoggedFailure(pl, Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(outputFile.toString()), ex);
-            }
-            try {
-                __generatedFile = outputFile;
-                int iSectorLength = _item.getSectorLength();
-                pl.progressStart(iSectorLength);
-                // TODO: only save the bytes associated with this file from the last sector?
-                for (int iSector = 0; iSector < iSectorLength; iSector++) {
-                    CdSector cdSector;
-                    try {
-                        cdSector = _item.getRelativeSector(iSector);
-                    } catch (IOException ex) {
-                        throw new LoggedFailure(pl, Level.SEVERE, I.IO_READING_FROM_FILE_ERROR_NAME(
-                                                _item.getSourceCd().getSourceFile().toString()), ex);
-                    }
-
-                    try {
-                        if (__blnSaveRaw)
-                            fos.write(cdSector.getRawSectorDataCopy());
-                        else
-                            fos.write(cdSector.getCdUserDataCopy());
-                    } catch (IOException ex) {
-                        throw new LoggedFailure(pl, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(outputFile.toString()), ex);
-                    }
-                    
-                    pl.progressUpdate(iSector);
-                }
-            } finally {
-                IO.closeSilently(fos, LOG);
-            }
+            pl.progressStart(_item.getSectorLength());
+            _item.writeFile(outputFile, __blnSaveRaw, null, pl, 0);
+            __generatedFile = outputFile;
             pl.progressEnd();
         }
 
@@ -180,8 +180,20 @@ public class DiscItemTim extends DiscItem implements DiscItem.IHasStartOffset {
     }
     
     private void writeNewTimData(@Nonnull byte[] abNewTim, @Nonnull FeedbackStream fbs) throws IOException {
-        // write to the first sector
         CdFileSectorReader cd = getSourceCd();
+        cd.beginBatchWrites();
+        try {
+            writeNewTimData(cd, abNewTim, fbs);
+        } finally {
+            cd.endBatchWrites();
+        }
+    }
+
+    private void writeNewTimData(@Nonnull CdFileSectorReader cd, @Nonnull byte[] abNewTim,
+                                 @Nonnull FeedbackStream fbs)
+            throws IOException
+    {
+        // write to the first sector
         int iSector = getStartSector();
         byte[] abUserData = cd.getSector(iSector).getCdUserDataCopy();
         int iBytesToWrite = abNewTim.length;
@@ -167,7 +167,7 @@ public abstract class DiscItemVideoStream extends DiscItem {
                 ps.println("  Available demux size: " + frame.getDemuxSize());
                 frame.printSectors(ps); // ideally would be indented by 4
                 
-                byte[] abBitStream = frame.copyDemuxData(null);
+                byte[] abBitStream = frame.leaseDemuxData();
                 try {
                     BitStreamUncompressor uncompressor = BitStreamUncompressor.identifyUncompressor(abBitStream, frame.getDemuxSize());
                     ParsedMdecImage parsed = new ParsedMdecImage(uncompressor, getWidth(), getHeight());
@@ -189,6 +189,8 @@ public abstract class DiscItemVideoStream extends DiscItem {
                     ps.println("  Frame not recognized");
                 } catch (Exception ex) {
                     ex.printStackTrace(ps);
+                } finally {
+                    frame.releaseDemuxData(abBitStream);
                 }
             }
         });
@@ -52,6 +52,7 @@ import jpsxdec.audio.XaAdpcmDecoder;
 import jpsxdec.audio.XaAdpcmEncoder;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.CdxaSubHeader;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.sectors.IdentifiedSector;
@@ -205,6 +206,23 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
         return _iSectorStride;
     }
     
+    /** Only visits the sectors at this stream's stride that have this
+     * stream's channel and are audio sectors. The sectors of the other
+     * streams interleaved with this one aren't read or identified. */
+    @Override
+    public @Nonnull IdentifiedSectorIterator identifiedSectorIterator() {
+        return IdentifiedSectorIterator.createFiltered(getSourceCd(),
+                getStartSector(), getEndSector(),
+                _iSectorStride < 1 ? 1 : _iSectorStride,
+                new IdentifiedSectorIterator.SubHeaderFilter() {
+            public boolean accept(int iFileNumber, int iChannel, int iSubMode) {
+                return iChannel == _iChannel &&
+                       (iSubMode & (CdxaSubHeader.SubMode.MASK_FORM | CdxaSubHeader.SubMode.MASK_AUDIO)) ==
+                                   (CdxaSubHeader.SubMode.MASK_FORM | CdxaSubHeader.SubMode.MASK_AUDIO);
+            }
+        });
+    }
+
     public int getSectorsPastEnd() {
         return _iSectorStride - 1;
     }
@@ -283,6 +301,7 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
             throws UnsupportedAudioFileException, IOException, LocalizedIncompatibleException, TaskCanceledException
     {
         AudioInputStream ais = AudioSystem.getAudioInputStream(audioFile);
+        XaAdpcmEncoder encoder = null;
         try {
             AudioFormat fmt = ais.getFormat();
             if (Math.abs(fmt.getSampleRate() - _iSamplesPerSecond) > 0.1f ) {
@@ -296,34 +315,43 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
                                                 fmt.getChannels(),
                                                 _blnIsStereo ? 2 : 1));
             }
-            XaAdpcmEncoder encoder = new XaAdpcmEncoder(ais, _iBitsPerSample);
+            encoder = new XaAdpcmEncoder(ais, _iBitsPerSample);
+            if (Runtime.getRuntime().availableProcessors() > 1)
+                encoder.setEncodeChannelsInParallel(true);
             IdentifiedSectorIterator it = identifiedSectorIterator();
             pl.progressStart(getSectorLength());
-            for (int iSector = 0; it.hasNext(); iSector++) {
-                IdentifiedSector origIdSect = it.next();
-                if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
-                    CdSector origSect = origIdSect.getCdSector();
-                    byte[] abOrigData = origSect.getCdUserDataCopy();
-                    ExposedBAOS baos = new ExposedBAOS(abOrigData.length);
-                    try {
-                        encoder.encode1Sector(baos);
-                    } catch (IOException ex) {
-                        throw new RuntimeException("Should not happen", ex);
-                    }
-                    System.arraycopy(baos.getBuffer(), 0, abOrigData, 0, baos.size());
-                    if (encoder.isEof()) {
-                        pl.log(Level.INFO, I.XA_ENCODE_REPLACE_SRC_AUDIO_EXHAUSTED());
+            getSourceCd().beginBatchWrites();
+            try {
+                while (it.hasNext()) {
+                    IdentifiedSector origIdSect = it.next();
+                    if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
+                        CdSector origSect = origIdSect.getCdSector();
+                        byte[] abOrigData = origSect.getCdUserDataCopy();
+                        ExposedBAOS baos = new ExposedBAOS(abOrigData.length);
+                        try {
+                            encoder.encode1Sector(baos);
+                        } catch (IOException ex) {
+                            throw new RuntimeException("Should not happen", ex);
+                        }
+                        System.arraycopy(baos.getBuffer(), 0, abOrigData, 0, baos.size());
+                        if (encoder.isEof()) {
+                            pl.log(Level.INFO, I.XA_ENCODE_REPLACE_SRC_AUDIO_EXHAUSTED());
+                        }
+                        pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origIdSect.toString()));
+                        if (pl.isSeekingEvent())
+                            pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
+                        getSourceCd().writeSector(origSect.getSectorNumberFromStart(), abOrigData);
+
+                        pl.progressUpdate(origIdSect.getSectorNumber() - getStartSector());
                     }
-                    pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origIdSect.toString()));
-                    if (pl.isSeekingEvent())
-                        pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
-                    getSourceCd().writeSector(origSect.getSectorNumberFromStart(), abOrigData);
-
-                    pl.progressUpdate(iSector);
                 }
+            } finally {
+                getSourceCd().endBatchWrites();
             }
             pl.progressEnd();
         } finally {
+            if (encoder != null)
+                encoder.setEncodeChannelsInParallel(false);
             IO.closeSilently(ais, Logger.getLogger(DiscItemXaAudioStream.class.getName()));
         }
 
@@ -343,30 +371,35 @@ public class DiscItemXaAudioStream extends DiscItemAudioStream {
         IdentifiedSectorIterator origIt = identifiedSectorIterator();
         IdentifiedSectorIterator patchIt = other.identifiedSectorIterator();
         pl.progressStart(getSectorLength());
-        EndOfOther:
-        for (int iSector = 0; origIt.hasNext(); iSector++) {
-            IdentifiedSector origIdSect = origIt.next();
-            if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
-                SectorXaAudio origXaSect = (SectorXaAudio) origIdSect;
-                // seek to the next other XA sector
-                IdentifiedSector patchIdSect = null;
-                do {
-                    if (!patchIt.hasNext()) {
-                        pl.log(Level.INFO, I.XA_COPY_REPLACE_SRC_XA_EXHAUSTED());
-                        break EndOfOther;
-                    }
-                    patchIdSect = patchIt.next();
-                } while (!(patchIdSect instanceof SectorXaAudio && other.isPartOfStream((SectorXaAudio)patchIdSect)));
-                SectorXaAudio patchXaSect = (SectorXaAudio) patchIdSect;
-                pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origXaSect.toString()));
-                pl.log(Level.INFO, I.CMD_PATCHING_WITH_SECTOR_DESCRIPTION(patchXaSect.toString()));
-                if (pl.isSeekingEvent())
-                    pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
-                byte[] abPatchData = patchXaSect.getCdSector().getCdUserDataCopy();
-                getSourceCd().writeSector(origXaSect.getSectorNumber(), abPatchData);
-
-                pl.progressUpdate(iSector);
+        getSourceCd().beginBatchWrites();
+        try {
+            EndOfOther:
+            while (origIt.hasNext()) {
+                IdentifiedSector origIdSect = origIt.next();
+                if (origIdSect instanceof SectorXaAudio && isPartOfStream((SectorXaAudio)origIdSect)) {
+                    SectorXaAudio origXaSect = (SectorXaAudio) origIdSect;
+                    // seek to the next other XA sector
+                    IdentifiedSector patchIdSect = null;
+                    do {
+                        if (!patchIt.hasNext()) {
+                            pl.log(Level.INFO, I.XA_COPY_REPLACE_SRC_XA_EXHAUSTED());
+                            break EndOfOther;
+                        }
+                        patchIdSect = patchIt.next();
+                    } while (!(patchIdSect instanceof SectorXaAudio && other.isPartOfStream((SectorXaAudio)patchIdSect)));
+                    SectorXaAudio patchXaSect = (SectorXaAudio) patchIdSect;
+                    pl.log(Level.INFO, I.CMD_PATCHING_SECTOR_DESCRIPTION(origXaSect.toString()));
+                    pl.log(Level.INFO, I.CMD_PATCHING_WITH_SECTOR_DESCRIPTION(patchXaSect.toString()));
+                    if (pl.isSeekingEvent())
+                        pl.event(I.CMD_PATCHING_SECTOR_NUMBER(origIdSect.getSectorNumber()));
+                    byte[] abPatchData = patchXaSect.getCdSector().getCdUserDataCopy();
+                    getSourceCd().writeSector(origXaSect.getSectorNumber(), abPatchData);
+
+                    pl.progressUpdate(origXaSect.getSectorNumber() - getStartSector());
+                }
             }
+        } finally {
+            getSourceCd().endBatchWrites();
         }
         pl.progressEnd();
     }
@@ -41,6 +41,7 @@ import java.io.PrintStream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.util.ByteArrayPool;
 import jpsxdec.util.LoggedFailure;
 import jpsxdec.util.ILocalizedLogger;
 
@@ -71,6 +72,16 @@ public interface IDemuxedFrame {
      * @param abBuffer Optional buffer to copy the demuxed data into. */
     @Nonnull byte[] copyDemuxData(@CheckForNull byte[] abBuffer);
 
+    /** Returns the contiguous demux copied into a buffer borrowed from
+     * {@link ByteArrayPool#SHARED}. The buffer may be bigger than
+     * {@link #getDemuxSize()}. It must be handed back with
+     * {@link #releaseDemuxData(byte[])} when it is no longer needed. */
+    @Nonnull byte[] leaseDemuxData();
+
+    /** Hands back a buffer returned by {@link #leaseDemuxData()}.
+     * The buffer must not be used after this. */
+    void releaseDemuxData(@Nonnull byte[] abDemux);
+
     void printSectors(@Nonnull PrintStream ps);
 
     void writeToSectors(@Nonnull byte[] abNewDemux,
@@ -61,7 +61,7 @@ public class IndexId {
         _aiTreeIndexes = null;
     }
 
-    private IndexId(@CheckForNull File baseFile, @Nonnull int[] aiIndex) {
+    private IndexId(@CheckForNull File baseFile, @CheckForNull int[] aiIndex) {
         _sourceFile = baseFile;
         _aiTreeIndexes = aiIndex;
     }
@@ -172,6 +172,20 @@ public class IndexId {
         return false;
     }
 
+    /** Returns the id that {@link #isParent(jpsxdec.discitems.IndexId)}
+     * would accept as the direct parent of this id.
+     * @return null if this is a root id. */
+    public @CheckForNull IndexId getParentId() {
+        if (isRoot())
+            return null;
+        // _aiTreeIndexes already confirmed to != null in isRoot()
+        if (_aiTreeIndexes.length == 1)
+            return new IndexId(_sourceFile, null);
+        int[] aiParent = new int[_aiTreeIndexes.length - 1];
+        System.arraycopy(_aiTreeIndexes, 0, aiParent, 0, aiParent.length);
+        return new IndexId(_sourceFile, aiParent);
+    }
+
     public boolean isRoot() {
         if (_aiTreeIndexes == null)
             return true;
@@ -216,6 +230,7 @@ public class IndexId {
     public int hashCode() {
         int hash = 5;
         hash = 89 * hash + (_sourceFile != null ? _sourceFile.hashCode() : 0);
+        hash = 89 * hash + Arrays.hashCode(_aiTreeIndexes);
         return hash;
     }
 
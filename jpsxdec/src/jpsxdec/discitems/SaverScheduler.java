@@ -0,0 +1,255 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.discitems.savers.VideoSaver;
+import jpsxdec.util.TaskCanceledException;
+
+/** Runs independent {@link IDiscItemSaver}s at the same time.
+ *<p>
+ * Savers are started in the order their items appear on the disc. To keep
+ * reading the disc image more or less sequential, a saver is only started
+ * if its item begins within a window of sectors after the earliest item
+ * still being saved. Each thread reading the disc has its own read buffer
+ * in {@link jpsxdec.cdreaders.CdFileSectorReader}, so the savers never
+ * share a seek position.
+ *<p>
+ * Video savers decode frames on several threads of their own, so when
+ * running savers concurrently their decoding threads are divided between
+ * them. */
+public class SaverScheduler {
+
+    /** Savers that begin more than this many sectors after the earliest
+     * saver still running must wait (about 5 minutes of disc). */
+    public static final int DEFAULT_SECTOR_WINDOW = 75 * 60 * 5;
+
+    private static final ThreadFactory SAVE_THREAD_FACTORY = new ThreadFactory() {
+        private final ThreadFactory _default = Executors.defaultThreadFactory();
+        public Thread newThread(Runnable r) {
+            Thread t = _default.newThread(r);
+            t.setName("Saving " + t.getName());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private static final Comparator<Job> BY_START_SECTOR = new Comparator<Job>() {
+        public int compare(Job o1, Job o2) {
+            int i1 = o1.getStartSector(), i2 = o2.getStartSector();
+            return i1 < i2 ? -1 : (i1 == i2 ? 0 : 1);
+        }
+    };
+
+    /** The work to do with one saver. */
+    public static abstract class Job {
+        @Nonnull
+        private final IDiscItemSaver _saver;
+
+        public Job(@Nonnull IDiscItemSaver saver) {
+            _saver = saver;
+        }
+
+        public @Nonnull IDiscItemSaver getSaver() {
+            return _saver;
+        }
+
+        private int getStartSector() {
+            return _saver.getDiscItem().getStartSector();
+        }
+
+        /** Saves the item (usually by calling
+         * {@link IDiscItemSaver#startSave(jpsxdec.util.ProgressLogger)}
+         * with a logger for just this job). Called on a worker thread
+         * when more than one thread is used.
+         * @throws TaskCanceledException No more jobs will be started. */
+        abstract protected void save() throws TaskCanceledException;
+    }
+
+    private final int _iThreads;
+    private final int _iSectorWindow;
+    @Nonnull
+    private final ArrayList<Job> _jobs = new ArrayList<Job>();
+
+    private final Object _lock = new Object();
+    /** Jobs currently being run. Guarded by {@link #_lock}. */
+    @Nonnull
+    private final ArrayList<Job> _running = new ArrayList<Job>();
+    /** First cancellation reported by a job. Guarded by {@link #_lock}. */
+    @CheckForNull
+    private TaskCanceledException _canceled;
+    /** First unexpected exception thrown by a job. Guarded by {@link #_lock}. */
+    @CheckForNull
+    private Throwable _failure;
+
+    public SaverScheduler(int iThreads) {
+        this(iThreads, DEFAULT_SECTOR_WINDOW);
+    }
+
+    public SaverScheduler(int iThreads, int iSectorWindow) {
+        if (iThreads < 1)
+            throw new IllegalArgumentException("Invalid thread count " + iThreads);
+        if (iSectorWindow < 0)
+            throw new IllegalArgumentException("Invalid sector window " + iSectorWindow);
+        _iThreads = iThreads;
+        _iSectorWindow = iSectorWindow;
+    }
+
+    public void add(@Nonnull Job job) {
+        _jobs.add(job);
+    }
+
+    public int getThreadCount() {
+        return _iThreads;
+    }
+
+    /** Runs every job added, returning when they have all finished.
+     * If one job is canceled or fails, no more are started, but those
+     * already running are allowed to finish.
+     * @throws TaskCanceledException if a job was canceled.
+     * @throws RuntimeException wrapping anything else a job threw. */
+    public void runAll() throws TaskCanceledException, InterruptedException {
+        ArrayList<Job> pending = new ArrayList<Job>(_jobs);
+        _jobs.clear();
+        // stable sort keeps items that start at the same sector in order
+        Collections.sort(pending, BY_START_SECTOR);
+
+        if (_iThreads == 1 || pending.size() < 2) {
+            for (Job job : pending) {
+                job.save();
+            }
+            return;
+        }
+
+        int iThreads = Math.min(_iThreads, pending.size());
+        int iDecodeThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / iThreads);
+        for (Job job : pending) {
+            if (job.getSaver() instanceof VideoSaver)
+                ((VideoSaver)job.getSaver()).setDecodeThreadCount(iDecodeThreads);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(iThreads, SAVE_THREAD_FACTORY);
+        boolean blnInterrupted = true;
+        try {
+            synchronized (_lock) {
+                _canceled = null;
+                _failure = null;
+                for (final Job job : pending) {
+                    while (!isStopping() && !canStart(job)) {
+                        _lock.wait();
+                    }
+                    if (isStopping())
+                        break;
+                    _running.add(job);
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            runJob(job);
+                        }
+                    });
+                }
+                while (!_running.isEmpty()) {
+                    _lock.wait();
+                }
+            }
+            blnInterrupted = false;
+        } finally {
+            if (blnInterrupted)
+                executor.shutdownNow();
+            else
+                executor.shutdown();
+        }
+
+        if (_failure != null) {
+            if (_failure instanceof RuntimeException)
+                throw (RuntimeException)_failure;
+            else if (_failure instanceof Error)
+                throw (Error)_failure;
+            else
+                throw new RuntimeException(_failure);
+        }
+        if (_canceled != null)
+            throw _canceled;
+    }
+
+    /** Always called within <code>synchronized (_lock)</code> */
+    private boolean isStopping() {
+        return _canceled != null || _failure != null;
+    }
+
+    /** Always called within <code>synchronized (_lock)</code> */
+    private boolean canStart(@Nonnull Job job) {
+        if (_running.isEmpty())
+            return true;
+        if (_running.size() >= _iThreads)
+            return false;
+        int iEarliest = Integer.MAX_VALUE;
+        for (Job running : _running) {
+            iEarliest = Math.min(iEarliest, running.getStartSector());
+        }
+        return job.getStartSector() - iEarliest <= _iSectorWindow;
+    }
+
+    private void runJob(@Nonnull Job job) {
+        TaskCanceledException canceled = null;
+        Throwable failure = null;
+        try {
+            job.save();
+        } catch (TaskCanceledException ex) {
+            canceled = ex;
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            synchronized (_lock) {
+                _running.remove(job);
+                if (canceled != null && _canceled == null)
+                    _canceled = canceled;
+                if (failure != null && _failure == null)
+                    _failure = failure;
+                _lock.notifyAll();
+            }
+        }
+    }
+
+}
@@ -37,6 +37,9 @@
 
 package jpsxdec.discitems;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -106,6 +109,37 @@ public class SerializedDiscItem {
             throw new DeserializationFail(I.SERIALIZATION_MISSING_REQUIRED_FIELDS(sSerialized));
     }
 
+    /** Reads fields previously written with {@link #writeFields(java.io.DataOutput)}.
+     * Skips the string parsing needed by {@link #SerializedDiscItem(java.lang.String)}. */
+    public static @Nonnull SerializedDiscItem readFields(@Nonnull DataInput in)
+            throws IOException, DeserializationFail
+    {
+        SerializedDiscItem fields = new SerializedDiscItem();
+        int iFieldCount = in.readInt();
+        for (int i = 0; i < iFieldCount; i++) {
+            String sKey = in.readUTF();
+            String sValue = in.readUTF();
+            fields._fields.put(sKey, sValue);
+        }
+        if (!fields._fields.containsKey(INDEX_KEY) || !fields._fields.containsKey(ID_KEY) ||
+            !fields._fields.containsKey(TYPE_KEY)  || !fields._fields.containsKey(SECTOR_RANGE_KEY))
+            throw new DeserializationFail(I.SERIALIZATION_MISSING_REQUIRED_FIELDS(fields.toString()));
+        return fields;
+    }
+
+    private SerializedDiscItem() {
+    }
+
+    /** Writes the fields in a compact binary form that can be read back with
+     * {@link #readFields(java.io.DataInput)}. */
+    public void writeFields(@Nonnull DataOutput out) throws IOException {
+        out.writeInt(_fields.size());
+        for (Map.Entry<String, String> entry : _fields.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
     /** Converts the data into a string. No additional data may be added to the
      *  object without throwing an exception. */
     public @Nonnull String serialize() {
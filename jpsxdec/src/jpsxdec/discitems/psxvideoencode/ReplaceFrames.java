@@ -205,27 +205,42 @@ public class ReplaceFrames {
         FrameNumberFormatter numFormatter =
                 vidItem.getFrameNumberFormat().makeFormatter(FrameNumberFormat.Type.Index);
 
-        pl.progressStart(vidItem.getSectorLength());
-        IdentifiedSectorIterator it = vidItem.identifiedSectorIterator();
-        for (int iSector = 0; it.hasNext(); iSector++) {
-            IdentifiedSector sector;
+        // replaced frames are usually in runs of contiguous sectors
+        cd.beginBatchWrites();
+        boolean blnExceptionThrown = true;
+        try {
+            pl.progressStart(vidItem.getSectorLength());
+            IdentifiedSectorIterator it = vidItem.identifiedSectorIterator();
+            for (int iSector = 0; it.hasNext(); iSector++) {
+                IdentifiedSector sector;
+                try {
+                    sector = it.next();
+                } catch (IOException ex) {
+                    throw new LoggedFailure(pl, Level.SEVERE,
+                            I.IO_READING_FROM_FILE_ERROR_NAME(it.getSourceCdFile().toString()), ex);
+                }
+                if (sector != null)
+                    demuxer.feedSector(sector, pl);
+            
+                pl.progressUpdate(iSector);
+                if (pl.isSeekingEvent() && replaceListener.currentFrameNum != null)
+                    pl.event(numFormatter.getDescription(replaceListener.currentFrameNum));
+
+                if (replaceListener.exception != null)
+                    throw replaceListener.exception;
+            }
+            demuxer.flush(pl);
+            blnExceptionThrown = false;
+        } finally {
             try {
-                sector = it.next();
+                cd.endBatchWrites();
             } catch (IOException ex) {
-                throw new LoggedFailure(pl, Level.SEVERE,
-                        I.IO_READING_FROM_FILE_ERROR_NAME(it.getSourceCdFile().toString()), ex);
+                if (!blnExceptionThrown)
+                    throw new LoggedFailure(pl, Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(cd.getSourceFile().toString()), ex);
+                // don't hide the exception that is already being thrown
+                pl.log(Level.SEVERE, I.IO_WRITING_TO_FILE_ERROR_NAME(cd.getSourceFile().toString()), ex);
             }
-            if (sector != null)
-                demuxer.feedSector(sector, pl);
-            
-            pl.progressUpdate(iSector);
-            if (pl.isSeekingEvent() && replaceListener.currentFrameNum != null)
-                pl.event(numFormatter.getDescription(replaceListener.currentFrameNum));
-
-            if (replaceListener.exception != null)
-                throw replaceListener.exception;
         }
-        demuxer.flush(pl);
         pl.progressEnd();
     }
 
@@ -65,10 +65,15 @@ public class SectorCopy {
         if (iDestStartSector + src.getLength() > dest.getLength())
             throw new IllegalArgumentException("Source file will run off the end of dest file");
         
-        for (int iOfsSect = 0; iOfsSect < src.getLength(); iOfsSect++) {
-            byte[] abSrcUserData = src.getSector(iOfsSect).getCdUserDataCopy();
-            System.out.println("Overriting sector " + (iDestStartSector + iOfsSect));
-            dest.writeSector(iDestStartSector + iOfsSect, abSrcUserData);
+        dest.beginBatchWrites();
+        try {
+            for (int iOfsSect = 0; iOfsSect < src.getLength(); iOfsSect++) {
+                byte[] abSrcUserData = src.getSector(iOfsSect).getCdUserDataCopy();
+                System.out.println("Overriting sector " + (iDestStartSector + iOfsSect));
+                dest.writeSector(iDestStartSector + iOfsSect, abSrcUserData);
+            }
+        } finally {
+            dest.endBatchWrites();
         }
         
         System.out.println(src.getLength() + " sectors overwritten.");
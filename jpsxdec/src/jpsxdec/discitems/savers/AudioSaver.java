@@ -145,7 +145,7 @@ public class AudioSaver implements IDiscItemSaver  {
         try {
             IdentifiedSectorIterator it = _audItem.identifiedSectorIterator();
             pl.progressStart(_audItem.getSectorLength());
-            for (int iSector = 0; it.hasNext(); iSector++) {
+            while (it.hasNext()) {
                 IdentifiedSector identifiedSect;
                 try {
                     identifiedSect = it.next();
@@ -155,7 +155,8 @@ public class AudioSaver implements IDiscItemSaver  {
                 }
                 if (identifiedSect != null)
                     _decoder.feedSector(identifiedSect, pl);
-                pl.progressUpdate(iSector);
+                // the iterator may skip sectors that aren't part of the stream
+                pl.progressUpdate(it.currentCd().getSectorNumberFromStart() - _audItem.getStartSector());
             }
             pl.progressEnd();
         } finally {
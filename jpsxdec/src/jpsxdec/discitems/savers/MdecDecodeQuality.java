@@ -44,8 +44,8 @@ import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.psxvideo.mdec.MdecDecoder;
 import jpsxdec.psxvideo.mdec.MdecDecoder_double_interpolate;
 import jpsxdec.psxvideo.mdec.MdecDecoder_int;
+import jpsxdec.psxvideo.mdec.idct.FastPsxMdecIDCT_int;
 import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_double;
-import jpsxdec.psxvideo.mdec.idct.PsxMdecIDCT_int;
 import jpsxdec.psxvideo.mdec.idct.SimpleIDCT;
 
 
@@ -63,7 +63,8 @@ public enum MdecDecodeQuality {
     },
     PSX(I.QUALITY_PSX_DESCRIPTION(), I.QUALITY_PSX_COMMAND()) {
         public MdecDecoder makeDecoder(int iWidth, int iHeight) {
-            return new MdecDecoder_int(new PsxMdecIDCT_int(), iWidth, iHeight);
+            // same output as PsxMdecIDCT_int, only faster
+            return new MdecDecoder_int(new FastPsxMdecIDCT_int(), iWidth, iHeight);
         }
     };
 
@@ -114,6 +114,7 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
         _b2m = new VDP.Bitstream2Mdec(_m2d);
         _demuxer = demuxer;
         _demuxer.setFrameListener(this);
+        _aud = null;
     }
 
     //-----------------------------------------------------------------------
@@ -122,6 +123,9 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
     private ISectorAudioDecoder _audioDecoder;
     @CheckForNull
     private AudioPlayerSectorTimedWriter _audioOut;
+    /** Only set when playing just audio. */
+    @CheckForNull
+    private final DiscItemAudioStream _aud;
 
     public MediaPlayer(@Nonnull DiscItemAudioStream aud) {
         _cdReader = aud.getSourceCd();
@@ -135,6 +139,7 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
         }
         _dblDuration = aud.getApproxDuration();
 
+        _aud = aud;
         _audioDecoder = aud.makeDecoder(1.0);
         _audioOut = new AudioPlayerSectorTimedWriter(this, _iMovieStartSector, _iSectorsPerSecond, _audioDecoder.getSamplesPerSecond());
         _audioDecoder.setAudioListener(_audioOut);
@@ -176,8 +181,12 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
 
             final int iSectorLength = _iMovieEndSector - _iMovieStartSector + 1;
 
-            IdentifiedSectorIterator it = IdentifiedSectorIterator.create(_cdReader, _iMovieStartSector, _iMovieEndSector);
-            for (int iSector = 0; it.hasNext() && stillPlaying(); iSector++)
+            IdentifiedSectorIterator it;
+            if (_aud != null) // the audio may not need every sector
+                it = _aud.identifiedSectorIterator();
+            else
+                it = IdentifiedSectorIterator.create(_cdReader, _iMovieStartSector, _iMovieEndSector);
+            while (it.hasNext() && stillPlaying())
             {
                 IdentifiedSector identifiedSector = it.next();
                 if (identifiedSector != null) {
@@ -192,7 +201,7 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
                     }
                 }
                 
-                setReadProgress(iSector*100 / iSectorLength);
+                setReadProgress((it.currentCd().getSectorNumberFromStart() - _iMovieStartSector)*100 / iSectorLength);
 
             }
 
@@ -262,6 +271,8 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
 
         @CheckForNull
         public byte[] __abDemuxBuf;
+        /** The pooled buffer may be larger than the frame. */
+        private int __iDemuxSize;
         @CheckForNull
         private FrameNumber __frameNum;
         private int __iSectorFromStart;
@@ -271,6 +282,7 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
         public void init(int iSize, @Nonnull FrameNumber frameNum, int iSectorFromStart) {
             if (__abDemuxBuf == null || __abDemuxBuf.length < iSize)
                 __abDemuxBuf = new byte[iSize];
+            __iDemuxSize = iSize;
             __iSectorFromStart = iSectorFromStart;
             __frameNum = frameNum;
         }
@@ -287,7 +299,7 @@ public class MediaPlayer extends AudioVideoReader implements ISectorFrameDemuxer
             try {
                 // this will call _m2d which in turn will call decoded()
                 // __abDemuxBuf and __frameNum should have been initialied in init()
-                _b2m.bitstream(__abDemuxBuf, __abDemuxBuf.length, __frameNum, _iMovieEndSector);
+                _b2m.bitstream(__abDemuxBuf, __iDemuxSize, __frameNum, _iMovieEndSector);
             } catch (LoggedFailure ex) {
                 System.err.print("Frame "+__frameNum+' '+ex.getMessage());
                 if (ex.getCause() != null && ex.getCause().getMessage() != null)
@@ -47,6 +47,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -69,7 +74,6 @@ import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.psxvideo.mdec.MdecInputStreamReader;
 import jpsxdec.util.BinaryDataNotRecognized;
-import jpsxdec.util.ExposedBAOS;
 import jpsxdec.util.Fraction;
 import jpsxdec.util.ILocalizedLogger;
 import jpsxdec.util.IO;
@@ -94,6 +98,8 @@ import jpsxdec.util.aviwriter.AviWriterYV12;
  *                                        +-> Decoded (Mdec2Decoded) -+-> JavaImage (Decoded2JavaImage)
  *                                                                    |
  *                                                                    +-> RgbAvi, YuvAvi, JYuvAvi (Decoded2...)
+ *
+ *  Bitstream ---> Decoded (Bitstream2DecodedParallel) ---> (same as Decoded above)
  *</pre>
  */
 public class VDP {
@@ -162,6 +168,9 @@ public class VDP {
         private BitStreamUncompressor _uncompressor;
         @Nonnull
         private final IMdecListener _listener;
+        /** Name of the last identified bitstream format, to only log changes. */
+        @CheckForNull
+        private String _sLastFormat;
 
         public Bitstream2Mdec(@Nonnull IMdecListener mdecListener) {
             _listener = mdecListener;
@@ -172,9 +181,12 @@ public class VDP {
             BitStreamUncompressor uncompressor;
             try {
                 uncompressor = BitStreamUncompressor.identifyUncompressor(abBitstream, iBitstreamSize);
-                _log.log(Level.INFO, I.VIDEO_FMT_IDENTIFIED(uncompressor.getName()));
+                if (!uncompressor.getName().equals(_sLastFormat))
+                    _log.log(Level.INFO, I.VIDEO_FMT_IDENTIFIED(uncompressor.getName()));
+                _sLastFormat = uncompressor.getName();
             } catch (BinaryDataNotRecognized ex) {
                 uncompressor = null;
+                _sLastFormat = null;
             }
             return uncompressor;
         }
@@ -286,8 +298,6 @@ public class VDP {
         @Nonnull
         private final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg _jpegTranslator;
         @Nonnull
-        private final ExposedBAOS _buffer = new ExposedBAOS();
-        @Nonnull
         private final ILocalizedLogger _log;
         @CheckForNull
         private GeneratedFileListener _fileGenListener;
@@ -295,6 +305,8 @@ public class VDP {
         public Mdec2Jpeg(@Nonnull FrameFileFormatter formatter, int iWidth, int iHeight, @Nonnull ILocalizedLogger log) {
             _formatter = formatter;
             _jpegTranslator = new jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg(iWidth, iHeight);
+            // standalone files don't need to use the default tables like MJPG
+            _jpegTranslator.setOptimizeHuffmanTables(true);
             _log = log;
         }
 
@@ -322,19 +334,14 @@ public class VDP {
                 return; // just skip the file without failing
             }
 
-            _buffer.reset();
-            try {
-                _jpegTranslator.writeJpeg(_buffer);
-            } catch (IOException ex) {
-                throw new RuntimeException("Should not happen", ex);
-            }
+            int iJpegSize = _jpegTranslator.writeJpeg();
 
             FileOutputStream fos = null;
             try {
                 fos = new FileOutputStream(f);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(f);
-                fos.write(_buffer.getBuffer(), 0, _buffer.size());
+                fos.write(_jpegTranslator.getJpegBuffer(), 0, iJpegSize);
             } catch (FileNotFoundException ex) {
                 _log.log(Level.SEVERE, I.IO_OPENING_FILE_ERROR_NAME(f.toString()), ex);
             } catch (IOException ex) {
@@ -404,6 +411,192 @@ public class VDP {
 
     }
 
+    /** Same as {@link Bitstream2Mdec} feeding {@link Mdec2Decoded}, but the
+     * frames are uncompressed and decoded on several threads at once.
+     * Each thread has its own {@link MdecDecoder} and
+     * {@link BitStreamUncompressor}. The decoded frames, and any messages
+     * about them, are handed to the {@link IDecodedListener} on the calling
+     * thread in the same order the bitstreams were received, so the output
+     * is the same as decoding one frame at a time.
+     * <p>
+     * {@link #flush()} must be called after the last frame, and
+     * {@link #close()} to stop the threads. */
+    public static class Bitstream2DecodedParallel implements IBitstreamListener, Closeable {
+
+        private static final ThreadFactory DECODE_THREAD_FACTORY = new ThreadFactory() {
+            private final ThreadFactory _default = Executors.defaultThreadFactory();
+            public Thread newThread(Runnable r) {
+                Thread t = _default.newThread(r);
+                t.setName("Frame decoding " + t.getName());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+
+        @Nonnull
+        private final IDecodedListener _listener;
+        @Nonnull
+        private final ILocalizedLogger _log;
+        @Nonnull
+        private final ExecutorService _executor;
+        /** Used in turn, so the next job is always the oldest one. */
+        @Nonnull
+        private final DecodeJob[] _aoJobs;
+        private int _iNextJob = 0;
+        /** Name of the last identified bitstream format, to only log changes. */
+        @CheckForNull
+        private String _sLastFormat;
+
+        /** @param aoDecoders One decoder for each thread. */
+        public Bitstream2DecodedParallel(@Nonnull MdecDecoder[] aoDecoders,
+                                         @Nonnull IDecodedListener listener,
+                                         @Nonnull ILocalizedLogger log)
+        {
+            for (MdecDecoder decoder : aoDecoders)
+                listener.assertAcceptsDecoded(decoder);
+            _listener = listener;
+            _log = log;
+            _aoJobs = new DecodeJob[aoDecoders.length];
+            for (int i = 0; i < aoDecoders.length; i++)
+                _aoJobs[i] = new DecodeJob(aoDecoders[i]);
+            _executor = Executors.newFixedThreadPool(aoDecoders.length, DECODE_THREAD_FACTORY);
+        }
+
+        public void bitstream(@Nonnull byte[] abBitstream, int iBitstreamSize,
+                              @Nonnull FrameNumber frameNumber, int iFrameEndSector)
+                throws LoggedFailure
+        {
+            DecodeJob job = _aoJobs[_iNextJob];
+            // wait for the oldest frame to finish so its decoder can be reused
+            if (job._future != null)
+                deliver(job);
+            job.start(abBitstream, iBitstreamSize, frameNumber, iFrameEndSector);
+            _iNextJob = (_iNextJob + 1) % _aoJobs.length;
+        }
+
+        /** Hands any frames still being decoded to the listener. */
+        public void flush() throws LoggedFailure {
+            for (int i = 0; i < _aoJobs.length; i++) {
+                DecodeJob job = _aoJobs[_iNextJob];
+                if (job._future != null)
+                    deliver(job);
+                _iNextJob = (_iNextJob + 1) % _aoJobs.length;
+            }
+        }
+
+        private void deliver(@Nonnull DecodeJob job) throws LoggedFailure {
+            job.waitUntilDone();
+
+            if (job._sFormat != null && !job._sFormat.equals(_sLastFormat))
+                _log.log(Level.INFO, I.VIDEO_FMT_IDENTIFIED(job._sFormat));
+            _sLastFormat = job._sFormat;
+
+            FrameNumber frameNumber = job._frameNumber;
+            if (job._sFormat == null) {
+                ILocalizedMessage msg = I.UNABLE_TO_DETERMINE_FRAME_TYPE_FRM(frameNumber.toString());
+                _log.log(Level.SEVERE, msg);
+                _listener.error(msg, frameNumber, job._iFrameEndSector);
+            } else {
+                if (job._decodeError != null)
+                    _log.log(Level.SEVERE, job._decodeErrorMsg, job._decodeError);
+                _listener.decoded(job._decoder, frameNumber, job._iFrameEndSector);
+            }
+        }
+
+        /** Stops the decoding threads. Any frames not yet flushed are lost. */
+        public void close() {
+            _executor.shutdownNow();
+        }
+
+        /** One frame being decoded on another thread. */
+        private class DecodeJob implements Runnable {
+            @Nonnull
+            private final MdecDecoder _decoder;
+            @CheckForNull
+            private BitStreamUncompressor _uncompressor;
+            /** Copy of the bitstream, since the caller reuses its buffer. */
+            @CheckForNull
+            private byte[] _abBitstream;
+            private int _iBitstreamSize;
+            @CheckForNull
+            private FrameNumber _frameNumber;
+            private int _iFrameEndSector;
+            /** Not null while the frame is being decoded, or waiting to be delivered. */
+            @CheckForNull
+            private Future<?> _future;
+
+            // results
+            /** Null if the bitstream format could not be identified. */
+            @CheckForNull
+            private String _sFormat;
+            @CheckForNull
+            private ILocalizedMessage _decodeErrorMsg;
+            @CheckForNull
+            private Exception _decodeError;
+
+            public DecodeJob(@Nonnull MdecDecoder decoder) {
+                _decoder = decoder;
+            }
+
+            public void start(@Nonnull byte[] abBitstream, int iBitstreamSize,
+                              @Nonnull FrameNumber frameNumber, int iFrameEndSector)
+            {
+                if (_abBitstream == null || _abBitstream.length < iBitstreamSize)
+                    _abBitstream = new byte[abBitstream.length];
+                System.arraycopy(abBitstream, 0, _abBitstream, 0, iBitstreamSize);
+                _iBitstreamSize = iBitstreamSize;
+                _frameNumber = frameNumber;
+                _iFrameEndSector = iFrameEndSector;
+                _future = _executor.submit(this);
+            }
+
+            public void run() {
+                _sFormat = null;
+                _decodeErrorMsg = null;
+                _decodeError = null;
+
+                if (_uncompressor != null) {
+                    try {
+                        _uncompressor.reset(_abBitstream, _iBitstreamSize);
+                    } catch (BinaryDataNotRecognized ex) {
+                        _uncompressor = null;
+                    }
+                }
+                if (_uncompressor == null) {
+                    try {
+                        _uncompressor = BitStreamUncompressor.identifyUncompressor(_abBitstream, _iBitstreamSize);
+                    } catch (BinaryDataNotRecognized ex) {
+                        return;
+                    }
+                }
+                _sFormat = _uncompressor.getName();
+
+                try {
+                    _decoder.decode(_uncompressor);
+                } catch (MdecException.ReadCorruption ex) {
+                    _decodeErrorMsg = I.FRAME_NUM_CORRUPTED(_frameNumber.toString());
+                    _decodeError = ex;
+                } catch (MdecException.EndOfStream ex) {
+                    _decodeErrorMsg = I.FRAME_NUM_INCOMPLETE(_frameNumber.toString());
+                    _decodeError = ex;
+                }
+            }
+
+            public void waitUntilDone() {
+                try {
+                    _future.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ex);
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException(ex.getCause());
+                } finally {
+                    _future = null;
+                }
+            }
+        }
+    }
+
     public interface IDecodedListener {
         void decoded(@Nonnull MdecDecoder decoder, @Nonnull FrameNumber frameNumber, int iFrameEndSector) throws LoggedFailure;
         void error(@Nonnull ILocalizedMessage errMsg, @Nonnull FrameNumber frameNumber, int iFrameEndSector) throws LoggedFailure;
@@ -756,8 +949,6 @@ public class VDP {
     public static class Mdec2MjpegAvi extends ToAvi implements IMdecListener {
         @Nonnull
         private final jpsxdec.psxvideo.mdec.tojpeg.Mdec2Jpeg _jpegTranslator;
-        @Nonnull
-        private final ExposedBAOS _buffer = new ExposedBAOS();
         @CheckForNull
         private AviWriterMJPG _mjpegWriter;
 
@@ -777,6 +968,9 @@ public class VDP {
             if (_writer == null) {
                 IO.makeDirsForFile(_outputFile);
                 _writer = _mjpegWriter = new AviWriterMJPG(_outputFile, _iWidth, _iHeight, _vidSync.getFpsNum(), _vidSync.getFpsDenom(), _af);
+                _jpegTranslator.readBlank();
+                int iJpegSize = _jpegTranslator.writeJpeg();
+                _mjpegWriter.setBlankFrame(_jpegTranslator.getJpegBuffer(), 0, iJpegSize);
                 if (_fileGenListener != null)
                     _fileGenListener.fileGenerated(_outputFile);
             }
@@ -789,16 +983,11 @@ public class VDP {
             Exception fail;
             try {
                 _jpegTranslator.readMdec(mdecIn);
-                _buffer.reset();
-                try {
-                    _jpegTranslator.writeJpeg(_buffer);
-                } catch (IOException ex) {
-                    throw new RuntimeException("Should not happen", ex);
-                }
+                int iJpegSize = _jpegTranslator.writeJpeg();
 
                 try {
                     prepForFrame(frameNumber, iFrameEndSector);
-                    _mjpegWriter.writeFrame(_buffer.getBuffer(), 0, _buffer.size());
+                    _mjpegWriter.writeFrame(_jpegTranslator.getJpegBuffer(), 0, iJpegSize);
                 } catch (IOException ex) {
                     throw new LoggedFailure(_log, Level.SEVERE,
                             I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
@@ -822,9 +1011,17 @@ public class VDP {
         public void error(@Nonnull ILocalizedMessage errMsg, @Nonnull FrameNumber frameNumber, int iFrameEndSector) throws LoggedFailure {
             if (_mjpegWriter == null)
                 throw new IllegalStateException("AVI not open.");
+            BufferedImage errorImage = makeErrorImage(errMsg, _iWidth, _iHeight);
             try {
                 prepForFrame(frameNumber, iFrameEndSector);
-                _mjpegWriter.writeFrame(makeErrorImage(errMsg, _iWidth, _iHeight));
+                try {
+                    _jpegTranslator.readImage(errorImage);
+                    int iJpegSize = _jpegTranslator.writeJpeg();
+                    _mjpegWriter.writeFrame(_jpegTranslator.getJpegBuffer(), 0, iJpegSize);
+                } catch (MdecException.TooMuchEnergy ex) {
+                    // fall back to the slow way
+                    _mjpegWriter.writeFrame(errorImage);
+                }
             } catch (IOException ex) {
                 throw new LoggedFailure(_log, Level.SEVERE,
                         I.IO_WRITING_TO_FILE_ERROR_NAME(_writer.getFile().toString()), ex);
@@ -66,6 +66,7 @@ import jpsxdec.psxvideo.mdec.MdecDecoder_double_interpolate.Upsampler;
 import jpsxdec.sectors.IdentifiedSector;
 import jpsxdec.sectors.IdentifiedSectorIterator;
 import jpsxdec.util.FeedbackStream;
+import jpsxdec.util.ILocalizedLogger;
 import jpsxdec.util.IO;
 import jpsxdec.util.LoggedFailure;
 import jpsxdec.util.ProgressLogger;
@@ -85,6 +86,16 @@ public abstract class VideoSaver
     protected final VideoFormat _vidFmt;
     @CheckForNull
     protected final MdecDecoder _decoder;
+    /** Used to make more decoders for {@link #makeDecodedPipeline}. */
+    @CheckForNull
+    private MdecDecodeQuality _decodeQuality;
+    @CheckForNull
+    private Upsampler _chromaUpsampler;
+    /** How many threads may be used to decode frames. */
+    private int _iDecodeThreads = Runtime.getRuntime().availableProcessors();
+    /** Set when frames are decoded on multiple threads. */
+    @CheckForNull
+    private VDP.Bitstream2DecodedParallel _parallelDecoder;
     @CheckForNull
     protected final FrameLookup _startFrame, _endFrame;
     @Nonnull
@@ -93,9 +104,6 @@ public abstract class VideoSaver
     protected final ArrayList<ILocalizedMessage> _selectedOptions = new ArrayList<ILocalizedMessage>();
     @CheckForNull
     protected VDP.IBitstreamListener _bsListener;
-    /** Reusable buffer to temporarily hold bitstream. */
-    @CheckForNull
-    private byte[] _abBitstreamBuf;
     @CheckForNull
     protected FrameNumber _currentFrame;
     /** Initially null. {@link #startSave(jpsxdec.util.ProgressLogger)}
@@ -185,8 +193,13 @@ public abstract class VideoSaver
         if (!savingAudio() && ((_startFrame != null && _startFrame.compareTo(_currentFrame) > 0) ||
                                (_endFrame   != null && _endFrame.compareTo(_currentFrame)   < 0)))
             return; // haven't received the starting frame yet, or have past the end frame
-        _abBitstreamBuf = frame.copyDemuxData(_abBitstreamBuf);
-        _bsListener.bitstream(_abBitstreamBuf, frame.getDemuxSize(), frame.getFrame(), frame.getPresentationSector());
+        // listeners are done with the bitstream once they return
+        byte[] abBitstream = frame.leaseDemuxData();
+        try {
+            _bsListener.bitstream(abBitstream, frame.getDemuxSize(), frame.getFrame(), frame.getPresentationSector());
+        } finally {
+            frame.releaseDemuxData(abBitstream);
+        }
     }
 
     abstract protected boolean savingAudio();
@@ -196,15 +209,63 @@ public abstract class VideoSaver
         // quality should != null for the target format
         MdecDecodeQuality quality = vsb.getDecodeQuality();
         _selectedOptions.add(I.CMD_DECODE_QUALITY(quality));
+        _decodeQuality = quality;
         MdecDecoder vidDecoder = quality.makeDecoder(_videoItem.getWidth(), _videoItem.getHeight());
         if (vidDecoder instanceof MdecDecoder_double_interpolate) {
             Upsampler chroma = vsb.getChromaInterpolation();
             _selectedOptions.add(I.CMD_UPSAMPLE_QUALITY(chroma));
             ((MdecDecoder_double_interpolate)vidDecoder).setResampler(chroma);
+            _chromaUpsampler = chroma;
         }
         return vidDecoder;
     }
 
+    /** Sets the number of threads that may be used to decode frames.
+     * Defaults to the number of available processors. 1 decodes every
+     * frame on the saving thread. */
+    public void setDecodeThreadCount(int iThreads) {
+        if (iThreads < 1)
+            throw new IllegalArgumentException("Invalid thread count " + iThreads);
+        _iDecodeThreads = iThreads;
+    }
+
+    /** Creates the bitstream to {@link VDP.IDecodedListener} part of the
+     * pipeline. If more than one decoding thread is allowed, the frames are
+     * decoded in parallel, and {@link #flushDecodedPipeline()} and
+     * {@link #closeDecodedPipeline()} must be called when saving is done. */
+    final protected @Nonnull VDP.IBitstreamListener makeDecodedPipeline(
+            @Nonnull VDP.IDecodedListener decoded, @Nonnull ILocalizedLogger log)
+    {
+        if (_iDecodeThreads < 2) {
+            VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(_decoder, log);
+            mdec2decode.setDecoded(decoded);
+            return new VDP.Bitstream2Mdec(mdec2decode);
+        }
+
+        MdecDecoder[] aoDecoders = new MdecDecoder[_iDecodeThreads];
+        aoDecoders[0] = _decoder;
+        for (int i = 1; i < aoDecoders.length; i++) {
+            aoDecoders[i] = _decodeQuality.makeDecoder(_videoItem.getWidth(), _videoItem.getHeight());
+            if (_chromaUpsampler != null)
+                ((MdecDecoder_double_interpolate)aoDecoders[i]).setResampler(_chromaUpsampler);
+        }
+        _parallelDecoder = new VDP.Bitstream2DecodedParallel(aoDecoders, decoded, log);
+        return _parallelDecoder;
+    }
+
+    /** Hands any frames still being decoded to the rest of the pipeline. */
+    final protected void flushDecodedPipeline() throws LoggedFailure {
+        if (_parallelDecoder != null)
+            _parallelDecoder.flush();
+    }
+
+    final protected void closeDecodedPipeline() {
+        if (_parallelDecoder != null) {
+            _parallelDecoder.close();
+            _parallelDecoder = null;
+        }
+    }
+
     final protected void addSkipFrameSelectedOptions() {
         if (_startFrame != null)
             _selectedOptions.add(I.CMD_FRAME_RANGE_BEFORE(_startFrame));
@@ -274,17 +335,23 @@ public abstract class VideoSaver
                 case IMGSEQ_PNG:
                 {
                     // vf.getImgFmt() should != null for these image formats
-                    VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(_decoder, pll);
                     VDP.Decoded2JavaImage decode2img = new VDP.Decoded2JavaImage(
                             _outFileFormat, _vidFmt.getImgFmt(), _iCroppedWidth, _iCroppedHeight, pll);
                     decode2img.setGenFileListener(this);
-                    mdec2decode.setDecoded(decode2img);
-                    _bsListener = new VDP.Bitstream2Mdec(mdec2decode);
+                    _bsListener = makeDecodedPipeline(decode2img, pll);
                 } break;
                 default:
                     throw new UnsupportedOperationException(_vidFmt + " not implemented yet.");
             }
 
+            try {
+                saveSectors(pll);
+            } finally {
+                closeDecodedPipeline();
+            }
+        }
+
+        private void saveSectors(@Nonnull ProgressLogger pll) throws LoggedFailure, TaskCanceledException {
             pll.progressStart(_videoItem.getSectorLength());
             IdentifiedSectorIterator it = _videoItem.identifiedSectorIterator();
 
@@ -314,6 +381,7 @@ public abstract class VideoSaver
                     break;
             }
             _sectorFeeder.flush(pll);
+            flushDecodedPipeline();
             if (pll.isSeekingEvent() && _currentFrame != null)
                 pll.event(_numberFormatter.getDescription(_currentFrame));
             pll.progressEnd();
@@ -417,9 +485,11 @@ public abstract class VideoSaver
             if (toAvi instanceof VDP.IMdecListener) {
                 _bsListener = new VDP.Bitstream2Mdec((VDP.IMdecListener)toAvi);
             } else if (toAvi instanceof VDP.IDecodedListener) {
-                VDP.Mdec2Decoded mdec2decode = new VDP.Mdec2Decoded(_decoder, pll);
-                _bsListener = new VDP.Bitstream2Mdec(mdec2decode);
-                mdec2decode.setDecoded((VDP.IDecodedListener)toAvi);
+                // with audio, frames must reach the AVI as their sectors are
+                // read so they are interleaved with the audio the same way
+                if (_sectorFeeder.audioDecoder != null)
+                    setDecodeThreadCount(1);
+                _bsListener = makeDecodedPipeline((VDP.IDecodedListener)toAvi, pll);
             }
             addSkipFrameSelectedOptions();
             final int iStartSector, iEndSector;
@@ -473,10 +543,12 @@ public abstract class VideoSaver
                 }
 
                 _sectorFeeder.flush(pll);
+                flushDecodedPipeline();
                 if (pll.isSeekingEvent() && _currentFrame != null)
                     pll.event(_numberFormatter.getDescription(_currentFrame));
                 pll.progressEnd();
             } finally {
+                closeDecodedPipeline();
                 IO.closeSilently(toAvi, LOG);
             }
 
@@ -402,7 +402,7 @@ public class IndexingGui extends javax.swing.JDialog implements PropertyChangeLi
         @Override
         final protected @CheckForNull Void doInBackground() {
             try {
-                _index = new DiscIndex(_cd, __progressLog);
+                _index = new DiscIndex(_cd, __progressLog, Runtime.getRuntime().availableProcessors());
             } catch (TaskCanceledException ex) {
                 // cool
             } catch (Throwable ex) {
@@ -83,7 +83,7 @@ public class SavingGui extends javax.swing.JDialog implements PropertyChangeList
 
         setLocationRelativeTo(parent); // center on parent
 
-        _saveAll = new SavingGuiTask(model._rows, sCd);
+        _saveAll = new SavingGuiTask(model._rows, sCd, Runtime.getRuntime().availableProcessors());
         _saveAll.addPropertyChangeListener(this);
     }
 
@@ -39,10 +39,11 @@ package jpsxdec.gui;
 
 import java.awt.EventQueue;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.logging.Level;
-import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jpsxdec.discitems.SaverScheduler;
 import jpsxdec.gui.SavingGuiTable.Row;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
@@ -54,93 +55,126 @@ import jpsxdec.util.UserFriendlyLogger;
 import org.jdesktop.swingworker.SwingWorker;
 
 public class SavingGuiTask extends SwingWorker<Void, SavingGuiTask.Event_Message> 
-        implements UserFriendlyLogger.OnWarnErr
 {
     public static final String ALL_DONE = "alldone";
 
     @Nonnull
     private final ArrayList<Row> _rows;
-    @CheckForNull
-    private Row _currentRow;
+    /** How many rows to save at the same time. */
+    private final int _iThreads;
 
-    
-    final ProgressLogger _progressLog = new ProgressLogger("save")
+    /** Every row's logger writes here. */
+    final UserFriendlyLogger _progressLog = new UserFriendlyLogger("save");
+
+    /** Reports the progress of one row. */
+    private class RowProgressLogger extends ProgressLogger
+            implements UserFriendlyLogger.OnWarnErr
     {
+        @Nonnull
+        private final Row _row;
+
+        public RowProgressLogger(@Nonnull Row row) {
+            super(_progressLog);
+            _row = row;
+            setListener(this);
+        }
 
         protected void handleProgressStart() throws TaskCanceledException {
             if (isCancelled())
                 throw new TaskCanceledException();
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow, SavingGuiTable.PROGRESS_STARTED));
+            EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_STARTED));
         }
 
         protected void handleProgressEnd() throws TaskCanceledException {
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow, SavingGuiTable.PROGRESS_DONE));
+            EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_DONE));
         }
 
         protected void handleProgressUpdate(double dblPercentComplete) throws TaskCanceledException {
             if (isCancelled())
                 throw new TaskCanceledException();
-            if (_currentRow != null)
-                EventQueue.invokeLater(new Event_Progress(_currentRow,
-                                                          (int)Math.round(dblPercentComplete * 100)));
+            EventQueue.invokeLater(new Event_Progress(_row,
+                                                      (int)Math.round(dblPercentComplete * 100)));
         }
 
         public void event(@Nonnull ILocalizedMessage msg) {
-            if (_currentRow != null)
-                publish(new Event_Message(_currentRow, msg));
+            publish(new Event_Message(_row, msg));
         }
 
         public boolean isSeekingEvent() {
             // TODO: only seek event after so many seconds
             return true;
         }
-    };
-
 
-    public SavingGuiTask(@Nonnull ArrayList<Row> rows, @Nonnull String sCd) {
-        _rows = rows;
-        _progressLog.log(Level.INFO, new UnlocalizedMessage(sCd));
-        _progressLog.setListener(this);
+        public void onWarn(@Nonnull ILocalizedMessage msg) {
+            EventQueue.invokeLater(new Event_Warning(_row));
+        }
+        public void onErr(@Nonnull ILocalizedMessage msg) {
+            EventQueue.invokeLater(new Event_Error(_row));
+        }
     }
 
-    public void onWarn(@Nonnull ILocalizedMessage msg) {
-        if (_currentRow != null)
-            EventQueue.invokeLater(new Event_Warning(_currentRow));
-    }
-    public void onErr(@Nonnull ILocalizedMessage msg) {
-        if (_currentRow != null)
-            EventQueue.invokeLater(new Event_Error(_currentRow));
-    }
+    /** Saves one row, possibly at the same time as other rows. */
+    private class RowJob extends SaverScheduler.Job {
+        @Nonnull
+        private final Row _row;
 
-    @Override
-    protected Void doInBackground() {
-        for (Row row : _rows) {
-            _currentRow = row;
+        public RowJob(@Nonnull Row row) {
+            super(row._saver);
+            _row = row;
+        }
+
+        protected void save() throws TaskCanceledException {
+            RowProgressLogger progressLog = new RowProgressLogger(_row);
             try {
-                _progressLog.log(Level.INFO, new UnlocalizedMessage(row._saver.getDiscItem().toString()));
-                row._saver.startSave(_progressLog);
+                progressLog.log(Level.INFO, new UnlocalizedMessage(_row._saver.getDiscItem().toString()));
+                _row._saver.startSave(progressLog);
             } catch (TaskCanceledException ex) {
                 // cool
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_CANCELED));
-                break;
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_CANCELED));
+                throw ex;
             } catch (LoggedFailure ex) {
                 // uncool
                 if (!ex.wasLogged())
-                    ex.log(_progressLog);
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_FAILED));
-                continue;
+                    ex.log(progressLog);
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_FAILED));
+                return;
             } catch (Throwable ex) {
                 // uh oh...
-                _progressLog.log(Level.SEVERE, I.GUI_UNHANDLED_ERROR(), ex);
-                EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_FAILED));
+                progressLog.log(Level.SEVERE, I.GUI_UNHANDLED_ERROR(), ex);
+                EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_FAILED));
                 if (ex instanceof InterruptedException)
-                    break;
+                    throw new TaskCanceledException();
                 else
-                    continue;
+                    return;
             }
-            EventQueue.invokeLater(new Event_Progress(row, SavingGuiTable.PROGRESS_DONE));
+            EventQueue.invokeLater(new Event_Progress(_row, SavingGuiTable.PROGRESS_DONE));
+        }
+    }
+
+
+    public SavingGuiTask(@Nonnull ArrayList<Row> rows, @Nonnull String sCd) {
+        this(rows, sCd, 1);
+    }
+
+    /** @param iThreads How many rows to save at the same time. */
+    public SavingGuiTask(@Nonnull ArrayList<Row> rows, @Nonnull String sCd, int iThreads) {
+        _rows = rows;
+        _iThreads = iThreads;
+        _progressLog.log(Level.INFO, new UnlocalizedMessage(sCd));
+    }
+
+    @Override
+    protected Void doInBackground() {
+        SaverScheduler scheduler = new SaverScheduler(_iThreads);
+        for (Row row : _rows) {
+            scheduler.add(new RowJob(row));
+        }
+        try {
+            scheduler.runAll();
+        } catch (TaskCanceledException ex) {
+            // cool
+        } catch (InterruptedException ex) {
+            _progressLog.log(Level.SEVERE, I.GUI_UNHANDLED_ERROR(), ex);
         }
         firePropertyChange(ALL_DONE, null, null);
         _progressLog.close();
@@ -150,8 +184,14 @@ public class SavingGuiTask extends SwingWorker<Void, SavingGuiTask.Event_Message
 
     @Override
     final protected void process(@Nonnull List<Event_Message> events) {
-        // only process the last event
-        events.get(events.size()-1).run();
+        // only process the last event of each row
+        LinkedHashMap<Row, Event_Message> lastEvents = new LinkedHashMap<Row, Event_Message>();
+        for (Event_Message event : events) {
+            lastEvents.put(event._row, event);
+        }
+        for (Event_Message event : lastEvents.values()) {
+            event.run();
+        }
     }
 
     // -- Event types -------------------------------------------------------
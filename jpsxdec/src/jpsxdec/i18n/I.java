@@ -1232,6 +1232,54 @@ Do you want to replace it?</pre>
         return inter("CMD_VERBOSE_LVL_INVALID_NUM", "Invalid verbosity level {0,number,#}", badVerbosityNumber);
     }
 
+    /**
+    <table border="1"><tr><td>
+    <pre>Invalid thread count {0}</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Items.java</li>
+    </ul>
+    */
+    public static ILocalizedMessage CMD_THREADS_INVALID(@Nonnull String badThreadCount) {
+        return inter("CMD_THREADS_INVALID", "Invalid thread count {0}", badThreadCount);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Saving {0,number,#} files to {1}</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_DumpFs.java</li>
+    </ul>
+    */
+    public static ILocalizedMessage CMD_DUMPING_FILESYSTEM(int fileCount, @Nonnull String directory) {
+        return inter("CMD_DUMPING_FILESYSTEM", "Saving {0,number,#} files to {1}", fileCount, directory);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>{0,number,#} files could not be saved</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_DumpFs.java</li>
+    </ul>
+    */
+    public static ILocalizedMessage CMD_DUMPFS_FAILURES(int failedCount) {
+        return inter("CMD_DUMPFS_FAILURES", "{0,number,#} files could not be saved", failedCount);
+    }
+
+    /**
+    <table border="1"><tr><td>
+    <pre>Saving {0,number,#} items using {1,number,#} threads</pre>
+    </td></tr></table>
+    <ul>
+       <li>Command_Items.java</li>
+    </ul>
+    */
+    public static ILocalizedMessage CMD_SAVING_CONCURRENTLY(int itemCount, int threadCount) {
+        return inter("CMD_SAVING_CONCURRENTLY", "Saving {0,number,#} items using {1,number,#} threads", itemCount, threadCount);
+    }
+
     /**
     <table border="1"><tr><td>
     <pre>Saving index as {0}</pre>
@@ -189,6 +189,10 @@ public class DemuxedUnidentifiedDataStream extends InputStream {
     @CheckForNull
     private CdSector _current;
 
+    /** Reused to scan sector user data by {@link #resetSkipMarkToCandidate(DiscIndexer.StaticPrefilter[])}. */
+    @CheckForNull
+    private byte[] _abScanBuffer;
+
     /** {@link UnidentifiedSectorIterator} must be at the start of an
      * unidentified sequence, otherwise throws {@link IllegalStateException}.
      * @throws IllegalStateException */
@@ -256,6 +260,47 @@ public class DemuxedUnidentifiedDataStream extends InputStream {
     }
 
 
+    /** Moves the mark forward, 4 bytes at a time, until at least one of the
+     * filters accepts the 4 bytes at the mark. The result is the same as
+     * calling {@link #resetSkipMark(int)} with 4 until a filter passes,
+     * but the user data of each sector is scanned in bulk.
+     * Should be called right after the mark is set.
+     * Offsets too close to the end of a sector to have 4 bytes are always
+     * stopped at.
+     * @return false if the end of the unidentified sequence was reached,
+     *         the same as {@link #resetSkipMark(int)}. */
+    public boolean resetSkipMarkToCandidate(@Nonnull DiscIndexer.StaticPrefilter[] aoFilters)
+            throws IOException
+    {
+        if (_current == null)
+            return false;
+        while (true) {
+            int iUserDataSize = _current.getCdUserDataSize();
+            if (_abScanBuffer == null || _abScanBuffer.length < iUserDataSize)
+                _abScanBuffer = new byte[iUserDataSize];
+            byte[] abScan = _abScanBuffer;
+            _current.getCdUserDataCopy(0, abScan, 0, iUserDataSize);
+
+            int iOfs = _iStartingOffset;
+            for (; iOfs <= iUserDataSize - 4; iOfs += 4) {
+                int iWord = (abScan[iOfs  ] & 0xff)        |
+                            (abScan[iOfs+1] & 0xff) <<  8  |
+                            (abScan[iOfs+2] & 0xff) << 16  |
+                            (abScan[iOfs+3]       ) << 24;
+                for (DiscIndexer.StaticPrefilter filter : aoFilters) {
+                    if (filter.couldStartWith(iWord))
+                        return resetSkipMark(iOfs - _iStartingOffset);
+                }
+            }
+            if (iOfs < iUserDataSize) // not enough bytes left to check
+                return resetSkipMark(iOfs - _iStartingOffset);
+
+            // nothing in the rest of this sector, move the mark to the next one
+            if (!resetSkipMark(iOfs - _iStartingOffset))
+                return false;
+        }
+    }
+
     /** Do not call after {@link #resetSkipMark(int)} returns false.
      * @throws IllegalStateException */
     @Override
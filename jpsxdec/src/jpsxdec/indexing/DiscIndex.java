@@ -50,10 +50,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -70,6 +74,7 @@ import jpsxdec.discitems.IndexId;
 import jpsxdec.discitems.SerializedDiscItem;
 import jpsxdec.i18n.I;
 import jpsxdec.sectors.IdentifiedSector;
+import jpsxdec.sectors.IdentifiedSectorIterator;
 import jpsxdec.util.DeserializationFail;
 import jpsxdec.util.ILocalizedLogger;
 import jpsxdec.util.IO;
@@ -100,6 +105,17 @@ public class DiscIndex implements Iterable<DiscItem> {
     /** Finds all the interesting items on the CD. */
     public DiscIndex(@Nonnull CdFileSectorReader cdReader, @Nonnull final ProgressLogger pl) 
             throws TaskCanceledException
+    {
+        this(cdReader, pl, 1);
+    }
+
+    /** Finds all the interesting items on the CD.
+     * If {@code iThreadCount} is more than 1, sectors are identified in
+     * parallel using that many threads. The resulting index is the same
+     * either way. */
+    public DiscIndex(@Nonnull CdFileSectorReader cdReader, @Nonnull final ProgressLogger pl,
+                     int iThreadCount)
+            throws TaskCanceledException
     {
         _sourceCD = cdReader;
         
@@ -117,10 +133,31 @@ public class DiscIndex implements Iterable<DiscItem> {
                 staticIndexers.add((DiscIndexer.Static) indexer);
         }
 
+        // if all the static indexers can prefilter, only offsets that pass
+        // need to be handed to them
+        DiscIndexer.StaticPrefilter[] aoPrefilters = new DiscIndexer.StaticPrefilter[staticIndexers.size()];
+        for (int i = 0; i < aoPrefilters.length; i++) {
+            if (!(staticIndexers.get(i) instanceof DiscIndexer.StaticPrefilter)) {
+                aoPrefilters = null;
+                break;
+            }
+            aoPrefilters[i] = (DiscIndexer.StaticPrefilter) staticIndexers.get(i);
+        }
+
         pl.progressStart(cdReader.getLength());
+
+        ExecutorService identifyThreads = null;
+        IdentifiedSectorIterator sectorIter;
+        if (iThreadCount > 1) {
+            identifyThreads = Executors.newFixedThreadPool(iThreadCount, IDENTIFY_THREAD_FACTORY);
+            sectorIter = IdentifiedSectorIterator.create(cdReader, 0, cdReader.getLength()-1,
+                                                         identifyThreads, iThreadCount);
+        } else {
+            sectorIter = IdentifiedSectorIterator.create(cdReader);
+        }
         
         UnidentifiedSectorIteratorListener iterListener =
-                new UnidentifiedSectorIteratorListener(cdReader, pl, identifiedIndexers);
+                new UnidentifiedSectorIteratorListener(sectorIter, pl, identifiedIndexers);
 
         long lngStart, lngEnd;
         lngStart = System.currentTimeMillis();
@@ -129,6 +166,11 @@ public class DiscIndex implements Iterable<DiscItem> {
             while (iterListener.seekToNextUnidentified()) {
                 DemuxedUnidentifiedDataStream staticStream = new DemuxedUnidentifiedDataStream(iterListener);
 
+                if (aoPrefilters != null && !staticStream.resetSkipMarkToCandidate(aoPrefilters)) {
+                    iterListener.checkTaskCanceled();
+                    continue;
+                }
+
                 do {
                     // do the first static indexer first
                     staticIndexers.get(0).staticRead(staticStream);
@@ -144,12 +186,17 @@ public class DiscIndex implements Iterable<DiscItem> {
                         iterListener.checkTaskCanceled();
                     }
 
-                } while (staticStream.resetSkipMark(4));
+                } while (staticStream.resetSkipMark(4) &&
+                         (aoPrefilters == null || staticStream.resetSkipMarkToCandidate(aoPrefilters)));
                 iterListener.checkTaskCanceled();
             }
 
         } catch (IOException ex) {
             pl.log(Level.SEVERE, I.INDEXING_ERROR(), ex);
+        } finally {
+            LOG.log(Level.FINE, "Identified sector types {0}", sectorIter.getIdentifiedTypeCounts());
+            if (identifyThreads != null)
+                identifyThreads.shutdownNow();
         }
 
         // notify indexers that the disc is finished
@@ -189,14 +236,31 @@ public class DiscIndex implements Iterable<DiscItem> {
     }
 
 
+    /** Identification threads shouldn't keep the program running. */
+    private static final ThreadFactory IDENTIFY_THREAD_FACTORY = new ThreadFactory() {
+        private final ThreadFactory _default = Executors.defaultThreadFactory();
+        public Thread newThread(Runnable r) {
+            Thread t = _default.newThread(r);
+            t.setName("Sector identification " + t.getName());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
     private @Nonnull ArrayList<DiscItem> buildTree(@Nonnull Collection<DiscItem> allItems) {
 
         ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
 
-        for (DiscItem child : allItems) {
+        DiscItem[] aoItems = allItems.toArray(new DiscItem[allItems.size()]);
+        // only items that overlap can be parents, so just check those
+        SectorRangeTree overlaps = new SectorRangeTree(aoItems);
+
+        for (DiscItem child : aoItems) {
             DiscItem bestParent = null;
             int iBestParentRating = 0;
-            for (DiscItem parent : allItems) {
+            // in the same order as allItems so ties go to the same parent
+            for (int iParent : overlaps.findOverlapping(child.getStartSector(), child.getEndSector())) {
+                DiscItem parent = aoItems[iParent];
                 int iRating = parent.getParentRating(child);
                 if (iRating > iBestParentRating) {
                     bestParent = parent;
@@ -283,54 +347,32 @@ public class DiscIndex implements Iterable<DiscItem> {
         File indexFile = new File(sIndexFile);
 
         CdFileSectorReader sourceCd = null;
-        FileInputStream fis = new FileInputStream(indexFile);
-        Closeable streamToClose = fis;
+        DiscIndexCache cache = null;
         boolean blnExceptionThrown = true; // only way to catch all exceptions using finally block
         try {
-            BufferedReader reader;
-            try {
-                reader = new BufferedReader(new InputStreamReader(fis, "UTF-8"));
-            } catch (UnsupportedEncodingException ex) {
-                // Every implementation of the Java platform is required to support UTF-8
-                throw new RuntimeException(ex);
-            }
-            streamToClose = reader;
-            
-            // make sure the first line matches the current version
-            String sLine = reader.readLine();
-            if (!Version.IndexHeader.equals(sLine)) {
-                throw new DeserializationFail(I.INDEX_HEADER_MISSING());
-            }
-
-            ArrayList<String> readLines = new ArrayList<String>();
-
-            // read all the lines, searching for the source CD
-            while ((sLine = reader.readLine()) != null) {
-
-                // comments
-                if (sLine.startsWith(COMMENT_LINE_START))
-                    continue;
-
-                // blank lines
-                if (sLine.matches("^\\s*$"))
-                    continue;
-                
-                // source file
-                if (sLine.startsWith(CdFileSectorReader.SERIALIZATION_START)) {
-                    if (cdReader != null) {
-                        // verify that the source file matches
-                        if (!cdReader.matchesSerialization(sLine)) {
-                            errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader, sLine));
-                        }
-                    } else {
-                        sourceCd = new CdFileSectorReader(sLine, blnAllowWrites);
+            // use the binary cache if it was made from this index and disc
+            cache = DiscIndexCache.read(indexFile);
+            if (cache != null) {
+                if (cdReader == null)
+                    sourceCd = new CdFileSectorReader(cache.getCdSerialization(), blnAllowWrites);
+                if (!cache.matchesCd(cdReader != null ? cdReader : sourceCd)) {
+                    LOG.log(Level.FINE, "Index cache does not match the disc image, reading {0}", indexFile);
+                    if (sourceCd != null) {
+                        IO.closeSilently(sourceCd, LOG);
+                        sourceCd = null;
                     }
-                } else {
-                    // save the line for deserializing later
-                    readLines.add(sLine);
+                    cache = null;
                 }
             }
-            
+
+            List<SerializedDiscItem> serializedItems;
+            if (cache != null) {
+                serializedItems = cache.getItems();
+            } else {
+                serializedItems = new ArrayList<SerializedDiscItem>();
+                sourceCd = readTextIndex(indexFile, cdReader, blnAllowWrites, errLog, serializedItems);
+            }
+
             if (sourceCd == null) {
                 if (cdReader == null)
                     throw new DeserializationFail(I.INDEX_NO_CD());
@@ -347,27 +389,38 @@ public class DiscIndex implements Iterable<DiscItem> {
             }
 
             // now create the disc items
-            for (String sItemLine : readLines) {
+            DiscItem[] aoItems = new DiscItem[serializedItems.size()];
+            boolean blnOneItemPerLine = true;
+            for (int i = 0; i < aoItems.length; i++) {
+                SerializedDiscItem deserializedLine = serializedItems.get(i);
 
+                int iItemsCreated = 0;
                 boolean blnLineHandled = false;
                 for (DiscIndexer indexer : aoIndexers) {
                     try {
-                        SerializedDiscItem deserializedLine = new SerializedDiscItem(sItemLine);
                         DiscItem item = indexer.deserializeLineRead(deserializedLine);
                         if (item != null) {
                             blnLineHandled = true;
                             _iterate.add(item);
+                            aoItems[i] = item;
+                            iItemsCreated++;
                         }
                     } catch (DeserializationFail ex) {
-                        errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sItemLine), ex);
+                        errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(deserializedLine.serialize()), ex);
                         blnLineHandled = true;
                     }
                 }
                 if (!blnLineHandled)
-                    errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(sItemLine));
+                    errLog.log(Level.WARNING, I.INDEX_UNHANDLED_LINE(deserializedLine.serialize()));
+                if (iItemsCreated != 1)
+                    blnOneItemPerLine = false;
             }
 
-            _root = recreateTree(_iterate, errLog);
+            // the cached tree only lines up if every item was recreated
+            if (cache != null && blnOneItemPerLine)
+                _root = cache.recreateTree(aoItems, errLog);
+            else
+                _root = recreateTree(_iterate, errLog);
 
             // copy the items to this class
             for (DiscItem item : _iterate) {
@@ -385,43 +438,122 @@ public class DiscIndex implements Iterable<DiscItem> {
             }
 
             // no exception thrown, don't close the CD in finally block
+            blnExceptionThrown = false;
+        } finally {
+            // something bad happened? close CD reader only if we opened it
+            if (blnExceptionThrown && cdReader == null && sourceCd != null)
+                IO.closeSilently(sourceCd, LOG);
+        }
+    }
+
+    /** Reads the lines of a text index file.
+     * @param serializedItems Receives the items listed in the index.
+     * @return The disc image listed in the index, or null if {@code cdReader}
+     *         was provided or no disc image was listed. */
+    private static @CheckForNull CdFileSectorReader readTextIndex(@Nonnull File indexFile,
+                                                                  @CheckForNull CdFileSectorReader cdReader,
+                                                                  boolean blnAllowWrites,
+                                                                  @Nonnull ILocalizedLogger errLog,
+                                                                  @Nonnull List<SerializedDiscItem> serializedItems)
+            throws CdFileNotFoundException, FileNotFoundException, IOException, DeserializationFail
+    {
+        CdFileSectorReader sourceCd = null;
+        FileInputStream fis = new FileInputStream(indexFile);
+        Closeable streamToClose = fis;
+        boolean blnExceptionThrown = true; // only way to catch all exceptions using finally block
+        try {
+            BufferedReader reader;
+            try {
+                reader = new BufferedReader(new InputStreamReader(fis, "UTF-8"));
+            } catch (UnsupportedEncodingException ex) {
+                // Every implementation of the Java platform is required to support UTF-8
+                throw new RuntimeException(ex);
+            }
+            streamToClose = reader;
+            
+            // make sure the first line matches the current version
+            String sLine = reader.readLine();
+            if (!Version.IndexHeader.equals(sLine)) {
+                throw new DeserializationFail(I.INDEX_HEADER_MISSING());
+            }
+
+            // read all the lines, searching for the source CD
+            while ((sLine = reader.readLine()) != null) {
+
+                // comments
+                if (sLine.startsWith(COMMENT_LINE_START))
+                    continue;
+
+                // blank lines
+                if (sLine.trim().length() == 0)
+                    continue;
+                
+                // source file
+                if (sLine.startsWith(CdFileSectorReader.SERIALIZATION_START)) {
+                    if (cdReader != null) {
+                        // verify that the source file matches
+                        if (!cdReader.matchesSerialization(sLine)) {
+                            errLog.log(Level.WARNING, I.CD_FORMAT_MISMATCH(cdReader, sLine));
+                        }
+                    } else {
+                        sourceCd = new CdFileSectorReader(sLine, blnAllowWrites);
+                    }
+                } else {
+                    try {
+                        serializedItems.add(new SerializedDiscItem(sLine));
+                    } catch (DeserializationFail ex) {
+                        errLog.log(Level.WARNING, I.INDEX_PARSE_LINE_FAIL(sLine), ex);
+                    }
+                }
+            }
+
             blnExceptionThrown = false;
         } finally {
             if (blnExceptionThrown) {
-                // something bad happened? close CD reader only if we opened it
-                if (cdReader == null && sourceCd != null)
-                    IO.closeSilently(sourceCd, LOG);
+                IO.closeSilently(sourceCd, LOG);
                 IO.closeSilently(streamToClose, LOG);
             } else {
                 streamToClose.close(); // expose close exception
             }
-
         }
+        return sourceCd;
+    }
 
+    /** Saves the binary cache of the index file. Failing to save it
+     * only means the next load will be slower. */
+    private void writeCache(@Nonnull File indexFile) {
+        try {
+            DiscIndexCache.write(indexFile, this);
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Unable to save index cache for " + indexFile, ex);
+        }
     }
 
+
     private @Nonnull ArrayList<DiscItem> recreateTree(@Nonnull Collection<DiscItem> allItems, @Nonnull ILocalizedLogger log) {
         ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
 
-        Outside:
+        // the first item with each id is the one that gets the children
+        HashMap<IndexId, DiscItem> itemsById = new HashMap<IndexId, DiscItem>();
+        for (DiscItem item : allItems) {
+            IndexId itemId = item.getIndexId();
+            if (!itemsById.containsKey(itemId))
+                itemsById.put(itemId, item);
+        }
+
         for (DiscItem child : allItems) {
-            IndexId itemId = child.getIndexId();
-            if (itemId.isRoot()) {
+            IndexId parentId = child.getIndexId().getParentId();
+            if (parentId == null) {
                 rootItems.add(child);
                 continue;
             }
-            
-            for (DiscItem possibleParent : allItems) {
-                if (possibleParent == child)
-                    continue;
-                if (itemId.isParent(possibleParent.getIndexId())) {
-                    if (!possibleParent.addChild(child)) {
-                        log.log(Level.WARNING, I.INDEX_REBUILD_PARENT_REJECTED_CHILD(possibleParent, child));
-                    }
-                    continue Outside;
-                }
+
+            DiscItem parent = itemsById.get(parentId);
+            if (parent == null) {
+                rootItems.add(child);
+            } else if (!parent.addChild(child)) {
+                log.log(Level.WARNING, I.INDEX_REBUILD_PARENT_REJECTED_CHILD(parent, child));
             }
-            rootItems.add(child);
         }
 
         return rootItems;
@@ -451,6 +583,9 @@ public class DiscIndex implements Iterable<DiscItem> {
         } finally {
             ps.close();
         }
+        // PrintStream hides write errors, only cache a complete index
+        if (!ps.checkError())
+            writeCache(file);
     }
     
     /** Serializes the list of disc items to a stream. */
@@ -512,11 +647,11 @@ public class DiscIndex implements Iterable<DiscItem> {
         private int iMode1Count = 0;
         private int iMode2Count = 0;
 
-        public UnidentifiedSectorIteratorListener(@Nonnull CdFileSectorReader cd,
+        public UnidentifiedSectorIteratorListener(@Nonnull IdentifiedSectorIterator sectorIter,
                                                   @Nonnull ProgressLogger pl,
                                                   @Nonnull List<DiscIndexer.Identified> identifiedIndexers)
         {
-            super(cd);
+            super(sectorIter);
             _pl = pl;
             _identifiedIndexers = identifiedIndexers;
         }
@@ -0,0 +1,268 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.Version;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.discitems.SerializedDiscItem;
+import jpsxdec.i18n.I;
+import jpsxdec.util.DeserializationFail;
+import jpsxdec.util.ExposedBAOS;
+import jpsxdec.util.ILocalizedLogger;
+import jpsxdec.util.IO;
+
+/** Binary copy of a text index file that can be loaded without any of the
+ * text parsing or tree searching.
+ * <p>
+ * The cache is saved next to the index file it was made from. It is only
+ * used if it was made by this version of jPSXdec, and the index file and
+ * source disc image have the same size and modified time as when the cache
+ * was written. The whole file is checked with a CRC32 so a partially written
+ * cache is ignored. The text index remains the real format: the cache
+ * can always be deleted and will be recreated the next time the
+ * index is saved. */
+class DiscIndexCache {
+
+    private static final Logger LOG = Logger.getLogger(DiscIndexCache.class.getName());
+
+    /** File name extension appended to the index file name. */
+    public static final String CACHE_EXTENSION = ".cache";
+
+    /** "jIXC" */
+    private static final int MAGIC = 0x6A495843;
+    /** Increment whenever the layout changes. */
+    private static final int FORMAT_VERSION = 1;
+    /** Size of the CRC32 at the end of the file. */
+    private static final int CHECKSUM_SIZE = 8;
+
+    public static @Nonnull File cacheFileFor(@Nonnull File indexFile) {
+        return new File(indexFile.getPath() + CACHE_EXTENSION);
+    }
+
+    /** Reads the cache for the index file, if there is one that can be used.
+     * @return null if there is no cache, or it is out of date or corrupted. */
+    public static @CheckForNull DiscIndexCache read(@Nonnull File indexFile) {
+        File cacheFile = cacheFileFor(indexFile);
+        if (!cacheFile.exists())
+            return null;
+
+        try {
+            byte[] abCache = IO.readFile(cacheFile);
+            if (abCache.length < CHECKSUM_SIZE) {
+                LOG.log(Level.FINE, "Index cache {0} is truncated", cacheFile);
+                return null;
+            }
+            int iDataSize = abCache.length - CHECKSUM_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(abCache, 0, iDataSize);
+            long lngStoredCrc = new DataInputStream(
+                    new ByteArrayInputStream(abCache, iDataSize, CHECKSUM_SIZE)).readLong();
+            if (crc.getValue() != lngStoredCrc) {
+                LOG.log(Level.FINE, "Index cache {0} checksum mismatch", cacheFile);
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(abCache, 0, iDataSize));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+                !Version.IndexHeader.equals(in.readUTF()))
+            {
+                LOG.log(Level.FINE, "Index cache {0} is from a different version", cacheFile);
+                return null;
+            }
+            if (in.readLong() != indexFile.length() || in.readLong() != indexFile.lastModified()) {
+                LOG.log(Level.FINE, "Index cache {0} is older than the index", cacheFile);
+                return null;
+            }
+
+            String sCdSerialization = in.readUTF();
+            long lngCdLength = in.readLong();
+            long lngCdModified = in.readLong();
+
+            int iItemCount = in.readInt();
+            if (iItemCount < 0)
+                throw new IOException("Invalid item count " + iItemCount);
+            int[] aiParents = new int[iItemCount];
+            ArrayList<SerializedDiscItem> items = new ArrayList<SerializedDiscItem>(iItemCount);
+            for (int i = 0; i < iItemCount; i++) {
+                int iParent = in.readInt();
+                if (iParent < -1 || iParent >= iItemCount || iParent == i)
+                    throw new IOException("Invalid parent " + iParent + " for item " + i);
+                aiParents[i] = iParent;
+                items.add(SerializedDiscItem.readFields(in));
+            }
+            return new DiscIndexCache(sCdSerialization, lngCdLength, lngCdModified, items, aiParents);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to read index cache " + cacheFile, ex);
+            return null;
+        } catch (DeserializationFail ex) {
+            LOG.log(Level.WARNING, "Unable to read index cache " + cacheFile, ex);
+            return null;
+        }
+    }
+
+    /** Saves the index to the cache file for the index file.
+     * Must be called after the index file has been completely written. */
+    public static void write(@Nonnull File indexFile, @Nonnull DiscIndex index)
+            throws IOException
+    {
+        CdFileSectorReader cd = index.getSourceCd();
+
+        // find the position of each item's parent in the list
+        IdentityHashMap<DiscItem, Integer> positions = new IdentityHashMap<DiscItem, Integer>();
+        int iItemCount = 0;
+        for (DiscItem item : index) {
+            positions.put(item, Integer.valueOf(iItemCount));
+            iItemCount++;
+        }
+        int[] aiParents = new int[iItemCount];
+        Arrays.fill(aiParents, -1);
+        int iPosition = 0;
+        for (DiscItem item : index) {
+            Iterable<DiscItem> children = item.getChildren();
+            if (children != null) {
+                for (DiscItem child : children) {
+                    Integer childPosition = positions.get(child);
+                    if (childPosition != null)
+                        aiParents[childPosition.intValue()] = iPosition;
+                }
+            }
+            iPosition++;
+        }
+
+        ExposedBAOS baos = new ExposedBAOS();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(Version.IndexHeader);
+        out.writeLong(indexFile.length());
+        out.writeLong(indexFile.lastModified());
+        out.writeUTF(cd.serialize());
+        out.writeLong(cd.getSourceFile().length());
+        out.writeLong(cd.getSourceFile().lastModified());
+        out.writeInt(iItemCount);
+        iPosition = 0;
+        for (DiscItem item : index) {
+            out.writeInt(aiParents[iPosition]);
+            item.serialize().writeFields(out);
+            iPosition++;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(baos.getBuffer(), 0, baos.size());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        IO.writeFile(cacheFileFor(indexFile), baos.getBuffer(), 0, baos.size());
+    }
+
+    // =========================================================================
+
+    @Nonnull
+    private final String _sCdSerialization;
+    private final long _lngCdLength;
+    private final long _lngCdModified;
+    @Nonnull
+    private final List<SerializedDiscItem> _items;
+    /** Position of each item's parent in {@link #_items}, or -1 for root items. */
+    @Nonnull
+    private final int[] _aiParents;
+
+    private DiscIndexCache(@Nonnull String sCdSerialization,
+                           long lngCdLength, long lngCdModified,
+                           @Nonnull List<SerializedDiscItem> items,
+                           @Nonnull int[] aiParents)
+    {
+        _sCdSerialization = sCdSerialization;
+        _lngCdLength = lngCdLength;
+        _lngCdModified = lngCdModified;
+        _items = items;
+        _aiParents = aiParents;
+    }
+
+    /** Same as the source file line in the text index. */
+    public @Nonnull String getCdSerialization() {
+        return _sCdSerialization;
+    }
+
+    /** If the disc image is the same one, unchanged, that the cache was made from. */
+    public boolean matchesCd(@Nonnull CdFileSectorReader cd) {
+        File sourceFile = cd.getSourceFile();
+        return _sCdSerialization.equals(cd.serialize()) &&
+               sourceFile.length() == _lngCdLength &&
+               sourceFile.lastModified() == _lngCdModified;
+    }
+
+    /** Serialized items in the same order as the index. */
+    public @Nonnull List<SerializedDiscItem> getItems() {
+        return _items;
+    }
+
+    /** Connects the items together the same way they were when the cache
+     * was written.
+     * @param aoItems Items created from {@link #getItems()}, in the same order.
+     * @return The root items. */
+    public @Nonnull ArrayList<DiscItem> recreateTree(@Nonnull DiscItem[] aoItems,
+                                                     @Nonnull ILocalizedLogger log)
+    {
+        ArrayList<DiscItem> rootItems = new ArrayList<DiscItem>();
+        for (int i = 0; i < aoItems.length; i++) {
+            int iParent = _aiParents[i];
+            if (iParent < 0) {
+                rootItems.add(aoItems[i]);
+            } else if (!aoItems[iParent].addChild(aoItems[i])) {
+                log.log(Level.WARNING, I.INDEX_REBUILD_PARENT_REJECTED_CHILD(aoItems[iParent], aoItems[i]));
+            }
+        }
+        return rootItems;
+    }
+
+}
@@ -72,6 +72,18 @@ public abstract class DiscIndexer {
         public void staticRead(@Nonnull DemuxedUnidentifiedDataStream is) throws IOException;
     }
 
+    /** {@link Static} indexer that can tell from just the first 4 bytes
+     * whether there is any point in calling
+     * {@link Static#staticRead(jpsxdec.indexing.DemuxedUnidentifiedDataStream)}.
+     * When every static indexer implements this, the unidentified data is
+     * scanned directly for offsets that pass, skipping all the others. */
+    public interface StaticPrefilter extends Static {
+        /** Returns false only if {@link #staticRead(jpsxdec.indexing.DemuxedUnidentifiedDataStream)}
+         * would definitely not find anything starting with these 4 bytes.
+         * @param iFirst4BytesLE First 4 bytes of the data as little-endian int. */
+        public boolean couldStartWith(int iFirst4BytesLE);
+    }
+
     public static @Nonnull DiscIndexer[] createIndexers(@Nonnull ILocalizedLogger log) {
         return new DiscIndexer[] {
             new DiscIndexerISO9660(log),
@@ -54,7 +54,7 @@ import jpsxdec.util.DeserializationFail;
 /**
  * Searches for TIM images
  */
-public class DiscIndexerTim extends DiscIndexer implements DiscIndexer.Static {
+public class DiscIndexerTim extends DiscIndexer implements DiscIndexer.StaticPrefilter {
 
     private static final Logger LOG = Logger.getLogger(DiscIndexerTim.class.getName());
 
@@ -86,6 +86,10 @@ public class DiscIndexerTim extends DiscIndexer implements DiscIndexer.Static {
         }
     }
 
+    public boolean couldStartWith(int iFirst4BytesLE) {
+        return Tim.couldBeTim(iFirst4BytesLE);
+    }
+
     @Override
     public void indexingEndOfDisc() {
     }
@@ -0,0 +1,152 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import javax.annotation.Nonnull;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.util.Misc;
+
+/** Finds which {@link DiscItem}s overlap a range of sectors without
+ * checking every item.
+ * <p>
+ * The items are sorted by start sector, and the sorted array is treated as a
+ * balanced binary tree (the middle element of every range is the root of that
+ * range). Each node also holds the largest end sector in its subtree, so
+ * whole subtrees that end before the range can be skipped. Finding the
+ * overlapping items takes O(log n + number found). */
+class SectorRangeTree {
+
+    /** Item positions in the original list, sorted by start sector. */
+    @Nonnull
+    private final int[] _aiPositions;
+    @Nonnull
+    private final int[] _aiStarts;
+    @Nonnull
+    private final int[] _aiEnds;
+    /** Largest end sector in the subtree with each element as its root. */
+    @Nonnull
+    private final int[] _aiSubtreeMaxEnds;
+
+    public SectorRangeTree(@Nonnull final DiscItem[] aoItems) {
+        Integer[] aoSorted = new Integer[aoItems.length];
+        for (int i = 0; i < aoSorted.length; i++)
+            aoSorted[i] = Integer.valueOf(i);
+        Arrays.sort(aoSorted, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return Misc.intCompare(aoItems[o1.intValue()].getStartSector(),
+                                       aoItems[o2.intValue()].getStartSector());
+            }
+        });
+
+        _aiPositions = new int[aoSorted.length];
+        _aiStarts = new int[aoSorted.length];
+        _aiEnds = new int[aoSorted.length];
+        for (int i = 0; i < aoSorted.length; i++) {
+            int iPosition = aoSorted[i].intValue();
+            _aiPositions[i] = iPosition;
+            _aiStarts[i] = aoItems[iPosition].getStartSector();
+            _aiEnds[i] = aoItems[iPosition].getEndSector();
+        }
+        _aiSubtreeMaxEnds = new int[aoSorted.length];
+        calculateMaxEnds(0, aoSorted.length);
+    }
+
+    private int calculateMaxEnds(int iLow, int iHigh) {
+        if (iLow >= iHigh)
+            return Integer.MIN_VALUE;
+        int iMid = (iLow + iHigh) >>> 1;
+        int iMax = Math.max(_aiEnds[iMid],
+                            Math.max(calculateMaxEnds(iLow, iMid),
+                                     calculateMaxEnds(iMid + 1, iHigh)));
+        _aiSubtreeMaxEnds[iMid] = iMax;
+        return iMax;
+    }
+
+    /** Finds the items that overlap the range of sectors.
+     * @return Positions of the items in the array given to the constructor,
+     *         in ascending order. */
+    public @Nonnull int[] findOverlapping(int iStartSector, int iEndSector) {
+        IntList found = new IntList();
+        find(0, _aiPositions.length, iStartSector, iEndSector, found);
+        int[] aiFound = found.toArray();
+        Arrays.sort(aiFound);
+        return aiFound;
+    }
+
+    private void find(int iLow, int iHigh, int iStartSector, int iEndSector,
+                      @Nonnull IntList found)
+    {
+        if (iLow >= iHigh)
+            return;
+        int iMid = (iLow + iHigh) >>> 1;
+        // nothing in this subtree reaches the range
+        if (_aiSubtreeMaxEnds[iMid] < iStartSector)
+            return;
+        find(iLow, iMid, iStartSector, iEndSector, found);
+        // this and everything to the right starts after the range
+        if (_aiStarts[iMid] > iEndSector)
+            return;
+        if (_aiEnds[iMid] >= iStartSector)
+            found.add(_aiPositions[iMid]);
+        find(iMid + 1, iHigh, iStartSector, iEndSector, found);
+    }
+
+    /** Minimal growable list of ints. */
+    private static class IntList {
+        @Nonnull
+        private int[] _ai = new int[8];
+        private int _iSize = 0;
+
+        public void add(int i) {
+            if (_iSize == _ai.length) {
+                int[] aiBigger = new int[_ai.length * 2];
+                System.arraycopy(_ai, 0, aiBigger, 0, _iSize);
+                _ai = aiBigger;
+            }
+            _ai[_iSize++] = i;
+        }
+
+        public @Nonnull int[] toArray() {
+            int[] ai = new int[_iSize];
+            System.arraycopy(_ai, 0, ai, 0, _iSize);
+            return ai;
+        }
+    }
+}
@@ -69,6 +69,10 @@ public abstract class UnidentifiedSectorIterator {
         _sectorIter = IdentifiedSectorIterator.create(cd);
     }
 
+    public UnidentifiedSectorIterator(@Nonnull IdentifiedSectorIterator sectorIter) {
+        _sectorIter = sectorIter;
+    }
+
     abstract protected void sectorRead(@Nonnull CdSector cdSector,
                                        @CheckForNull IdentifiedSector idSector)
             throws TaskCanceledException;
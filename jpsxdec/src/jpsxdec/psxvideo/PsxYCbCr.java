@@ -142,6 +142,30 @@ public class PsxYCbCr {
         rgb.setB(dblYshift + dblChromBlue );
     }
 
+    /** Same as {@link #toRgb(double, double, double, RGB)} followed by
+     * {@link RGB#toInt()}, without the intermediate object. */
+    public static int toRgbInt(double y, double cb, double cr) {
+        double dblChromRed, dblChromGreen, dblChromBlue;
+        if (INCORRECTLY_SWAP_CB_CR_LIKE_PSXMC) {
+            dblChromRed   = ( 1.772  * cr)                 ;
+            dblChromGreen = (-0.3437 * cr) + (-0.7143 * cb);
+            dblChromBlue  =                  ( 1.402  * cb);
+        } else {
+            dblChromRed   =                  ( 1.402  * cr);
+            dblChromGreen = (-0.3437 * cb) + (-0.7143 * cr);
+            dblChromBlue  = ( 1.772  * cb)                 ;
+        }
+        double dblYshift = y + 128;
+        int r = (int)Math.round(dblYshift + dblChromRed  );
+        int g = (int)Math.round(dblYshift + dblChromGreen);
+        int b = (int)Math.round(dblYshift + dblChromBlue );
+        // min/max instead of branches, clamping is common with noisy chroma
+        return 0xFF000000 |
+               (Math.min(Math.max(r, 0), 255) << 16) |
+               (Math.min(Math.max(g, 0), 255) << 8) |
+                Math.min(Math.max(b, 0), 255);
+    }
+
     final public void toRgb(RGB rgb1, RGB rgb2, RGB rgb3, RGB rgb4) {
         double dblChromRed, dblChromGreen, dblChromBlue;
         if (INCORRECTLY_SWAP_CB_CR_LIKE_PSXMC) {
@@ -62,6 +62,64 @@ public class PsxYCbCr_int {
     public static final long _0_7143  = 46812;  // Math.round(0.7143 * FIXED_MULT);
     public static final long _1_772   = 116224; // Math.round(1.772  * FIXED_MULT)+94;
 
+    // Lookup tables for the chroma parts of the conversion, for the range of
+    // chroma values that normally comes out of the IDCT.
+    // Red and blue are already rounded. Green is the fixed-point value
+    // before rounding, since rounding the Cb and Cr parts separately
+    // would not match the sum rounded once.
+    private static final int LOOKUP_MIN = -1024, LOOKUP_MAX = 1023;
+    private static final int[] CR_RED         = new int[LOOKUP_MAX - LOOKUP_MIN + 1];
+    private static final int[] CB_BLUE        = new int[CR_RED.length];
+    private static final int[] CR_GREEN_FIXED = new int[CR_RED.length];
+    private static final int[] CB_GREEN_FIXED = new int[CR_RED.length];
+    static {
+        for (int i = 0; i < CR_RED.length; i++) {
+            int c = i + LOOKUP_MIN;
+            CR_RED[i]         = (int)Maths.shrRound(_1_402 * c, FIXED_BITS);
+            CB_BLUE[i]        = (int)Maths.shrRound(_1_772 * c, FIXED_BITS);
+            CR_GREEN_FIXED[i] = (int)(-_0_7143 * c);
+            CB_GREEN_FIXED[i] = (int)(-_0_3437 * c);
+        }
+    }
+
+    /** Red part of the conversion for a Cr value. Add to {@code y + 128}. */
+    public static int chromRed(int cr) {
+        int i = cr - LOOKUP_MIN;
+        if (i >= 0 && i < CR_RED.length)
+            return CR_RED[i];
+        return (int)Maths.shrRound(_1_402 * cr, FIXED_BITS);
+    }
+
+    /** Green part of the conversion for Cb and Cr values. Add to {@code y + 128}. */
+    public static int chromGreen(int cb, int cr) {
+        int ib = cb - LOOKUP_MIN, ir = cr - LOOKUP_MIN;
+        if (ib >= 0 && ib < CB_GREEN_FIXED.length && ir >= 0 && ir < CR_GREEN_FIXED.length)
+            // same as Maths.shrRound(x, FIXED_BITS)
+            return (CB_GREEN_FIXED[ib] + CR_GREEN_FIXED[ir] + (1 << (FIXED_BITS - 1))) >> FIXED_BITS;
+        return (int)Maths.shrRound(-(_0_3437 * cb) - (_0_7143 * cr), FIXED_BITS);
+    }
+
+    /** Blue part of the conversion for a Cb value. Add to {@code y + 128}. */
+    public static int chromBlue(int cb) {
+        int i = cb - LOOKUP_MIN;
+        if (i >= 0 && i < CB_BLUE.length)
+            return CB_BLUE[i];
+        return (int)Maths.shrRound(_1_772 * cb, FIXED_BITS);
+    }
+
+    /** Clamps and packs the result of the conversion into an ARGB int.
+     * Same as {@link RGB#toInt()}.
+     * @param iYshift {@code y + 128} */
+    public static int toArgb(int iYshift, int iChromRed, int iChromGreen, int iChromBlue) {
+        int r = iYshift + iChromRed, g = iYshift + iChromGreen, b = iYshift + iChromBlue;
+        if (((r | g | b) & ~0xff) != 0) {
+            r = r < 0 ? 0 : r > 255 ? 255 : r;
+            g = g < 0 ? 0 : g > 255 ? 255 : g;
+            b = b < 0 ? 0 : b > 255 ? 255 : b;
+        }
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
     public static void toRgb(int y, int cb, int cr, RGB rgb) {
         int Yshift = y + 128;
         long c_r =                 _1_402  * cr,
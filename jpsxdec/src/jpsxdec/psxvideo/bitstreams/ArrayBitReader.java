@@ -202,8 +202,25 @@ public class ArrayBitReader {
         return (readUnsignedBits(iCount) << (32 - iCount)) >> (32 - iCount); // extend sign bit
     }    
     
+    /** Same as {@link #readWord(int)} without the bounds check. */
+    private int wordAt(int i) {
+        if (_blnLittleEndian)
+            return ((_abData[i+1] & 0xFF) << 8) | (_abData[i  ] & 0xFF);
+        else
+            return ((_abData[i  ] & 0xFF) << 8) | (_abData[i+1] & 0xFF);
+    }
+
     /** @param iCount  expected to be from 1 to 31  */
     public int peekUnsignedBits(int iCount) throws MdecException.EndOfStream {
+        if (iCount > 0 && iCount < 32 && _iByteOffset + 4 <= _iDataSize) {
+            // fast path when the next 2 words are available:
+            // gather the rest of the current word and the next 2 words
+            // into a 64-bit buffer, then take the bits off the top
+            long lngBits = ((long)(_siCurrentWord & BIT_MASK[_iBitsLeft]) << 32) |
+                           ((long)wordAt(_iByteOffset) << 16) |
+                           wordAt(_iByteOffset + 2);
+            return (int)(lngBits >>> (_iBitsLeft + 32 - iCount)) & BIT_MASK[iCount];
+        }
         int iSaveOffs = _iByteOffset;
         int iSaveBitsLeft = _iBitsLeft;
         short siSaveCurrentWord = _siCurrentWord;
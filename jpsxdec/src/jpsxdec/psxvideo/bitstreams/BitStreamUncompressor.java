@@ -184,6 +184,11 @@ public abstract class BitStreamUncompressor extends MdecInputStream {
          * {@link #Table_1xx} table. */
         private AcBitCode _110, _111;
 
+        /** Every code 11 bits or shorter, indexed by the next 11 bits of the
+         * stream. Codes that don't fit are null, so the other tables must be
+         * checked. Most codes in a typical frame are found here with a
+         * single lookup. */
+        private final AcBitCode[] Table_11bits = new AcBitCode[1 << 11];
         /** Table to look up END_OF_BLOCK ('10') and 11s codes using all but the first (1) bit. */
         private final AcBitCode[] Table_1xx = new AcBitCode[4];
         /** Table to look up codes '011s' to '00100111s' using all but the first (0) bit.
@@ -380,6 +385,13 @@ public abstract class BitStreamUncompressor extends MdecInputStream {
                     throw new RuntimeException("Resetting an existing bitstream lookup probably means some code is wrong.");
                 aoTable[iTableStart + i] = lu;
             }
+
+            if (lu.BitLength <= 11) {
+                final int iShortBitsRemain = 11 - lu.BitLength;
+                final int iShortTableStart = Integer.parseInt(lu.BitString, 2) << iShortBitsRemain;
+                for (int i = 0; i < (1 << iShortBitsRemain); i++)
+                    Table_11bits[iShortTableStart + i] = lu;
+            }
         }
 
         public @Nonnull Iterable<AcBitCode> getCodeList() {
@@ -406,6 +418,11 @@ public abstract class BitStreamUncompressor extends MdecInputStream {
          * @param i17bits  Integer containing 17 bits to decode.
          */
         private @Nonnull AcBitCode lookup(final int i17bits) throws MdecException.ReadCorruption {
+            AcBitCode shortCode = Table_11bits[(i17bits >> 6) & 0x7ff];
+            if (shortCode != null) {
+                assert !DEBUG || debugPrintln("Table 11 bits offset " + ((i17bits >> 6) & 0x7ff));
+                return shortCode;
+            }
             if        ((i17bits & b10000000000000000) != 0) {
                 assert !DEBUG || debugPrintln("Table 0 offset " + ((i17bits >> 14) & 3));
                 return       Table_1xx[(i17bits >> 14) & 3];
@@ -0,0 +1,258 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec;
+
+import com.mortennobel.imagescaling.ResampleFilter;
+import java.util.HashMap;
+import javax.annotation.Nonnull;
+
+/** Doubles the size of the Cb and Cr planes with a {@link ResampleFilter}.
+ *<p>
+ * The filter weights for a given filter and plane size are calculated once
+ * and shared by every instance. The horizontal pass writes into buffers
+ * owned by this instance, and the vertical pass is done one output row
+ * at a time by {@link #upsampleRow(int, int, double[], double[])} so the
+ * caller can convert straight to RGB without an upsampled copy of the
+ * whole chroma plane.
+ *<p>
+ * Results are identical to
+ * {@link com.mortennobel.imagescaling.ResampleOp#doFilter(double[], int, int, double[])}.
+ * On planes so small that some taps are still outside the plane after
+ * mirroring, ResampleOp reads past the plane, while here those taps
+ * are ignored.
+ *<p>
+ * Not thread safe. */
+class ChromaUpsampler {
+
+    private static final int SCALE = 2;
+
+    /** Source pixels and weights contributing to each output sample. */
+    private static class Taps {
+        /** Number of contributors for each output sample. */
+        public final int[] aiCount;
+        /** [output sample][contributor] source indexes. */
+        public final int[] aiPixel;
+        /** [output sample][contributor] normalized weights. */
+        public final double[] adblWeight;
+        /** Primary index length of {@link #aiPixel} and {@link #adblWeight}. */
+        public final int iStride;
+
+        public Taps(@Nonnull ResampleFilter filter, int iSrcSize) {
+            final double dblRadius = filter.getSamplingRadius();
+            final int iDstSize = iSrcSize * SCALE;
+            iStride = (int)(dblRadius * 2.0 + 1);
+            aiCount = new int[iDstSize];
+            aiPixel = new int[iDstSize * iStride];
+            adblWeight = new double[iDstSize * iStride];
+
+            for (int i = 0; i < iDstSize; i++) {
+                final int iBase = i * iStride;
+                final double dblCenter = (i + 0.5) / SCALE;
+                final int iLeft = (int)Math.floor(dblCenter - dblRadius);
+                final int iRight = (int)Math.ceil(dblCenter + dblRadius);
+                int iCount = 0;
+                for (int j = iLeft; j <= iRight; j++) {
+                    double dblWeight = filter.apply(dblCenter - j - 0.5);
+                    if (dblWeight == 0.0)
+                        continue;
+                    // mirror the edges
+                    int iPixel;
+                    if (j < 0)
+                        iPixel = -j;
+                    else if (j >= iSrcSize)
+                        iPixel = iSrcSize - j + iSrcSize - 1;
+                    else
+                        iPixel = j;
+                    if (iPixel < 0 || iPixel >= iSrcSize) {
+                        // still outside the plane, so it contributes nothing
+                        iPixel = 0;
+                        dblWeight = 0.0;
+                    }
+                    aiPixel[iBase + iCount] = iPixel;
+                    adblWeight[iBase + iCount] = dblWeight;
+                    iCount++;
+                }
+                aiCount[i] = iCount;
+
+                // normalize so the weights sum to 1
+                double dblTotal = 0;
+                for (int k = 0; k < iCount; k++)
+                    dblTotal += adblWeight[iBase + k];
+                if (dblTotal != 0.0) {
+                    for (int k = 0; k < iCount; k++)
+                        adblWeight[iBase + k] /= dblTotal;
+                }
+            }
+        }
+    }
+
+    private static class TapsKey {
+        private final ResampleFilter _filter;
+        private final int _iSrcSize;
+
+        public TapsKey(@Nonnull ResampleFilter filter, int iSrcSize) {
+            _filter = filter;
+            _iSrcSize = iSrcSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(_filter) * 31 + _iSrcSize;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TapsKey))
+                return false;
+            TapsKey other = (TapsKey) obj;
+            return _filter == other._filter && _iSrcSize == other._iSrcSize;
+        }
+    }
+
+    /** Filters are singletons and frame sizes rarely vary, so this stays small. */
+    private static final HashMap<TapsKey, Taps> TAPS_CACHE = new HashMap<TapsKey, Taps>();
+
+    private static @Nonnull Taps getTaps(@Nonnull ResampleFilter filter, int iSrcSize) {
+        TapsKey key = new TapsKey(filter, iSrcSize);
+        synchronized (TAPS_CACHE) {
+            Taps taps = TAPS_CACHE.get(key);
+            if (taps == null) {
+                taps = new Taps(filter, iSrcSize);
+                TAPS_CACHE.put(key, taps);
+            }
+            return taps;
+        }
+    }
+
+    // =========================================================================
+
+    @Nonnull
+    private final ResampleFilter _filter;
+    /** Chroma dimensions. */
+    private final int _iSrcWidth, _iSrcHeight;
+    /** Upsampled dimensions. */
+    private final int _iDstWidth;
+
+    @Nonnull
+    private final Taps _horizontal, _vertical;
+
+    /** Horizontally upsampled planes, _iDstWidth x _iSrcHeight. */
+    private final double[] _adblWorkCb, _adblWorkCr;
+
+    public ChromaUpsampler(@Nonnull ResampleFilter filter, int iSrcWidth, int iSrcHeight) {
+        _filter = filter;
+        _iSrcWidth = iSrcWidth;
+        _iSrcHeight = iSrcHeight;
+        _iDstWidth = iSrcWidth * SCALE;
+        _horizontal = getTaps(filter, iSrcWidth);
+        _vertical = getTaps(filter, iSrcHeight);
+        _adblWorkCb = new double[_iDstWidth * iSrcHeight];
+        _adblWorkCr = new double[_iDstWidth * iSrcHeight];
+    }
+
+    public @Nonnull ResampleFilter getFilter() {
+        return _filter;
+    }
+
+    /** Horizontal pass over both chroma planes.
+     * @param iWidth Only upsample this many output columns. */
+    public void upsampleHorizontal(@Nonnull double[] adblCb, @Nonnull double[] adblCr,
+                                   int iWidth)
+    {
+        horizontal(adblCb, _adblWorkCb, iWidth);
+        horizontal(adblCr, _adblWorkCr, iWidth);
+    }
+
+    private void horizontal(@Nonnull double[] adblSrc, @Nonnull double[] adblWork,
+                            int iWidth)
+    {
+        final int[] aiCount = _horizontal.aiCount;
+        final int[] aiPixel = _horizontal.aiPixel;
+        final double[] adblWeight = _horizontal.adblWeight;
+        final int iStride = _horizontal.iStride;
+
+        for (int iY = 0, iSrcOfs = 0, iWorkOfs = 0;
+             iY < _iSrcHeight;
+             iY++, iSrcOfs += _iSrcWidth, iWorkOfs += _iDstWidth)
+        {
+            for (int iX = 0, iTap = 0; iX < iWidth; iX++, iTap += iStride) {
+                double dblSample = 0.0;
+                for (int k = iTap, iEnd = iTap + aiCount[iX]; k < iEnd; k++)
+                    dblSample += adblSrc[iSrcOfs + aiPixel[k]] * adblWeight[k];
+                adblWork[iWorkOfs + iX] = dblSample;
+            }
+        }
+    }
+
+    /** Vertical pass for output row iY, clamped to [-128, 127].
+     * @param iWidth Only upsample this many output columns. */
+    public void upsampleRow(int iY, int iWidth,
+                            @Nonnull double[] adblCbRow, @Nonnull double[] adblCrRow)
+    {
+        final int iTap = iY * _vertical.iStride;
+        final int iCount = _vertical.aiCount[iY];
+
+        for (int iX = 0; iX < iWidth; iX++) {
+            adblCbRow[iX] = 0.0;
+            adblCrRow[iX] = 0.0;
+        }
+        // contributors are added in the same order as ResampleOp
+        // so the sums round the same way
+        for (int k = iTap; k < iTap + iCount; k++) {
+            final int iWorkOfs = _vertical.aiPixel[k] * _iDstWidth;
+            final double dblWeight = _vertical.adblWeight[k];
+            for (int iX = 0; iX < iWidth; iX++) {
+                adblCbRow[iX] += _adblWorkCb[iWorkOfs + iX] * dblWeight;
+                adblCrRow[iX] += _adblWorkCr[iWorkOfs + iX] * dblWeight;
+            }
+        }
+        clamp(adblCbRow, iWidth);
+        clamp(adblCrRow, iWidth);
+    }
+
+    private static void clamp(@Nonnull double[] adblRow, int iWidth) {
+        for (int iX = 0; iX < iWidth; iX++) {
+            double dblSample = adblRow[iX];
+            if (dblSample < -128)
+                adblRow[iX] = -128;
+            else if (dblSample > 127)
+                adblRow[iX] = 127;
+        }
+    }
+
+}
@@ -39,10 +39,8 @@ package jpsxdec.psxvideo.mdec;
 
 import com.mortennobel.imagescaling.ResampleFilter;
 import com.mortennobel.imagescaling.ResampleFilters;
-import com.mortennobel.imagescaling.ResampleOp;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import jpsxdec.formats.RGB;
 import jpsxdec.i18n.I;
 import jpsxdec.i18n.ILocalizedMessage;
 import jpsxdec.psxvideo.PsxYCbCr;
@@ -137,22 +135,27 @@ public class MdecDecoder_double_interpolate extends MdecDecoder_double {
 
     // ====================================================================
 
-    /** Temp buffer for upsampled Cr. */
-    private final double[] _adblUpCr;
-    /** Temp buffer for upsampled Cb. */
-    private final double[] _adblUpCb;
-
-    private final ResampleOp _resampler;
+    /** Temp buffer for upsampled Cr.
+     * Only used by nearest neighbor and bilinear upsampling. */
+    @CheckForNull
+    private double[] _adblUpCr;
+    /** Temp buffer for upsampled Cb.
+     * Only used by nearest neighbor and bilinear upsampling. */
+    @CheckForNull
+    private double[] _adblUpCb;
+
+    /** Upsampler for the other filters, created when first needed and
+     * replaced when the filter changes. */
+    @CheckForNull
+    private ChromaUpsampler _filterUpsampler;
+    /** One row of upsampled chroma for {@link #_filterUpsampler}. */
+    private final double[] _adblRowCb, _adblRowCr;
     private Upsampler _upsampler = Upsampler.Bicubic;
 
     public MdecDecoder_double_interpolate(IDCT_double idct, int iWidth, int iHeight) {
         super(idct, iWidth, iHeight);
-
-        _adblUpCb = new double[W * H];
-        _adblUpCr = new double[W * H];
-
-        _resampler = new ResampleOp();
-        _resampler.setNumberOfThreads(1);
+        _adblRowCb = new double[W];
+        _adblRowCr = new double[W];
     }
 
     public void setResampler(Upsampler u) {
@@ -163,6 +166,16 @@ public class MdecDecoder_double_interpolate extends MdecDecoder_double {
     public void readDecodedRgb(int iDestWidth, int iDestHeight, int[] aiDest,
                                int iOutStart, int iOutStride)
     {
+        if (_upsampler._filter != null) {
+            filterUpsampleToRgb(_upsampler._filter, iDestWidth, iDestHeight,
+                                aiDest, iOutStart, iOutStride);
+            return;
+        }
+
+        if (_adblUpCr == null || _adblUpCb == null) {
+            _adblUpCr = new double[W * H];
+            _adblUpCb = new double[W * H];
+        }
         switch (_upsampler) {
             case NearestNeighbor:
                 nearestNeighborUpsample(_CrBuffer, _adblUpCr);
@@ -173,27 +186,51 @@ public class MdecDecoder_double_interpolate extends MdecDecoder_double {
                 bilinearUpsample(_CbBuffer, _adblUpCb);
                 break;
             default:
-                _resampler.setFilter(_upsampler._filter);
-                _resampler.doFilter(_CrBuffer, CW, CH, _adblUpCr);
-                _resampler.doFilter(_CbBuffer, CW, CH, _adblUpCb);
+                throw new IllegalStateException("Upsampler without filter " + _upsampler);
+        }
+
+        for (int iY = 0, iSrcLineOfsStart=0, iDestLineOfsStart=iOutStart;
+             iY < iDestHeight;
+             iY++, iSrcLineOfsStart+=W, iDestLineOfsStart+=iOutStride)
+        {
+            for (int iX=0, iSrcOfs=iSrcLineOfsStart, iDestOfs=iDestLineOfsStart;
+                 iX < iDestWidth;
+                 iX++, iSrcOfs++, iDestOfs++)
+            {
+                aiDest[iDestOfs] = PsxYCbCr.toRgbInt(_LumaBuffer[iSrcOfs],
+                                                     _adblUpCb[iSrcOfs],
+                                                     _adblUpCr[iSrcOfs]);
+            }
+        }
+    }
+
+    /** Upsamples the chroma with the filter's cached weights and converts
+     * each row as its chroma is produced, so no full size chroma planes
+     * are needed. */
+    private void filterUpsampleToRgb(@Nonnull ResampleFilter filter,
+                                     int iDestWidth, int iDestHeight,
+                                     @Nonnull int[] aiDest, int iOutStart, int iOutStride)
+    {
+        ChromaUpsampler up = _filterUpsampler;
+        if (up == null || up.getFilter() != filter) {
+            up = new ChromaUpsampler(filter, CW, CH);
+            _filterUpsampler = up;
         }
 
-        RGB rgb = new RGB();
-        double y, cb, cr;
+        up.upsampleHorizontal(_CbBuffer, _CrBuffer, iDestWidth);
 
         for (int iY = 0, iSrcLineOfsStart=0, iDestLineOfsStart=iOutStart;
              iY < iDestHeight;
              iY++, iSrcLineOfsStart+=W, iDestLineOfsStart+=iOutStride)
         {
+            up.upsampleRow(iY, iDestWidth, _adblRowCb, _adblRowCr);
             for (int iX=0, iSrcOfs=iSrcLineOfsStart, iDestOfs=iDestLineOfsStart;
                  iX < iDestWidth;
                  iX++, iSrcOfs++, iDestOfs++)
             {
-                y = _LumaBuffer[iSrcOfs];
-                cb = _adblUpCb[iSrcOfs];
-                cr = _adblUpCr[iSrcOfs];
-                PsxYCbCr.toRgb(y, cb, cr, rgb);
-                aiDest[iDestOfs] = rgb.toInt();
+                aiDest[iDestOfs] = PsxYCbCr.toRgbInt(_LumaBuffer[iSrcOfs],
+                                                     _adblRowCb[iX],
+                                                     _adblRowCr[iX]);
             }
         }
     }
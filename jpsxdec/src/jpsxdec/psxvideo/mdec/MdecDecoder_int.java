@@ -38,7 +38,6 @@
 package jpsxdec.psxvideo.mdec;
 
 import java.util.Arrays;
-import jpsxdec.formats.RGB;
 import jpsxdec.i18n.I;
 import jpsxdec.psxvideo.PsxYCbCr_int;
 import jpsxdec.psxvideo.mdec.idct.IDCT_int;
@@ -237,9 +236,6 @@ public class MdecDecoder_int extends MdecDecoder {
         if ((iDestHeight % 2) != 0)
             throw new IllegalArgumentException("Image height must be multiple of 2.");
 
-        final PsxYCbCr_int psxycc = new PsxYCbCr_int();
-        final RGB rgb1 = new RGB(), rgb2 = new RGB(), rgb3 = new RGB(), rgb4 = new RGB();
-
         final int W_x2 = W*2, iOutStride_x2 = iOutStride*2;
         
         int iLumaLineOfsStart = 0, iChromaLineOfsStart = 0,
@@ -259,20 +255,17 @@ public class MdecDecoder_int extends MdecDecoder {
                  iX < iDestWidth;
                  iX+=2, iSrcChromaOfs++)
             {
-                psxycc.cr = _CrBuffer[iSrcChromaOfs];
-                psxycc.cb = _CbBuffer[iSrcChromaOfs];
-
-                psxycc.y1 = _LumaBuffer[iSrcLumaOfs1++];
-                psxycc.y2 = _LumaBuffer[iSrcLumaOfs1++];
-                psxycc.y3 = _LumaBuffer[iSrcLumaOfs2++];
-                psxycc.y4 = _LumaBuffer[iSrcLumaOfs2++];
-
-                psxycc.toRgb(rgb1, rgb2, rgb3, rgb4);
-
-                aiDest[iDestOfs1++] = rgb1.toInt();
-                aiDest[iDestOfs1++] = rgb2.toInt();
-                aiDest[iDestOfs2++] = rgb3.toInt();
-                aiDest[iDestOfs2++] = rgb4.toInt();
+                // same as PsxYCbCr_int.toRgb() but without the objects
+                int cr = _CrBuffer[iSrcChromaOfs];
+                int cb = _CbBuffer[iSrcChromaOfs];
+                int iChromRed   = PsxYCbCr_int.chromRed(cr);
+                int iChromGreen = PsxYCbCr_int.chromGreen(cb, cr);
+                int iChromBlue  = PsxYCbCr_int.chromBlue(cb);
+
+                aiDest[iDestOfs1++] = PsxYCbCr_int.toArgb(_LumaBuffer[iSrcLumaOfs1++] + 128, iChromRed, iChromGreen, iChromBlue);
+                aiDest[iDestOfs1++] = PsxYCbCr_int.toArgb(_LumaBuffer[iSrcLumaOfs1++] + 128, iChromRed, iChromGreen, iChromBlue);
+                aiDest[iDestOfs2++] = PsxYCbCr_int.toArgb(_LumaBuffer[iSrcLumaOfs2++] + 128, iChromRed, iChromGreen, iChromBlue);
+                aiDest[iDestOfs2++] = PsxYCbCr_int.toArgb(_LumaBuffer[iSrcLumaOfs2++] + 128, iChromRed, iChromGreen, iChromBlue);
             }
         }
     }
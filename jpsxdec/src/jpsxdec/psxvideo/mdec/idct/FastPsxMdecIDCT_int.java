@@ -0,0 +1,210 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec.idct;
+
+/** Produces exactly the same output as {@link PsxMdecIDCT_int}, but much
+ * faster.
+ *<p>
+ * Each pass is split into even and odd halves, like most fast IDCTs. It
+ * depends on the symmetry of the PSX cosine matrix. Rows 0, 2, 4 and 6 are
+ * mirrored around the middle. Rows 1, 3, 5 and 7 are mirrored and negated,
+ * but each mirrored value is 1 less than the negative (e.g. 32138 and -32139),
+ * so the second half of the odd sum is {@code -odd - (x1+x3+x5+x7)}.
+ * Everything is exact integer math, so the output is identical.
+ *<p>
+ * {@link PsxMdecIDCT_int} multiplies the cosines with the coefficients
+ * using {@code int}s, which can overflow. That only happens with
+ * coefficients bigger than any real video should produce, so blocks like
+ * that are passed to {@link PsxMdecIDCT_int} to get the same overflow.
+ *<p>
+ * Columns with only a DC value (or all zeros) are simplified in the first
+ * pass. If only the first column has values (common in flat areas),
+ * each row of the output is one value. */
+public class FastPsxMdecIDCT_int implements IDCT_int {
+
+    /** Coefficients from -65536 to 65535 can't overflow an {@code int} when
+     * multiplied by a cosine (and then mirrored). Adding this bias puts those
+     * in the range of an unsigned 17 bit number. */
+    private static final int NO_OVERFLOW_BIAS = 65536;
+    private static final int NO_OVERFLOW_BITS = 17;
+
+    private final long[] _alngTemp = new long[64];
+    /** For blocks that could overflow. */
+    private final PsxMdecIDCT_int _reference = new PsxMdecIDCT_int();
+
+    public void IDCT(int[] aiIdctMatrix, int iOutputOffset, int[] aiOutput) {
+        final long[] temp = _alngTemp;
+
+        // first pass: each column of the input into a column of temp
+        int iNonZeroColumns = 0;
+        for (int x = 0; x < 8; x++) {
+            int x0 = aiIdctMatrix[x   ], x1 = aiIdctMatrix[x+ 8],
+                x2 = aiIdctMatrix[x+16], x3 = aiIdctMatrix[x+24],
+                x4 = aiIdctMatrix[x+32], x5 = aiIdctMatrix[x+40],
+                x6 = aiIdctMatrix[x+48], x7 = aiIdctMatrix[x+56];
+            if (((x0 + NO_OVERFLOW_BIAS) | (x1 + NO_OVERFLOW_BIAS) |
+                 (x2 + NO_OVERFLOW_BIAS) | (x3 + NO_OVERFLOW_BIAS) |
+                 (x4 + NO_OVERFLOW_BIAS) | (x5 + NO_OVERFLOW_BIAS) |
+                 (x6 + NO_OVERFLOW_BIAS) | (x7 + NO_OVERFLOW_BIAS)) >>> NO_OVERFLOW_BITS != 0)
+            {
+                _reference.IDCT(aiIdctMatrix, iOutputOffset, aiOutput);
+                return;
+            }
+            if ((x1 | x2 | x3 | x4 | x5 | x6 | x7) == 0) {
+                long lngDc = 23170 * (long)x0;
+                for (int y = 0; y < 64; y += 8)
+                    temp[x + y] = lngDc;
+                if (x0 != 0)
+                    iNonZeroColumns |= 1 << x;
+            } else {
+                idctColumn(x0, x1, x2, x3, x4, x5, x6, x7, temp, x);
+                iNonZeroColumns |= 1 << x;
+            }
+        }
+
+        // second pass: each row of temp into a row of the output
+        if (iNonZeroColumns == 1) {
+            // only the first column had values, so each row is flat
+            for (int y = 0; y < 64; y += 8) {
+                int iValue = shrRound32(temp[y] * 23170);
+                for (int x = 0; x < 8; x++)
+                    aiOutput[iOutputOffset + x + y] = iValue;
+            }
+        } else {
+            for (int y = 0; y < 64; y += 8) {
+                long x0 = temp[y  ], x1 = temp[y+1], x2 = temp[y+2], x3 = temp[y+3],
+                     x4 = temp[y+4], x5 = temp[y+5], x6 = temp[y+6], x7 = temp[y+7];
+
+                long ee0 = 23170 * (x0 + x4);
+                long ee1 = 23170 * (x0 - x4) - x4;
+                long eo0 = 30273 * x2 + 12539 * x6;
+                long eo1 = 12539 * x2 - 30274 * x6;
+                long x26 = x2 + x6;
+                long e0 = ee0 + eo0;
+                long e1 = ee1 + eo1;
+                long e2 = ee1 - eo1 - x26;
+                long e3 = ee0 - eo0 - x26;
+
+                long o0 = 32138 * x1 + 27245 * x3 + 18204 * x5 +  6392 * x7;
+                long o1 = 27245 * x1 -  6393 * x3 - 32139 * x5 - 18205 * x7;
+                long o2 = 18204 * x1 - 32139 * x3 +  6392 * x5 + 27245 * x7;
+                long o3 =  6392 * x1 - 18205 * x3 + 27245 * x5 - 32139 * x7;
+                long x1357 = x1 + x3 + x5 + x7;
+
+                int iOut = iOutputOffset + y;
+                aiOutput[iOut  ] = shrRound32(e0 + o0);
+                aiOutput[iOut+1] = shrRound32(e1 + o1);
+                aiOutput[iOut+2] = shrRound32(e2 + o2);
+                aiOutput[iOut+3] = shrRound32(e3 + o3);
+                aiOutput[iOut+4] = shrRound32(e3 - o3 - x1357);
+                aiOutput[iOut+5] = shrRound32(e2 - o2 - x1357);
+                aiOutput[iOut+6] = shrRound32(e1 - o1 - x1357);
+                aiOutput[iOut+7] = shrRound32(e0 - o0 - x1357);
+            }
+        }
+    }
+
+    /** Same as {@link jpsxdec.util.Maths#shrRound(long, int)} by 32. */
+    private static int shrRound32(long lng) {
+        return (int)((lng + 0x80000000L) >> 32);
+    }
+
+    /** First pass of one column. Same as the second pass, but without the
+     * rounding, and writing a column of {@link #_alngTemp}. */
+    private static void idctColumn(long x0, long x1, long x2, long x3,
+                                   long x4, long x5, long x6, long x7,
+                                   long[] temp, int x)
+    {
+        // even half (cosine rows 0,4 and 2,6)
+        long ee0 = 23170 * (x0 + x4);
+        long ee1 = 23170 * (x0 - x4) - x4;
+        long eo0 = 30273 * x2 + 12539 * x6;
+        long eo1 = 12539 * x2 - 30274 * x6;
+        long x26 = x2 + x6;
+        long e0 = ee0 + eo0;
+        long e1 = ee1 + eo1;
+        long e2 = ee1 - eo1 - x26;
+        long e3 = ee0 - eo0 - x26;
+
+        // odd half (cosine rows 1,3,5,7)
+        long o0 = 32138 * x1 + 27245 * x3 + 18204 * x5 +  6392 * x7;
+        long o1 = 27245 * x1 -  6393 * x3 - 32139 * x5 - 18205 * x7;
+        long o2 = 18204 * x1 - 32139 * x3 +  6392 * x5 + 27245 * x7;
+        long o3 =  6392 * x1 - 18205 * x3 + 27245 * x5 - 32139 * x7;
+        long x1357 = x1 + x3 + x5 + x7;
+
+        temp[x     ] = e0 + o0;
+        temp[x +  8] = e1 + o1;
+        temp[x + 16] = e2 + o2;
+        temp[x + 24] = e3 + o3;
+        temp[x + 32] = e3 - o3 - x1357;
+        temp[x + 40] = e2 - o2 - x1357;
+        temp[x + 48] = e1 - o1 - x1357;
+        temp[x + 56] = e0 - o0 - x1357;
+    }
+
+    /** The single value is pushed through both passes without any of the
+     * zero multiplications. */
+    public void IDCT_1NonZero(int[] aiIdctMatrix, int iNonZeroPos, int iOutputOffset, int[] aiOutput) {
+        final long[] temp = _alngTemp;
+
+        int iCoeff = aiIdctMatrix[iNonZeroPos];
+        int u = iNonZeroPos & 7, v = iNonZeroPos >> 3;
+        // first pass only makes values in column u,
+        // using the same int multiply (and possible overflow) as the reference
+        for (int y = 0; y < 8; y++)
+            temp[y] = PSX_COSINES[v*8 + y] * iCoeff;
+        for (int y = 0; y < 8; y++) {
+            long lngTemp = temp[y];
+            for (int x = 0; x < 8; x++)
+                aiOutput[iOutputOffset + x + y*8] = shrRound32(lngTemp * PSX_COSINES[x + u*8]);
+        }
+    }
+
+    /** Same as {@link PsxMdecIDCT_int}. */
+    private static final int[] PSX_COSINES = {
+        23170,  23170,  23170,  23170,  23170,  23170,  23170,  23170,
+        32138,  27245,  18204,   6392,  -6393, -18205, -27246, -32139,
+        30273,  12539, -12540, -30274, -30274, -12540,  12539,  30273,
+        27245,  -6393, -32139, -18205,  18204,  32138,   6392, -27246,
+        23170, -23171, -23171,  23170,  23170, -23171, -23171,  23170,
+        18204, -32139,   6392,  27245, -27246,  -6393,  32138, -18205,
+        12539, -30274,  30273, -12540, -12540,  30273, -30274,  12539,
+         6392, -18205,  27245, -32139,  32138, -27246,  18204,  -6393,
+    };
+}
@@ -39,6 +39,7 @@ package jpsxdec.psxvideo.mdec.tojpeg;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import jpsxdec.util.IO;
 
 /** JPEG huffman table. */
@@ -177,6 +178,26 @@ class HuffmanTable {
     /** Size of the DHT block needed to write this huffman table. */
     private final int _iDhtLength;
 
+    /** Only for tables created with {@link #createCounter(HuffmanTable)}:
+     * how often each symbol would have been written. */
+    private final int[] _aiSymbolCounts;
+
+    /** Creates a table that doesn't write anything, but only counts how
+     * often each symbol would be written. The counts are then used by
+     * {@link #createOptimized()}.
+     * @param type The counter will have the same type and index. */
+    public static HuffmanTable createCounter(HuffmanTable type) {
+        return new HuffmanTable(type._iTableType, type._iTableIndex);
+    }
+
+    private HuffmanTable(int iType, int iIndex) {
+        _iTableType = iType;
+        _iTableIndex = iIndex;
+        _aaiValuesForBitLen = null;
+        _iDhtLength = 0;
+        _aiSymbolCounts = new int[256];
+    }
+
     private HuffmanTable(int iType, int iIndex, int[][] aaiValuesForBitLen) {
         if (aaiValuesForBitLen.length != 16)
             throw new IllegalArgumentException();
@@ -202,6 +223,103 @@ class HuffmanTable {
         }
 
         _iDhtLength = 2 + 1 + 16 + iTableSize;
+        _aiSymbolCounts = null;
+    }
+
+    /** Clears the counts of a table created with {@link #createCounter(HuffmanTable)}. */
+    public void resetCounts() {
+        Arrays.fill(_aiSymbolCounts, 0);
+    }
+
+    /** Generates the optimal huffman table for the symbols counted by this
+     * table, using the procedure in the JPEG specification Annex K.2. */
+    public HuffmanTable createOptimized() {
+        // one extra symbol (256) is reserved so no code will be all 1 bits
+        int[] aiFreq = new int[257];
+        System.arraycopy(_aiSymbolCounts, 0, aiFreq, 0, 256);
+        aiFreq[256] = 1;
+        int[] aiCodeSize = new int[257];
+        int[] aiOthers = new int[257];
+        Arrays.fill(aiOthers, -1);
+
+        while (true) {
+            // find the 2 least frequent symbols (preferring the higher symbol on ties)
+            int iV1 = -1, iV2 = -1;
+            for (int i = 0; i < 257; i++) {
+                if (aiFreq[i] == 0)
+                    continue;
+                if (iV1 < 0 || aiFreq[i] <= aiFreq[iV1]) {
+                    iV2 = iV1;
+                    iV1 = i;
+                } else if (iV2 < 0 || aiFreq[i] <= aiFreq[iV2]) {
+                    iV2 = i;
+                }
+            }
+            if (iV2 < 0)
+                break;
+
+            // merge the 2 trees
+            aiFreq[iV1] += aiFreq[iV2];
+            aiFreq[iV2] = 0;
+            aiCodeSize[iV1]++;
+            while (aiOthers[iV1] >= 0) {
+                iV1 = aiOthers[iV1];
+                aiCodeSize[iV1]++;
+            }
+            aiOthers[iV1] = iV2;
+            aiCodeSize[iV2]++;
+            while (aiOthers[iV2] >= 0) {
+                iV2 = aiOthers[iV2];
+                aiCodeSize[iV2]++;
+            }
+        }
+
+        int[] aiBits = new int[33];
+        for (int i = 0; i < 257; i++) {
+            if (aiCodeSize[i] > 0)
+                aiBits[aiCodeSize[i]]++;
+        }
+
+        // limit the code lengths to 16 bits
+        for (int i = 32; i > 16; i--) {
+            while (aiBits[i] > 0) {
+                int j = i - 2;
+                while (aiBits[j] == 0)
+                    j--;
+                aiBits[i] -= 2;
+                aiBits[i - 1]++;
+                aiBits[j + 1] += 2;
+                aiBits[j]--;
+            }
+        }
+        // remove the reserved symbol from the longest codes
+        int iLongest = 16;
+        while (aiBits[iLongest] == 0)
+            iLongest--;
+        aiBits[iLongest]--;
+
+        // assign the symbols to the code lengths, shortest codes first
+        int[] aiSymbols = new int[256];
+        int iSymbolCount = 0;
+        for (int iSize = 1; iSize <= 32; iSize++) {
+            for (int iSymbol = 0; iSymbol < 256; iSymbol++) {
+                if (aiCodeSize[iSymbol] == iSize)
+                    aiSymbols[iSymbolCount++] = iSymbol;
+            }
+        }
+
+        int[][] aaiValuesForBitLen = new int[16][];
+        int iSymbol = 0;
+        for (int iBitLen = 0; iBitLen < 16; iBitLen++) {
+            int iCount = aiBits[iBitLen + 1];
+            if (iCount > 0) {
+                aaiValuesForBitLen[iBitLen] = new int[iCount];
+                System.arraycopy(aiSymbols, iSymbol, aaiValuesForBitLen[iBitLen], 0, iCount);
+                iSymbol += iCount;
+            }
+        }
+
+        return new HuffmanTable(_iTableType, _iTableIndex, aaiValuesForBitLen);
     }
 
     public int getIndex() {
@@ -225,11 +343,13 @@ class HuffmanTable {
     }
 
     /** Only used for DC tables. */
-    public void encodeDcCoefficient(int iDc, Component comp, JpegBitOutputStream out) 
-            throws IOException
-    {
+    public void encodeDcCoefficient(int iDc, Component comp, JpegBitOutputStream out) {
         int iDcDiff = iDc - comp.PreviousDC;
         comp.PreviousDC = iDc;
+        if (_aiSymbolCounts != null) {
+            _aiSymbolCounts[highest1bitPosition(Math.abs(iDcDiff))]++;
+            return;
+        }
         if (iDcDiff < 0) {
             int iAbsDcDiff = -iDcDiff;
             int iBitSize = highest1bitPosition(iAbsDcDiff);
@@ -248,9 +368,12 @@ class HuffmanTable {
     }
 
     /** Only used for AC tables. */
-    public void encodeAcCoefficients(int[] aiDctCoffs, int iBlockStart, JpegBitOutputStream out) 
-            throws IOException
-    {
+    public void encodeAcCoefficients(int[] aiDctCoffs, int iBlockStart, JpegBitOutputStream out) {
+        if (_aiSymbolCounts != null) {
+            countAcCoefficients(aiDctCoffs, iBlockStart);
+            return;
+        }
+
         int iZeroRun = 0;
 
         for (int i = 1; i < 64; i++) {
@@ -283,6 +406,30 @@ class HuffmanTable {
         }
     }
 
+    /** Same as {@link #encodeAcCoefficients(int[], int, JpegBitOutputStream)}
+     * but only counts the symbols. */
+    private void countAcCoefficients(int[] aiDctCoffs, int iBlockStart) {
+        int iZeroRun = 0;
+
+        for (int i = 1; i < 64; i++) {
+            int iAc = aiDctCoffs[iBlockStart + i];
+            if (iAc == 0) {
+                if (i == 63) {
+                    _aiSymbolCounts[EOB_CODE_INDEX]++;
+                } else {
+                    iZeroRun++;
+                }
+            } else {
+                while (iZeroRun > 15) {
+                    _aiSymbolCounts[RUN16_CODE_INDEX]++;
+                    iZeroRun -= 16;
+                }
+                _aiSymbolCounts[(iZeroRun << 4) | highest1bitPosition(Math.abs(iAc))]++;
+                iZeroRun = 0;
+            }
+        }
+    }
+
     /** Similar to 1/log(2) */
     private static int highest1bitPosition(int i) {
         return 32 - Integer.numberOfLeadingZeros(i);
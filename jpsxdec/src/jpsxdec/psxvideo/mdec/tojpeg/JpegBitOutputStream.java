@@ -34,22 +34,25 @@
  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package jpsxdec.psxvideo.mdec.tojpeg;
 
-import java.io.IOException;
 import java.io.OutputStream;
 
-
+/** Buffers a JPEG file in memory. Plain {@link #write(int)} writes bytes
+ * as-is (for headers), while {@link #write(int, int)} writes the entropy
+ * coded bits, escaping any 0xff bytes. The buffer is reused by
+ * {@link #reset()}, so it only grows to fit the largest image. */
 class JpegBitOutputStream extends OutputStream {
 
+    private byte[] _abBuffer = new byte[32 * 1024];
+    private int _iSize;
+
     private int _iIndex;
     private int _iNextWrite;
-    public OutputStream innerStream;
 
     private static final int BITS_PER_WRITE = 8;
 
-    public void write(int iValue, int iBits) throws IOException {
+    public void write(int iValue, int iBits) {
         assert iBits != 0;
         assert (iValue & ~((1 << iBits) - 1)) == 0;
 
@@ -57,12 +60,14 @@ class JpegBitOutputStream extends OutputStream {
         _iNextWrite |= iValue;
         _iIndex += iBits;
         while (_iIndex > BITS_PER_WRITE) {
-            write((_iNextWrite >> _iIndex - BITS_PER_WRITE) & 0xff);
+            writeEscaped((_iNextWrite >> _iIndex - BITS_PER_WRITE) & 0xff);
             _iIndex -= BITS_PER_WRITE;
         }
     }
 
+    /** Clears the buffer and any pending bits. */
     public void reset() {
+        _iSize = 0;
         _iIndex = 0;
         _iNextWrite = 0;
     }
@@ -70,21 +75,52 @@ class JpegBitOutputStream extends OutputStream {
     /** If there are bits remaining to write, writes them, filling
      *  the remaining bits with zeros. */
     @Override
-    public void flush() throws IOException {
+    public void flush() {
         if (_iIndex != 0) {
             _iNextWrite <<= BITS_PER_WRITE - _iIndex;
-            write(_iNextWrite);
+            writeEscaped(_iNextWrite & 0xff);
         }
-        reset();
+        _iIndex = 0;
+        _iNextWrite = 0;
     }
 
-
     /** Encode 0xff as 0xff 0x00 */
+    private void writeEscaped(int b) {
+        if (_iSize + 2 > _abBuffer.length)
+            grow(_iSize + 2);
+        _abBuffer[_iSize++] = (byte)b;
+        if (b == 0xff)
+            _abBuffer[_iSize++] = 0;
+    }
+
     @Override
-    public void write(int b) throws IOException {
-        innerStream.write(b);
-        if ((b & 0xff) == 0xff)
-            innerStream.write(0);
+    public void write(int b) {
+        if (_iSize + 1 > _abBuffer.length)
+            grow(_iSize + 1);
+        _abBuffer[_iSize++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] ab, int iOffset, int iLength) {
+        if (_iSize + iLength > _abBuffer.length)
+            grow(_iSize + iLength);
+        System.arraycopy(ab, iOffset, _abBuffer, _iSize, iLength);
+        _iSize += iLength;
+    }
+
+    private void grow(int iMinCapacity) {
+        byte[] abNew = new byte[Math.max(iMinCapacity, _abBuffer.length * 2)];
+        System.arraycopy(_abBuffer, 0, abNew, 0, _iSize);
+        _abBuffer = abNew;
+    }
+
+    /** The buffer is only valid until the next {@link #reset()}. */
+    public byte[] getBuffer() {
+        return _abBuffer;
+    }
+
+    public int size() {
+        return _iSize;
     }
 
 }
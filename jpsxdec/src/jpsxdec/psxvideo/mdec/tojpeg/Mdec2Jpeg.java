@@ -37,13 +37,20 @@
 
 package jpsxdec.psxvideo.mdec.tojpeg;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import jpsxdec.Version;
 import jpsxdec.i18n.I;
+import jpsxdec.psxvideo.encode.MacroBlockEncoder;
+import jpsxdec.psxvideo.encode.MdecEncoder;
+import jpsxdec.psxvideo.encode.PsxYCbCrImage;
 import jpsxdec.psxvideo.mdec.Ac0Cleaner;
 import jpsxdec.psxvideo.mdec.Calc;
 import jpsxdec.psxvideo.mdec.MdecException;
@@ -80,7 +87,9 @@ import jpsxdec.util.Misc;
  * <li>The JPEG has the default Huffman tables: 1 DC and 1 AC Huffman table for
  * Luma (Y), and 1 DC and 1 AC Huffman table shared between the two Chromas (CbCr).
  * The default tables must be used because VirtualDub has decreed it as such
- * (other MJPEG players don't complain).
+ * (other MJPEG players don't complain). For standalone JPEG files,
+ * {@link #setOptimizeHuffmanTables(boolean)} can instead generate tables
+ * optimized for each image by making 2 passes over the data.
  * <li>The JPEG has 1 quantization table for both luma and chroma.
  *</ul>
  * Translating from JPEG to MDEC could be doable, but not as simple or lossless.
@@ -164,6 +173,17 @@ public class Mdec2Jpeg {
 
     private static final int PRECISION = 8;
 
+    private static final HuffmanTable[] DEFAULT_HUFFMAN_TABLES = {
+        HuffmanTable.DEFAULT_DC_LUMA_HUFFMAN,
+        HuffmanTable.DEFAULT_DC_CHROMA_HUFFMAN,
+        HuffmanTable.DEFAULT_AC_LUMA_HUFFMAN,
+        HuffmanTable.DEFAULT_AC_CHROMA_HUFFMAN
+    };
+
+    /** Quantization scales used by {@link #readImage(BufferedImage)}.
+     * Keeps the sharp edges of rendered text from having too much energy. */
+    private static final int[] IMAGE_QSCALES = {4, 4, 4, 4, 4, 4};
+
     private static final int NUM_COMPONENTS = 3;
     private static final int JPEG_Y_COMPONENT  = 0;
     private static final int JPEG_CB_COMPONENT = 1;
@@ -179,18 +199,19 @@ public class Mdec2Jpeg {
     private final int _iMacBlockWidth, _iMacBlockHeight;
 
     /** Huffman tables as they will be written to the DHT block. */
-    private final HuffmanTable[] _aoDhtTables = {
-        HuffmanTable.DEFAULT_DC_LUMA_HUFFMAN,
-        HuffmanTable.DEFAULT_DC_CHROMA_HUFFMAN,
-        HuffmanTable.DEFAULT_AC_LUMA_HUFFMAN,
-        HuffmanTable.DEFAULT_AC_CHROMA_HUFFMAN
-    };
+    private final HuffmanTable[] _aoDhtTables = DEFAULT_HUFFMAN_TABLES.clone();
     /** DC huffman tables in order of index. */
     private final HuffmanTable[] _aoDcHuffmanTables = new HuffmanTable[2];
     /** AC huffman tables in order of index. */
     private final HuffmanTable[] _aoAcHuffmanTables = new HuffmanTable[2];
 
-    /** Bit stream to temporarily wrap the output stream. */
+    /** Tables that only count symbols for the first pass of
+     * {@link #_blnOptimizeHuffmanTables}, in the same order as {@link #_aoDhtTables}. */
+    @CheckForNull
+    private HuffmanTable[] _aoHuffmanCounters;
+    private boolean _blnOptimizeHuffmanTables = false;
+
+    /** Buffer holding the JPEG that was last written. Reused for every image. */
     private final JpegBitOutputStream _jpegStream = new JpegBitOutputStream();
 
     public Mdec2Jpeg(int iPixelWidth, int iPixelHeight) {
@@ -206,6 +227,64 @@ public class Mdec2Jpeg {
         HuffmanTable.initializeHuffmanTables(_aoDhtTables, _aoDcHuffmanTables, _aoAcHuffmanTables);
     }
 
+    /** Generate Huffman tables optimized for each image instead of using the
+     * default tables. This makes smaller files, but they can't be used in
+     * MJPG AVIs that need to play in VirtualDub. Default is false. */
+    public void setOptimizeHuffmanTables(boolean blnOptimize) {
+        _blnOptimizeHuffmanTables = blnOptimize;
+        if (blnOptimize && _aoHuffmanCounters == null) {
+            _aoHuffmanCounters = new HuffmanTable[DEFAULT_HUFFMAN_TABLES.length];
+            for (int i = 0; i < _aoHuffmanCounters.length; i++) {
+                _aoHuffmanCounters[i] = HuffmanTable.createCounter(DEFAULT_HUFFMAN_TABLES[i]);
+            }
+        }
+        if (!blnOptimize)
+            useHuffmanTables(DEFAULT_HUFFMAN_TABLES);
+    }
+
+    private void useHuffmanTables(@Nonnull HuffmanTable[] aoTables) {
+        System.arraycopy(aoTables, 0, _aoDhtTables, 0, _aoDhtTables.length);
+        HuffmanTable.initializeHuffmanTables(_aoDhtTables, _aoDcHuffmanTables, _aoAcHuffmanTables);
+    }
+
+    /** Replaces any data previously read with an all black image. */
+    public void readBlank() {
+        for (Component comp : _aoComponents) {
+            Arrays.fill(comp.DctCoffZZ, 0);
+        }
+        // Y = 0 is a JPEG DC of (0 - 128) * 8, divided by the DC quantization
+        int iBlackDc = -128 * 8 / JPEG_QUANTIZATION_TABLE_ZIGZAG[0];
+        int[] aiLuma = _aoComponents[JPEG_Y_COMPONENT].DctCoffZZ;
+        for (int i = 0; i < aiLuma.length; i += 64) {
+            aiLuma[i] = iBlackDc;
+        }
+    }
+
+    /** Encodes an image into MDEC data and reads it. Used for frames that
+     * don't have any MDEC data of their own, like error frames. The image
+     * is cropped or padded to the dimensions given in the constructor.
+     * @throws MdecException.TooMuchEnergy if the image has too much detail
+     *                                     to translate to JPEG. */
+    public void readImage(@Nonnull BufferedImage bi) throws MdecException.TooMuchEnergy {
+        BufferedImage padded = new BufferedImage(_iMacBlockWidth * 16, _iMacBlockHeight * 16,
+                                                 BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = padded.createGraphics();
+        g.drawImage(bi, 0, 0, null);
+        g.dispose();
+
+        MdecEncoder encoder = new MdecEncoder(new PsxYCbCrImage(padded), _iPixelWidth, _iPixelHeight);
+        for (MacroBlockEncoder mb : encoder) {
+            mb.setToFullEncode(IMAGE_QSCALES);
+        }
+        try {
+            readMdec(encoder.getStream());
+        } catch (MdecException.ReadCorruption ex) {
+            throw new RuntimeException("Should not happen", ex);
+        } catch (MdecException.EndOfStream ex) {
+            throw new RuntimeException("Should not happen", ex);
+        }
+    }
+
 
     /** Reads and buffers the MDEC data. 
      * @throws MdecException.TooMuchEnergy if the source stream has too much energy
@@ -311,51 +390,82 @@ public class Mdec2Jpeg {
     }
 
     /** Writes the translated JPEG to the output. */
-    public void writeJpeg(OutputStream os) throws IOException  {
-
-        // write headers
-        writeMarker(os, SOI);
-        writeAPP(os, APP0, 1, 1, 0, 1, 1, 0, 0);
-        writeCOM(os, COMMENT_BYTES);
-        writeDQT(os, 0, JPEG_QUANTIZATION_TABLE_ZIGZAG);
-        writeSOF(os, SOF0, PRECISION, _iPixelWidth, _iPixelHeight);
-        for (int i = 0; i < _aoDhtTables.length; i++) {
-            HuffmanTable dhtTable = _aoDhtTables[i];
-            dhtTable.writeDHT(os);
+    public void writeJpeg(@Nonnull OutputStream os) throws IOException  {
+        int iSize = writeJpeg();
+        os.write(_jpegStream.getBuffer(), 0, iSize);
+    }
+
+    /** Writes the translated JPEG to an internal buffer.
+     * @return Size of the JPEG at the start of {@link #getJpegBuffer()}. */
+    public int writeJpeg() {
+        if (_blnOptimizeHuffmanTables) {
+            // first pass to count the symbols used in this image
+            for (HuffmanTable counter : _aoHuffmanCounters) {
+                counter.resetCounts();
+            }
+            useHuffmanTables(_aoHuffmanCounters);
+            writeEntropyCodedData();
+
+            HuffmanTable[] aoOptimized = new HuffmanTable[_aoHuffmanCounters.length];
+            for (int i = 0; i < aoOptimized.length; i++) {
+                aoOptimized[i] = _aoHuffmanCounters[i].createOptimized();
+            }
+            useHuffmanTables(aoOptimized);
         }
-        writeSOS(os, SOS, 0, 63);
 
+        JpegBitOutputStream os = _jpegStream;
+        os.reset();
+        try {
+            // write headers
+            writeMarker(os, SOI);
+            writeAPP(os, APP0, 1, 1, 0, 1, 1, 0, 0);
+            writeCOM(os, COMMENT_BYTES);
+            writeDQT(os, 0, JPEG_QUANTIZATION_TABLE_ZIGZAG);
+            writeSOF(os, SOF0, PRECISION, _iPixelWidth, _iPixelHeight);
+            for (int i = 0; i < _aoDhtTables.length; i++) {
+                HuffmanTable dhtTable = _aoDhtTables[i];
+                dhtTable.writeDHT(os);
+            }
+            writeSOS(os, SOS, 0, 63);
+
+            // write the payload
+            writeEntropyCodedData();
+            os.flush();
+
+            writeMarker(os, EOI);
+        } catch (IOException ex) {
+            throw new RuntimeException("Should not happen", ex);
+        }
+        return os.size();
+    }
+
+    /** The buffer holding the last JPEG written by {@link #writeJpeg()}.
+     * Only valid until the next write. */
+    public @Nonnull byte[] getJpegBuffer() {
+        return _jpegStream.getBuffer();
+    }
+
+    private void writeEntropyCodedData() {
         for (Component component : _aoComponents) {
             component.PreviousDC = 0;
         }
 
-        _jpegStream.innerStream = os;
-        _jpegStream.reset();
-        // write the payload
-        try {
-            for (int iMbY = 0; iMbY < _iMacBlockHeight; iMbY++) {
-                for (int iMbX = 0; iMbX < _iMacBlockWidth; iMbX++) {
-
-                    for (Component comp : _aoComponents) {
-                        int iMbBlockSize = comp.HSampling * comp.VSampling;
-                        int iBlockStart = (iMbX * _iMacBlockHeight + iMbY) * iMbBlockSize * 64;
-                        int[] aiBlocks = comp.DctCoffZZ;
-                        for (int iBlock = 0; iBlock < iMbBlockSize; iBlock++) {
-                            _aoDcHuffmanTables[comp.DcHuffTableIndex].encodeDcCoefficient(aiBlocks[iBlockStart], comp, _jpegStream);
-                            _aoAcHuffmanTables[comp.AcHuffTableIndex].encodeAcCoefficients(aiBlocks, iBlockStart, _jpegStream);
-                            iBlockStart += 64;
-                        }
+        for (int iMbY = 0; iMbY < _iMacBlockHeight; iMbY++) {
+            for (int iMbX = 0; iMbX < _iMacBlockWidth; iMbX++) {
+
+                for (Component comp : _aoComponents) {
+                    int iMbBlockSize = comp.HSampling * comp.VSampling;
+                    int iBlockStart = (iMbX * _iMacBlockHeight + iMbY) * iMbBlockSize * 64;
+                    int[] aiBlocks = comp.DctCoffZZ;
+                    for (int iBlock = 0; iBlock < iMbBlockSize; iBlock++) {
+                        _aoDcHuffmanTables[comp.DcHuffTableIndex].encodeDcCoefficient(aiBlocks[iBlockStart], comp, _jpegStream);
+                        _aoAcHuffmanTables[comp.AcHuffTableIndex].encodeAcCoefficients(aiBlocks, iBlockStart, _jpegStream);
+                        iBlockStart += 64;
                     }
-
                 }
-            }
 
-            _jpegStream.flush();
-        } finally {
-            _jpegStream.innerStream = null;
+            }
         }
-
-        writeMarker(os, EOI);
     }
 
     /** Write a JPEG marker. */
@@ -37,23 +37,44 @@
 
 package jpsxdec.sectors;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.cdreaders.CdFileSectorReader;
 import jpsxdec.cdreaders.CdSector;
-import jpsxdec.util.IO;
 import jpsxdec.util.BinaryDataNotRecognized;
+import jpsxdec.util.ByteArrayPool;
 
 /** Contains the logic to identify{@link CdSector}s.
  * Some sector identification requires contextual information,
  * hence the need for an iterator. */
 public abstract class IdentifiedSectorIterator {
 
+    /** Off by default so nothing is written next to the user's disc image
+     * unless they ask for it. */
+    private static volatile boolean _blnUseSectorTypeCache = false;
+
+    /** Enables saving and using a {@link SectorTypeCache} file next to the
+     * disc image, which makes later passes over the same disc much faster. */
+    public static void setSectorTypeCacheEnabled(boolean blnEnabled) {
+        _blnUseSectorTypeCache = blnEnabled;
+    }
+
+    public static boolean isSectorTypeCacheEnabled() {
+        return _blnUseSectorTypeCache;
+    }
+
     public static IdentifiedSectorIterator create(@Nonnull CdFileSectorReader cd) {
         return create(cd, 0);
     }
@@ -62,11 +83,85 @@ public abstract class IdentifiedSectorIterator {
     {
         return create(cd, iStartSector, cd.getLength()-1);
     }
+    /** If the sector type cache is enabled and the disc image has a
+     * {@link SectorTypeCache}, it is used to skip most of the identification
+     * work. If iterating over the entire disc without a cache, the cache is
+     * created when the last sector is reached. */
     public static IdentifiedSectorIterator create(@Nonnull CdFileSectorReader cd,
                                                   int iStartSector,
                                                   int iEndSectorInclusive)
     {
-        return new Dredd(cd, iStartSector, iEndSectorInclusive);
+        SectorTypeCache cache = readCache(cd);
+        return new Dredd(new BaseWithGT(cd, iStartSector, iEndSectorInclusive, cache),
+                         recorderFor(cd, iStartSector, iEndSectorInclusive, cache));
+    }
+    /** Creates an iterator that performs the non-contextual identification
+     * of sectors ahead of time using the supplied threads.
+     * Sectors are still read, and contextual identification is still performed,
+     * in order on the calling thread, so the results are identical to
+     * {@link #create(jpsxdec.cdreaders.CdFileSectorReader, int, int)}.
+     * If the sector type cache is enabled and the disc image has a
+     * {@link SectorTypeCache}, the threads aren't needed and the cache is
+     * used instead. */
+    public static IdentifiedSectorIterator create(@Nonnull CdFileSectorReader cd,
+                                                  int iStartSector,
+                                                  int iEndSectorInclusive,
+                                                  @Nonnull ExecutorService identifyThreads,
+                                                  int iThreadCount)
+    {
+        SectorTypeCache cache = readCache(cd);
+        if (cache != null)
+            return new Dredd(new BaseWithGT(cd, iStartSector, iEndSectorInclusive, cache), null);
+        return new Dredd(new ParallelBaseWithGT(cd, iStartSector, iEndSectorInclusive,
+                                                identifyThreads, iThreadCount),
+                         recorderFor(cd, iStartSector, iEndSectorInclusive, cache));
+    }
+
+    /** Quick test of the fields of a sector's raw CD-XA subheader,
+     * before the sector is read or identified. */
+    public interface SubHeaderFilter {
+        /** @return if the sector with this subheader may be one of the
+         *          wanted sectors. */
+        boolean accept(int iFileNumber, int iChannel, int iSubMode);
+    }
+
+    /** Creates an iterator that only visits every {@code iStride} sector
+     * starting with {@code iStartSector}, and only returns those sectors whose
+     * raw subheader is accepted by the filter. The other sectors are skipped
+     * without being read or identified.
+     *<p>
+     * Since most sectors are skipped, only non-contextual identification is
+     * performed (no Gran Turismo or Dredd sectors), and sectors without a
+     * subheader are never returned (unless the disc image doesn't have
+     * subheaders at all, in which case the filter isn't used).
+     * Intended for streams like XA audio, where every sector of the stream
+     * has the same channel and submode, and there is nothing to gain from
+     * identifying the other streams interleaved with it.
+     * @param iStride 1 to visit every sector. */
+    public static IdentifiedSectorIterator createFiltered(@Nonnull CdFileSectorReader cd,
+                                                          int iStartSector,
+                                                          int iEndSectorInclusive,
+                                                          int iStride,
+                                                          @Nonnull SubHeaderFilter filter)
+    {
+        return new Filtered(cd, iStartSector, iEndSectorInclusive, iStride, filter);
+    }
+
+    private static @CheckForNull SectorTypeCache readCache(@Nonnull CdFileSectorReader cd) {
+        return _blnUseSectorTypeCache ? SectorTypeCache.read(cd) : null;
+    }
+
+    /** Only iterating over the entire disc will give the same results
+     * as the cache is expected to hold. */
+    private static @CheckForNull SectorTypeCache recorderFor(@Nonnull CdFileSectorReader cd,
+                                                             int iStartSector,
+                                                             int iEndSectorInclusive,
+                                                             @CheckForNull SectorTypeCache existing)
+    {
+        if (_blnUseSectorTypeCache && existing == null &&
+            iStartSector == 0 && iEndSectorInclusive == cd.getLength() - 1)
+            return new SectorTypeCache(cd.getLength());
+        return null;
     }
 
     @Nonnull
@@ -91,6 +186,24 @@ public abstract class IdentifiedSectorIterator {
      * @return null if sector could not be identified. */
     public abstract @CheckForNull IdentifiedSector next() throws IOException;
 
+    private final LinkedHashMap<String, Integer> _typeCounts = new LinkedHashMap<String, Integer>();
+
+    /** Number of sectors identified so far as each type, by
+     * {@link IIdentifiedSector#getTypeName()}, in the order the types
+     * were first encountered. */
+    public @Nonnull Map<String, Integer> getIdentifiedTypeCounts() {
+        return Collections.unmodifiableMap(_typeCounts);
+    }
+
+    /** Implementations call this with every sector {@link #next()} returns. */
+    protected void countType(@CheckForNull IdentifiedSector idSector) {
+        if (idSector != null) {
+            String sType = idSector.getTypeName();
+            Integer count = _typeCounts.get(sType);
+            _typeCounts.put(sType, count == null ? 1 : count + 1);
+        }
+    }
+
 
     /** Wraps {@link BaseWithGT} and adds contextual Dredd identification. */
     private static class Dredd extends IdentifiedSectorIterator{
@@ -129,10 +242,15 @@ public abstract class IdentifiedSectorIterator {
         private final LinkedList<SectorPair> _queue = new LinkedList<SectorPair>();
         @CheckForNull
         private SectorDreddVideo _remainingDredd;
+        /** Records the final identification of every sector, to be saved
+         * once the end is reached. */
+        @CheckForNull
+        private SectorTypeCache _recorder;
 
-        private Dredd(@Nonnull CdFileSectorReader cd, int iStartSector, int iEndSectorInclusive) {
-            super(cd);
-            _it = new BaseWithGT(cd, iStartSector, iEndSectorInclusive);
+        private Dredd(@Nonnull BaseWithGT it, @CheckForNull SectorTypeCache recorder) {
+            super(it._cd);
+            _it = it;
+            _recorder = recorder;
         }
 
         public @CheckForNull IdentifiedSector current() {
@@ -167,6 +285,8 @@ public abstract class IdentifiedSectorIterator {
                     IdentifiedSector id = _it.next();
                     if (id != null) { // just return any identified sector
                         _current = new SectorPair(id);
+                    } else if (!_it.couldBeDredd()) { // the cache says it's nothing
+                        _current = new SectorPair(_it.currentCd());
                     } else {
                         CdSector cd = _it.currentCd();
                         SectorDreddVideo firstDredd = new SectorDreddVideo(cd);
@@ -183,6 +303,16 @@ public abstract class IdentifiedSectorIterator {
                 }
             }
 
+            countType(_current.idSector);
+
+            if (_recorder != null) {
+                _recorder.setType(_current.cdSector.getSectorNumberFromStart(), _current.idSector);
+                if (!hasNext()) {
+                    _recorder.write(_it._cd);
+                    _recorder = null;
+                }
+            }
+
             return _current.idSector;
         }
 
@@ -232,20 +362,27 @@ public abstract class IdentifiedSectorIterator {
                 return false;
 
             // demux the frame
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(); // TODO: optimization, reuse the buffer
+            SectorDreddVideo first = (SectorDreddVideo)_current.idSector;
+            int iDemuxSize = first.getIdentifiedUserDataSize();
+            for (SectorPair pair : _queue) {
+                if (pair.idSector instanceof SectorDreddVideo)
+                    iDemuxSize += pair.idSector.getIdentifiedUserDataSize();
+            }
+            byte[] abDemux = ByteArrayPool.SHARED.borrow(iDemuxSize);
             try {
-                IO.writeIStoOS(_current.idSector.getIdentifiedUserDataStream(), baos);
+                first.copyIdentifiedUserData(abDemux, 0);
+                int iPos = first.getIdentifiedUserDataSize();
                 for (SectorPair pair : _queue) {
-                    if (pair.idSector instanceof SectorDreddVideo)
-                        IO.writeIStoOS(((SectorDreddVideo)pair.idSector).getIdentifiedUserDataStream(), baos);
+                    if (pair.idSector instanceof SectorDreddVideo) {
+                        SectorDreddVideo chunk = (SectorDreddVideo)pair.idSector;
+                        chunk.copyIdentifiedUserData(abDemux, iPos);
+                        iPos += chunk.getIdentifiedUserDataSize();
+                    }
                 }
-            } catch (IOException ex) {
-                throw new RuntimeException("Should not happen", ex);
-            }
-            // find and set the heights
-            try {
-                int iHeight = SectorDreddVideo.getHeight(baos.toByteArray()); // TODO: optimization, use exposed BAOS
-                ((SectorDreddVideo)_current.idSector).setHeightChunks(iHeight, iChunk);
+
+                // find and set the heights
+                int iHeight = SectorDreddVideo.getHeight(abDemux, iDemuxSize);
+                first.setHeightChunks(iHeight, iChunk);
                 for (SectorPair pair : _queue) {
                     if (pair.idSector instanceof SectorDreddVideo)
                         ((SectorDreddVideo)pair.idSector).setHeightChunks(iHeight, iChunk);
@@ -253,6 +390,8 @@ public abstract class IdentifiedSectorIterator {
                 return true;
             } catch (BinaryDataNotRecognized ex) {
                 return false;
+            } finally {
+                ByteArrayPool.SHARED.giveBack(abDemux);
             }
         }
 
@@ -263,9 +402,9 @@ public abstract class IdentifiedSectorIterator {
     private static class BaseWithGT extends IdentifiedSectorIterator {
 
         @Nonnull
-        private final CdFileSectorReader _cd;
-        private int _iCurrentSector;
-        private final int _iEndSectorInclusive;
+        protected final CdFileSectorReader _cd;
+        protected int _iCurrentSector;
+        protected final int _iEndSectorInclusive;
 
         @CheckForNull
         private IdentifiedSector _currentId;
@@ -277,13 +416,20 @@ public abstract class IdentifiedSectorIterator {
         @CheckForNull
         private SectorGTVideo _lastGtChunk0;
 
+        @CheckForNull
+        private final SectorTypeCache _cache;
+        /** Cached type of {@link #_currentCd}. */
+        private int _iCurrentCachedType = SectorTypeCache.UNKNOWN;
+
         private BaseWithGT(@Nonnull CdFileSectorReader cd,
-                            int iStartSector, int iEndSectorInclusive)
+                            int iStartSector, int iEndSectorInclusive,
+                            @CheckForNull SectorTypeCache cache)
         {
             super(cd);
             _cd = cd;
             _iCurrentSector = iStartSector;
             _iEndSectorInclusive = iEndSectorInclusive;
+            _cache = cache;
         }
 
         public boolean hasNext() {
@@ -294,51 +440,196 @@ public abstract class IdentifiedSectorIterator {
             if (!hasNext())
                 throw new NoSuchElementException();
 
-            _currentCd = _cd.getSector(_iCurrentSector);
+            _currentCd = readNextSector();
             _iCurrentSector++;
 
-            // sorted in order of likelyhood of encountering (my best guess)
-            if ((_currentId = new SectorXaAudio(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorXaNull(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorStrVideo(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorISO9660DirectoryRecords(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorISO9660VolumePrimaryDescriptor(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorCdAudio(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorFF8.SectorFF8Video(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorFF8.SectorFF8Audio(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorFF9.SectorFF9Video(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorFF9.SectorFF9Audio(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorIkiVideo(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorChronoXAudio(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorChronoXVideo(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorChronoXVideoNull(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorAceCombat3Video(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorLainVideo(_currentCd)).getProbability() > 0) return _currentId;
-            if ((_currentId = new SectorCrusader(_currentCd)).getProbability() > 0) return _currentId;
+            _currentId = identifyCurrent();
+            countType(_currentId);
+            return _currentId;
+        }
+
+        /** Identifies {@link #_currentCd}. */
+        private @CheckForNull IdentifiedSector identifyCurrent() {
+            if (_cache != null) {
+                _iCurrentCachedType = _cache.getType(_currentCd.getSectorNumberFromStart());
+                if (_iCurrentCachedType == SectorTypeCache.UNIDENTIFIED ||
+                    _iCurrentCachedType == SectorTypeCache.DREDD_VIDEO)
+                {
+                    // Dredd is identified by the caller
+                    return null;
+                }
+                if (_iCurrentCachedType != SectorTypeCache.UNKNOWN) {
+                    IdentifiedSector id = identifyCached(_iCurrentCachedType);
+                    if (id != null)
+                        return id;
+                }
+                // otherwise the cache is wrong about this sector, so just
+                // identify it normally
+            }
+
+            IdentifiedSector id = identifyIndependent();
+            if (id != null)
+                return id;
 
             // contextual GT
-            SectorGTVideo gt2Vid = new SectorGTVideo(_currentCd, _lastGtChunk0);
-            if (gt2Vid.getProbability() > 0) {
-                if (gt2Vid.getChunkNumber() == 0)
-                    _lastGtChunk0 = gt2Vid;
-                _currentId = gt2Vid;
-                return _currentId;
+            if (couldBeGT(_currentCd)) {
+                SectorGTVideo gt2Vid = new SectorGTVideo(_currentCd, _lastGtChunk0);
+                if (gt2Vid.getProbability() > 0) {
+                    if (gt2Vid.getChunkNumber() == 0)
+                        _lastGtChunk0 = gt2Vid;
+                    return gt2Vid;
+                }
+            }
+
+            return identifyLastResort();
+        }
+
+        /** Creates the sector type that the cache says {@link #_currentCd} is.
+         * @return null if the sector isn't actually that type. */
+        private @CheckForNull IdentifiedSector identifyCached(int iType) {
+            CdSector cdSector = currentCd();
+            IdentifiedSector id;
+            switch (iType) {
+                case SectorTypeCache.XA_AUDIO:           id = new SectorXaAudio(cdSector); break;
+                case SectorTypeCache.XA_NULL:            id = new SectorXaNull(cdSector); break;
+                case SectorTypeCache.STR_VIDEO:          id = new SectorStrVideo(cdSector); break;
+                case SectorTypeCache.ISO9660_DIR:        id = new SectorISO9660DirectoryRecords(cdSector); break;
+                case SectorTypeCache.ISO9660_PVD:        id = new SectorISO9660VolumePrimaryDescriptor(cdSector); break;
+                case SectorTypeCache.CD_AUDIO:           id = new SectorCdAudio(cdSector); break;
+                case SectorTypeCache.FF8_VIDEO:          id = new SectorFF8.SectorFF8Video(cdSector); break;
+                case SectorTypeCache.FF8_AUDIO:          id = new SectorFF8.SectorFF8Audio(cdSector); break;
+                case SectorTypeCache.FF9_VIDEO:          id = new SectorFF9.SectorFF9Video(cdSector); break;
+                case SectorTypeCache.FF9_AUDIO:          id = new SectorFF9.SectorFF9Audio(cdSector); break;
+                case SectorTypeCache.IKI_VIDEO:          id = new SectorIkiVideo(cdSector); break;
+                case SectorTypeCache.CHRONOX_AUDIO:      id = new SectorChronoXAudio(cdSector); break;
+                case SectorTypeCache.CHRONOX_VIDEO:      id = new SectorChronoXVideo(cdSector); break;
+                case SectorTypeCache.CHRONOX_VIDEO_NULL: id = new SectorChronoXVideoNull(cdSector); break;
+                case SectorTypeCache.ACE_COMBAT_3_VIDEO: id = new SectorAceCombat3Video(cdSector); break;
+                case SectorTypeCache.LAIN_VIDEO:         id = new SectorLainVideo(cdSector); break;
+                case SectorTypeCache.CRUSADER:           id = new SectorCrusader(cdSector); break;
+                case SectorTypeCache.FF7_VIDEO:          id = new SectorFF7Video(cdSector); break;
+                case SectorTypeCache.ALICE_NULL_VIDEO:   id = new SectorAliceNullVideo(cdSector); break;
+                case SectorTypeCache.ALICE_VIDEO:        id = new SectorAliceVideo(cdSector); break;
+                case SectorTypeCache.GT_VIDEO:
+                    SectorGTVideo gt2Vid = new SectorGTVideo(cdSector, _lastGtChunk0);
+                    if (gt2Vid.getProbability() > 0 && gt2Vid.getChunkNumber() == 0)
+                        _lastGtChunk0 = gt2Vid;
+                    id = gt2Vid;
+                    break;
+                default: return null;
             }
+            return id.getProbability() > 0 ? id : null;
+        }
+
+        /** If {@link #_currentCd} could be the start of a Dredd frame.
+         * Only false if the cache says it's unidentified. */
+        boolean couldBeDredd() {
+            return _iCurrentCachedType != SectorTypeCache.UNIDENTIFIED;
+        }
 
+        /** Returns the sector at {@link #_iCurrentSector}. */
+        protected @Nonnull CdSector readNextSector() throws IOException {
+            return _cd.getSector(_iCurrentSector);
+        }
+
+        /** Non-contextual identification of {@link #_currentCd} to try
+         * before the contextual GT identification. */
+        protected @CheckForNull IdentifiedSector identifyIndependent() {
+            return identifyIndependent(currentCd());
+        }
+
+        /** Non-contextual identification of {@link #_currentCd} to try
+         * after the contextual GT identification. */
+        protected @CheckForNull IdentifiedSector identifyLastResort() {
+            return identifyLastResort(currentCd());
+        }
+
+        /** Identification that doesn't depend on any surrounding sectors.
+         * Only the sector types that {@link SectorCandidates} hasn't ruled out
+         * are tried, but still in the same order.
+         * Safe to call from any thread. */
+        static @CheckForNull IdentifiedSector identifyIndependent(@Nonnull CdSector cdSector) {
+            int iCandidates = SectorCandidates.find(cdSector);
+            IdentifiedSector id;
+            // sorted in order of likelyhood of encountering (my best guess)
+            if ((iCandidates & SectorCandidates.XA_AUDIO) != 0) {
+                if ((id = new SectorXaAudio(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.XA_NULL) != 0) {
+                if ((id = new SectorXaNull(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.STR_MAGIC) != 0) {
+                if ((id = new SectorStrVideo(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.ISO9660_DIR) != 0) {
+                if ((id = new SectorISO9660DirectoryRecords(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.ISO9660_PVD) != 0) {
+                if ((id = new SectorISO9660VolumePrimaryDescriptor(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.CD_AUDIO) != 0) {
+                if ((id = new SectorCdAudio(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.FF8) != 0) {
+                if ((id = new SectorFF8.SectorFF8Video(cdSector)).getProbability() > 0) return id;
+                if ((id = new SectorFF8.SectorFF8Audio(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.FF9_VIDEO) != 0) {
+                if ((id = new SectorFF9.SectorFF9Video(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.FF9_AUDIO) != 0) {
+                if ((id = new SectorFF9.SectorFF9Audio(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.STR_MAGIC) != 0) {
+                if ((id = new SectorIkiVideo(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.CHRONOX_AUDIO) != 0) {
+                if ((id = new SectorChronoXAudio(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.CHRONOX_VIDEO) != 0) {
+                if ((id = new SectorChronoXVideo(cdSector)).getProbability() > 0) return id;
+                if ((id = new SectorChronoXVideoNull(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.ACE_COMBAT_3) != 0) {
+                if ((id = new SectorAceCombat3Video(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.STR_MAGIC) != 0) {
+                if ((id = new SectorLainVideo(cdSector)).getProbability() > 0) return id;
+            }
+            if ((iCandidates & SectorCandidates.CRUSADER) != 0) {
+                if ((id = new SectorCrusader(cdSector)).getProbability() > 0) return id;
+            }
+            return null;
+        }
+
+        /** If the sector could be a Gran Turismo sector. */
+        static boolean couldBeGT(@Nonnull CdSector cdSector) {
+            return cdSector.readUInt32LE(0) == SectorGTVideo.GT_MAGIC;
+        }
+
+        /** Identification that doesn't depend on any surrounding sectors,
+         * but must come after the contextual GT identification.
+         * Safe to call from any thread. */
+        static @CheckForNull IdentifiedSector identifyLastResort(@Nonnull CdSector cdSector) {
+            long lngMagic = cdSector.readUInt32LE(0);
+            IdentifiedSector id;
             // FF7 has such a vague header, it can easily be falsely identified
             // when it should be one of the headers above
-            if ((_currentId = new SectorFF7Video(_currentCd)).getProbability() > 0) return _currentId;
+            if (lngMagic == SectorStrVideo.VIDEO_SECTOR_MAGIC) {
+                if ((id = new SectorFF7Video(cdSector)).getProbability() > 0) return id;
+            }
 
             // special handling for Alice
-            SectorAliceNullVideo nullAlice = new SectorAliceNullVideo(_currentCd);
-            if (nullAlice.getProbability() > 0) {
-                _currentId = new SectorAliceVideo(_currentCd);
-                if (_currentId.getProbability() == 0)
-                    _currentId = nullAlice;
-                return _currentId;
+            if (lngMagic == SectorAliceNullVideo.ALICE_VIDEO_SECTOR_MAGIC) {
+                SectorAliceNullVideo nullAlice = new SectorAliceNullVideo(cdSector);
+                if (nullAlice.getProbability() > 0) {
+                    id = new SectorAliceVideo(cdSector);
+                    if (id.getProbability() == 0)
+                        id = nullAlice;
+                    return id;
+                }
             }
 
-            _currentId = null;
             return null;
         }
 
@@ -353,4 +644,266 @@ public abstract class IdentifiedSectorIterator {
         }
 
     }
+
+    /** Skips sectors based on their stride and raw subheader. */
+    private static class Filtered extends IdentifiedSectorIterator {
+
+        @Nonnull
+        private final CdFileSectorReader _cd;
+        private final int _iEndSectorInclusive;
+        private final int _iStride;
+        @CheckForNull
+        private final SubHeaderFilter _filter;
+
+        /** Next sector that was accepted by the filter, or
+         * {@link #_iEndSectorInclusive}+1 if there are no more. */
+        private int _iNextSector;
+        /** Next sector whose subheader hasn't been checked yet. */
+        private int _iNextSectorToCheck;
+
+        @CheckForNull
+        private IdentifiedSector _currentId;
+        @CheckForNull
+        private CdSector _currentCd;
+
+        public Filtered(@Nonnull CdFileSectorReader cd,
+                        int iStartSector, int iEndSectorInclusive,
+                        int iStride, @Nonnull SubHeaderFilter filter)
+        {
+            super(cd);
+            if (iStride < 1)
+                throw new IllegalArgumentException("Invalid stride " + iStride);
+            _cd = cd;
+            _iEndSectorInclusive = iEndSectorInclusive;
+            _iStride = iStride;
+            // can't filter if there is no subheader
+            _filter = cd.hasSectorHeader() ? filter : null;
+            _iNextSectorToCheck = iStartSector;
+            findNext();
+        }
+
+        /** Finds the next sector accepted by the filter. */
+        private void findNext() {
+            for (; _iNextSectorToCheck <= _iEndSectorInclusive; _iNextSectorToCheck += _iStride) {
+                if (_filter == null)
+                    break;
+                try {
+                    if (accept(_cd.readRawSubHeader(_iNextSectorToCheck)))
+                        break;
+                } catch (IOException ex) {
+                    // the error will happen again when the sector is read
+                    break;
+                }
+            }
+            _iNextSector = _iNextSectorToCheck;
+            _iNextSectorToCheck += _iStride;
+        }
+
+        /** Sector identification may take each field from either copy of
+         * the subheader, so if the copies differ, every mix is tried. */
+        private boolean accept(long lngSubHeader) {
+            int iCopy1 = (int)lngSubHeader;
+            int iCopy2 = (int)(lngSubHeader >>> 32);
+            if (_filter.accept(iCopy1 & 0xff, (iCopy1 >> 8) & 0xff, (iCopy1 >> 16) & 0xff))
+                return true;
+            if (iCopy1 == iCopy2)
+                return false;
+            for (int i = 1; i < 8; i++) {
+                int iFile    =  ((i & 1) == 0 ? iCopy1 : iCopy2)        & 0xff;
+                int iChannel = (((i & 2) == 0 ? iCopy1 : iCopy2) >> 8)  & 0xff;
+                int iSubMode = (((i & 4) == 0 ? iCopy1 : iCopy2) >> 16) & 0xff;
+                if (_filter.accept(iFile, iChannel, iSubMode))
+                    return true;
+            }
+            return false;
+        }
+
+        public boolean hasNext() {
+            return _iNextSector <= _iEndSectorInclusive;
+        }
+
+        public @CheckForNull IdentifiedSector next() throws IOException {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            _currentCd = _cd.getSector(_iNextSector);
+            findNext();
+
+            _currentId = BaseWithGT.identifyIndependent(_currentCd);
+            if (_currentId == null)
+                _currentId = BaseWithGT.identifyLastResort(_currentCd);
+
+            countType(_currentId);
+            return _currentId;
+        }
+
+        public @CheckForNull IdentifiedSector current() {
+            return _currentId;
+        }
+
+        public @Nonnull CdSector currentCd() {
+            if (_currentCd == null)
+                throw new IllegalStateException("next() should have been called first");
+            return _currentCd;
+        }
+    }
+
+    /** Identifies batches of sectors ahead of time on other threads.
+     * Only the identification that doesn't depend on context is done
+     * ahead of time. The sectors are read on the calling thread because
+     * {@link CdFileSectorReader} is not thread safe, and the contextual
+     * identification is still performed in order by {@link BaseWithGT}
+     * and {@link Dredd}, so the results are exactly the same. */
+    private static class ParallelBaseWithGT extends BaseWithGT {
+
+        /** Number of sectors identified by each task. */
+        private static final int SECTORS_PER_BATCH = 256;
+
+        /** Sector and the results of its non-contextual identification. */
+        private static class PreIdentified {
+            @Nonnull
+            public final CdSector cdSector;
+            @CheckForNull
+            public final IdentifiedSector independent;
+            @CheckForNull
+            public final IdentifiedSector lastResort;
+
+            public PreIdentified(@Nonnull CdSector cdSector) {
+                this.cdSector = cdSector;
+                independent = identifyIndependent(cdSector);
+                // only needed if nothing else identifies the sector
+                lastResort = independent == null ? identifyLastResort(cdSector) : null;
+            }
+        }
+
+        private static class IdentifyBatch implements Callable<PreIdentified[]> {
+            @Nonnull
+            private final CdSector[] _aoSectors;
+
+            public IdentifyBatch(@Nonnull CdSector[] aoSectors) {
+                _aoSectors = aoSectors;
+            }
+
+            public PreIdentified[] call() {
+                PreIdentified[] aoIdentified = new PreIdentified[_aoSectors.length];
+                for (int i = 0; i < _aoSectors.length; i++) {
+                    aoIdentified[i] = new PreIdentified(_aoSectors[i]);
+                }
+                return aoIdentified;
+            }
+        }
+
+        @Nonnull
+        private final ExecutorService _executor;
+        /** Maximum number of batches submitted but not yet consumed. */
+        private final int _iMaxPendingBatches;
+        private final LinkedList<Future<PreIdentified[]>> _pendingBatches =
+                new LinkedList<Future<PreIdentified[]>>();
+        /** Next sector to read and submit for identification. */
+        private int _iNextSectorToSubmit;
+        /** Error reading ahead, thrown when the sector is actually reached. */
+        @CheckForNull
+        private IOException _readAheadError;
+
+        @CheckForNull
+        private PreIdentified[] _aoCurrentBatch;
+        private int _iCurrentBatchIndex;
+        @CheckForNull
+        private PreIdentified _currentPre;
+
+        public ParallelBaseWithGT(@Nonnull CdFileSectorReader cd,
+                                  int iStartSector, int iEndSectorInclusive,
+                                  @Nonnull ExecutorService executor, int iThreadCount)
+        {
+            super(cd, iStartSector, iEndSectorInclusive, null);
+            _executor = executor;
+            _iMaxPendingBatches = Math.max(iThreadCount, 1) * 2;
+            _iNextSectorToSubmit = iStartSector;
+        }
+
+        @Override
+        protected @Nonnull CdSector readNextSector() throws IOException {
+            if (_aoCurrentBatch == null || _iCurrentBatchIndex >= _aoCurrentBatch.length) {
+                submitBatches();
+                Future<PreIdentified[]> next = _pendingBatches.poll();
+                if (next == null) {
+                    // all the sectors before the read error have been returned
+                    IOException ex = _readAheadError;
+                    _readAheadError = null;
+                    if (ex == null)
+                        throw new NoSuchElementException();
+                    throw ex;
+                }
+                try {
+                    _aoCurrentBatch = next.get();
+                } catch (InterruptedException ex) {
+                    cancelPending();
+                    InterruptedIOException ioex = new InterruptedIOException();
+                    ioex.initCause(ex);
+                    throw ioex;
+                } catch (ExecutionException ex) {
+                    cancelPending();
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+                    if (cause instanceof Error)
+                        throw (Error)cause;
+                    throw new RuntimeException(cause);
+                }
+                _iCurrentBatchIndex = 0;
+                // keep the threads busy while this batch is consumed
+                submitBatches();
+            }
+            _currentPre = _aoCurrentBatch[_iCurrentBatchIndex];
+            _iCurrentBatchIndex++;
+            return _currentPre.cdSector;
+        }
+
+        /** Reads sectors and submits them for identification until
+         * enough batches are pending or the end is reached.
+         * If there is a read error, the sectors before it are still submitted
+         * and the error is saved to be thrown once they have been consumed,
+         * the same as if the sectors were read one at a time. */
+        private void submitBatches() {
+            while (_readAheadError == null &&
+                   _pendingBatches.size() < _iMaxPendingBatches &&
+                   _iNextSectorToSubmit <= _iEndSectorInclusive)
+            {
+                int iCount = Math.min(SECTORS_PER_BATCH, _iEndSectorInclusive - _iNextSectorToSubmit + 1);
+                CdSector[] aoSectors = new CdSector[iCount];
+                int iRead = 0;
+                try {
+                    for (; iRead < iCount; iRead++) {
+                        aoSectors[iRead] = _cd.getSector(_iNextSectorToSubmit + iRead);
+                    }
+                } catch (IOException ex) {
+                    _readAheadError = ex;
+                    if (iRead == 0)
+                        break;
+                    CdSector[] aoRead = new CdSector[iRead];
+                    System.arraycopy(aoSectors, 0, aoRead, 0, iRead);
+                    aoSectors = aoRead;
+                }
+                _iNextSectorToSubmit += aoSectors.length;
+                _pendingBatches.offer(_executor.submit(new IdentifyBatch(aoSectors)));
+            }
+        }
+
+        private void cancelPending() {
+            for (Future<PreIdentified[]> pending : _pendingBatches) {
+                pending.cancel(true);
+            }
+            _pendingBatches.clear();
+        }
+
+        @Override
+        protected @CheckForNull IdentifiedSector identifyIndependent() {
+            return _currentPre.independent;
+        }
+
+        @Override
+        protected @CheckForNull IdentifiedSector identifyLastResort() {
+            return _currentPre.lastResort;
+        }
+    }
 }
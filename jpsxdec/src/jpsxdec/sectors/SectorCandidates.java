@@ -0,0 +1,147 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.sectors;
+
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.cdreaders.CdxaSubHeader.SubMode;
+
+/** Quickly narrows down what types a {@link CdSector} could possibly be
+ * identified as, using only the sector header and the first few bytes of
+ * user data. Every sector type performs these same checks (among many
+ * others) before it would accept a sector, so skipping the types that are
+ * ruled out here never changes the identification result.
+ * <p>
+ * Most sector types start with a magic number, so most sectors end up
+ * with only 1 to 4 candidates instead of trying all of them.
+ * Gran Turismo and Alice sectors aren't included since they are identified
+ * after the contextual checks, which test their magic numbers directly. */
+class SectorCandidates {
+
+    public static final int XA_AUDIO       = 1 << 0;
+    public static final int XA_NULL        = 1 << 1;
+    /** {@link SectorStrVideo}, {@link SectorIkiVideo}, {@link SectorLainVideo}
+     *  and {@link SectorFF7Video} all share the same magic number. */
+    public static final int STR_MAGIC      = 1 << 2;
+    public static final int ISO9660_DIR    = 1 << 3;
+    public static final int ISO9660_PVD    = 1 << 4;
+    public static final int CD_AUDIO       = 1 << 5;
+    public static final int FF8            = 1 << 6;
+    public static final int FF9_VIDEO      = 1 << 7;
+    public static final int FF9_AUDIO      = 1 << 8;
+    public static final int CHRONOX_AUDIO  = 1 << 9;
+    /** {@link SectorChronoXVideo} and {@link SectorChronoXVideoNull}. */
+    public static final int CHRONOX_VIDEO  = 1 << 10;
+    public static final int ACE_COMBAT_3   = 1 << 11;
+    public static final int CRUSADER       = 1 << 12;
+
+    /** 'S' 'M' ? 0x01 */
+    private static final long FF8_MAGIC_MASK = 0xFF00FFFFL;
+    private static final long FF8_MAGIC      = 0x01004D53L;
+
+    /** Crusader magic is big-endian. */
+    private static final long CRUSADER_MAGIC_LE = Long.reverseBytes(SectorCrusader.MAGIC) >>> 32;
+
+    /** ISO9660 sector number of the primary volume descriptor. */
+    private static final int ISO9660_PVD_SECTOR = 16;
+
+    /** Returns a bit mask of the sector types the sector could be. */
+    public static int find(@Nonnull CdSector cdSector) {
+        int iCandidates = 0;
+
+        long lngMagic = cdSector.readUInt32LE(0);
+
+        // Crusader doesn't care if the sector is CD audio
+        if (lngMagic == CRUSADER_MAGIC_LE)
+            iCandidates |= CRUSADER;
+
+        if (cdSector.isCdAudioSector())
+            return iCandidates | CD_AUDIO;
+
+        if (cdSector.hasSubHeader()) {
+            int iSubMode = cdSector.subModeMask(0xff);
+            if ((iSubMode & (SubMode.MASK_FORM | SubMode.MASK_AUDIO)) == (SubMode.MASK_FORM | SubMode.MASK_AUDIO))
+                iCandidates |= XA_AUDIO;
+            if ((iSubMode & SubMode.MASK_FORM) != 0)
+                iCandidates |= XA_NULL;
+            if ((lngMagic & 0xff) == 0x01)
+                iCandidates |= ACE_COMBAT_3;
+        }
+
+        if (lngMagic == SectorStrVideo.VIDEO_SECTOR_MAGIC)
+            iCandidates |= STR_MAGIC;
+        else if (lngMagic == SectorFF9.SectorFF9Video.VIDEO_CHUNK_MAGIC)
+            iCandidates |= FF9_VIDEO;
+        else if (lngMagic == SectorFF9.SectorFF9Audio.FF9_AUDIO_CHUNK_MAGIC)
+            iCandidates |= FF9_AUDIO;
+        else if (lngMagic == SectorChronoXAudio.AUDIO_CHUNK_MAGIC1 ||
+                 lngMagic == SectorChronoXAudio.AUDIO_CHUNK_MAGIC2 ||
+                 lngMagic == SectorChronoXAudio.AUDIO_CHUNK_MAGIC3 ||
+                 lngMagic == SectorChronoXAudio.AUDIO_CHUNK_MAGIC4)
+            iCandidates |= CHRONOX_AUDIO;
+        else if (lngMagic == SectorChronoXVideo.CHRONO_CROSS_VIDEO_CHUNK_MAGIC1 ||
+                 lngMagic == SectorChronoXVideo.CHRONO_CROSS_VIDEO_CHUNK_MAGIC2)
+            iCandidates |= CHRONOX_VIDEO;
+        else if ((lngMagic & FF8_MAGIC_MASK) == FF8_MAGIC)
+            iCandidates |= FF8;
+
+        if (cdSector.getSectorNumberFromStart() == ISO9660_PVD_SECTOR)
+            iCandidates |= ISO9660_PVD;
+
+        if (couldBeDirectoryRecord(cdSector))
+            iCandidates |= ISO9660_DIR;
+
+        return iCandidates;
+    }
+
+    /** Checks the first fields of a {@link jpsxdec.iso9660.DirectoryRecord}:
+     * a non-zero length, a zero extended attribute length, and the extent
+     * stored as the same value in both little and big-endian. */
+    private static boolean couldBeDirectoryRecord(@Nonnull CdSector cdSector) {
+        if (cdSector.readUserDataByte(0) == 0)
+            return false;
+        if (cdSector.readUserDataByte(1) != 0)
+            return false;
+        for (int i = 0; i < 4; i++) {
+            if (cdSector.readUserDataByte(2 + i) != cdSector.readUserDataByte(9 - i))
+                return false;
+        }
+        return true;
+    }
+
+}
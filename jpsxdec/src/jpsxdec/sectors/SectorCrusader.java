@@ -47,7 +47,7 @@ import jpsxdec.util.ByteArrayFPIS;
 /** Audio/video sectors for Crusader: No Remorse. */
 public class SectorCrusader extends IdentifiedSector {
 
-    private static final long MAGIC = 0xAABBCCDDL;
+    static final long MAGIC = 0xAABBCCDDL;
     public static final int HEADER_SIZE = 8;
     private static final int MAX_CRUSADER_SECTOR = 15524;
     
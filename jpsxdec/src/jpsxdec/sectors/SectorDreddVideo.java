@@ -60,8 +60,10 @@ public class SectorDreddVideo extends SectorAbstractVideo {
     /** Uncompresses the bitstream a line of macroblocks at a time until failure
      * to determine the frame height.
      * @return height of the frame in pixels. */
-    static int getHeight(byte[] abBitstream) throws BinaryDataNotRecognized {
-        BitStreamUncompressor bs = BitStreamUncompressor.identifyUncompressor(abBitstream);
+    static int getHeight(@Nonnull byte[] abBitstream, int iBitstreamSize)
+            throws BinaryDataNotRecognized
+    {
+        BitStreamUncompressor bs = BitStreamUncompressor.identifyUncompressor(abBitstream, iBitstreamSize);
         int iFrameHeightMB = 0;
         try {
             // keep reading lines until the stream ends
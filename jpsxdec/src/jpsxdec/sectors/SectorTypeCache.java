@@ -0,0 +1,266 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpsxdec.sectors;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.Version;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.util.ExposedBAOS;
+import jpsxdec.util.IO;
+
+/** What type every sector of a disc image was identified as, saved in a
+ * small file next to the disc image, 1 byte per sector. Only used if
+ * {@link IdentifiedSectorIterator#setSectorTypeCacheEnabled(boolean)}.
+ * <p>
+ * With the cache, {@link IdentifiedSectorIterator} can create the one
+ * {@link IdentifiedSector} type each sector is known to be instead of trying
+ * them all, and skip sectors known to be unidentified.
+ * <p>
+ * The cache is only recorded while iterating over the entire disc, so it
+ * holds the same results as identifying every sector in order. It is only
+ * used if it was made by this version of jPSXdec, and the disc image has the
+ * same size, modified time, and sector layout as when the cache was written.
+ * The whole file is checked with a CRC32 so a partially written cache is
+ * ignored. The cache can always be deleted and will be recreated the next
+ * time the whole disc is iterated. */
+class SectorTypeCache {
+
+    private static final Logger LOG = Logger.getLogger(SectorTypeCache.class.getName());
+
+    /** File name extension appended to the disc image file name. */
+    public static final String CACHE_EXTENSION = ".sectorcache";
+
+    /** "jSTC" */
+    private static final int MAGIC = 0x6A535443;
+    /** Increment whenever the layout or type codes change. */
+    private static final int FORMAT_VERSION = 1;
+    /** Size of the CRC32 at the end of the file. */
+    private static final int CHECKSUM_SIZE = 8;
+
+    /** Sector type is not in the cache. */
+    public static final int UNKNOWN = 0xff;
+    /** Sector was not identified as anything. */
+    public static final int UNIDENTIFIED = 0;
+
+    /** The sector type codes are the index in this array.
+     * Only add new types to the end. */
+    private static final Class<?>[] TYPES = {
+        null, // UNIDENTIFIED
+        SectorXaAudio.class,
+        SectorXaNull.class,
+        SectorStrVideo.class,
+        SectorISO9660DirectoryRecords.class,
+        SectorISO9660VolumePrimaryDescriptor.class,
+        SectorCdAudio.class,
+        SectorFF8.SectorFF8Video.class,
+        SectorFF8.SectorFF8Audio.class,
+        SectorFF9.SectorFF9Video.class,
+        SectorFF9.SectorFF9Audio.class,
+        SectorIkiVideo.class,
+        SectorChronoXAudio.class,
+        SectorChronoXVideo.class,
+        SectorChronoXVideoNull.class,
+        SectorAceCombat3Video.class,
+        SectorLainVideo.class,
+        SectorCrusader.class,
+        SectorGTVideo.class,
+        SectorFF7Video.class,
+        SectorAliceNullVideo.class,
+        SectorAliceVideo.class,
+        SectorDreddVideo.class,
+    };
+
+    public static final int XA_AUDIO           = 1;
+    public static final int XA_NULL            = 2;
+    public static final int STR_VIDEO          = 3;
+    public static final int ISO9660_DIR        = 4;
+    public static final int ISO9660_PVD        = 5;
+    public static final int CD_AUDIO           = 6;
+    public static final int FF8_VIDEO          = 7;
+    public static final int FF8_AUDIO          = 8;
+    public static final int FF9_VIDEO          = 9;
+    public static final int FF9_AUDIO          = 10;
+    public static final int IKI_VIDEO          = 11;
+    public static final int CHRONOX_AUDIO      = 12;
+    public static final int CHRONOX_VIDEO      = 13;
+    public static final int CHRONOX_VIDEO_NULL = 14;
+    public static final int ACE_COMBAT_3_VIDEO = 15;
+    public static final int LAIN_VIDEO         = 16;
+    public static final int CRUSADER           = 17;
+    public static final int GT_VIDEO           = 18;
+    public static final int FF7_VIDEO          = 19;
+    public static final int ALICE_NULL_VIDEO   = 20;
+    public static final int ALICE_VIDEO        = 21;
+    public static final int DREDD_VIDEO        = 22;
+
+    private static final HashMap<Class<?>, Integer> TYPE_CODES = new HashMap<Class<?>, Integer>();
+    static {
+        for (int i = 1; i < TYPES.length; i++) {
+            TYPE_CODES.put(TYPES[i], Integer.valueOf(i));
+        }
+    }
+
+    /** Type code of an identified sector.
+     * @throws IllegalArgumentException if the type doesn't have a code. */
+    public static int typeOf(@CheckForNull IdentifiedSector id) {
+        if (id == null)
+            return UNIDENTIFIED;
+        Integer code = TYPE_CODES.get(id.getClass());
+        if (code == null)
+            throw new IllegalArgumentException("No type code for " + id.getClass());
+        return code.intValue();
+    }
+
+    public static @Nonnull File cacheFileFor(@Nonnull CdFileSectorReader cd) {
+        return new File(cd.getSourceFile().getPath() + CACHE_EXTENSION);
+    }
+
+    /** Reads the cache for the disc image, if there is one that can be used.
+     * @return null if there is no cache, or it is out of date or corrupted. */
+    public static @CheckForNull SectorTypeCache read(@Nonnull CdFileSectorReader cd) {
+        File cacheFile = cacheFileFor(cd);
+        if (!cacheFile.exists())
+            return null;
+
+        try {
+            byte[] abCache = IO.readFile(cacheFile);
+            if (abCache.length < CHECKSUM_SIZE) {
+                LOG.log(Level.FINE, "Sector cache {0} is truncated", cacheFile);
+                return null;
+            }
+            int iDataSize = abCache.length - CHECKSUM_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(abCache, 0, iDataSize);
+            long lngStoredCrc = new DataInputStream(
+                    new ByteArrayInputStream(abCache, iDataSize, CHECKSUM_SIZE)).readLong();
+            if (crc.getValue() != lngStoredCrc) {
+                LOG.log(Level.FINE, "Sector cache {0} checksum mismatch", cacheFile);
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(abCache, 0, iDataSize));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+                !Version.Version.equals(in.readUTF()))
+            {
+                LOG.log(Level.FINE, "Sector cache {0} is from a different version", cacheFile);
+                return null;
+            }
+            File sourceFile = cd.getSourceFile();
+            if (in.readLong() != sourceFile.length() ||
+                in.readLong() != sourceFile.lastModified() ||
+                in.readInt() != cd.getRawSectorSize() ||
+                in.readLong() != cd.getFilePointer(0) ||
+                in.readInt() != cd.getLength())
+            {
+                LOG.log(Level.FINE, "Sector cache {0} doesn''t match the disc image", cacheFile);
+                return null;
+            }
+
+            byte[] abTypes = new byte[cd.getLength()];
+            in.readFully(abTypes);
+            return new SectorTypeCache(abTypes);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to read sector cache " + cacheFile, ex);
+            return null;
+        }
+    }
+
+    // =========================================================================
+
+    /** Type code of each sector. */
+    @Nonnull
+    private final byte[] _abTypes;
+
+    /** Creates an empty cache to record every sector of the disc. */
+    public SectorTypeCache(int iSectorCount) {
+        _abTypes = new byte[iSectorCount];
+        Arrays.fill(_abTypes, (byte)UNKNOWN);
+    }
+
+    private SectorTypeCache(@Nonnull byte[] abTypes) {
+        _abTypes = abTypes;
+    }
+
+    /** @return The type code, or {@link #UNKNOWN}. */
+    public int getType(int iSector) {
+        return _abTypes[iSector] & 0xff;
+    }
+
+    public void setType(int iSector, @CheckForNull IdentifiedSector id) {
+        _abTypes[iSector] = (byte)typeOf(id);
+    }
+
+    /** Saves the cache next to the disc image.
+     * Failing to save it only means the next iteration will be slower. */
+    public void write(@Nonnull CdFileSectorReader cd) {
+        File cacheFile = cacheFileFor(cd);
+        try {
+            ExposedBAOS baos = new ExposedBAOS(_abTypes.length + 128);
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(Version.Version);
+            File sourceFile = cd.getSourceFile();
+            out.writeLong(sourceFile.length());
+            out.writeLong(sourceFile.lastModified());
+            out.writeInt(cd.getRawSectorSize());
+            out.writeLong(cd.getFilePointer(0));
+            out.writeInt(cd.getLength());
+            out.write(_abTypes);
+            CRC32 crc = new CRC32();
+            crc.update(baos.getBuffer(), 0, baos.size());
+            out.writeLong(crc.getValue());
+            out.flush();
+
+            IO.writeFile(cacheFile, baos.getBuffer(), 0, baos.size());
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to save sector cache " + cacheFile, ex);
+        }
+    }
+
+}
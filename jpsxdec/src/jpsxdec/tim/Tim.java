@@ -79,6 +79,15 @@ public class Tim {
         return CreateTim.isTim(inStream);
     }
 
+    /** Very quickly checks if the first 4 bytes of some data (read as a
+     * little-endian int) could be the start of a Tim image.
+     * {@link #isTim(java.io.InputStream)} rejects the data right away
+     * if this returns false. */
+    public static boolean couldBeTim(int iFirst4BytesLE) {
+        // tag, version, and 2 zero bytes
+        return iFirst4BytesLE == (TAG_MAGIC | (VERSION_0 << 8));
+    }
+
     /** Parse and deserialize a TIM file from a stream. */
     public static @Nonnull Tim read(@Nonnull InputStream inStream)
             throws IOException, BinaryDataNotRecognized
@@ -0,0 +1,124 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+
+/** Thread-safe pool of byte arrays, grouped into power-of-2 size classes.
+ * Arrays are borrowed with {@link #borrow(int)} and handed back with
+ * {@link #giveBack(byte[])} once nothing refers to them anymore. Borrowed
+ * arrays are not cleared and may be larger than requested.
+ * <p>
+ * Requests smaller than the smallest size class are rounded up to it.
+ * Requests larger than the largest size class are simply allocated and
+ * not kept when given back. Each size class holds on to a limited number
+ * of arrays so a burst of borrowing doesn't pin memory forever. */
+public class ByteArrayPool {
+
+    /** Pool shared by the demuxers and the savers. Sized to keep a few
+     * frames worth of demux buffers for several simultaneous saves. */
+    public static final ByteArrayPool SHARED = new ByteArrayPool(16);
+
+    /** 1KB. */
+    private static final int MIN_SIZE_CLASS_BITS = 10;
+    /** 1MB. Much larger than any demuxed frame. */
+    private static final int MAX_SIZE_CLASS_BITS = 20;
+
+    private static class SizeClass {
+        public final Queue<byte[]> arrays = new ConcurrentLinkedQueue<byte[]>();
+        /** Kept separately from the queue since counting the queue is slow. */
+        public final AtomicInteger count = new AtomicInteger();
+    }
+
+    @Nonnull
+    private final SizeClass[] _aoSizeClasses =
+            new SizeClass[MAX_SIZE_CLASS_BITS - MIN_SIZE_CLASS_BITS + 1];
+    private final int _iMaxPerSizeClass;
+
+    /** @param iMaxPerSizeClass Most arrays kept for each size class. */
+    public ByteArrayPool(int iMaxPerSizeClass) {
+        if (iMaxPerSizeClass < 1)
+            throw new IllegalArgumentException("Invalid pool size " + iMaxPerSizeClass);
+        _iMaxPerSizeClass = iMaxPerSizeClass;
+        for (int i = 0; i < _aoSizeClasses.length; i++)
+            _aoSizeClasses[i] = new SizeClass();
+    }
+
+    /** Returns an array at least {@code iMinSize} big. */
+    public @Nonnull byte[] borrow(int iMinSize) {
+        if (iMinSize < 0)
+            throw new IllegalArgumentException("Invalid size " + iMinSize);
+        int iBits = sizeClassBits(iMinSize);
+        if (iBits > MAX_SIZE_CLASS_BITS)
+            return new byte[iMinSize];
+
+        SizeClass sizeClass = _aoSizeClasses[iBits - MIN_SIZE_CLASS_BITS];
+        byte[] ab = sizeClass.arrays.poll();
+        if (ab == null)
+            return new byte[1 << iBits];
+        sizeClass.count.decrementAndGet();
+        return ab;
+    }
+
+    /** Returns an array to the pool. Arrays that didn't come from the pool
+     * are accepted if they happen to be the size of a size class.
+     * The array must not be used after this. */
+    public void giveBack(@Nonnull byte[] ab) {
+        int iBits = sizeClassBits(ab.length);
+        if (iBits > MAX_SIZE_CLASS_BITS || ab.length != 1 << iBits)
+            return;
+        SizeClass sizeClass = _aoSizeClasses[iBits - MIN_SIZE_CLASS_BITS];
+        if (sizeClass.count.incrementAndGet() > _iMaxPerSizeClass) {
+            // full, let the garbage collector have it
+            sizeClass.count.decrementAndGet();
+            return;
+        }
+        sizeClass.arrays.offer(ab);
+    }
+
+    /** Number of bits in the smallest size class that can hold the size. */
+    private static int sizeClassBits(int iSize) {
+        if (iSize <= 1 << MIN_SIZE_CLASS_BITS)
+            return MIN_SIZE_CLASS_BITS;
+        return 32 - Integer.numberOfLeadingZeros(iSize - 1);
+    }
+
+}
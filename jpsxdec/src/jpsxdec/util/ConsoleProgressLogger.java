@@ -55,10 +55,27 @@ public class ConsoleProgressLogger extends ProgressLogger implements UserFriendl
     /** Different from the logging stream.  */
     @Nonnull
     private final PrintStream _progressStream;
+    /** Put before every progress line, or null. */
+    @CheckForNull
+    private final String _sLinePrefix;
 
     public ConsoleProgressLogger(@Nonnull String sBaseName, @Nonnull PrintStream progressStream) {
         super(sBaseName);
         _progressStream = progressStream;
+        _sLinePrefix = null;
+        setListener(this);
+    }
+
+    /** Logger for one of several tasks running at once. Everything is
+     * logged to {@code shareLogWith}, and each progress line starts with
+     * {@code sLinePrefix} so the tasks' lines can be told apart. */
+    public ConsoleProgressLogger(@Nonnull UserFriendlyLogger shareLogWith,
+                                 @Nonnull String sLinePrefix,
+                                 @Nonnull PrintStream progressStream)
+    {
+        super(shareLogWith);
+        _progressStream = progressStream;
+        _sLinePrefix = sLinePrefix;
         setListener(this);
     }
 
@@ -74,7 +91,7 @@ public class ConsoleProgressLogger extends ProgressLogger implements UserFriendl
     }
 
     protected void handleProgressEnd() {
-        _progressStream.println(buildProgress(1));
+        printProgress(buildProgress(1));
         _dblNextProgressMark = 0;
     }
 
@@ -100,11 +117,18 @@ public class ConsoleProgressLogger extends ProgressLogger implements UserFriendl
         // a carriage return after the string \r
         // resets the cursor position back to the beginning of the line
         // but for now just do normal new line
-        _progressStream.println(line);
+        printProgress(line);
         
         _dblNextProgressMark = Math.round((dblPercentComplete + 0.05) * 10.0) / 10.0;
     }
 
+    private void printProgress(@Nonnull ILocalizedMessage line) {
+        if (_sLinePrefix == null)
+            _progressStream.println(line);
+        else
+            _progressStream.println(_sLinePrefix + line);
+    }
+
     private @Nonnull ILocalizedMessage buildProgress(double dblPercentComplete) {
 
         StringBuilder progressBar = new StringBuilder();
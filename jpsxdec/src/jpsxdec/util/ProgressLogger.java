@@ -52,6 +52,10 @@ public abstract class ProgressLogger extends UserFriendlyLogger {
     public ProgressLogger(@Nonnull String sBaseName) {
         super(sBaseName);
     }
+    /** @see UserFriendlyLogger#UserFriendlyLogger(jpsxdec.util.UserFriendlyLogger) */
+    public ProgressLogger(@Nonnull UserFriendlyLogger shareLogWith) {
+        super(shareLogWith);
+    }
 
     final public void progressStart(double dblMaxValue) throws TaskCanceledException {
         progressStart(0, dblMaxValue);
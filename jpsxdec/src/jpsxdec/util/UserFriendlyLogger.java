@@ -105,6 +105,11 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
     @CheckForNull
     private OnWarnErr _listener;
 
+    /** Logger that everything is passed on to instead of being written
+     * here, or null. */
+    @CheckForNull
+    private UserFriendlyLogger _shareLogWith;
+
     /** Logger will create a logging file upon first log. */
     public UserFriendlyLogger(@Nonnull String sBaseName) {
         _sBaseName = sBaseName;
@@ -117,13 +122,23 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
         _logStream = ps;
     }
 
+    /** Logger that passes everything on to another logger. Useful when
+     * several tasks run at once: each can have its own listener, but they
+     * all write to the same log. */
+    public UserFriendlyLogger(@Nonnull UserFriendlyLogger shareLogWith) {
+        this(shareLogWith._sBaseName);
+        _shareLogWith = shareLogWith;
+    }
+
     public void setListener(@CheckForNull OnWarnErr listener) {
         _listener = listener;
     }
 
     /** Returns the file name of the log file. */
     public @Nonnull String getFileName() {
-        if (_file == null) {
+        if (_shareLogWith != null) {
+            return _shareLogWith.getFileName();
+        } else if (_file == null) {
             if (_logStream == System.out)
                 return "<stdout>";
             else if (_logStream == System.err)
@@ -139,16 +154,24 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
         log(level, msg, null);
     }
     public void log(Level level, @Nonnull ILocalizedMessage msg, @CheckForNull Throwable debugException) {
-        msg.logEnglish(_javaLogger, level, debugException); // also log to normal logging
-        if (_logStream == null)
-            openOutputFile();
-
         if (level == Level.WARNING) {
             if (_listener != null) _listener.onWarn(msg);
         } else if (level == Level.SEVERE) {
             if (_listener != null) _listener.onErr(msg);
         }
 
+        if (_shareLogWith != null)
+            _shareLogWith.log(level, msg, debugException);
+        else
+            write(level, msg, debugException);
+    }
+
+    /** Synchronized so loggers sharing this one can log from any thread. */
+    private synchronized void write(Level level, @Nonnull ILocalizedMessage msg, @CheckForNull Throwable debugException) {
+        msg.logEnglish(_javaLogger, level, debugException); // also log to normal logging
+        if (_logStream == null)
+            openOutputFile();
+
         // don't log the exception for the user as it most likely will just be useless or confusing
         _logStream.println(I.USER_LOG_MESSAGE(
                            level.getLocalizedName(),
@@ -194,7 +217,7 @@ public class UserFriendlyLogger implements ILocalizedLogger, Closeable {
         ps.println(_dateFormat.format(Calendar.getInstance().getTime()));
     }
 
-    public void close() {
+    public synchronized void close() {
         if (_file != null)
             _logStream.close();
     }
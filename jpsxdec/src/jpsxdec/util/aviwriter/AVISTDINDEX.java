@@ -0,0 +1,164 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML AVISTDINDEX C structure ('ix##' chunk).
+ * Indexes the chunks of one stream, all within 4GB after
+ * {@link #qwBaseOffset}. The entries are reused after each
+ * {@link #write(RandomAccessFile)}, so there are never more than
+ * {@link #getMaxEntries()} in memory. */
+class AVISTDINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_CHUNKS = 0x01;
+    /** Set in the size of chunks that are not key frames. */
+    public static final int AVISTDINDEX_DELTAFRAME = 0x80000000;
+
+    public final /*FOURCC*/ int   fcc;
+    //           /*DWORD */ int   cb;
+    public final /*WORD  */ short wLongsPerEntry = 2;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_CHUNKS;
+    public       /*DWORD */ int   nEntriesInUse  = 0;
+    public final /*DWORD */ int   dwChunkId;
+    /** Smallest data position of the entries. */
+    public       /*QWORD */ long  qwBaseOffset   = 0;
+    //           /*DWORD */ int   dwReserved3;
+    //struct {
+        /** Absolute file position of the chunk data (after the chunk header). */
+        @Nonnull
+        private final long[] _alngDataPosition;
+        /** Size of the chunk data. */
+        @Nonnull
+        private final /*DWORD*/ int[] _adwSize;
+    //} aIndex[]
+
+    /** Frames or samples in the entries, for the {@link AVISUPERINDEX}. */
+    private long _lngDuration = 0;
+
+    public AVISTDINDEX(int iStreamNumber, @Nonnull String sChunkId, int iMaxEntries) {
+        fcc = string2int(String.format("ix%02d", iStreamNumber));
+        dwChunkId = string2int(sChunkId);
+        _alngDataPosition = new long[iMaxEntries];
+        _adwSize = new int[iMaxEntries];
+    }
+
+    public int getMaxEntries() {
+        return _alngDataPosition.length;
+    }
+
+    public boolean isFull() {
+        return nEntriesInUse >= _alngDataPosition.length;
+    }
+
+    public void addEntry(long lngDataPosition, int dwSize, int iDuration) {
+        if (nEntriesInUse == 0 || lngDataPosition < qwBaseOffset)
+            qwBaseOffset = lngDataPosition;
+        _alngDataPosition[nEntriesInUse] = lngDataPosition;
+        _adwSize[nEntriesInUse] = dwSize;
+        nEntriesInUse++;
+        _lngDuration += iDuration;
+    }
+
+    public long getDuration() {
+        return _lngDuration;
+    }
+
+    /** Writes the index at the current position, then clears the entries. */
+    @Override
+    public void write(@Nonnull RandomAccessFile raf) throws IOException {
+        byte[] ab = new byte[sizeof()];
+        IO.writeInt32LE(ab,  0, fcc);
+        IO.writeInt32LE(ab,  4, ab.length - 8);
+        IO.writeInt16LE(ab,  8, wLongsPerEntry);
+        ab[10] = bIndexSubType;
+        ab[11] = bIndexType;
+        IO.writeInt32LE(ab, 12, nEntriesInUse);
+        IO.writeInt32LE(ab, 16, dwChunkId);
+        IO.writeInt32LE(ab, 20, qwBaseOffset);
+        IO.writeInt32LE(ab, 24, qwBaseOffset >>> 32);
+        // dwReserved3 stays 0
+        for (int i = 0, iPos = 32; i < nEntriesInUse; i++, iPos += 8) {
+            long lngOffset = _alngDataPosition[i] - qwBaseOffset;
+            if (lngOffset > 0xffffffffL)
+                throw new IOException("AVI index offset too large " + lngOffset);
+            IO.writeInt32LE(ab, iPos,     lngOffset);
+            IO.writeInt32LE(ab, iPos + 4, _adwSize[i]);
+        }
+        raf.write(ab);
+
+        nEntriesInUse = 0;
+        _lngDuration = 0;
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + nEntriesInUse * 8;
+    }
+
+    /** Reads the entries of an index written by
+     * {@link #write(RandomAccessFile)} at the current position, replacing
+     * any entries in this object. */
+    public void read(@Nonnull RandomAccessFile raf) throws IOException {
+        byte[] abHeader = IO.readByteArray(raf, 32);
+        int iCount = IO.readSInt32LE(abHeader, 12);
+        if (IO.readSInt32LE(abHeader, 0) != fcc || iCount > _alngDataPosition.length)
+            throw new IOException("Invalid AVI index");
+        qwBaseOffset = IO.readUInt32LE(abHeader, 20) | (IO.readUInt32LE(abHeader, 24) << 32);
+        byte[] abEntries = IO.readByteArray(raf, iCount * 8);
+        for (int i = 0; i < iCount; i++) {
+            _alngDataPosition[i] = qwBaseOffset + IO.readUInt32LE(abEntries, i*8);
+            _adwSize[i] = IO.readSInt32LE(abEntries, i*8 + 4);
+        }
+        nEntriesInUse = iCount;
+        _lngDuration = 0;
+    }
+
+    public long getDataPosition(int i) {
+        return _alngDataPosition[i];
+    }
+
+    public int getSize(int i) {
+        return _adwSize[i];
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.annotation.Nonnull;
+import jpsxdec.util.IO;
+
+/** Represents the OpenDML AVISUPERINDEX C structure ('indx' chunk).
+ * Points to every {@link AVISTDINDEX} of a stream, wherever they are in the
+ * file. Space for {@link #getMaxEntries()} entries is reserved in the
+ * header, so it can be written in place when the AVI is closed. */
+class AVISUPERINDEX extends AVIstruct {
+
+    public static final byte AVI_INDEX_OF_INDEXES = 0x00;
+
+    public final /*FOURCC*/ int   fcc            = string2int("indx");
+    public final /*DWORD */ int   cb;
+    public final /*WORD  */ short wLongsPerEntry = 4;
+    public final /*BYTE  */ byte  bIndexSubType  = 0;
+    public final /*BYTE  */ byte  bIndexType     = AVI_INDEX_OF_INDEXES;
+    public       /*DWORD */ int   nEntriesInUse  = 0;
+    public final /*DWORD */ int   dwChunkId;
+    //           /*DWORD */ int   dwReserved[3];
+    //struct {
+        /** Absolute file position of the {@link AVISTDINDEX}. */
+        @Nonnull
+        private final /*QWORD*/ long[] _aqwOffset;
+        /** Size of the {@link AVISTDINDEX} including its header. */
+        @Nonnull
+        private final /*DWORD*/ int[]  _adwSize;
+        /** Frames or samples in the {@link AVISTDINDEX}. */
+        @Nonnull
+        private final /*DWORD*/ int[]  _adwDuration;
+    //} aIndex[]
+
+    public AVISUPERINDEX(@Nonnull String sChunkId, int iMaxEntries) {
+        dwChunkId = string2int(sChunkId);
+        _aqwOffset = new long[iMaxEntries];
+        _adwSize = new int[iMaxEntries];
+        _adwDuration = new int[iMaxEntries];
+        cb = sizeof() - 8;
+    }
+
+    public int getMaxEntries() {
+        return _aqwOffset.length;
+    }
+
+    /** @throws IOException if all the entries are used. */
+    public void addEntry(long qwOffset, int dwSize, int dwDuration) throws IOException {
+        if (nEntriesInUse >= _aqwOffset.length)
+            throw new IOException("AVI super index is full (" + _aqwOffset.length + " entries)");
+        _aqwOffset[nEntriesInUse] = qwOffset;
+        _adwSize[nEntriesInUse] = dwSize;
+        _adwDuration[nEntriesInUse] = dwDuration;
+        nEntriesInUse++;
+    }
+
+    public long getOffset(int i) {
+        return _aqwOffset[i];
+    }
+
+    public int getSize(int i) {
+        return _adwSize[i];
+    }
+
+    @Override
+    public void write(@Nonnull RandomAccessFile raf) throws IOException {
+        byte[] ab = new byte[sizeof()];
+        IO.writeInt32LE(ab,  0, fcc);
+        IO.writeInt32LE(ab,  4, cb);
+        IO.writeInt16LE(ab,  8, wLongsPerEntry);
+        ab[10] = bIndexSubType;
+        ab[11] = bIndexType;
+        IO.writeInt32LE(ab, 12, nEntriesInUse);
+        IO.writeInt32LE(ab, 16, dwChunkId);
+        // dwReserved[3] stays 0
+        for (int i = 0, iPos = 32; i < nEntriesInUse; i++, iPos += 16) {
+            IO.writeInt32LE(ab, iPos,      _aqwOffset[i]);
+            IO.writeInt32LE(ab, iPos + 4,  _aqwOffset[i] >>> 32);
+            IO.writeInt32LE(ab, iPos + 8,  _adwSize[i]);
+            IO.writeInt32LE(ab, iPos + 12, _adwDuration[i]);
+        }
+        raf.write(ab);
+    }
+
+    @Override
+    public int sizeof() {
+        return 32 + _aqwOffset.length * 16;
+    }
+
+}
@@ -43,7 +43,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
-import java.util.ArrayList;
 import java.util.Arrays;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -54,12 +53,18 @@ import jpsxdec.i18n.I;
 import jpsxdec.i18n.LocalizedIOException;
 import jpsxdec.Version;
 import jpsxdec.util.IO;
-import jpsxdec.util.aviwriter.AVIOLDINDEX.AVIOLDINDEXENTRY;
 
 /**
  * Creates AVI files with audio and video without the need for JMF.
- * Subclasses should take care of codec handling. Note that this cannot
- * create AVI files larger than 4GB.
+ * Subclasses should take care of codec handling.
+ * <p>
+ * Files are written with the OpenDML (AVI 2.0) extensions so they can be
+ * larger than 4GB. When the first 'RIFF' gets close to 1GB, the rest of the
+ * data goes into 'AVIX' RIFFs. Each stream has an 'indx' super index that
+ * points to 'ix##' standard indexes written along with the data, so the
+ * index takes the same amount of memory no matter the length of the movie.
+ * An AVI 1.0 'idx1' index for the first RIFF is also written, and is built
+ * from the standard indexes already in the file.
  * <p> 
  * This code is originally based on (but now hardly resembles) the 
  * <a href="http://rsb.info.nih.gov/ij">ImageJ</a> program.
@@ -124,6 +129,28 @@ public abstract class AviWriter implements Closeable {
     private final String _sFourCCcodec;
     private final int _iCompression;
 
+    /** A new 'AVIX' RIFF is started once the current RIFF reaches this size.
+     * OpenDML recommends keeping the first RIFF under 1GB. */
+    private static final long MAX_RIFF_SIZE = 1000L * 1000 * 1000;
+    /** Entries in an 'ix##' standard index before it is written. */
+    private static final int STD_INDEX_ENTRIES = 4096;
+    /** Entries reserved for the 'indx' super index of each stream.
+     * With {@link #STD_INDEX_ENTRIES} that's a few million chunks per stream. */
+    private static final int SUPER_INDEX_ENTRIES = 1024;
+
+    /** Normally {@link #MAX_RIFF_SIZE}, smaller for testing. */
+    private long _lngMaxRiffSize = MAX_RIFF_SIZE;
+    /** If still writing the first 'RIFF' (instead of an 'AVIX'). */
+    private boolean _blnFirstRiff = true;
+    /** Number of frames in the first 'RIFF', set when it's finished. */
+    private long _lngFirstRiffFrameCount;
+
+    /** File position of the data of the last frame written,
+     * for {@link #repeatPreviousFrame()}. */
+    private long _lngLastFrameDataPos;
+    /** Size of the last frame written. */
+    private int _iLastFrameSize;
+
     // -------------------------------------------------------------------------
     // -- Properties -----------------------------------------------------------
     // -------------------------------------------------------------------------
@@ -187,24 +214,31 @@ public abstract class AviWriter implements Closeable {
     private                 BITMAPINFOHEADER _bif;
                         //strf_vid
     private             Chunk _strn_vid;
+                        //_vidIndex.superIndex
                     //LIST_strl_vid
     private         Chunk _LIST_strl_aud;
     private             Chunk _strf_aud;
     private                 AVISTREAMHEADER _strh_aud;
     private                 WAVEFORMATEX _wavfmt;
                         //strf_aud
+                        //_audIndex.superIndex
                     //LIST_strl_aud
+                    //LIST_odml
+    private             ODMLEXTENDEDAVIHEADER _dmlh;
                 //LIST_hdr1
                     //JUNK_writerId;
     private     Chunk LIST_movi;
-                    /* image and audio chunk data go here */
+                    /* image and audio chunk data, and 'ix##' indexes go here */
                 //LIST_movi
-    private     AVIOLDINDEX avioldidx;
+                /* 'idx1' goes here in the first RIFF */
             //RIFF_chunk
-    
-    /** Holds the 'idx' section index data. */
-    @Nonnull
-    private ArrayList<AVIOLDINDEXENTRY> _indexList;
+            /* any 'AVIX' RIFFs with a 'movi' LIST follow */
+
+    /** Video stream indexes. */
+    private StreamIndex _vidIndex;
+    /** Audio stream indexes, or null if there is no audio. */
+    @CheckForNull
+    private StreamIndex _audIndex;
     
     
     // -------------------------------------------------------------------------
@@ -286,6 +320,10 @@ public abstract class AviWriter implements Closeable {
                     _strn_vid = new Chunk(_aviFile, "strn");
                     _aviFile.writeBytes("jPSXdec AVI    \0");
                     _strn_vid.endChunk(_aviFile);
+
+                    _vidIndex = new StreamIndex(0, _blnCompressedVideo ? "00dc" : "00db",
+                                                AVIOLDINDEX.AVIIF_KEYFRAME);
+                    _vidIndex.superIndex.makePlaceholder(_aviFile);
                     
                 _LIST_strl_vid.endChunk(_aviFile);
                 
@@ -302,9 +340,19 @@ public abstract class AviWriter implements Closeable {
 
                     _strf_aud.endChunk(_aviFile);
 
+                    _audIndex = new StreamIndex(1, "01wb", 0);
+                    _audIndex.superIndex.makePlaceholder(_aviFile);
+
                 _LIST_strl_aud.endChunk(_aviFile);
                 }
 
+                Chunk LIST_odml = new Chunk(_aviFile, "LIST", "odml");
+
+                    _dmlh = new ODMLEXTENDEDAVIHEADER();
+                    _dmlh.makePlaceholder(_aviFile);
+
+                LIST_odml.endChunk(_aviFile);
+
             _LIST_hdr1.endChunk(_aviFile);
             
             // some programs will use this to identify the program that wrote the avi
@@ -316,9 +364,11 @@ public abstract class AviWriter implements Closeable {
             LIST_movi = new Chunk(_aviFile, "LIST", "movi");
 
             // now we're ready to start accepting video/audio data
-            
-            // generate an index as we write 'movi' section
-            _indexList = new ArrayList<AVIOLDINDEXENTRY>();
+    }
+
+    /** Only for testing the 'AVIX' RIFFs without writing gigabytes. */
+    void setMaxRiffSize(long lngMaxRiffSize) {
+        _lngMaxRiffSize = lngMaxRiffSize;
     }
 
     // -------------------------------------------------------------------------
@@ -328,24 +378,13 @@ public abstract class AviWriter implements Closeable {
     /** Uses a special feature of AVI to duplicate a frame by referencing
      * it twice. This adds almost no extra size to the file.
      * @throws IllegalStateException If no frames have been written yet. */
-    public void repeatPreviousFrame() {
+    public void repeatPreviousFrame() throws IOException {
+        if (_aviFile == null) throw new LocalizedIOException(I.AVI_FILE_IS_CLOSED());
         if (_lngFrameCount < 1)
             throw new IllegalStateException("Unable to repeat a previous frame that doesn't exist.");
 
-        int iIndex = _indexList.size() - 1;
-
-        // find the previous chunk that is a frame
-        final int VID_CHUNK_ID = AVIstruct.string2int("00d_") & 0x00FFFFFF;
-        while (true) {
-            int iChunkId = _indexList.get(iIndex).dwChunkId;
-            // does it start with '00d'?
-            if ((iChunkId & 0x00FFFFFF) == VID_CHUNK_ID)
-                break;
-            else
-                iIndex--;
-        }
-        // add the same reference in the list
-        _indexList.add(_indexList.get(iIndex));
+        // add the same reference to the index
+        _vidIndex.add(_aviFile, _lngLastFrameDataPos, _iLastFrameSize, 1);
         _lngFrameCount++;
     }
 
@@ -359,15 +398,10 @@ public abstract class AviWriter implements Closeable {
         if (!fmt.matches(_audioFormat))
             throw new IllegalArgumentException("Audio stream format does not match.");
         
-        Chunk data_size;
+        startNewRiffIfFull();
 
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        
-        idxentry.dwChunkId = AVIstruct.string2int("01wb");
-        idxentry.dwFlags = 0;
-        
-        data_size = new Chunk(_aviFile, "01wb");
+        Chunk data_size = new Chunk(_aviFile, "01wb");
+        long lngStartSampleCount = _lngSampleCount;
 
             if (_abWriteBuffer == null || _abWriteBuffer.length < _audioFormat.getFrameSize() * 1024)
                 _abWriteBuffer = new byte[_audioFormat.getFrameSize() * 1024];
@@ -386,8 +420,8 @@ public abstract class AviWriter implements Closeable {
         data_size.endChunk(_aviFile);
         
         // add this item to the index
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        _audIndex.add(_aviFile, data_size.getStart() + 4, data_size.getSize(),
+                      (int)(_lngSampleCount - lngStartSampleCount));
     }
 
     /** Audio data must be signed 16-bit PCM in little-endian order. */
@@ -405,10 +439,7 @@ public abstract class AviWriter implements Closeable {
         if (iLen % _audioFormat.getFrameSize() != 0)
             throw new IllegalArgumentException("Half an audio sample can't be processed.");
 
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
-        idxentry.dwChunkId = AVIstruct.string2int("01wb");
-        idxentry.dwFlags = 0;
+        startNewRiffIfFull();
 
         Chunk data_size = new Chunk(_aviFile, "01wb");
 
@@ -421,8 +452,8 @@ public abstract class AviWriter implements Closeable {
         _lngSampleCount += iLen / _audioFormat.getFrameSize();
 
         // add the index to the list
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        _audIndex.add(_aviFile, data_size.getStart() + 4, data_size.getSize(),
+                      iLen / _audioFormat.getFrameSize());
     }
 
     private static class ZeroInputStream extends InputStream {
@@ -454,17 +485,13 @@ public abstract class AviWriter implements Closeable {
     protected void writeFrameChunk(@Nonnull byte[] abData, int iOfs, int iLen) throws IOException {
         if (_aviFile == null) throw new LocalizedIOException(I.AVI_FILE_IS_CLOSED());
 
-        AVIOLDINDEXENTRY idxentry = new AVIOLDINDEXENTRY();
-        idxentry.dwOffset = (int)(_aviFile.getFilePointer() - (LIST_movi.getStart() + 4));
+        startNewRiffIfFull();
+
         String sChunkId;
         if (_blnCompressedVideo)
             sChunkId = "00dc";  // dc for compressed frame
         else
             sChunkId = "00db";  // db for uncompressed frame
-        idxentry.dwChunkId = AVIstruct.string2int(sChunkId);
-        idxentry.dwFlags = AVIOLDINDEX.AVIIF_KEYFRAME; // Write the flags - select AVIIF_KEYFRAME
-                                                       // AVIIF_KEYFRAME 0x00000010L
-                                                       // The flag indicates key frames in the video sequence.
         Chunk data_size = new Chunk(_aviFile, sChunkId);
 
             // write the data
@@ -476,8 +503,9 @@ public abstract class AviWriter implements Closeable {
         _lngFrameCount++;
 
         // add the index to the list
-        idxentry.dwSize = data_size.getSize();
-        _indexList.add(idxentry);
+        _lngLastFrameDataPos = data_size.getStart() + 4;
+        _iLastFrameSize = data_size.getSize();
+        _vidIndex.add(_aviFile, _lngLastFrameDataPos, _iLastFrameSize, 1);
     }
 
     /** Subclasses should implement writing of a simple blank frame. */
@@ -493,14 +521,7 @@ public abstract class AviWriter implements Closeable {
     public void close() throws IOException {
         if (_aviFile == null) throw new LocalizedIOException(I.AVI_FILE_IS_CLOSED());
         
-            LIST_movi.endChunk(_aviFile);
-            
-            // write idx
-            avioldidx = new AVIOLDINDEX(_indexList.toArray(new AVIOLDINDEXENTRY[_indexList.size()]));
-            avioldidx.write(_aviFile);
-            // /write idx
-            
-        _RIFF_chunk.endChunk(_aviFile);
+        endRiff();
         
         //######################################################################
         //## Fill the headers fields ###########################################
@@ -517,7 +538,8 @@ public abstract class AviWriter implements Closeable {
                                               // 10H AVIF_HASINDEX: The AVI file has an idx1 chunk containing
                                               // an index at the end of the file.  For good performance, all
                                               // AVI files should contain an index.                         
-        _avih.dwTotalFrames         = _lngFrameCount;  // total frame number
+        _avih.dwTotalFrames         = _lngFirstRiffFrameCount;  // frames in the first RIFF
+                                                               // (dmlh has the total)
         _avih.dwInitialFrames       = 0;      // Initial frame for interleaved files.
                                               // Noninterleaved files should specify 0.
         if (_audioFormat == null)
@@ -639,6 +661,11 @@ public abstract class AviWriter implements Closeable {
 
         }
         
+        //######################################################################
+        // ODMLEXTENDEDAVIHEADER
+
+        _dmlh.dwTotalFrames = _lngFrameCount; // frames in all the RIFFs
+
         //######################################################################
         //######################################################################
         //######################################################################
@@ -647,11 +674,14 @@ public abstract class AviWriter implements Closeable {
         _avih.goBackAndWrite(_aviFile);
         _strh_vid.goBackAndWrite(_aviFile);
         _bif.goBackAndWrite(_aviFile);
+        _vidIndex.superIndex.goBackAndWrite(_aviFile);
         
         if (_audioFormat != null) {
             _strh_aud.goBackAndWrite(_aviFile);
             _wavfmt.goBackAndWrite(_aviFile);
+            _audIndex.superIndex.goBackAndWrite(_aviFile);
         }
+        _dmlh.goBackAndWrite(_aviFile);
         
         // and we're done
         _aviFile.close();
@@ -669,13 +699,174 @@ public abstract class AviWriter implements Closeable {
                     _strf_aud = null;
                         _strh_aud = null;
                         _wavfmt = null;
+                _dmlh = null;
             LIST_movi = null;
-            avioldidx = null;
+        _vidIndex = null;
+        _audIndex = null;
     }
 
     // -------------------------------------------------------------------------
     // -- Private functions ----------------------------------------------------
     // -------------------------------------------------------------------------
+
+    /** If the current RIFF is full, ends it and starts an 'AVIX' RIFF. */
+    private void startNewRiffIfFull() throws IOException {
+        if (_aviFile.getFilePointer() - _RIFF_chunk.getStart() < _lngMaxRiffSize)
+            return;
+
+        endRiff();
+        _RIFF_chunk = new Chunk(_aviFile, "RIFF", "AVIX");
+        LIST_movi = new Chunk(_aviFile, "LIST", "movi");
+    }
+
+    /** Writes the remaining standard indexes and ends the current RIFF.
+     * The first RIFF also gets the 'idx1' index. */
+    private void endRiff() throws IOException {
+        _vidIndex.flush(_aviFile);
+        if (_audIndex != null)
+            _audIndex.flush(_aviFile);
+        LIST_movi.endChunk(_aviFile);
+
+        if (_blnFirstRiff) {
+            writeOldIndex();
+            _lngFirstRiffFrameCount = _lngFrameCount;
+            _blnFirstRiff = false;
+        }
+
+        _RIFF_chunk.endChunk(_aviFile);
+    }
+
+    /** Writes the 'idx1' index by reading back the standard indexes written
+     * so far (which are all in the first RIFF), in the order of the data. */
+    private void writeOldIndex() throws IOException {
+        final long lngMoviPos = LIST_movi.getStart() + 4;
+
+        StreamIndexReader vidReader = new StreamIndexReader(_vidIndex);
+        StreamIndexReader audReader = _audIndex == null ? null : new StreamIndexReader(_audIndex);
+
+        Chunk idx1 = new Chunk(_aviFile, "idx1");
+        byte[] abEntries = new byte[16 * 1024];
+        int iBufferPos = 0;
+        while (true) {
+            StreamIndexReader next;
+            boolean blnVid = vidReader.hasNext(_aviFile);
+            boolean blnAud = audReader != null && audReader.hasNext(_aviFile);
+            if (blnVid && blnAud)
+                next = vidReader.getDataPosition() <= audReader.getDataPosition() ? vidReader : audReader;
+            else if (blnVid)
+                next = vidReader;
+            else if (blnAud)
+                next = audReader;
+            else
+                break;
+
+            // offset is to the chunk header, relative to 'movi'
+            IO.writeInt32LE(abEntries, iBufferPos,      next.streamIndex.superIndex.dwChunkId);
+            IO.writeInt32LE(abEntries, iBufferPos +  4, next.streamIndex.iOldIndexFlags);
+            IO.writeInt32LE(abEntries, iBufferPos +  8, next.getDataPosition() - 8 - lngMoviPos);
+            IO.writeInt32LE(abEntries, iBufferPos + 12, next.getSize());
+            iBufferPos += 16;
+            next.next();
+
+            if (iBufferPos == abEntries.length) {
+                _aviFile.write(abEntries);
+                iBufferPos = 0;
+            }
+        }
+        _aviFile.write(abEntries, 0, iBufferPos);
+        idx1.endChunk(_aviFile);
+    }
+
+    /** The 'indx' super index and current 'ix##' standard index of
+     * a stream. */
+    private static class StreamIndex {
+        @Nonnull
+        public final AVISUPERINDEX superIndex;
+        @Nonnull
+        public final AVISTDINDEX stdIndex;
+        public final int iStreamNumber;
+        @Nonnull
+        public final String sChunkId;
+        /** Flags for the stream's 'idx1' entries. */
+        public final int iOldIndexFlags;
+
+        public StreamIndex(int iStreamNumber, @Nonnull String sChunkId, int iOldIndexFlags) {
+            this.iStreamNumber = iStreamNumber;
+            this.sChunkId = sChunkId;
+            superIndex = new AVISUPERINDEX(sChunkId, SUPER_INDEX_ENTRIES);
+            stdIndex = new AVISTDINDEX(iStreamNumber, sChunkId, STD_INDEX_ENTRIES);
+            this.iOldIndexFlags = iOldIndexFlags;
+        }
+
+        /** Adds a chunk, first writing the standard index if it's full. */
+        public void add(@Nonnull RandomAccessFile raf, long lngDataPos, int iSize, int iDuration)
+                throws IOException
+        {
+            if (stdIndex.isFull())
+                flush(raf);
+            stdIndex.addEntry(lngDataPos, iSize, iDuration);
+        }
+
+        /** Writes the standard index (if it has any entries) at the current
+         * position and adds it to the super index. */
+        public void flush(@Nonnull RandomAccessFile raf) throws IOException {
+            if (stdIndex.nEntriesInUse == 0)
+                return;
+            long lngPos = raf.getFilePointer();
+            int iSize = stdIndex.sizeof();
+            long lngDuration = stdIndex.getDuration();
+            stdIndex.write(raf);
+            superIndex.addEntry(lngPos, iSize, (int)lngDuration);
+        }
+    }
+
+    /** Walks through the entries of all the standard indexes of a stream
+     * that have been written to the file. */
+    private static class StreamIndexReader {
+        @Nonnull
+        public final StreamIndex streamIndex;
+        /** Holds one standard index at a time. */
+        @Nonnull
+        private final AVISTDINDEX _stdIndex;
+        /** Next super index entry to read. */
+        private int _iSuperIndexEntry = 0;
+        /** Current entry in {@link #_stdIndex}. */
+        private int _iEntry = 0;
+
+        public StreamIndexReader(@Nonnull StreamIndex streamIndex) {
+            this.streamIndex = streamIndex;
+            _stdIndex = new AVISTDINDEX(streamIndex.iStreamNumber, streamIndex.sChunkId,
+                                        streamIndex.stdIndex.getMaxEntries());
+        }
+
+        /** Reads the next standard index from the file when needed,
+         * then returns to the current position. */
+        public boolean hasNext(@Nonnull RandomAccessFile raf) throws IOException {
+            while (_iEntry >= _stdIndex.nEntriesInUse) {
+                if (_iSuperIndexEntry >= streamIndex.superIndex.nEntriesInUse)
+                    return false;
+                long lngCurPos = raf.getFilePointer();
+                raf.seek(streamIndex.superIndex.getOffset(_iSuperIndexEntry));
+                _stdIndex.read(raf);
+                raf.seek(lngCurPos);
+                _iSuperIndexEntry++;
+                _iEntry = 0;
+            }
+            return true;
+        }
+
+        public long getDataPosition() {
+            return _stdIndex.getDataPosition(_iEntry);
+        }
+
+        public int getSize() {
+            return _stdIndex.getSize(_iEntry);
+        }
+
+        public void next() {
+            _iEntry++;
+        }
+    }
     
     /** Represents an AVI RIFF 'chunk'. When created, it saves the current
      *  position in the AVI RandomAccessFile. When endChunk() is called,
@@ -75,21 +75,21 @@ import jpsxdec.util.IO;
  * the default JPEG huffman tables, although most decoders are more lienent than
  * that. VirtualDub's Motion JPEG decoder specifically does require default
  * huffman tables, and also requires the frame dimensions to be multiples of 16.
+ * <p>
+ * Callers that can generate JPEGs themselves should use
+ * {@link #writeFrame(byte[], int, int)} and {@link #setBlankFrame(byte[], int, int)}.
+ * ImageIO is only initialized the first time a {@link BufferedImage} needs
+ * to be converted.
  */
 public class AviWriterMJPG extends AviWriter {
 
-    /** Hold's true if system can write "jpeg" images. */
-    private final static boolean CAN_ENCODE_JPEG;
-    static {
-        // check if the system can write "jpeg" images
-        boolean bln = false;
+    /** Checks if system can write "jpeg" images. */
+    private static boolean canEncodeJpeg() {
         for (String s : ImageIO.getReaderFormatNames()) {
-            if (s.equals("jpeg")) {
-                bln = true;
-                break;
-            }
+            if (s.equals("jpeg"))
+                return true;
         }
-        CAN_ENCODE_JPEG = bln;
+        return false;
     }
     
     // -------------------------------------------------------------------------
@@ -97,12 +97,18 @@ public class AviWriterMJPG extends AviWriter {
     // -------------------------------------------------------------------------
     
 
-    /** The image writer used to convert the BufferedImages to JPEG. */
-    @Nonnull
-    private final ImageWriter _imgWriter;
+    /** The image writer used to convert the BufferedImages to JPEG.
+     * Created the first time it is needed. */
+    @CheckForNull
+    private ImageWriter _imgWriter;
     /** Only used not using default quality level. */
     @CheckForNull
-    private final ImageWriteParam _writeParams;
+    private ImageWriteParam _writeParams;
+    /** Quality for {@link #_writeParams}, or outside [0-1] for default quality. */
+    private final float _fltLossyQuality;
+    /** JPEG written for {@link #writeBlankFrame()}. */
+    @CheckForNull
+    private byte[] _abBlankFrame;
 
     
     // -------------------------------------------------------------------------
@@ -143,23 +149,27 @@ public class AviWriterMJPG extends AviWriter {
     {
         super(outputfile, iWidth, iHeight, lngFrames, lngPerSecond, audioFormat, true, "MJPG", AVIstruct.string2int("MJPG"));
 
-        if (!CAN_ENCODE_JPEG)
-            throw new UnsupportedOperationException("Unable to create 'jpeg' images on this platform.");
+        _fltLossyQuality = fltLossyQuality;
+    }
 
-        Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
-        _imgWriter = iter.next();
+    private @Nonnull ImageWriter getImageWriter() {
+        if (_imgWriter == null) {
+            if (!canEncodeJpeg())
+                throw new UnsupportedOperationException("Unable to create 'jpeg' images on this platform.");
 
-        if (fltLossyQuality < 0 || fltLossyQuality > 1) {
-            _writeParams = null;
-        } else {
-            // TODO: Make sure thumbnails are not being created in the jpegs
-            _writeParams = _imgWriter.getDefaultWriteParam();
+            Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
+            _imgWriter = iter.next();
 
-            _writeParams.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            // 0 for lowest qulaity, 1 for highest
-            _writeParams.setCompressionQuality(fltLossyQuality);
-        }
+            if (_fltLossyQuality >= 0 && _fltLossyQuality <= 1) {
+                // TODO: Make sure thumbnails are not being created in the jpegs
+                _writeParams = _imgWriter.getDefaultWriteParam();
 
+                _writeParams.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                // 0 for lowest qulaity, 1 for highest
+                _writeParams.setCompressionQuality(_fltLossyQuality);
+            }
+        }
+        return _imgWriter;
     }
 
     // -------------------------------------------------------------------------
@@ -186,10 +196,22 @@ public class AviWriterMJPG extends AviWriter {
         writeFrameChunk(abJpeg, iStart, iSize);
     }
 
+    /** Sets the JPEG to use for {@link #writeBlankFrame()}. If not set,
+     * a black image is converted the first time a blank frame is needed.
+     * @param abJpeg Must be a jpeg image. Is copied. */
+    public void setBlankFrame(@Nonnull byte[] abJpeg, int iStart, int iSize) {
+        _abBlankFrame = new byte[iSize];
+        System.arraycopy(abJpeg, iStart, _abBlankFrame, 0, iSize);
+    }
+
     @Override
     public void writeBlankFrame() throws IOException {
-        BufferedImage bi = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
-        writeFrame(bi);
+        if (_abBlankFrame == null) {
+            BufferedImage bi = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            ExposedBAOS out = image2MJPEG(bi);
+            setBlankFrame(out.getBuffer(), 0, out.size());
+        }
+        writeFrameChunk(_abBlankFrame, 0, _abBlankFrame.length);
     }
 
     // -------------------------------------------------------------------------
@@ -210,8 +232,9 @@ public class AviWriterMJPG extends AviWriter {
     {
         // have to wrap the ByteArrayOutputStream with a MemoryCacheImageOutputStream
         MemoryCacheImageOutputStream imgOut = new MemoryCacheImageOutputStream(out);
+        ImageWriter imgWriter = getImageWriter();
         // set our image writer's output stream
-        _imgWriter.setOutput(imgOut);
+        imgWriter.setOutput(imgOut);
 
         // wrap the BufferedImage with a IIOImage
         IIOImage imgIO = new IIOImage(img, null, null);
@@ -219,13 +242,13 @@ public class AviWriterMJPG extends AviWriter {
         try {
             // finally write the buffered image to the output stream
             // using our parameters (if any)
-            _imgWriter.write(null, imgIO, _writeParams);
+            imgWriter.write(null, imgIO, _writeParams);
             // don't forget to flush
             imgOut.flush();
             blnException = false;
         } finally {
             // clear image writer's output stream
-            _imgWriter.setOutput(null);
+            imgWriter.setOutput(null);
             if (blnException) {
                 try {
                     imgOut.close();
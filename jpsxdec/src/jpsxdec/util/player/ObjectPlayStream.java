@@ -37,12 +37,16 @@
 
 package jpsxdec.util.player;
 
-import java.util.Arrays;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 /** Very powerful, thread-safe, blocking queue with the ability to specify 
- * behavior when taking and adding items.  */
+ * behavior when taking and adding items.
+ * <p>
+ * There must be only one writer thread and one reader thread.
+ * Items pass through a lock-free {@link SpscRingBuffer}, so
+ * the lock is only taken to change the state, or to wait when the queue is
+ * full, empty, or paused. */
 class ObjectPlayStream<T> {
 
     private static final boolean DEBUG = false;
@@ -64,14 +68,20 @@ class ObjectPlayStream<T> {
     private volatile READ _eReadState = READ.PAUSED;
 
     @Nonnull
-    protected final T[] _aoQueue;
-    protected int _iHeadPos;
-    protected int _iTailPos;
-    private int _iSize;
+    private final SpscRingBuffer<T> _queue;
+
+    /** Set while the reader is (about to be) waiting for an item, so the
+     * writer knows it has to notify. */
+    private volatile boolean _blnReaderWaiting = false;
+    /** Set while the writer is (about to be) waiting for space, so the
+     * reader knows it has to notify. */
+    private volatile boolean _blnWriterWaiting = false;
+
+    /** Deepest the queue has been. Only updated by the writer. */
+    private volatile int _iMaxDepth = 0;
 
     public ObjectPlayStream(int iCapacity) {
-        _aoQueue = (T[]) new Object[iCapacity];
-        _iSize = _iHeadPos = _iTailPos = 0;
+        _queue = new SpscRingBuffer<T>(iCapacity);
     }
 
     //////////////////////////////////
@@ -106,19 +116,15 @@ class ObjectPlayStream<T> {
         }
     }
 
+    /** Any items still in the queue are released by the reader thread
+     * the next time it tries to read. */
     public void readerClose() {
         synchronized (_eventSync) {
             _eReadState = READ.CLOSED;
-            clear();
             _eventSync.notifyAll();
         }
     }
     
-    private void clear() {
-        Arrays.fill(_aoQueue, null);
-        _iSize = _iHeadPos = _iTailPos = 0;
-    }
-
     public boolean isReaderOpen() {
         return _eReadState == READ.OPEN;
     }
@@ -131,6 +137,16 @@ class ObjectPlayStream<T> {
         return _eReadState == READ.CLOSED;
     }
 
+    /** Number of items currently queued. */
+    public int getDepth() {
+        return _queue.size();
+    }
+
+    /** Most items that have been queued at once. */
+    public int getMaxDepth() {
+        return _iMaxDepth;
+    }
+
     /////////////////////////////////
 
     /** Returns true if object was added, or false if it wasn't.
@@ -141,35 +157,41 @@ class ObjectPlayStream<T> {
 
         if (DEBUG) System.out.println(Thread.currentThread().getName() + " add("+o.toString()+")");
 
-        synchronized (_eventSync) {
-            while (true) {
-                if (_eWriteState == WRITE.CLOSED || _eReadState == READ.CLOSED) {
-                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " closed: returning false");
-                    return false;
-                } else if (isFull()) {
-                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " full: waiting");
-                    _eventSync.wait();
-                } else {
-                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " writing " + o.toString());
-                    enqueue(o);
-                    _iSize++;
-                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " notifying other threads and returning");
-                    _eventSync.notifyAll();
-                    return true;
-                }
+        while (true) {
+            if (_eWriteState == WRITE.CLOSED || _eReadState == READ.CLOSED) {
+                if (DEBUG) System.out.println(Thread.currentThread().getName() + " closed: returning false");
+                return false;
             }
-        }
-    }
 
-    private boolean isFull() {
-        return _iSize >= _aoQueue.length;
-    }
+            if (_queue.offer(o)) {
+                if (DEBUG) System.out.println(Thread.currentThread().getName() + " wrote " + o.toString());
+                int iDepth = _queue.size();
+                if (iDepth > _iMaxDepth)
+                    _iMaxDepth = iDepth;
+                if (_blnReaderWaiting) {
+                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " notifying waiting reader");
+                    synchronized (_eventSync) {
+                        _eventSync.notifyAll();
+                    }
+                }
+                return true;
+            }
 
-    protected void enqueue(@Nonnull T o) {
-        _aoQueue[_iTailPos] = o;
-        _iTailPos++;
-        if (_iTailPos >= _aoQueue.length) {
-            _iTailPos = 0;
+            synchronized (_eventSync) {
+                // flag first, then check again, so either we see the
+                // reader's take or the reader sees our flag
+                _blnWriterWaiting = true;
+                try {
+                    if (_queue.isFull() &&
+                        _eWriteState != WRITE.CLOSED && _eReadState != READ.CLOSED)
+                    {
+                        if (DEBUG) System.out.println(Thread.currentThread().getName() + " full: waiting");
+                        _eventSync.wait();
+                    }
+                } finally {
+                    _blnWriterWaiting = false;
+                }
+            }
         }
     }
 
@@ -178,45 +200,58 @@ class ObjectPlayStream<T> {
     public @CheckForNull T read() throws InterruptedException {
         if (DEBUG) System.out.println(Thread.currentThread().getName() + " enter take()");
         
-        synchronized (_eventSync) {
-            while (true) {
+        while (true) {
+            if (_eReadState == READ.OPEN) {
+                T o = _queue.poll();
+                if (o != null) {
+                    if (DEBUG) System.out.println(Thread.currentThread().getName() + " removing object: " + o.toString());
+                    if (_blnWriterWaiting) {
+                        synchronized (_eventSync) {
+                            _eventSync.notifyAll();
+                        }
+                    }
+                    return o;
+                }
+            }
+
+            synchronized (_eventSync) {
                 if (_eReadState == READ.PAUSED) {
                     if (DEBUG) System.out.println(Thread.currentThread().getName() + " paused: waiting");
                     _eventSync.wait();
                 } else if (_eReadState == READ.CLOSED) {
                     if (DEBUG) System.out.println(Thread.currentThread().getName() + " reader closed: returning null");
+                    _queue.clear();
+                    // in case the writer is waiting for space
+                    _eventSync.notifyAll();
                     return null;
-                } else if (isEmpty()) {
-                    if (_eWriteState == WRITE.CLOSED) {
-                        if (DEBUG) System.out.println(Thread.currentThread().getName() + " empty & writer closed: closing reader & returning null");
-                        _eReadState = READ.CLOSED;
-                        return null;
-                    } else {
-                        if (DEBUG) System.out.println(Thread.currentThread().getName() + " empty: waiting");
-                        _eventSync.wait();
-                    }
                 } else {
-                    return dequeue();
+                    _blnReaderWaiting = true;
+                    try {
+                        if (_queue.isEmpty()) {
+                            if (_eWriteState == WRITE.CLOSED) {
+                                if (DEBUG) System.out.println(Thread.currentThread().getName() + " empty & writer closed: closing reader & returning null");
+                                _eReadState = READ.CLOSED;
+                                return null;
+                            } else {
+                                if (DEBUG) System.out.println(Thread.currentThread().getName() + " empty: waiting");
+                                _eventSync.wait();
+                            }
+                        }
+                    } finally {
+                        _blnReaderWaiting = false;
+                    }
                 }
             }
         }
     }
 
-    private boolean isEmpty() {
-        return _iSize <= 0;
-    }
-
-    /** Always called within <code>syncronized (_eventSync)</code> */
-    private @Nonnull T dequeue() {
-        T o = _aoQueue[_iHeadPos];
-        if (DEBUG) System.out.println(Thread.currentThread().getName() + " removing object: " + o.toString());
-        _aoQueue[_iHeadPos] = null;
-        _iHeadPos++;
-        if (_iHeadPos >= _aoQueue.length)
-            _iHeadPos = 0;
-        _iSize--;
-        _eventSync.notifyAll();
-        return o;
+    /** Returns the next item that would be read without removing it,
+     * or null if there isn't one ready. Never blocks.
+     * Must only be called by the reader thread. */
+    public @CheckForNull T peek() {
+        if (_eReadState != READ.OPEN)
+            return null;
+        return _queue.peek();
     }
 
 }
@@ -177,11 +177,26 @@ public class PlayController {
             _vidPlayer.setSquashWidth(blnSquash);
     }
 
+    /** Returns how well video playback is keeping up, or null if there is
+     * no video. */
+    public @CheckForNull VideoPlaybackStats getVideoStats() {
+        if (_vidPlayer == null || _vidProcessor == null)
+            return null;
+        return new VideoPlaybackStats(
+                _vidProcessor.getFramesDecoded(), _vidProcessor.getFramesSkippedLate(),
+                _vidPlayer.getFramesPresented(), _vidPlayer.getFramesPresentedLate(),
+                _vidPlayer.getFramesDropped(),
+                _vidProcessor.getQueueDepth(), _vidProcessor.getQueueMaxDepth(),
+                _vidPlayer.getQueueDepth(), _vidPlayer.getQueueMaxDepth());
+    }
+
     void notifyDonePlaying() {
         synchronized (_vidTimer.getSyncObject()) {
             if ((_vidPlayer == null || _vidPlayer.isDone()) &&
                 (_audPlayer == null || _audPlayer.isDone()))
             {
+                if (DEBUG && _vidPlayer != null)
+                    System.out.println("Video playback: " + getVideoStats());
                 java.awt.EventQueue.invokeLater(new NotifyLater(Event.Stop));
             }
         }
@@ -0,0 +1,160 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.player;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/** Bounded, lock-free, single-producer/single-consumer ring buffer.
+ * <p>
+ * Only one thread may call {@link #offer(java.lang.Object)} and only one
+ * thread may call {@link #poll()}, {@link #peek()} and {@link #clear()}.
+ * Any thread may query the size. Neither side ever blocks; it is up to the
+ * caller to decide what to do when the buffer is full or empty
+ * (see {@link ObjectPlayStream}). */
+class SpscRingBuffer<T> {
+
+    @Nonnull
+    private final Object[] _aoBuffer;
+    /** Buffer length is a power of 2 so positions can simply be masked. */
+    private final int _iMask;
+    private final int _iCapacity;
+
+    /** Position of the next item to read. Only written by the consumer. */
+    private volatile long _lngHead = 0;
+    /** Position of the next item to write. Only written by the producer. */
+    private volatile long _lngTail = 0;
+
+    /** Producer's last view of {@link #_lngHead}, saves a volatile read
+     * for every write. */
+    private long _lngHeadCache = 0;
+    /** Consumer's last view of {@link #_lngTail}, saves a volatile read
+     * for every read. */
+    private long _lngTailCache = 0;
+
+    public SpscRingBuffer(int iCapacity) {
+        if (iCapacity < 1)
+            throw new IllegalArgumentException("Invalid capacity " + iCapacity);
+        int iLength = Integer.highestOneBit(iCapacity);
+        if (iLength < iCapacity)
+            iLength <<= 1;
+        _aoBuffer = new Object[iLength];
+        _iMask = iLength - 1;
+        _iCapacity = iCapacity;
+    }
+
+    /** Producer only. Returns false if the buffer is full.
+     * The object must not be null. */
+    public boolean offer(@Nonnull T o) {
+        if (o == null)
+            throw new IllegalArgumentException();
+        long lngTail = _lngTail;
+        if (lngTail - _lngHeadCache >= _iCapacity) {
+            _lngHeadCache = _lngHead;
+            if (lngTail - _lngHeadCache >= _iCapacity)
+                return false;
+        }
+        _aoBuffer[(int)lngTail & _iMask] = o;
+        // volatile write publishes the item to the consumer
+        _lngTail = lngTail + 1;
+        return true;
+    }
+
+    /** Consumer only. Returns null if the buffer is empty. */
+    public @CheckForNull T poll() {
+        long lngHead = _lngHead;
+        if (lngHead >= _lngTailCache) {
+            _lngTailCache = _lngTail;
+            if (lngHead >= _lngTailCache)
+                return null;
+        }
+        int i = (int)lngHead & _iMask;
+        @SuppressWarnings("unchecked")
+        T o = (T) _aoBuffer[i];
+        _aoBuffer[i] = null;
+        // volatile write hands the slot back to the producer
+        _lngHead = lngHead + 1;
+        return o;
+    }
+
+    /** Consumer only. Returns the next item without removing it,
+     * or null if the buffer is empty. */
+    public @CheckForNull T peek() {
+        long lngHead = _lngHead;
+        if (lngHead >= _lngTailCache) {
+            _lngTailCache = _lngTail;
+            if (lngHead >= _lngTailCache)
+                return null;
+        }
+        @SuppressWarnings("unchecked")
+        T o = (T) _aoBuffer[(int)lngHead & _iMask];
+        return o;
+    }
+
+    /** Consumer only. Removes everything in the buffer. */
+    public void clear() {
+        while (poll() != null) {
+        }
+    }
+
+    /** Approximate number of items in the buffer when called from a thread
+     * other than the producer or consumer. */
+    public int size() {
+        // read head first: tail only ever moves forward
+        long lngHead = _lngHead;
+        long lngSize = _lngTail - lngHead;
+        if (lngSize < 0)
+            return 0;
+        else if (lngSize > _iCapacity)
+            return _iCapacity;
+        return (int)lngSize;
+    }
+
+    public boolean isEmpty() {
+        return _lngTail <= _lngHead;
+    }
+
+    public boolean isFull() {
+        return size() >= _iCapacity;
+    }
+
+    public int getCapacity() {
+        return _iCapacity;
+    }
+
+}
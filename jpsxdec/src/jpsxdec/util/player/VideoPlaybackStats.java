@@ -0,0 +1,127 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.player;
+
+/** Snapshot of how well video playback is keeping up.
+ * See {@link PlayController#getVideoStats()}. */
+public class VideoPlaybackStats {
+
+    private final int _iFramesDecoded;
+    private final int _iFramesSkippedLate;
+    private final int _iFramesPresented;
+    private final int _iFramesPresentedLate;
+    private final int _iFramesDropped;
+    private final int _iDecodeQueueDepth;
+    private final int _iDecodeQueueMaxDepth;
+    private final int _iDisplayQueueDepth;
+    private final int _iDisplayQueueMaxDepth;
+
+    VideoPlaybackStats(int iFramesDecoded, int iFramesSkippedLate,
+                       int iFramesPresented, int iFramesPresentedLate,
+                       int iFramesDropped,
+                       int iDecodeQueueDepth, int iDecodeQueueMaxDepth,
+                       int iDisplayQueueDepth, int iDisplayQueueMaxDepth)
+    {
+        _iFramesDecoded = iFramesDecoded;
+        _iFramesSkippedLate = iFramesSkippedLate;
+        _iFramesPresented = iFramesPresented;
+        _iFramesPresentedLate = iFramesPresentedLate;
+        _iFramesDropped = iFramesDropped;
+        _iDecodeQueueDepth = iDecodeQueueDepth;
+        _iDecodeQueueMaxDepth = iDecodeQueueMaxDepth;
+        _iDisplayQueueDepth = iDisplayQueueDepth;
+        _iDisplayQueueMaxDepth = iDisplayQueueMaxDepth;
+    }
+
+    /** Frames the decode thread has decoded. */
+    public int getFramesDecoded() {
+        return _iFramesDecoded;
+    }
+
+    /** Frames the decode thread didn't bother decoding because their
+     * presentation time had already passed. */
+    public int getFramesSkippedLate() {
+        return _iFramesSkippedLate;
+    }
+
+    /** Frames drawn to the screen. */
+    public int getFramesPresented() {
+        return _iFramesPresented;
+    }
+
+    /** Frames drawn to the screen noticeably after their presentation time. */
+    public int getFramesPresentedLate() {
+        return _iFramesPresentedLate;
+    }
+
+    /** Decoded frames that were never drawn, either because a newer frame
+     * was also due, or playback stopped. */
+    public int getFramesDropped() {
+        return _iFramesDropped;
+    }
+
+    /** Frames waiting to be decoded. */
+    public int getDecodeQueueDepth() {
+        return _iDecodeQueueDepth;
+    }
+
+    public int getDecodeQueueMaxDepth() {
+        return _iDecodeQueueMaxDepth;
+    }
+
+    /** Decoded frames waiting to be presented. */
+    public int getDisplayQueueDepth() {
+        return _iDisplayQueueDepth;
+    }
+
+    public int getDisplayQueueMaxDepth() {
+        return _iDisplayQueueMaxDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "decoded %d, skipped late %d, presented %d (late %d), dropped %d, " +
+            "decode queue %d (max %d), display queue %d (max %d)",
+            _iFramesDecoded, _iFramesSkippedLate,
+            _iFramesPresented, _iFramesPresentedLate, _iFramesDropped,
+            _iDecodeQueueDepth, _iDecodeQueueMaxDepth,
+            _iDisplayQueueDepth, _iDisplayQueueMaxDepth);
+    }
+
+}
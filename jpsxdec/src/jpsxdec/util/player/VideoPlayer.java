@@ -42,12 +42,10 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
-import java.awt.Transparency;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import jpsxdec.util.Fraction;
@@ -59,6 +57,10 @@ class VideoPlayer implements Runnable, IVideoTimer {
 
     private static final int CAPACITY = 50;
 
+    /** Frames presented more than this many nanoseconds after their
+     * presentation time are counted as late (about half a frame at 30fps). */
+    private static final long LATE_FRAME_NANOS = 16000000;
+
     private final ObjectPlayStream<VideoFrame> _frameDisplayQueue =
             new ObjectPlayStream<VideoFrame>(CAPACITY);
 
@@ -75,6 +77,13 @@ class VideoPlayer implements Runnable, IVideoTimer {
     @Nonnull
     private final PlayController _controller;
 
+    /** Only updated by the player thread. */
+    private volatile int _iFramesPresented = 0;
+    /** Only updated by the player thread. */
+    private volatile int _iFramesPresentedLate = 0;
+    /** Only updated by the player thread. */
+    private volatile int _iFramesDropped = 0;
+
     public VideoPlayer(@CheckForNull IVideoTimer vidTimer, @Nonnull PlayController controller,
                        int iWidth, int iHeight)
     {
@@ -96,11 +105,28 @@ class VideoPlayer implements Runnable, IVideoTimer {
             while ((frame = _frameDisplayQueue.read()) != null) {
                 boolean blnPresent = _vidTimer.waitToPresent(frame);
                 if (!blnPresent) {
-                    System.out.println("Timer says to discard frame");
-                } else {
-                    if (DEBUG) System.out.println("===Displaying frame=== @" + frame.PresentationTime);
-                    _screen.updateImage(frame);
+                    if (DEBUG) System.out.println("Timer says to discard frame");
+                    frame.returnToPool();
+                    _iFramesDropped++;
+                    continue;
+                }
+
+                long lngPlayTime = _vidTimer.getNanoPlayTime();
+                // if we've fallen behind and the next frame is also due,
+                // skip straight to it instead of showing every late frame
+                VideoFrame next = _frameDisplayQueue.peek();
+                if (next != null && next.PresentationTime <= lngPlayTime) {
+                    if (DEBUG) System.out.println("Dropping frame @" + frame.PresentationTime + ", next frame is already due");
+                    frame.returnToPool();
+                    _iFramesDropped++;
+                    continue;
                 }
+
+                if (DEBUG) System.out.println("===Displaying frame=== @" + frame.PresentationTime);
+                if (lngPlayTime - frame.PresentationTime > LATE_FRAME_NANOS)
+                    _iFramesPresentedLate++;
+                _screen.updateImage(frame);
+                _iFramesPresented++;
             }
 
             if (DEBUG) System.out.println("Player received no frame for display, stopping");
@@ -163,6 +189,26 @@ class VideoPlayer implements Runnable, IVideoTimer {
         _frameDisplayQueue.writerClose();
     }
 
+    public int getFramesPresented() {
+        return _iFramesPresented;
+    }
+
+    public int getFramesPresentedLate() {
+        return _iFramesPresentedLate;
+    }
+
+    public int getFramesDropped() {
+        return _iFramesDropped;
+    }
+
+    public int getQueueDepth() {
+        return _frameDisplayQueue.getDepth();
+    }
+
+    public int getQueueMaxDepth() {
+        return _frameDisplayQueue.getMaxDepth();
+    }
+
     public @Nonnull Canvas getVideoCanvas() {
         return _screen;
     }
@@ -325,11 +371,15 @@ class VideoPlayer implements Runnable, IVideoTimer {
     class VideoFrame {
         @Nonnull
         public final BufferedImage Img;
+        /** The pixels of {@link #Img}, so frames can be decoded directly into
+         * the image without copying them through {@link BufferedImage#setRGB}. */
+        @Nonnull
+        public final int[] Rgb;
         public long PresentationTime;
 
         public VideoFrame() {
-            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
-            Img = gc.createCompatibleImage(_iWidth, _iHeight, Transparency.OPAQUE);
+            Img = new BufferedImage(_iWidth, _iHeight, BufferedImage.TYPE_INT_RGB);
+            Rgb = ((DataBufferInt)Img.getRaster().getDataBuffer()).getData();
         }
 
         public void returnToPool() {
@@ -41,7 +41,11 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 /** Video processor thread manages the conversion of video source data
- * to a presentation image. */
+ * to a presentation image.
+ * <p>
+ * Frames are decoded ahead of the presentation time straight into pooled
+ * {@link VideoPlayer.VideoFrame}s, as far ahead as the player's queue
+ * allows, so the player thread only has to wait and draw. */
 class VideoProcessor implements Runnable {
 
     private static final boolean DEBUG = false;
@@ -58,6 +62,11 @@ class VideoProcessor implements Runnable {
     @Nonnull
     private final VideoPlayer _vidPlayer;
 
+    /** Only updated by the processor thread. */
+    private volatile int _iFramesDecoded = 0;
+    /** Only updated by the processor thread. */
+    private volatile int _iFramesSkippedLate = 0;
+
     public VideoProcessor(@Nonnull IVideoTimer timer, @Nonnull VideoPlayer player) {
         _vidTimer = timer;
         _vidPlayer = player;
@@ -67,7 +76,6 @@ class VideoProcessor implements Runnable {
 
     public void run() {
         IDecodableFrame decodeFrame;
-        int[] aiImage = new int[_vidPlayer.getWidth() * _vidPlayer.getHeight()];
         try {
             while ((decodeFrame = _framesProcessingQueue.read()) != null) {
                 // check that we haven't passed presentation time
@@ -76,16 +84,17 @@ class VideoProcessor implements Runnable {
                     if (DEBUG) System.out.println("Processor processing frame :)");
                     VideoPlayer.VideoFrame frame = _vidPlayer._videoFramePool.borrow();
                     frame.PresentationTime = decodeFrame.getPresentationTime();
-                    // decode frame
-                    decodeFrame.decodeVideo(aiImage);
-                    frame.Img.setRGB(0, 0,
-                            frame.Img.getWidth(), frame.Img.getHeight(),
-                            aiImage, 0, frame.Img.getWidth());
+                    // decode directly into the frame's image
+                    decodeFrame.decodeVideo(frame.Rgb);
+                    decodeFrame.returnToPool();
+                    _iFramesDecoded++;
                     // submit to vid player
                     // will block if player is full
                     _vidPlayer.addFrame(frame);
                 } else {
-                    System.out.println("Processor skipping frame :(");
+                    if (DEBUG) System.out.println("Processor skipping frame :(");
+                    decodeFrame.returnToPool();
+                    _iFramesSkippedLate++;
                 }
             }
         } catch (Throwable ex) {
@@ -124,4 +133,20 @@ class VideoProcessor implements Runnable {
         _framesProcessingQueue.writerClose();
     }
 
+    public int getFramesDecoded() {
+        return _iFramesDecoded;
+    }
+
+    public int getFramesSkippedLate() {
+        return _iFramesSkippedLate;
+    }
+
+    public int getQueueDepth() {
+        return _framesProcessingQueue.getDepth();
+    }
+
+    public int getQueueMaxDepth() {
+        return _framesProcessingQueue.getMaxDepth();
+    }
+
 }
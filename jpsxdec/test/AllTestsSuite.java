@@ -44,21 +44,41 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    jpsxdec.audio.AdpcmDecodeModeTest.class,
+    jpsxdec.audio.SoundUnitEncoderTest.class,
     jpsxdec.audio.SpuDecodeCorruption.class,
     jpsxdec.audio.XaDecodeCorruption.class,
+    jpsxdec.cdreaders.CdFileSectorReaderTransferTest.class,
+    jpsxdec.cdreaders.CdFileSectorReaderWriteTest.class,
+    jpsxdec.cdreaders.SectorErrorCorrectionTest.class,
+    jpsxdec.discitems.DiscItemISO9660FileTest.class,
     jpsxdec.discitems.FrameNumberFormatTest.class,
     jpsxdec.discitems.FrameNumberTest.class,
+    jpsxdec.discitems.SaverSchedulerTest.class,
     jpsxdec.discitems.SerializedDiscItemTest.class,
     jpsxdec.discitems.savers.FrameLookupTest.class,
+    jpsxdec.discitems.savers.VDPTest.class,
+    jpsxdec.indexing.DiscIndexCacheTest.class,
     jpsxdec.indexing.DiscIndexerXaAudioTest.class,
+    jpsxdec.indexing.SectorRangeTreeTest.class,
     jpsxdec.indexing.psxvideofps.Fps.class,
+    jpsxdec.psxvideo.PsxYCbCrTest.class,
+    jpsxdec.psxvideo.PsxYCbCr_intTest.class,
     jpsxdec.psxvideo.bitstreams.BitReader.class,
     jpsxdec.psxvideo.bitstreams.Iki.class,
     jpsxdec.psxvideo.bitstreams.STRv2.class,
     jpsxdec.psxvideo.bitstreams.STRv3.class,
+    jpsxdec.psxvideo.mdec.ChromaUpsamplerTest.class,
+    jpsxdec.psxvideo.mdec.idct.FastPsxMdecIDCT_intTest.class,
     jpsxdec.psxvideo.mdec.tojpeg.Mdec2JpegTest.class,
+    jpsxdec.sectors.IdentifiedSectorIteratorTest.class,
+    jpsxdec.sectors.SectorTypeCacheTest.class,
     jpsxdec.util.ArgParserTest.class,
-    jpsxdec.util.MiscTest.class
+    jpsxdec.util.ByteArrayPoolTest.class,
+    jpsxdec.util.MiscTest.class,
+    jpsxdec.util.aviwriter.AviWriterTest.class,
+    jpsxdec.util.player.ObjectPlayStreamTest.class,
+    jpsxdec.util.player.SpscRingBufferTest.class
 })
 public class AllTestsSuite {
 
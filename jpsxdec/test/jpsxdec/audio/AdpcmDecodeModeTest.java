@@ -0,0 +1,168 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2014-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class AdpcmDecodeModeTest {
+
+    private static final int SECTOR_SIZE = CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM2 - 20;
+
+    @Test
+    public void testXaFixedPointWithin1() throws Exception {
+        for (int iBitsPerSample = 4; iBitsPerSample <= 8; iBitsPerSample += 4) {
+            for (int iStereo = 0; iStereo < 2; iStereo++) {
+                for (double dblVolume : new double[] {1.0, 0.8}) {
+                    XaAdpcmDecoder floating = new XaAdpcmDecoder(iBitsPerSample, iStereo == 1, dblVolume);
+                    XaAdpcmDecoder fixed = new XaAdpcmDecoder(iBitsPerSample, iStereo == 1, dblVolume);
+                    fixed.setDecodeMode(AdpcmDecodeMode.FIXED_POINT);
+                    Random rand = new Random(iBitsPerSample * 10 + iStereo);
+                    byte[] abSector = new byte[SECTOR_SIZE];
+                    ByteArrayOutputStream floatOut = new ByteArrayOutputStream();
+                    ByteArrayOutputStream fixedOut = new ByteArrayOutputStream();
+                    for (int iSector = 0; iSector < 50; iSector++) {
+                        randomXaSector(rand, abSector);
+                        floating.decode(new ByteArrayInputStream(abSector), floatOut, iSector);
+                        fixed.decode(new ByteArrayInputStream(abSector), fixedOut, iSector);
+                    }
+                    assertWithin1(floatOut.toByteArray(), fixedOut.toByteArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpuFixedPointWithin1() throws Exception {
+        Random rand = new Random(5);
+        byte[] abData = randomSpuData(rand, 16 * 2000);
+        SpuAdpcmDecoder.Mono floating = new SpuAdpcmDecoder.Mono(1.0);
+        SpuAdpcmDecoder.Mono fixed = new SpuAdpcmDecoder.Mono(1.0);
+        fixed.setDecodeMode(AdpcmDecodeMode.FIXED_POINT);
+        ByteArrayOutputStream floatOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream fixedOut = new ByteArrayOutputStream();
+        floating.decode(new ByteArrayInputStream(abData), abData.length, floatOut);
+        fixed.decode(new ByteArrayInputStream(abData), abData.length, fixedOut);
+        assertWithin1(floatOut.toByteArray(), fixedOut.toByteArray());
+    }
+
+    @Test
+    public void testSpuHardware() throws Exception {
+        Random rand = new Random(7);
+        byte[] abData = randomSpuData(rand, 16 * 2000);
+        SpuAdpcmDecoder.Mono hardware = new SpuAdpcmDecoder.Mono(1.0);
+        hardware.setDecodeMode(AdpcmDecodeMode.SPU_HARDWARE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        hardware.decode(new ByteArrayInputStream(abData), abData.length, out);
+
+        short[] asiExpected = referenceSpuDecode(abData);
+        byte[] abActual = out.toByteArray();
+        assertEquals(asiExpected.length * 2, abActual.length);
+        for (int i = 0; i < asiExpected.length; i++) {
+            assertEquals("Sample " + i, asiExpected[i], readInt16LE(abActual, i*2));
+        }
+    }
+
+    /** Random XA sound groups with valid sound parameters. */
+    private static void randomXaSector(Random rand, byte[] abSector) {
+        rand.nextBytes(abSector);
+        for (int iGroup = 0; iGroup + XaAdpcmDecoder.SIZEOF_SOUND_GROUP <= abSector.length;
+             iGroup += XaAdpcmDecoder.SIZEOF_SOUND_GROUP)
+        {
+            // same 4 parameters repeated to fit both 4 and 8 bits per sample
+            for (int i = 0; i < 4; i++) {
+                byte bParam = (byte)((rand.nextInt(4) << 4) | rand.nextInt(13));
+                for (int j = i; j < 16; j += 4)
+                    abSector[iGroup + j] = bParam;
+            }
+        }
+    }
+
+    /** Random SPU sound units with valid filters and flags. */
+    private static byte[] randomSpuData(Random rand, int iSize) {
+        byte[] ab = new byte[iSize];
+        rand.nextBytes(ab);
+        for (int i = 0; i < iSize; i += SpuAdpcmDecoder.SIZEOF_SOUND_UNIT) {
+            ab[i] = (byte)((rand.nextInt(5) << 4) | rand.nextInt(16));
+            ab[i+1] = 0;
+        }
+        return ab;
+    }
+
+    /** SPU ADPCM decoding straight from the hardware documentation. */
+    private static short[] referenceSpuDecode(byte[] abData) {
+        final int[] aiPos = {0, 60, 115, 98, 122};
+        final int[] aiNeg = {0, 0, -52, -55, -60};
+        short[] asiOut = new short[abData.length / 16 * 28];
+        int iOld = 0, iOlder = 0, iOut = 0;
+        for (int iUnit = 0; iUnit < abData.length; iUnit += 16) {
+            int iShift = abData[iUnit] & 0xf;
+            if (iShift > 12)
+                iShift = 9;
+            int iFilter = (abData[iUnit] >> 4) & 0xf;
+            for (int i = 0; i < 28; i++) {
+                int iNibble = (abData[iUnit + 2 + i/2] >> ((i & 1) * 4)) & 0xf;
+                int iSample = (short)(iNibble << 12) >> iShift;
+                iSample += (iOld * aiPos[iFilter] + iOlder * aiNeg[iFilter] + 32) >> 6;
+                iSample = Math.max(-32768, Math.min(32767, iSample));
+                asiOut[iOut++] = (short)iSample;
+                iOlder = iOld;
+                iOld = iSample;
+            }
+        }
+        return asiOut;
+    }
+
+    private static void assertWithin1(byte[] abExpected, byte[] abActual) {
+        assertEquals(abExpected.length, abActual.length);
+        for (int i = 0; i < abExpected.length; i += 2) {
+            int iDiff = readInt16LE(abExpected, i) - readInt16LE(abActual, i);
+            if (iDiff < -1 || iDiff > 1)
+                fail("Sample " + i/2 + " " + readInt16LE(abExpected, i) + " != " + readInt16LE(abActual, i));
+        }
+    }
+
+    private static short readInt16LE(byte[] ab, int i) {
+        return (short)((ab[i] & 0xff) | (ab[i+1] << 8));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2014-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SoundUnitEncoderTest {
+
+    private static final IContextCopier NO_CONTEXT = new IContextCopier() {
+        public Object copy() {
+            return this;
+        }
+    };
+
+    /** The chosen parameters must have the smallest error of every
+     * parameter that doesn't clamp, and the first one tried on a tie. */
+    @Test
+    public void testExactFindsBest() throws Exception {
+        Random rand = new Random(1);
+        short[] asiSamples = new short[SoundUnitDecoder.SAMPLES_PER_SOUND_UNIT];
+        for (int iBits = 4; iBits <= 8; iBits += 4) {
+            for (int iTest = 0; iTest < 300; iTest++) {
+                int iAmplitude = 1 << rand.nextInt(16);
+                for (int i = 0; i < asiSamples.length; i++)
+                    asiSamples[i] = (short)(Math.sin(i * rand.nextDouble()) * iAmplitude * 0.9);
+
+                SoundUnitEncoder.EncodedUnit best =
+                        new SoundUnitEncoder(iBits, K0K1Filter.XA).encodeSoundUnit(asiSamples, NO_CONTEXT);
+                if (best.blnHadToClamp)
+                    continue;
+                double dblBestDelta = maxDelta(best, iBits, asiSamples);
+
+                for (int iRange = 16 - iBits; iRange >= 0; iRange--) {
+                    for (int iFilter = 0; iFilter < 4; iFilter++) {
+                        SoundUnitEncoder.EncodedUnit other =
+                                new SoundUnitEncoder(iBits, K0K1Filter.XA).encodeSoundUnit(
+                                    asiSamples, (iFilter << 4) | iRange, NO_CONTEXT);
+                        if (iRange == best.iRange && iFilter == best.iFilterIndex) {
+                            assertArrayEquals(other.abEncodedAdpcm, best.abEncodedAdpcm);
+                            continue;
+                        }
+                        if (other.blnHadToClamp)
+                            continue;
+                        double dblDelta = maxDelta(other, iBits, asiSamples);
+                        boolean blnTriedFirst = iRange > best.iRange ||
+                                (iRange == best.iRange && iFilter < best.iFilterIndex);
+                        if (blnTriedFirst)
+                            assertTrue(dblBestDelta < dblDelta);
+                        else
+                            assertTrue(dblBestDelta <= dblDelta);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Decodes the unit from a silent context. */
+    private static double maxDelta(SoundUnitEncoder.EncodedUnit unit, int iBits, short[] asiSamples) {
+        double dblPrev1 = 0, dblPrev2 = 0, dblMaxDelta = 0;
+        for (int i = 0; i < asiSamples.length; i++) {
+            int iUnRanged = (short)(unit.abEncodedAdpcm[i] << (16 - iBits)) >> unit.iRange;
+            double dblDecoded = iUnRanged + K0K1Filter.XA.getK0(unit.iFilterIndex) * dblPrev1
+                                          + K0K1Filter.XA.getK1(unit.iFilterIndex) * dblPrev2;
+            dblPrev2 = dblPrev1;
+            dblPrev1 = dblDecoded;
+            dblMaxDelta = Math.max(dblMaxDelta, Math.abs(dblDecoded - asiSamples[i]));
+        }
+        return dblMaxDelta;
+    }
+
+    @Test
+    public void testParallelSameAsSerial() throws Exception {
+        for (int iBits = 4; iBits <= 8; iBits += 4) {
+            byte[] abPcm = new byte[4032 * 2 * 2 * 3];
+            Random rand = new Random(iBits);
+            for (int i = 0; i < abPcm.length; i+=2) {
+                short si = (short)(Math.sin(i * 0.003) * 20000 + rand.nextGaussian() * 300);
+                abPcm[i] = (byte)si;
+                abPcm[i+1] = (byte)(si >> 8);
+            }
+            byte[] abSerial = encodeStereo(abPcm, iBits, false, SoundUnitEncoder.SearchMode.EXACT);
+            byte[] abParallel = encodeStereo(abPcm, iBits, true, SoundUnitEncoder.SearchMode.EXACT);
+            assertTrue(Arrays.equals(abSerial, abParallel));
+
+            byte[] abFast = encodeStereo(abPcm, iBits, true, SoundUnitEncoder.SearchMode.FAST);
+            assertEquals(abSerial.length, abFast.length);
+        }
+    }
+
+    private static byte[] encodeStereo(byte[] abPcm, int iBits, boolean blnParallel,
+                                       SoundUnitEncoder.SearchMode mode)
+            throws Exception
+    {
+        AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(abPcm),
+                new AudioFormat(37800, 16, 2, true, false), abPcm.length / 4);
+        XaAdpcmEncoder encoder = new XaAdpcmEncoder(ais, iBits);
+        encoder.setEncodeChannelsInParallel(blnParallel);
+        encoder.setSearchMode(mode);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            while (!encoder.isEof())
+                encoder.encode1Sector(out);
+        } finally {
+            encoder.close();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.util.IO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class CdFileSectorReaderTransferTest {
+
+    @Test
+    public void sameAsSectors() throws Exception {
+        SyntheticDisc synthetic = new SyntheticDisc(1);
+        int[] aiSectorSizes = {
+            CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+            CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+            CdFileSectorReader.SECTOR_SIZE_2048_ISO,
+        };
+        for (int iSectorSize : aiSectorSizes) {
+            File disc = File.createTempFile("CdFileSectorReaderTransferTest", ".bin");
+            CdFileSectorReader cd = null;
+            try {
+                synthetic.write(disc, iSectorSize);
+                cd = new CdFileSectorReader(disc, true);
+                assertTrue(cd.canTransferRawSectors());
+
+                // the whole image
+                assertArrayEquals(IO.readFile(disc), transfer(cd, 0, (long)cd.getLength() * iSectorSize));
+
+                // a run of sectors ending part way through a sector
+                ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+                for (int i = 10; i < 15; i++)
+                    sectors.write(cd.getSector(i).getRawSectorDataCopy());
+                byte[] abExpected = Arrays.copyOf(sectors.toByteArray(), 5 * iSectorSize - 100);
+                assertArrayEquals(abExpected, transfer(cd, 10, abExpected.length));
+
+                assertEquals(0, transfer(cd, 10, 0).length);
+
+                try {
+                    transfer(cd, cd.getLength() - 1, iSectorSize + 1);
+                    fail("Expected exception");
+                } catch (IndexOutOfBoundsException ex) {
+                    // expected
+                }
+                try {
+                    transfer(cd, -1, 1);
+                    fail("Expected exception");
+                } catch (IndexOutOfBoundsException ex) {
+                    // expected
+                }
+
+                // held writes aren't in the image yet
+                cd.beginBatchWrites();
+                cd.writeSector(10, cd.getSector(10).getCdUserDataCopy());
+                assertFalse(cd.canTransferRawSectors());
+                try {
+                    transfer(cd, 10, 1);
+                    fail("Expected exception");
+                } catch (IllegalStateException ex) {
+                    // expected
+                }
+                cd.endBatchWrites();
+                assertTrue(cd.canTransferRawSectors());
+                assertArrayEquals(abExpected, transfer(cd, 10, abExpected.length));
+            } finally {
+                if (cd != null)
+                    cd.close();
+                disc.delete();
+            }
+        }
+    }
+
+    private static @Nonnull byte[] transfer(@Nonnull CdFileSectorReader cd,
+                                            int iStartSector, long lngByteCount)
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cd.transferRawSectors(iStartSector, lngByteCount, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+}
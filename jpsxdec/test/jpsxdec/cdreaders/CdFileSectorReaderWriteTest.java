@@ -0,0 +1,110 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.util.IO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class CdFileSectorReaderWriteTest {
+
+    @Test
+    public void batchedSameAsUnbatched() throws Exception {
+        SyntheticDisc synthetic = new SyntheticDisc(60);
+        int[] aiSectorSizes = {
+            CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+            CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+            CdFileSectorReader.SECTOR_SIZE_2048_ISO,
+        };
+        for (int iSectorSize : aiSectorSizes) {
+            File unbatched = File.createTempFile("CdFileSectorReaderWriteTest", ".bin");
+            File batched = File.createTempFile("CdFileSectorReaderWriteTest", ".bin");
+            try {
+                synthetic.write(unbatched, iSectorSize);
+                byte[] abOriginal = IO.readFile(unbatched);
+                IO.writeFile(batched, abOriginal);
+
+                writeSectors(unbatched, false);
+                writeSectors(batched, true);
+
+                byte[] abUnbatched = IO.readFile(unbatched);
+                assertFalse(Arrays.equals(abOriginal, abUnbatched));
+                assertArrayEquals(abUnbatched, IO.readFile(batched));
+            } finally {
+                unbatched.delete();
+                batched.delete();
+            }
+        }
+    }
+
+    /** Overwrites the same sectors in the same order whether batched or not.
+     * Enough sectors are written to be flushed automatically, and some
+     * sectors are read back and written again before being flushed. */
+    private static void writeSectors(File disc, boolean blnBatch) throws Exception {
+        Random rand = new Random(1);
+        CdFileSectorReader cd = new CdFileSectorReader(disc, true);
+        try {
+            if (blnBatch)
+                cd.beginBatchWrites();
+            for (int iWrite = 0; iWrite < 3000; iWrite++) {
+                int iSector;
+                if (iWrite % 100 == 0)
+                    iSector = rand.nextInt(cd.getLength()); // jump around
+                else
+                    iSector = (iWrite * 7 / 5) % cd.getLength(); // runs with some gaps and repeats
+                byte[] abUserData = cd.getSector(iSector).getCdUserDataCopy();
+                for (int i = 0; i < 16; i++)
+                    abUserData[rand.nextInt(abUserData.length)] ^= (byte)(1 + rand.nextInt(255));
+                cd.writeSector(iSector, abUserData);
+                assertArrayEquals(abUserData, cd.getSector(iSector).getCdUserDataCopy());
+
+                if (blnBatch && iWrite == 1500)
+                    cd.flushWrites();
+            }
+            if (blnBatch)
+                cd.endBatchWrites();
+        } finally {
+            cd.close();
+        }
+    }
+}
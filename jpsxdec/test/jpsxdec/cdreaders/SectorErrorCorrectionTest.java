@@ -0,0 +1,191 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.cdreaders;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SectorErrorCorrectionTest {
+
+    private static final int SECTOR_SIZE = 2352;
+
+    @Test
+    public void edcSameAsByteAtATime() {
+        Random rand = new Random(2352);
+        byte[] abData = new byte[SECTOR_SIZE];
+        for (int iTest = 0; iTest < 500; iTest++) {
+            fill(rand, abData, iTest);
+            // every alignment and remainder of the 8 byte slices
+            int iStart = rand.nextInt(16);
+            int iEnd = iStart + rand.nextInt(abData.length - iStart + 1);
+            assertEquals(OldErrorCorrection.edc(abData, iStart, iEnd),
+                         SectorErrorCorrection.generateErrorDetectionAndCorrection(abData, iStart, iEnd));
+        }
+        // the ranges used by CdSector2352
+        for (int iTest = 0; iTest < 50; iTest++) {
+            fill(rand, abData, iTest);
+            assertEquals(OldErrorCorrection.edc(abData, 0x10, 0x818),
+                         SectorErrorCorrection.generateErrorDetectionAndCorrection(abData, 0x10, 0x818));
+            assertEquals(OldErrorCorrection.edc(abData, 0x10, 0x92C),
+                         SectorErrorCorrection.generateErrorDetectionAndCorrection(abData, 0x10, 0x92C));
+        }
+    }
+
+    @Test
+    public void eccSameAsByteAtATime() {
+        Random rand = new Random(2048);
+        byte[] abData = new byte[SECTOR_SIZE];
+        for (int iTest = 0; iTest < 500; iTest++) {
+            fill(rand, abData, iTest);
+
+            // same as CdSector2352, where ECC P is part of the ECC Q data
+            byte[] abExpected = abData.clone();
+            OldErrorCorrection.eccP(abExpected, 12, abExpected, 0x81C);
+            OldErrorCorrection.eccQ(abExpected, 12, abExpected, 0x8C8);
+
+            byte[] abActual = abData.clone();
+            SectorErrorCorrection.generateErrorCorrectionCode_P(abActual, 12, abActual, 0x81C);
+            SectorErrorCorrection.generateErrorCorrectionCode_Q(abActual, 12, abActual, 0x8C8);
+
+            assertArrayEquals(abExpected, abActual);
+        }
+    }
+
+    /** Random data, where some tests are mostly 0 since the old code
+     * skipped 0 bytes. */
+    private static void fill(Random rand, byte[] abData, int iTest) {
+        rand.nextBytes(abData);
+        if (iTest % 3 == 0) {
+            for (int i = 0; i < abData.length; i++) {
+                if (rand.nextInt(8) != 0)
+                    abData[i] = 0;
+            }
+        } else if (iTest % 3 == 1) {
+            Arrays.fill(abData, 0x10, 0x10 + rand.nextInt(abData.length - 0x10), (byte)0);
+        }
+    }
+
+    /** The original byte-at-a-time EDC and log/antilog ECC generation. */
+    private static class OldErrorCorrection {
+        private static final long[] EDC_crctable = new long[256];
+        private static final short[] rs_l12_log = new short[256];
+        private static final short[] rs_l12_alog = new short[255];
+        private static final short DQ[/*2*/][/*43*/] = {
+            {190, 96,250,132,59, 81,159,154,200,  7,111,245,10,20, 41,156,168, 79,173,231,229,171,210,240,17, 67,215, 43,120,  8,199, 74,102,220,251, 95,175, 87,166,113, 75,198,25},
+            { 97,251,133, 60,82,160,155,201,  8,112,246, 11,21,42,157,169, 80,174,232,230,172,211,241, 18,68,216, 44,121,  9,200, 75,103,221,252, 96,176, 88,167,114, 76,199, 26, 1}
+        };
+        private static final short DP[/*2*/][/*24*/] = {
+            {231,229,171,210,240,17, 67,215, 43,120,  8,199, 74,102,220,251, 95,175, 87,166,113, 75,198,25},
+            {230,172,211,241, 18,68,216, 44,121,  9,200, 75,103,221,252, 96,176, 88,167,114, 76,199, 26, 1}
+        };
+        private static final int RS_L12_BITS = 8;
+        private static final int L2_P = 43 * 2 * 2;
+
+        static {
+            // CD-ROM EDC polynomial (x^32 + x^31 + x^16 + x^15 + x^4 + x^3 + x + 1), reflected
+            for (int i = 0; i < 256; i++) {
+                long lng = i;
+                for (int iBit = 0; iBit < 8; iBit++)
+                    lng = (lng >>> 1) ^ ((lng & 1) != 0 ? 0xD8018001L : 0);
+                EDC_crctable[i] = lng;
+            }
+            // GF(2^8) with the Reed-Solomon polynomial x^8 + x^4 + x^3 + x^2 + 1
+            int iValue = 1;
+            for (int i = 0; i < 255; i++) {
+                rs_l12_alog[i] = (short)iValue;
+                rs_l12_log[iValue] = (short)i;
+                iValue <<= 1;
+                if (iValue > 0xff)
+                    iValue ^= 0x11D;
+            }
+        }
+
+        public static long edc(byte[] data, int iStart, int iEnd) {
+            long edc_i = 0;
+            for (int i = iStart; i < iEnd; i++) {
+                edc_i = EDC_crctable[(int)((edc_i ^ data[i]) & 0xFF)] ^ (edc_i >> 8);
+            }
+            return edc_i;
+        }
+
+        public static void eccP(byte[] data, int data_p, byte[] output, int output_p) {
+            for (int j = 0; j < 43; j++, output_p += 2, data_p += 2) {
+                for (int i = 0; i < 24; i++) {
+                    for (int n = 0; n < 2; n++) {
+                        int cdata = data[data_p+ i * 2 * 43 + n] & 0xff;
+                        if (cdata == 0) {
+                            continue;
+                        }
+                        int base = rs_l12_log[cdata];
+                        for (int t = 0; t < 2; t++) {
+                            int sum = base + DP[t][i];
+                            if (sum >= ((1 << RS_L12_BITS) - 1)) {
+                                sum -= (1 << RS_L12_BITS) - 1;
+                            }
+                            output[output_p+ 43 * 2 * t + n] ^= rs_l12_alog[sum];
+                        }
+                    }
+                }
+            }
+        }
+
+        public static void eccQ(byte[] data, int data_p, byte[] output, int output_p) {
+            for (int j = 0; j < 26; j++, output_p += 2) {
+                for (int i = 0; i < 43; i++) {
+                    for (int n = 0; n < 2; n++) {
+                        int cdata = data[data_p+ (j * 43 * 2 + i * 2 * 44 + n) % (4 + 0x800 + 4 + 8 + L2_P)] & 0xff;
+                        if (cdata == 0) {
+                            continue;
+                        }
+                        int base = rs_l12_log[cdata];
+                        for (int t = 0; t < 2; t++) {
+                            int sum = base + DQ[t][i];
+                            if (sum >= ((1 << RS_L12_BITS) - 1)) {
+                                sum -= (1 << RS_L12_BITS) - 1;
+                            }
+                            output[output_p+ 26 * 2 * t + n] ^= rs_l12_alog[sum];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.cdreaders.CdSector;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.indexing.DiscIndex;
+import jpsxdec.util.IO;
+import jpsxdec.util.ProgressLogger;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class DiscItemISO9660FileTest {
+
+    private static final int[] SECTOR_SIZES = {
+        CdFileSectorReader.SECTOR_SIZE_2048_ISO,
+        CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+        CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+    };
+
+    private File _disc, _outputDir;
+    private CdFileSectorReader _cd;
+    private List<DiscItemISO9660File> _files;
+
+    private void open(int iSectorSize) throws Exception {
+        close();
+        _disc = File.createTempFile("DiscItemISO9660FileTest", "." + iSectorSize);
+        new SyntheticDisc(2).write(_disc, iSectorSize);
+        // writes are allowed so the test can hold one
+        _cd = new CdFileSectorReader(_disc, true);
+        assertEquals(iSectorSize, _cd.getRawSectorSize());
+        _files = new ArrayList<DiscItemISO9660File>();
+        for (DiscItem item : new DiscIndex(_cd, quietLogger())) {
+            if (item instanceof DiscItemISO9660File)
+                _files.add((DiscItemISO9660File) item);
+        }
+        assertFalse(_files.isEmpty());
+        _outputDir = File.createTempFile("DiscItemISO9660FileTest", "");
+        _outputDir.delete();
+    }
+
+    @After
+    public void close() throws IOException {
+        if (_cd != null) {
+            _cd.close();
+            _cd = null;
+        }
+        if (_disc != null) {
+            _disc.delete();
+            _disc = null;
+        }
+        if (_outputDir != null) {
+            deleteOutput();
+            _outputDir = null;
+        }
+    }
+
+    @Test
+    public void userDataTrimmedToFileSize() throws Exception {
+        for (int iSectorSize : SECTOR_SIZES) {
+            open(iSectorSize);
+            int iTrimmed = 0;
+            List<byte[]> saved = saveAll(true);
+            for (int i = 0; i < _files.size(); i++) {
+                DiscItemISO9660File file = _files.get(i);
+                if (savesRaw(file, true))
+                    continue;
+                assertEquals(file.toString(), file.getSize(), saved.get(i).length);
+                assertArrayEquals(file.toString(), expected(file, false), saved.get(i));
+                if (file.getSize() % CdFileSectorReader.SECTOR_USER_DATA_SIZE_FORM1 != 0)
+                    iTrimmed++;
+            }
+            assertTrue("No file to trim on " + iSectorSize + " image", iTrimmed > 0);
+        }
+    }
+
+    @Test
+    public void rawNotTrimmed() throws Exception {
+        for (int iSectorSize : SECTOR_SIZES) {
+            if (iSectorSize == CdFileSectorReader.SECTOR_SIZE_2048_ISO)
+                continue; // no raw sectors to save
+            open(iSectorSize);
+
+            List<byte[]> saved = saveAll(false);
+            for (int i = 0; i < _files.size(); i++) {
+                DiscItemISO9660File file = _files.get(i);
+                assertTrue(savesRaw(file, false));
+                assertEquals(file.toString(), (long)file.getSectorLength() * iSectorSize,
+                             saved.get(i).length);
+                assertArrayEquals(file.toString(), expected(file, true), saved.get(i));
+            }
+
+            // files with form 2 sectors are always saved raw
+            int iForm2 = 0;
+            saved = saveAll(true);
+            for (int i = 0; i < _files.size(); i++) {
+                DiscItemISO9660File file = _files.get(i);
+                if (!savesRaw(file, true))
+                    continue;
+                assertFalse(file.makeSaverBuilder().getSaveRaw_enabled());
+                assertArrayEquals(file.toString(), expected(file, true), saved.get(i));
+                iForm2++;
+            }
+            assertTrue("No form 2 file on " + iSectorSize + " image", iForm2 > 0);
+        }
+    }
+
+    /** Files saved by transferring straight from the image are the same as
+     * when the sectors have to be read and copied. */
+    @Test
+    public void transferSameAsBatched() throws Exception {
+        for (int iSectorSize : SECTOR_SIZES) {
+            open(iSectorSize);
+            for (boolean blnSaveIso : new boolean[] {false, true}) {
+                assertTrue(_cd.canTransferRawSectors());
+                List<byte[]> transferred = saveAll(blnSaveIso);
+
+                // a held write stops transfers, even one that changes nothing
+                _cd.beginBatchWrites();
+                _cd.writeSector(0, _cd.getSector(0).getCdUserDataCopy());
+                assertFalse(_cd.canTransferRawSectors());
+                List<byte[]> batched = saveAll(blnSaveIso);
+                _cd.endBatchWrites();
+
+                for (int i = 0; i < _files.size(); i++) {
+                    DiscItemISO9660File file = _files.get(i);
+                    String sMsg = iSectorSize + " " + (blnSaveIso ? "iso " : "raw ") + file;
+                    assertArrayEquals(sMsg, batched.get(i), transferred.get(i));
+                    assertArrayEquals(sMsg, expected(file, savesRaw(file, blnSaveIso)), transferred.get(i));
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    /** Saves every file like -dumpfs and returns what was saved for each
+     * file in {@link #_files}. */
+    private @Nonnull List<byte[]> saveAll(boolean blnSaveIso) throws Exception {
+        deleteOutput();
+        assertEquals(0, DiscItemISO9660File.saveAll(_files, blnSaveIso, _outputDir, quietLogger()));
+        List<byte[]> saved = new ArrayList<byte[]>();
+        for (DiscItemISO9660File file : _files)
+            saved.add(IO.readFile(new File(_outputDir, file.getPath().getPath())));
+        return saved;
+    }
+
+    private static boolean savesRaw(@Nonnull DiscItemISO9660File file, boolean blnSaveIso) {
+        DiscItemISO9660File.ISO9660SaverBuilder builder = file.makeSaverBuilder();
+        builder.setSaveRaw(!blnSaveIso);
+        return builder.getSaveRaw();
+    }
+
+    /** Every sector of the file read one at a time. User data is trimmed
+     * to the file size. */
+    private static @Nonnull byte[] expected(@Nonnull DiscItemISO9660File file, boolean blnRaw)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < file.getSectorLength(); i++) {
+            CdSector sector = file.getRelativeSector(i);
+            bytes.write(blnRaw ? sector.getRawSectorDataCopy() : sector.getCdUserDataCopy());
+        }
+        byte[] ab = bytes.toByteArray();
+        return blnRaw ? ab : Arrays.copyOf(ab, (int)file.getSize());
+    }
+
+    private void deleteOutput() {
+        File[] aoFiles = _outputDir.listFiles();
+        if (aoFiles != null) {
+            for (File f : aoFiles)
+                f.delete();
+        }
+        _outputDir.delete();
+    }
+
+    private static @Nonnull ProgressLogger quietLogger() {
+        return new ProgressLogger("DiscItemISO9660FileTest", new PrintStream(new ByteArrayOutputStream())) {
+            protected void handleProgressStart() {}
+            protected void handleProgressUpdate(double dblPercentComplete) {}
+            protected void handleProgressEnd() {}
+            public boolean isSeekingEvent() { return false; }
+            public void event(@Nonnull ILocalizedMessage msg) {}
+        };
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.i18n.UnlocalizedMessage;
+import jpsxdec.util.FeedbackStream;
+import jpsxdec.util.IO;
+import jpsxdec.util.ProgressLogger;
+import jpsxdec.util.TaskCanceledException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SaverSchedulerTest {
+
+    /** How long a job waits so the scheduler has a chance to misbehave. */
+    private static final long SETTLE_MILLIS = 200;
+
+    private File _disc;
+    private CdFileSectorReader _cd;
+    /** Start sectors of the jobs in the order they were started. */
+    private final List<Integer> _started = Collections.synchronizedList(new ArrayList<Integer>());
+
+    @Before
+    public void setUp() throws Exception {
+        _disc = File.createTempFile("SaverSchedulerTest", ".iso");
+        IO.writeFile(_disc, new byte[16 * 2048]);
+        _cd = new CdFileSectorReader(_disc);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _cd.close();
+        _disc.delete();
+    }
+
+    @Test
+    public void oneThreadRunsInOrderOnCallingThread() throws Exception {
+        SaverScheduler scheduler = new SaverScheduler(1, 0);
+        final Thread caller = Thread.currentThread();
+        int[] aiSectors = {300, 0, 200, 100};
+        for (int iSector : aiSectors) {
+            scheduler.add(new TestJob(iSector) {
+                protected void run() {
+                    assertSame(caller, Thread.currentThread());
+                }
+            });
+        }
+        scheduler.runAll();
+        assertEquals(list(0, 100, 200, 300), _started);
+    }
+
+    @Test
+    public void sectorWindow() throws Exception {
+        final CountDownLatch secondDone = new CountDownLatch(1);
+        final boolean[] ablnFirstDone = {false};
+        final boolean[] ablnFirstDoneBeforeThird = {false};
+        final boolean[] ablnSecondDuringFirst = {false};
+
+        SaverScheduler scheduler = new SaverScheduler(2, 100);
+        scheduler.add(new TestJob(0) {
+            protected void run() throws Exception {
+                assertTrue(secondDone.await(10, TimeUnit.SECONDS));
+                // a thread is free, but the next job is too far away
+                Thread.sleep(SETTLE_MILLIS);
+                synchronized (ablnFirstDone) {
+                    ablnFirstDone[0] = true;
+                }
+            }
+        });
+        scheduler.add(new TestJob(100) {
+            protected void run() {
+                synchronized (ablnFirstDone) {
+                    ablnSecondDuringFirst[0] = !ablnFirstDone[0];
+                }
+                secondDone.countDown();
+            }
+        });
+        scheduler.add(new TestJob(101) {
+            protected void run() {
+                synchronized (ablnFirstDone) {
+                    ablnFirstDoneBeforeThird[0] = ablnFirstDone[0];
+                }
+            }
+        });
+        scheduler.runAll();
+
+        assertEquals(list(0, 100, 101), sortedStarted());
+        assertTrue(ablnSecondDuringFirst[0]);
+        assertTrue(ablnFirstDoneBeforeThird[0]);
+    }
+
+    @Test
+    public void noMoreStartedAfterCancel() throws Exception {
+        final CountDownLatch firstDone = new CountDownLatch(1);
+        final TaskCanceledException canceled = new TaskCanceledException();
+
+        SaverScheduler scheduler = new SaverScheduler(2, Integer.MAX_VALUE);
+        scheduler.add(new TestJob(0) {
+            protected void run() throws Exception {
+                firstDone.countDown();
+                throw canceled;
+            }
+        });
+        TestJob running = new TestJob(1) {
+            protected void run() throws Exception {
+                assertTrue(firstDone.await(10, TimeUnit.SECONDS));
+                Thread.sleep(SETTLE_MILLIS);
+            }
+        };
+        scheduler.add(running);
+        for (int i = 2; i < 6; i++)
+            scheduler.add(new TestJob(i));
+
+        try {
+            scheduler.runAll();
+            fail("Expected TaskCanceledException");
+        } catch (TaskCanceledException ex) {
+            assertSame(canceled, ex);
+        }
+        assertEquals(list(0, 1), sortedStarted());
+        // jobs already running are allowed to finish
+        assertTrue(running.blnFinished);
+    }
+
+    @Test
+    public void noMoreStartedAfterFailureAndFirstRethrown() throws Exception {
+        final CountDownLatch firstDone = new CountDownLatch(1);
+        final RuntimeException first = new RuntimeException("first");
+
+        SaverScheduler scheduler = new SaverScheduler(2, Integer.MAX_VALUE);
+        scheduler.add(new TestJob(0) {
+            protected void run() throws Exception {
+                firstDone.countDown();
+                throw first;
+            }
+        });
+        scheduler.add(new TestJob(1) {
+            protected void run() throws Exception {
+                assertTrue(firstDone.await(10, TimeUnit.SECONDS));
+                Thread.sleep(SETTLE_MILLIS);
+                throw new IllegalStateException("second");
+            }
+        });
+        for (int i = 2; i < 6; i++)
+            scheduler.add(new TestJob(i));
+
+        try {
+            scheduler.runAll();
+            fail("Expected RuntimeException");
+        } catch (RuntimeException ex) {
+            assertSame(first, ex);
+        }
+        assertEquals(list(0, 1), sortedStarted());
+    }
+
+    /** Jobs running at the same time may record their start in any order. */
+    private List<Integer> sortedStarted() {
+        ArrayList<Integer> sorted = new ArrayList<Integer>(_started);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static List<Integer> list(Integer ... ai) {
+        ArrayList<Integer> list = new ArrayList<Integer>();
+        Collections.addAll(list, ai);
+        return list;
+    }
+
+    /** Job for an item starting at the given sector. Records when it is
+     * started, then does whatever {@link #run()} does. */
+    private class TestJob extends SaverScheduler.Job {
+        public volatile boolean blnFinished = false;
+
+        public TestJob(int iStartSector) {
+            super(new TestSaver(new TestItem(_cd, iStartSector)));
+        }
+
+        @Override
+        protected void save() throws TaskCanceledException {
+            _started.add(getSaver().getDiscItem().getStartSector());
+            try {
+                run();
+            } catch (TaskCanceledException ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            blnFinished = true;
+        }
+
+        protected void run() throws Exception {
+        }
+    }
+
+    private static class TestItem extends DiscItem {
+        public TestItem(@Nonnull CdFileSectorReader cd, int iStartSector) {
+            super(cd, iStartSector, iStartSector);
+        }
+        public @Nonnull String getSerializationTypeId() {
+            return "Test";
+        }
+        public @Nonnull GeneralType getType() {
+            return GeneralType.File;
+        }
+        public @Nonnull ILocalizedMessage getInterestingDescription() {
+            return new UnlocalizedMessage("Test");
+        }
+        public @Nonnull DiscItemSaverBuilder makeSaverBuilder() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class TestSaver implements IDiscItemSaver {
+        @Nonnull
+        private final DiscItem _item;
+        public TestSaver(@Nonnull DiscItem item) {
+            _item = item;
+        }
+        public void startSave(@Nonnull ProgressLogger pl) {
+            throw new UnsupportedOperationException();
+        }
+        public @Nonnull String getInput() {
+            return _item.toString();
+        }
+        public @Nonnull ILocalizedMessage getOutputSummary() {
+            return new UnlocalizedMessage("Test");
+        }
+        public void printSelectedOptions(@Nonnull FeedbackStream fbs) {
+        }
+        public @Nonnull DiscItem getDiscItem() {
+            return _item;
+        }
+        public File[] getGeneratedFiles() {
+            return new File[0];
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.discitems.savers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.discitems.FrameNumber;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.psxvideo.bitstreams.BitStreamCompressor;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_Iki;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_Lain;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv1;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv2;
+import jpsxdec.psxvideo.bitstreams.BitStreamUncompressor_STRv3;
+import jpsxdec.psxvideo.mdec.MdecDecoder;
+import jpsxdec.util.ILocalizedLogger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class VDPTest {
+
+    private static final int WIDTH = 64, HEIGHT = 48;
+
+    @Test
+    public void parallelSameAsSerial() throws Exception {
+        List<byte[]> frames = createFrames();
+        for (MdecDecodeQuality quality : MdecDecodeQuality.values()) {
+            Recorder serial = new Recorder();
+            VDP.Mdec2Decoded mdec2Decoded =
+                    new VDP.Mdec2Decoded(quality.makeDecoder(WIDTH, HEIGHT), serial);
+            mdec2Decoded.setDecoded(serial);
+            feed(frames, new VDP.Bitstream2Mdec(mdec2Decoded));
+
+            for (int iThreads = 1; iThreads <= 4; iThreads++) {
+                MdecDecoder[] aoDecoders = new MdecDecoder[iThreads];
+                for (int i = 0; i < iThreads; i++)
+                    aoDecoders[i] = quality.makeDecoder(WIDTH, HEIGHT);
+                Recorder parallel = new Recorder();
+                VDP.Bitstream2DecodedParallel parallelDecoder =
+                        new VDP.Bitstream2DecodedParallel(aoDecoders, parallel, parallel);
+                try {
+                    feed(frames, parallelDecoder);
+                    parallelDecoder.flush();
+                } finally {
+                    parallelDecoder.close();
+                }
+
+                assertEquals(quality + " " + iThreads + " threads",
+                             serial.events, parallel.events);
+            }
+        }
+    }
+
+    /** Several formats, including switching back and forth, a frame that
+     * can't be identified, and an incomplete frame. */
+    private static List<byte[]> createFrames() {
+        BitStreamCompressor v2 = new BitStreamUncompressor_STRv2.BitStreamCompressor_STRv2();
+        BitStreamCompressor[] aoCompressors = {
+            v2, v2, v2,
+            new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3(),
+            new BitStreamUncompressor_STRv3.BitStreamCompressor_STRv3(),
+            null,
+            v2,
+            new BitStreamUncompressor_Iki.BitStreamCompressor_Iki(),
+            new BitStreamUncompressor_Iki.BitStreamCompressor_Iki(),
+            new BitStreamUncompressor_Lain.BitStreamCompressor_Lain(),
+            new BitStreamUncompressor_STRv1.BitStreamCompressor_STRv1(),
+            v2,
+        };
+        ArrayList<byte[]> frames = new ArrayList<byte[]>();
+        for (int iFrame = 0; iFrame < aoCompressors.length; iFrame++) {
+            if (aoCompressors[iFrame] == null) {
+                byte[] abGarbage = new byte[2000];
+                new Random(iFrame).nextBytes(abGarbage);
+                frames.add(abGarbage);
+            } else {
+                frames.add(SyntheticDisc.compress(
+                        SyntheticDisc.createFrameImage(WIDTH, HEIGHT, iFrame),
+                        aoCompressors[iFrame], 3 + iFrame % 4));
+            }
+        }
+        byte[] abComplete = frames.get(6);
+        frames.add(Arrays.copyOf(abComplete, abComplete.length / 2));
+        return frames;
+    }
+
+    /** Reuses one buffer for every frame, like the demuxers do. */
+    private static void feed(@Nonnull List<byte[]> frames, @Nonnull VDP.IBitstreamListener listener)
+            throws Exception
+    {
+        byte[] abBuffer = new byte[1];
+        int iFrame = 0;
+        for (byte[] abFrame : frames) {
+            if (abBuffer.length < abFrame.length)
+                abBuffer = new byte[abFrame.length + 100];
+            Arrays.fill(abBuffer, (byte)0xff);
+            System.arraycopy(abFrame, 0, abBuffer, 0, abFrame.length);
+            listener.bitstream(abBuffer, abFrame.length,
+                               new FrameNumber(iFrame, iFrame * 10, 0, iFrame, 0),
+                               iFrame * 10 + 9);
+            iFrame++;
+        }
+    }
+
+    /** Records the frames, errors and log messages in the order they arrive. */
+    private static class Recorder implements VDP.IDecodedListener, ILocalizedLogger {
+        public final ArrayList<String> events = new ArrayList<String>();
+        private final int[] _aiRgb = new int[WIDTH * HEIGHT];
+
+        public void decoded(@Nonnull MdecDecoder decoder, @Nonnull FrameNumber frameNumber, int iFrameEndSector) {
+            decoder.readDecodedRgb(WIDTH, HEIGHT, _aiRgb);
+            events.add("decoded " + frameNumber + " " + iFrameEndSector + " " + Arrays.toString(_aiRgb));
+        }
+
+        public void error(@Nonnull ILocalizedMessage errMsg, @Nonnull FrameNumber frameNumber, int iFrameEndSector) {
+            events.add("error " + frameNumber + " " + iFrameEndSector + " " + errMsg.getEnglishMessage());
+        }
+
+        public void assertAcceptsDecoded(@Nonnull MdecDecoder decoder) {
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg) {
+            log(level, msg, null);
+        }
+
+        public void log(@Nonnull Level level, @Nonnull ILocalizedMessage msg,
+                        @CheckForNull Throwable debugException)
+        {
+            events.add(level + " " + msg.getEnglishMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.i18n.ILocalizedMessage;
+import jpsxdec.util.DebugLogger;
+import jpsxdec.util.IO;
+import jpsxdec.util.ProgressLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class DiscIndexCacheTest {
+
+    private File _disc, _index, _cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        _disc = File.createTempFile("DiscIndexCacheTest", ".bin");
+        new SyntheticDisc(5).write(_disc, CdFileSectorReader.SECTOR_SIZE_2352_BIN);
+        _index = File.createTempFile("DiscIndexCacheTest", ".idx");
+        _cacheFile = DiscIndexCache.cacheFileFor(_index);
+
+        CdFileSectorReader cd = new CdFileSectorReader(_disc);
+        try {
+            DiscIndex index = new DiscIndex(cd, quietLogger());
+            index.serializeIndex(_index);
+        } finally {
+            cd.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        _disc.delete();
+        _index.delete();
+        _cacheFile.delete();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        assertTrue(_cacheFile.exists());
+        assertNotNull(DiscIndexCache.read(_index));
+        List<String> text = lines(_index);
+
+        DiscIndex index = new DiscIndex(_index.getPath(), DebugLogger.Log);
+        try {
+            assertEquals(text, serialize(index));
+        } finally {
+            index.getSourceCd().close();
+        }
+    }
+
+    @Test
+    public void onlyWrittenWhenSaved() throws Exception {
+        assertTrue(_cacheFile.delete());
+
+        DiscIndex index = new DiscIndex(_index.getPath(), DebugLogger.Log);
+        index.getSourceCd().close();
+        assertFalse(_cacheFile.exists());
+    }
+
+    @Test
+    public void ignoredWhenIndexChanges() throws Exception {
+        List<String> text = lines(_index);
+        DiscIndex original = new DiscIndex(_index.getPath(), DebugLogger.Log);
+        int iOriginalSize = original.size();
+        original.getSourceCd().close();
+
+        // remove the last item from the text index
+        List<String> edited = new ArrayList<String>(text.subList(0, text.size() - 1));
+        PrintStream ps = new PrintStream(_index, "UTF-8");
+        for (String sLine : edited)
+            ps.println(sLine);
+        ps.close();
+        assertNull(DiscIndexCache.read(_index));
+
+        DiscIndex index = new DiscIndex(_index.getPath(), DebugLogger.Log);
+        try {
+            assertEquals(iOriginalSize - 1, index.size());
+            assertEquals(edited, serialize(index));
+        } finally {
+            index.getSourceCd().close();
+        }
+    }
+
+    private static @Nonnull List<String> serialize(@Nonnull DiscIndex index) throws Exception {
+        File file = File.createTempFile("DiscIndexCacheTest", ".idx");
+        try {
+            index.serializeIndex(file);
+            return lines(file);
+        } finally {
+            file.delete();
+            DiscIndexCache.cacheFileFor(file).delete();
+        }
+    }
+
+    private static @Nonnull List<String> lines(@Nonnull File file) throws Exception {
+        return Arrays.asList(new String(IO.readFile(file), "UTF-8").split("\\r?\\n"));
+    }
+
+    private static @Nonnull ProgressLogger quietLogger() {
+        return new ProgressLogger("DiscIndexCacheTest", new PrintStream(new java.io.ByteArrayOutputStream())) {
+            protected void handleProgressStart() {}
+            protected void handleProgressUpdate(double dblPercentComplete) {}
+            protected void handleProgressEnd() {}
+            public boolean isSeekingEvent() { return false; }
+            public void event(@Nonnull ILocalizedMessage msg) {}
+        };
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2014-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.indexing;
+
+import java.util.Random;
+import jpsxdec.discitems.DiscItem;
+import jpsxdec.discitems.DiscItemSaverBuilder;
+import jpsxdec.i18n.ILocalizedMessage;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class SectorRangeTreeTest {
+
+    public SectorRangeTreeTest() {
+    }
+
+    private static class DummyItem extends DiscItem {
+        public DummyItem(int iStartSector, int iEndSector) {
+            super(null, iStartSector, iEndSector);
+        }
+        public String getSerializationTypeId() {
+            return "dummy";
+        }
+        public GeneralType getType() {
+            return GeneralType.File;
+        }
+        public ILocalizedMessage getInterestingDescription() {
+            throw new UnsupportedOperationException();
+        }
+        public DiscItemSaverBuilder makeSaverBuilder() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static int[] bruteForce(DiscItem[] aoItems, int iStart, int iEnd) {
+        int iCount = 0;
+        int[] aiFound = new int[aoItems.length];
+        for (int i = 0; i < aoItems.length; i++) {
+            if (aoItems[i].getStartSector() <= iEnd && aoItems[i].getEndSector() >= iStart)
+                aiFound[iCount++] = i;
+        }
+        int[] ai = new int[iCount];
+        System.arraycopy(aiFound, 0, ai, 0, iCount);
+        return ai;
+    }
+
+    @Test
+    public void empty() {
+        SectorRangeTree tree = new SectorRangeTree(new DiscItem[0]);
+        assertEquals(0, tree.findOverlapping(0, 100).length);
+    }
+
+    @Test
+    public void sameAsCheckingEveryItem() {
+        Random rand = new Random(1234);
+        for (int iItemCount = 1; iItemCount < 200; iItemCount += 7) {
+            DiscItem[] aoItems = new DiscItem[iItemCount];
+            for (int i = 0; i < iItemCount; i++) {
+                int iStart = rand.nextInt(1000);
+                aoItems[i] = new DummyItem(iStart, iStart + rand.nextInt(rand.nextBoolean() ? 10 : 500));
+            }
+            SectorRangeTree tree = new SectorRangeTree(aoItems);
+            for (int i = 0; i < 50; i++) {
+                int iStart = rand.nextInt(1600) - 50;
+                int iEnd = iStart + rand.nextInt(100);
+                assertArrayEquals(bruteForce(aoItems, iStart, iEnd), tree.findOverlapping(iStart, iEnd));
+            }
+        }
+    }
+
+}
@@ -37,6 +37,7 @@
 
 package jpsxdec.psxvideo;
 
+import jpsxdec.formats.RGB;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -86,4 +87,21 @@ public class PsxYCbCr_intTest {
 
     }
 
+    @Test
+    public void testLookupSameAsToRgb() {
+        RGB rgb = new RGB();
+        // includes chroma values outside the lookup tables
+        for (int cb = -1500; cb <= 1500; cb += 3) {
+            for (int cr = -1500; cr <= 1500; cr += 7) {
+                int iChromRed   = PsxYCbCr_int.chromRed(cr);
+                int iChromGreen = PsxYCbCr_int.chromGreen(cb, cr);
+                int iChromBlue  = PsxYCbCr_int.chromBlue(cb);
+                for (int y = -400; y <= 400; y += 17) {
+                    PsxYCbCr_int.toRgb(y, cb, cr, rgb);
+                    assertEquals(rgb.toInt(), PsxYCbCr_int.toArgb(y + 128, iChromRed, iChromGreen, iChromBlue));
+                }
+            }
+        }
+    }
+
 }
@@ -187,6 +187,41 @@ public class BitReader {
         assertTrue(READ_BITS, BIT_STRING.startsWith(READ_BITS));
     }
 
+    @Test
+    public void testPeekSameAsBitString() throws MdecException.EndOfStream {
+        // fixed seed so any failure can be reproduced
+        final Random rand = new Random(1);
+
+        byte[] abTest = new byte[64];
+        rand.nextBytes(abTest);
+
+        for (boolean blnLittleEndian : new boolean[] {false, true}) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < abTest.length; i += 2) {
+                if (blnLittleEndian) {
+                    sb.append(Misc.bitsToString(abTest[i+1], 8));
+                    sb.append(Misc.bitsToString(abTest[i], 8));
+                } else {
+                    sb.append(Misc.bitsToString(abTest[i], 8));
+                    sb.append(Misc.bitsToString(abTest[i+1], 8));
+                }
+            }
+            final String BIT_STRING = sb.toString();
+
+            ArrayBitReader abr = new ArrayBitReader(abTest, abTest.length, blnLittleEndian);
+            int iRead = 0;
+            while (abr.getBitsRemaining() >= 31) {
+                for (int iCount = 1; iCount < 32; iCount++) {
+                    String sExpected = BIT_STRING.substring(iRead, iRead + iCount);
+                    assertEquals(sExpected, Integer.parseInt(sExpected, 2), abr.peekUnsignedBits(iCount));
+                }
+                int iSkip = rand.nextInt(17);
+                abr.skipBits(iSkip);
+                iRead += iSkip;
+            }
+        }
+    }
+
     @Test
     public void testPerformance() {
         byte[] abData = new byte[100000];
@@ -0,0 +1,204 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec;
+
+import com.mortennobel.imagescaling.ResampleFilter;
+import com.mortennobel.imagescaling.ResampleFilters;
+import com.mortennobel.imagescaling.ResampleOp;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class ChromaUpsamplerTest {
+
+    /** The filters used by {@link MdecDecoder_double_interpolate.Upsampler}. */
+    private static final ResampleFilter[] FILTERS = {
+        ResampleFilters.getBiCubicFilter(),
+        ResampleFilters.getBellFilter(),
+        ResampleFilters.getMitchellFilter(),
+        ResampleFilters.getBSplineFilter(),
+        ResampleFilters.getLanczos3Filter(),
+        ResampleFilters.getHermiteFilter(),
+    };
+
+    /** {width, height} of chroma planes that ResampleOp can handle,
+     * including odd sizes. */
+    private static final int[][] SIZES = {
+        {16, 8}, {8, 8}, {7, 5}, {4, 9},
+    };
+
+    /** {width, height} of chroma planes so small that some mirrored taps
+     * are still outside the plane. ResampleOp fails on these because it
+     * still reads those taps (with a weight of 0). */
+    private static final int[][] TINY_SIZES = {
+        {1, 1}, {2, 1}, {1, 3}, {3, 2}, {3, 3},
+    };
+
+    @Test
+    public void sameAsResampleOp() {
+        Random rand = new Random(420);
+        for (ResampleFilter filter : FILTERS) {
+            for (int[] aiSize : SIZES) {
+                int iSrcWidth = aiSize[0], iSrcHeight = aiSize[1];
+                double[] adblCb = randomPlane(rand, iSrcWidth * iSrcHeight);
+                double[] adblCr = randomPlane(rand, iSrcWidth * iSrcHeight);
+
+                ResampleOp resampler = new ResampleOp();
+                resampler.setNumberOfThreads(1);
+                resampler.setFilter(filter);
+                double[] adblExpectedCb = new double[iSrcWidth * 2 * iSrcHeight * 2];
+                double[] adblExpectedCr = new double[adblExpectedCb.length];
+                resampler.doFilter(adblCb, iSrcWidth, iSrcHeight, adblExpectedCb);
+                resampler.doFilter(adblCr, iSrcWidth, iSrcHeight, adblExpectedCr);
+
+                assertUpsampled(filter, iSrcWidth, iSrcHeight, adblCb, adblCr,
+                                adblExpectedCb, adblExpectedCr, 0);
+            }
+        }
+    }
+
+    @Test
+    public void tinyPlanes() {
+        Random rand = new Random(7);
+        for (ResampleFilter filter : FILTERS) {
+            for (int[] aiSize : TINY_SIZES) {
+                int iSrcWidth = aiSize[0], iSrcHeight = aiSize[1];
+
+                double[] adblCb = randomPlane(rand, iSrcWidth * iSrcHeight);
+                double[] adblCr = randomPlane(rand, iSrcWidth * iSrcHeight);
+                assertUpsampled(filter, iSrcWidth, iSrcHeight, adblCb, adblCr,
+                                reference(filter, adblCb, iSrcWidth, iSrcHeight),
+                                reference(filter, adblCr, iSrcWidth, iSrcHeight),
+                                1e-9);
+
+                // the taps outside the plane are ignored, but the rest
+                // still add up to 1
+                double[] adblFlat = new double[iSrcWidth * iSrcHeight];
+                Arrays.fill(adblFlat, 100);
+                double[] adblExpected = new double[iSrcWidth * 2 * iSrcHeight * 2];
+                Arrays.fill(adblExpected, 100);
+                assertUpsampled(filter, iSrcWidth, iSrcHeight, adblFlat, adblFlat,
+                                adblExpected, adblExpected, 1e-9);
+            }
+        }
+    }
+
+    /** Upsamples with {@link ChromaUpsampler} over the whole width, and
+     * cropped like a frame smaller than its macroblocks. */
+    private static void assertUpsampled(ResampleFilter filter, int iSrcWidth, int iSrcHeight,
+                                        double[] adblCb, double[] adblCr,
+                                        double[] adblExpectedCb, double[] adblExpectedCr,
+                                        double dblDelta)
+    {
+        int iDstWidth = iSrcWidth * 2, iDstHeight = iSrcHeight * 2;
+        for (int iWidth : new int[] {iDstWidth, iDstWidth - 1}) {
+            String sCase = filter.getName() + " " + iSrcWidth + "x" + iSrcHeight +
+                           " width " + iWidth;
+            ChromaUpsampler up = new ChromaUpsampler(filter, iSrcWidth, iSrcHeight);
+            up.upsampleHorizontal(adblCb, adblCr, iWidth);
+            double[] adblRowCb = new double[iDstWidth];
+            double[] adblRowCr = new double[iDstWidth];
+            for (int iY = 0; iY < iDstHeight; iY++) {
+                up.upsampleRow(iY, iWidth, adblRowCb, adblRowCr);
+                for (int iX = 0; iX < iWidth; iX++) {
+                    String sPos = sCase + " (" + iX + ", " + iY + ")";
+                    assertEquals(sPos, adblExpectedCb[iY * iDstWidth + iX], adblRowCb[iX], dblDelta);
+                    assertEquals(sPos, adblExpectedCr[iY * iDstWidth + iX], adblRowCr[iX], dblDelta);
+                }
+            }
+        }
+    }
+
+    /** Straightforward 2x upsampling with the same weights as ResampleOp,
+     * except taps still outside the plane after mirroring are skipped. */
+    private static double[] reference(ResampleFilter filter, double[] adblSrc,
+                                      int iSrcWidth, int iSrcHeight)
+    {
+        int iDstWidth = iSrcWidth * 2, iDstHeight = iSrcHeight * 2;
+        double[] adblWork = new double[iDstWidth * iSrcHeight];
+        for (int iY = 0; iY < iSrcHeight; iY++) {
+            for (int iX = 0; iX < iDstWidth; iX++) {
+                double[] adblWeights = weights(filter, iX, iSrcWidth);
+                double dblSum = 0;
+                for (int i = 0; i < iSrcWidth; i++)
+                    dblSum += adblSrc[iY * iSrcWidth + i] * adblWeights[i];
+                adblWork[iY * iDstWidth + iX] = dblSum;
+            }
+        }
+        double[] adblDst = new double[iDstWidth * iDstHeight];
+        for (int iY = 0; iY < iDstHeight; iY++) {
+            double[] adblWeights = weights(filter, iY, iSrcHeight);
+            for (int iX = 0; iX < iDstWidth; iX++) {
+                double dblSum = 0;
+                for (int i = 0; i < iSrcHeight; i++)
+                    dblSum += adblWork[i * iDstWidth + iX] * adblWeights[i];
+                adblDst[iY * iDstWidth + iX] = Math.max(-128, Math.min(127, dblSum));
+            }
+        }
+        return adblDst;
+    }
+
+    /** Normalized weight of each source sample for one output sample. */
+    private static double[] weights(ResampleFilter filter, int iDst, int iSrcSize) {
+        double dblRadius = filter.getSamplingRadius();
+        double dblCenter = (iDst + 0.5) / 2;
+        double[] adblWeights = new double[iSrcSize];
+        double dblTotal = 0;
+        for (int j = (int)Math.floor(dblCenter - dblRadius); j <= (int)Math.ceil(dblCenter + dblRadius); j++) {
+            int iPixel = j < 0 ? -j : (j >= iSrcSize ? iSrcSize - j + iSrcSize - 1 : j);
+            if (iPixel < 0 || iPixel >= iSrcSize)
+                continue;
+            double dblWeight = filter.apply(dblCenter - j - 0.5);
+            adblWeights[iPixel] += dblWeight;
+            dblTotal += dblWeight;
+        }
+        for (int i = 0; i < iSrcSize; i++)
+            adblWeights[i] /= dblTotal;
+        return adblWeights;
+    }
+
+    /** Values a little beyond the chroma range so clamping is tested too. */
+    private static double[] randomPlane(Random rand, int iSize) {
+        double[] adbl = new double[iSize];
+        for (int i = 0; i < iSize; i++)
+            adbl[i] = rand.nextDouble() * 300 - 150;
+        return adbl;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.psxvideo.mdec.idct;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+
+public class FastPsxMdecIDCT_intTest {
+
+    public FastPsxMdecIDCT_intTest() {
+    }
+
+    private final PsxMdecIDCT_int _reference = new PsxMdecIDCT_int();
+    private final FastPsxMdecIDCT_int _fast = new FastPsxMdecIDCT_int();
+
+    /** Compares the output of both IDCTs, both to a separate buffer with
+     * an offset, and in-place like the decoder does. */
+    private void assertSame(int[] aiBlock) {
+        int iNonZeroCount = 0, iNonZeroPos = -1;
+        for (int i = 0; i < aiBlock.length; i++) {
+            if (aiBlock[i] != 0) {
+                iNonZeroCount++;
+                iNonZeroPos = i;
+            }
+        }
+
+        int[] aiExpected = new int[64 + 3];
+        _reference.IDCT(aiBlock.clone(), 3, aiExpected);
+
+        int[] aiActual = new int[64 + 3];
+        _fast.IDCT(aiBlock.clone(), 3, aiActual);
+        assertArrayEquals(Arrays.toString(aiBlock), aiExpected, aiActual);
+
+        int[] aiInPlace = aiBlock.clone();
+        if (iNonZeroCount == 1)
+            _fast.IDCT_1NonZero(aiInPlace, iNonZeroPos, 0, aiInPlace);
+        else
+            _fast.IDCT(aiInPlace, 0, aiInPlace);
+        for (int i = 0; i < 64; i++)
+            assertEquals(Arrays.toString(aiBlock), aiExpected[i + 3], aiInPlace[i]);
+    }
+
+    @Test
+    public void singleCoefficient() {
+        int[] aiBlock = new int[64];
+        int[] aiValues = {1, -1, 2047, -2048, 65535, -65536, 65536, -65537, 2000000, -2000000};
+        for (int iPos = 0; iPos < 64; iPos++) {
+            for (int iValue : aiValues) {
+                Arrays.fill(aiBlock, 0);
+                aiBlock[iPos] = iValue;
+                assertSame(aiBlock);
+            }
+        }
+    }
+
+    @Test
+    public void randomBlocks() {
+        Random rand = new Random(2017);
+        int[] aiBlock = new int[64];
+        // values that fit the fast path, and some that overflow like the original
+        int[] aiRanges = {256, 4096, 65536, 70000, 2000000};
+        for (int iTest = 0; iTest < 200000; iTest++) {
+            Arrays.fill(aiBlock, 0);
+            int iRange = aiRanges[rand.nextInt(aiRanges.length)];
+            int iCount = rand.nextInt(4) == 0 ? rand.nextInt(65) : 1 + rand.nextInt(8);
+            boolean blnFirstColumnOnly = rand.nextInt(4) == 0;
+            for (int i = 0; i < iCount; i++) {
+                int iPos = blnFirstColumnOnly ? rand.nextInt(8) * 8 : rand.nextInt(64);
+                aiBlock[iPos] = rand.nextInt(iRange * 2) - iRange;
+            }
+            assertSame(aiBlock);
+        }
+    }
+
+}
@@ -37,7 +37,12 @@
 
 package jpsxdec.psxvideo.mdec.tojpeg;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
 import jpsxdec.psxvideo.mdec.MdecException;
 import jpsxdec.psxvideo.mdec.MdecInputStream;
 import jpsxdec.psxvideo.mdec.MdecInputStream.MdecCode;
@@ -140,6 +145,48 @@ public class Mdec2JpegTest {
         }
     }
 
+    @Test
+    public void optimizedHuffmanTables() throws Exception {
+        BufferedImage bi = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bi.createGraphics();
+        g.setColor(Color.orange);
+        g.fillOval(5, 5, 40, 30);
+        g.setColor(Color.white);
+        g.drawString("jPSXdec", 10, 40);
+        g.dispose();
+
+        Mdec2Jpeg jpeg = new Mdec2Jpeg(64, 48);
+        jpeg.readImage(bi);
+        int iDefaultSize = jpeg.writeJpeg();
+        BufferedImage defaultJpeg = ImageIO.read(new ByteArrayInputStream(jpeg.getJpegBuffer(), 0, iDefaultSize));
+
+        jpeg.setOptimizeHuffmanTables(true);
+        int iOptimizedSize = jpeg.writeJpeg();
+        BufferedImage optimizedJpeg = ImageIO.read(new ByteArrayInputStream(jpeg.getJpegBuffer(), 0, iOptimizedSize));
+
+        assertTrue(iOptimizedSize < iDefaultSize);
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                assertEquals(defaultJpeg.getRGB(x, y), optimizedJpeg.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void blank() throws Exception {
+        Mdec2Jpeg jpeg = new Mdec2Jpeg(40, 24);
+        jpeg.readBlank();
+        int iSize = jpeg.writeJpeg();
+        BufferedImage bi = ImageIO.read(new ByteArrayInputStream(jpeg.getJpegBuffer(), 0, iSize));
+        assertEquals(40, bi.getWidth());
+        assertEquals(24, bi.getHeight());
+        for (int y = 0; y < 24; y++) {
+            for (int x = 0; x < 40; x++) {
+                assertEquals(0xff000000, bi.getRGB(x, y));
+            }
+        }
+    }
+
 
 
 }
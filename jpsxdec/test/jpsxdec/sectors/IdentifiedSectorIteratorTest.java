@@ -0,0 +1,98 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.sectors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class IdentifiedSectorIteratorTest {
+
+    @Test
+    public void parallelSameAsSerial() throws Exception {
+        SyntheticDisc synthetic = new SyntheticDisc(10);
+        int[] aiSectorSizes = {
+            CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+            CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+            CdFileSectorReader.SECTOR_SIZE_2048_ISO,
+        };
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            for (int iSectorSize : aiSectorSizes) {
+                File disc = File.createTempFile("IdentifiedSectorIteratorTest", ".bin");
+                synthetic.write(disc, iSectorSize);
+                CdFileSectorReader cd = new CdFileSectorReader(disc);
+                try {
+                    int iLast = cd.getLength() - 1;
+                    int[][] aaiRanges = { {0, iLast}, {17, iLast - 23}, {5, 5} };
+                    for (int[] aiRange : aaiRanges) {
+                        ArrayList<String> serial = identifyAll(
+                                IdentifiedSectorIterator.create(cd, aiRange[0], aiRange[1]));
+                        assertEquals(aiRange[1] - aiRange[0] + 1, serial.size());
+                        for (int iThreads = 1; iThreads <= 4; iThreads++) {
+                            ArrayList<String> parallel = identifyAll(
+                                    IdentifiedSectorIterator.create(cd, aiRange[0], aiRange[1],
+                                                                    threads, iThreads));
+                            assertEquals(serial, parallel);
+                        }
+                    }
+                } finally {
+                    cd.close();
+                    disc.delete();
+                }
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private static ArrayList<String> identifyAll(IdentifiedSectorIterator it) throws Exception {
+        ArrayList<String> sectors = new ArrayList<String>();
+        while (it.hasNext()) {
+            IdentifiedSector id = it.next();
+            sectors.add(id == null ? it.currentCd().toString() : id.toString());
+        }
+        return sectors;
+    }
+}
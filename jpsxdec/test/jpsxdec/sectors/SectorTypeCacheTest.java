@@ -0,0 +1,176 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2014-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.sectors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import jpsxdec.bench.SyntheticDisc;
+import jpsxdec.cdreaders.CdFileSectorReader;
+import jpsxdec.util.IO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SectorTypeCacheTest {
+
+    @Before
+    public void setUp() {
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(false);
+    }
+
+    @Test
+    public void recordAndInvalidate() throws Exception {
+        File disc = File.createTempFile("SectorTypeCacheTest", ".iso");
+        byte[] abDisc = new byte[100 * 2048];
+        new Random(1).nextBytes(abDisc);
+        IO.writeFile(disc, abDisc);
+
+        CdFileSectorReader cd = new CdFileSectorReader(disc);
+        File cacheFile = SectorTypeCache.cacheFileFor(cd);
+        try {
+            assertNull(SectorTypeCache.read(cd));
+
+            // only the entire disc is recorded
+            IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd, 10, 20);
+            while (it.hasNext())
+                it.next();
+            assertFalse(cacheFile.exists());
+
+            ArrayList<Integer> types = new ArrayList<Integer>();
+            it = IdentifiedSectorIterator.create(cd);
+            while (it.hasNext())
+                types.add(SectorTypeCache.typeOf(it.next()));
+            assertTrue(cacheFile.exists());
+
+            SectorTypeCache cache = SectorTypeCache.read(cd);
+            assertNotNull(cache);
+            for (int i = 0; i < types.size(); i++) {
+                assertEquals(types.get(i).intValue(), cache.getType(i));
+            }
+
+            assertTrue(disc.setLastModified(disc.lastModified() - 10000));
+            assertNull(SectorTypeCache.read(cd));
+        } finally {
+            cd.close();
+            disc.delete();
+            cacheFile.delete();
+        }
+    }
+
+    @Test
+    public void notWrittenUnlessEnabled() throws Exception {
+        IdentifiedSectorIterator.setSectorTypeCacheEnabled(false);
+        File disc = File.createTempFile("SectorTypeCacheTest", ".iso");
+        IO.writeFile(disc, new byte[20 * 2048]);
+
+        CdFileSectorReader cd = new CdFileSectorReader(disc);
+        File cacheFile = SectorTypeCache.cacheFileFor(cd);
+        try {
+            IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
+            while (it.hasNext())
+                it.next();
+            assertFalse(cacheFile.exists());
+        } finally {
+            cd.close();
+            disc.delete();
+            cacheFile.delete();
+        }
+    }
+
+    @Test
+    public void cachedSameAsUncached() throws Exception {
+        SyntheticDisc synthetic = new SyntheticDisc(10);
+        int[] aiSectorSizes = {
+            CdFileSectorReader.SECTOR_SIZE_2352_BIN,
+            CdFileSectorReader.SECTOR_SIZE_2336_BIN_NOSYNC,
+            CdFileSectorReader.SECTOR_SIZE_2048_ISO,
+        };
+        for (int iSectorSize : aiSectorSizes) {
+            File disc = File.createTempFile("SectorTypeCacheTest", ".bin");
+            synthetic.write(disc, iSectorSize);
+            CdFileSectorReader cd = new CdFileSectorReader(disc);
+            File cacheFile = SectorTypeCache.cacheFileFor(cd);
+            try {
+                IdentifiedSectorIterator.setSectorTypeCacheEnabled(false);
+                ArrayList<String> uncached = identifyAll(cd);
+                assertFalse(cacheFile.exists());
+
+                // make sure there is a good variety of real sector types
+                HashSet<Integer> types = new HashSet<Integer>();
+                IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
+                while (it.hasNext())
+                    types.add(SectorTypeCache.typeOf(it.next()));
+                assertTrue(types.contains(SectorTypeCache.STR_VIDEO));
+                assertTrue(types.contains(SectorTypeCache.ISO9660_DIR));
+                assertTrue(types.contains(SectorTypeCache.ISO9660_PVD));
+                if (iSectorSize != CdFileSectorReader.SECTOR_SIZE_2048_ISO)
+                    assertTrue(types.contains(SectorTypeCache.XA_AUDIO));
+
+                IdentifiedSectorIterator.setSectorTypeCacheEnabled(true);
+                // records the cache
+                assertEquals(uncached, identifyAll(cd));
+                assertNotNull(SectorTypeCache.read(cd));
+                // uses the cache
+                assertEquals(uncached, identifyAll(cd));
+            } finally {
+                cd.close();
+                disc.delete();
+                cacheFile.delete();
+            }
+        }
+    }
+
+    private static ArrayList<String> identifyAll(CdFileSectorReader cd) throws Exception {
+        ArrayList<String> sectors = new ArrayList<String>();
+        IdentifiedSectorIterator it = IdentifiedSectorIterator.create(cd);
+        while (it.hasNext()) {
+            IdentifiedSector id = it.next();
+            sectors.add(id == null ? it.currentCd().toString() : id.toString());
+        }
+        return sectors;
+    }
+}
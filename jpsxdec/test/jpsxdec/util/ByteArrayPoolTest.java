@@ -0,0 +1,78 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void sizeClasses() {
+        ByteArrayPool pool = new ByteArrayPool(2);
+        assertEquals(1024, pool.borrow(0).length);
+        assertEquals(1024, pool.borrow(1024).length);
+        assertEquals(2048, pool.borrow(1025).length);
+        assertEquals(16384, pool.borrow(14110).length);
+        // too big to pool
+        assertEquals(3000000, pool.borrow(3000000).length);
+    }
+
+    @Test
+    public void reuse() {
+        ByteArrayPool pool = new ByteArrayPool(2);
+        byte[] ab1 = pool.borrow(5000);
+        byte[] ab2 = pool.borrow(5000);
+        byte[] ab3 = pool.borrow(5000);
+        assertNotSame(ab1, ab2);
+        pool.giveBack(ab1);
+        pool.giveBack(ab2);
+        pool.giveBack(ab3); // pool is full, dropped
+        // not a size class
+        pool.giveBack(new byte[5000]);
+
+        byte[] abA = pool.borrow(6000);
+        byte[] abB = pool.borrow(8192);
+        assertTrue((abA == ab1 && abB == ab2) || (abA == ab2 && abB == ab1));
+        byte[] abC = pool.borrow(5000);
+        assertNotSame(ab3, abC);
+        assertEquals(8192, abC.length);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2014-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.aviwriter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import jpsxdec.util.IO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class AviWriterTest {
+
+    private static final int WIDTH = 16, HEIGHT = 16;
+
+    @Test
+    public void testOpenDmlRiffs() throws Exception {
+        File file = File.createTempFile("AviWriterTest", ".avi");
+        try {
+            ArrayList<byte[]> frames = new ArrayList<byte[]>();
+            AviWriterDIB writer = new AviWriterDIB(file, WIDTH, HEIGHT, 15, 1);
+            writer.setMaxRiffSize(40000);
+            Random rand = new Random(1);
+            for (int i = 0; i < 200; i++) {
+                byte[] abRgb = new byte[WIDTH * HEIGHT * 3];
+                rand.nextBytes(abRgb);
+                writer.writeFrameRGB(abRgb, 0, WIDTH * 3);
+                frames.add(toDib(abRgb));
+                if (i % 10 == 0) {
+                    writer.repeatPreviousFrame();
+                    frames.add(frames.get(frames.size() - 1));
+                }
+            }
+            writer.close();
+
+            byte[] abAvi = IO.readFile(file);
+            // the RIFFs cover the whole file
+            int iRiffCount = 0;
+            for (int iPos = 0; iPos < abAvi.length; iRiffCount++) {
+                assertEquals("RIFF", fourCC(abAvi, iPos));
+                assertEquals(iRiffCount == 0 ? "AVI " : "AVIX", fourCC(abAvi, iPos + 8));
+                iPos += 8 + IO.readSInt32LE(abAvi, iPos + 4);
+            }
+            assertTrue(iRiffCount > 3);
+
+            // follow the video super index to every frame
+            int iIndx = indexOf(abAvi, "indx");
+            assertEquals("00dc", fourCC(abAvi, iIndx + 16));
+            int iFrame = 0;
+            for (int i = 0; i < IO.readSInt32LE(abAvi, iIndx + 12); i++) {
+                int iStdIndex = IO.readSInt32LE(abAvi, iIndx + 32 + i * 16);
+                assertEquals("ix00", fourCC(abAvi, iStdIndex));
+                int iBase = IO.readSInt32LE(abAvi, iStdIndex + 20);
+                for (int j = 0; j < IO.readSInt32LE(abAvi, iStdIndex + 12); j++, iFrame++) {
+                    int iData = iBase + IO.readSInt32LE(abAvi, iStdIndex + 32 + j * 8);
+                    int iSize = IO.readSInt32LE(abAvi, iStdIndex + 36 + j * 8);
+                    assertEquals("00dc", fourCC(abAvi, iData - 8));
+                    assertEquals(frames.get(iFrame).length, iSize);
+                    for (int k = 0; k < iSize; k++)
+                        assertEquals(frames.get(iFrame)[k], abAvi[iData + k]);
+                }
+            }
+            assertEquals(frames.size(), iFrame);
+            // total frames in the 'dmlh'
+            assertEquals(frames.size(), IO.readSInt32LE(abAvi, indexOf(abAvi, "dmlh") + 8));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /** Bottom-up BGR, same as {@link AviWriterDIB#writeFrameRGB(byte[], int, int)}. */
+    private static byte[] toDib(byte[] abRgb) {
+        byte[] abDib = new byte[abRgb.length];
+        for (int y = 0, i = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++, i += 3) {
+                int iSrc = ((HEIGHT - 1 - y) * WIDTH + x) * 3;
+                abDib[i]   = abRgb[iSrc+2];
+                abDib[i+1] = abRgb[iSrc+1];
+                abDib[i+2] = abRgb[iSrc];
+            }
+        }
+        return abDib;
+    }
+
+    private static String fourCC(byte[] ab, int i) {
+        return new String(ab, i, 4);
+    }
+
+    private static int indexOf(byte[] ab, String sFourCC) {
+        for (int i = 0; i < ab.length - 4; i++) {
+            if (fourCC(ab, i).equals(sFourCC))
+                return i;
+        }
+        throw new AssertionError(sFourCC + " not found");
+    }
+}
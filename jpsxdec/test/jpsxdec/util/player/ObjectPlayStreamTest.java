@@ -0,0 +1,300 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.player;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class ObjectPlayStreamTest {
+
+    /** Only reached if a wakeup is lost, but long enough for a slow machine. */
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    /** Reads or writes on its own thread so the test can check it blocks
+     * and is woken up again. */
+    private static abstract class Side<R> extends Thread {
+        @CheckForNull
+        private volatile R _result;
+        @CheckForNull
+        private volatile Throwable _exception;
+
+        public Side(@Nonnull String sName) {
+            super(sName);
+            // so a lost wakeup doesn't keep the test JVM running
+            setDaemon(true);
+        }
+
+        abstract R call() throws Exception;
+
+        public void run() {
+            try {
+                _result = call();
+            } catch (Throwable ex) {
+                _exception = ex;
+            }
+        }
+
+        /** Fails if the thread doesn't start waiting. */
+        public void assertBlocks() throws InterruptedException {
+            assertReaches(Thread.State.WAITING);
+        }
+
+        /** Fails if the thread doesn't reach the state. */
+        public void assertReaches(@Nonnull Thread.State state) throws InterruptedException {
+            long lngDeadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (getState() != state) {
+                assertTrue(getName() + " didn't reach " + state,
+                           isAlive() && System.currentTimeMillis() < lngDeadline);
+                Thread.sleep(1);
+            }
+        }
+
+        /** Fails if the thread doesn't finish. */
+        public @CheckForNull R finish() throws InterruptedException {
+            join(TIMEOUT_MILLIS);
+            assertFalse(getName() + " is still blocked", isAlive());
+            if (_exception instanceof Error)
+                throw (Error)_exception;
+            if (_exception != null)
+                throw new RuntimeException(_exception);
+            return _result;
+        }
+    }
+
+    private static @Nonnull Side<Integer> startRead(@Nonnull final ObjectPlayStream<Integer> stream) {
+        Side<Integer> reader = new Side<Integer>("reader") {
+            Integer call() throws InterruptedException {
+                return stream.read();
+            }
+        };
+        reader.start();
+        return reader;
+    }
+
+    private static @Nonnull Side<Boolean> startWrite(@Nonnull final ObjectPlayStream<Integer> stream,
+                                                     final int i)
+    {
+        Side<Boolean> writer = new Side<Boolean>("writer") {
+            Boolean call() throws InterruptedException {
+                return stream.write(i);
+            }
+        };
+        writer.start();
+        return writer;
+    }
+
+    @Test
+    public void readerWaitsForWriter() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        Side<Integer> reader = startRead(stream);
+        reader.assertBlocks();
+        assertTrue(stream.write(1));
+        assertEquals(Integer.valueOf(1), reader.finish());
+        assertEquals(0, stream.getDepth());
+    }
+
+    @Test
+    public void pausedReaderWaitsForOpen() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        assertTrue(stream.isReaderOpenPaused());
+        assertTrue(stream.write(1));
+        Side<Integer> reader = startRead(stream);
+        reader.assertBlocks();
+        stream.readerOpen();
+        assertEquals(Integer.valueOf(1), reader.finish());
+    }
+
+    @Test
+    public void writerWaitsWhenFull() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        assertTrue(stream.write(1));
+        assertTrue(stream.write(2));
+        Side<Boolean> writer = startWrite(stream, 3);
+        writer.assertBlocks();
+        assertEquals(2, stream.getDepth());
+        assertEquals(Integer.valueOf(1), stream.read());
+        assertEquals(Boolean.TRUE, writer.finish());
+        assertEquals(Integer.valueOf(2), stream.read());
+        assertEquals(Integer.valueOf(3), stream.read());
+        assertEquals(2, stream.getMaxDepth());
+    }
+
+    /** The reader finds the queue empty, then the writer adds an item
+     * before the reader has flagged that it is waiting. The reader must
+     * see the item when it checks again instead of waiting forever. */
+    @Test
+    public void readerRechecksBeforeWaiting() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        Side<Integer> reader;
+        // holding the lock stops the reader between its check and its wait
+        synchronized (stream.getSyncObject()) {
+            reader = startRead(stream);
+            reader.assertReaches(Thread.State.BLOCKED);
+            assertTrue(stream.write(1));
+        }
+        assertEquals(Integer.valueOf(1), reader.finish());
+    }
+
+    /** The writer finds the queue full, then the reader takes an item
+     * before the writer has flagged that it is waiting. The writer must
+     * see the space when it checks again instead of waiting forever. */
+    @Test
+    public void writerRechecksBeforeWaiting() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(1);
+        stream.readerOpen();
+        assertTrue(stream.write(1));
+        Side<Boolean> writer;
+        // holding the lock stops the writer between its check and its wait
+        synchronized (stream.getSyncObject()) {
+            writer = startWrite(stream, 2);
+            writer.assertReaches(Thread.State.BLOCKED);
+            assertEquals(Integer.valueOf(1), stream.read());
+        }
+        assertEquals(Boolean.TRUE, writer.finish());
+        assertEquals(Integer.valueOf(2), stream.read());
+    }
+
+    @Test
+    public void writerCloseWakesReader() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        Side<Integer> reader = startRead(stream);
+        reader.assertBlocks();
+        stream.writerClose();
+        assertNull(reader.finish());
+        assertTrue(stream.isReaderClosed());
+    }
+
+    @Test
+    public void readerDrainsAfterWriterClose() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        assertTrue(stream.write(1));
+        assertTrue(stream.write(2));
+        stream.writerClose();
+        assertFalse(stream.write(3));
+        assertEquals(Integer.valueOf(1), stream.read());
+        assertEquals(Integer.valueOf(2), stream.read());
+        assertNull(stream.read());
+        assertTrue(stream.isReaderClosed());
+    }
+
+    @Test
+    public void readerCloseWakesReader() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        Side<Integer> reader = startRead(stream);
+        reader.assertBlocks();
+        stream.readerClose();
+        assertNull(reader.finish());
+
+        // also when waiting because it's paused
+        stream = new ObjectPlayStream<Integer>(2);
+        assertTrue(stream.write(1));
+        reader = startRead(stream);
+        reader.assertBlocks();
+        stream.readerClose();
+        assertNull(reader.finish());
+        assertEquals(0, stream.getDepth());
+    }
+
+    @Test
+    public void readerCloseWakesWriter() throws Exception {
+        ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(2);
+        stream.readerOpen();
+        assertTrue(stream.write(1));
+        assertTrue(stream.write(2));
+        Side<Boolean> writer = startWrite(stream, 3);
+        writer.assertBlocks();
+        stream.readerClose();
+        assertEquals(Boolean.FALSE, writer.finish());
+        assertFalse(stream.write(4));
+
+        // the items are only released by the reader's next read
+        assertEquals(2, stream.getDepth());
+        assertNull(stream.read());
+        assertEquals(0, stream.getDepth());
+        assertNull(stream.read());
+    }
+
+    /** Both sides on their own thread with a tiny queue, so they keep
+     * blocking on each other while the ring buffer wraps many times. */
+    @Test
+    public void writerReader() throws Exception {
+        for (int iCapacity : new int[] {1, 3, 4}) {
+            final int ITEMS = 50000;
+            final ObjectPlayStream<Integer> stream = new ObjectPlayStream<Integer>(iCapacity);
+            stream.readerOpen();
+            Side<Integer> writer = new Side<Integer>("writer") {
+                Integer call() throws InterruptedException {
+                    try {
+                        for (int i = 0; i < ITEMS; i++)
+                            assertTrue(stream.write(i));
+                    } finally {
+                        stream.writerClose();
+                    }
+                    return ITEMS;
+                }
+            };
+            Side<Integer> reader = new Side<Integer>("reader") {
+                Integer call() throws InterruptedException {
+                    int iCount = 0;
+                    Integer o;
+                    while ((o = stream.read()) != null) {
+                        assertEquals(iCount, o.intValue());
+                        iCount++;
+                    }
+                    return iCount;
+                }
+            };
+            reader.start();
+            writer.start();
+            assertEquals(Integer.valueOf(ITEMS), writer.finish());
+            assertEquals(Integer.valueOf(ITEMS), reader.finish());
+            assertTrue(stream.isReaderClosed());
+            assertTrue(stream.getMaxDepth() <= iCapacity);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * jPSXdec: PlayStation 1 Media Decoder/Converter in Java
+ * Copyright (C) 2007-2017  Michael Sabin
+ * All rights reserved.
+ *
+ * Redistribution and use of the jPSXdec code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jpsxdec.util.player;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class SpscRingBufferTest {
+
+    /** Capacities that are and aren't a power of 2. */
+    private static final int[] CAPACITIES = {1, 2, 3, 5, 8, 13};
+
+    @Test
+    public void fullAndEmpty() {
+        for (int iCapacity : CAPACITIES) {
+            SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(iCapacity);
+            assertEquals(iCapacity, buffer.getCapacity());
+            // fill and empty it a few times so the boundaries are checked
+            // at different positions in the array
+            int iNext = 0, iExpected = 0;
+            for (int iRound = 0; iRound < 5; iRound++) {
+                assertTrue(buffer.isEmpty());
+                assertFalse(buffer.isFull());
+                assertEquals(0, buffer.size());
+                assertNull(buffer.poll());
+                assertNull(buffer.peek());
+
+                for (int i = 0; i < iCapacity; i++) {
+                    assertFalse(buffer.isFull());
+                    assertTrue(buffer.offer(iNext++));
+                    assertEquals(i + 1, buffer.size());
+                    assertFalse(buffer.isEmpty());
+                }
+                assertTrue(buffer.isFull());
+                assertFalse(buffer.offer(-1));
+                assertEquals(iCapacity, buffer.size());
+
+                for (int i = 0; i < iCapacity; i++) {
+                    assertEquals(Integer.valueOf(iExpected), buffer.peek());
+                    assertEquals(Integer.valueOf(iExpected++), buffer.poll());
+                    assertFalse(buffer.isFull());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void wrapAround() {
+        for (int iCapacity : CAPACITIES) {
+            SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(iCapacity);
+            int iNext = 0, iExpected = 0;
+            // add and remove a different number of items each round so
+            // the head and tail cross the end of the array everywhere
+            for (int iRound = 0; iRound < 200; iRound++) {
+                int iFill = 1 + iRound % iCapacity;
+                for (int i = 0; i < iFill; i++)
+                    assertTrue(buffer.offer(iNext++));
+                assertEquals(iFill, buffer.size());
+                int iTake = 1 + (iRound * 7) % iFill;
+                for (int i = 0; i < iTake; i++)
+                    assertEquals(Integer.valueOf(iExpected++), buffer.poll());
+                buffer.clear();
+                iExpected = iNext;
+                assertTrue(buffer.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void invalidArguments() {
+        try {
+            new SpscRingBuffer<Integer>(0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new SpscRingBuffer<Integer>(4).offer(null);
+            fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /** Producer and consumer on different threads, with a small buffer so
+     * it wraps thousands of times. Neither side blocks so this only spins. */
+    @Test
+    public void producerConsumer() throws Exception {
+        for (int iCapacity : new int[] {1, 3, 4}) {
+            final int ITEMS = 200000;
+            final long lngDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            final SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(iCapacity);
+            Thread producer = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < ITEMS && System.nanoTime() < lngDeadline; ) {
+                        if (buffer.offer(i))
+                            i++;
+                        else
+                            Thread.yield();
+                    }
+                }
+            }, "producer");
+            producer.start();
+
+            int iCount = 0;
+            while (iCount < ITEMS && System.nanoTime() < lngDeadline) {
+                Integer o = buffer.poll();
+                if (o == null) {
+                    Thread.yield();
+                } else {
+                    assertEquals(iCount, o.intValue());
+                    iCount++;
+                    assertTrue(buffer.size() <= iCapacity);
+                }
+            }
+            producer.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse("Producer still running", producer.isAlive());
+            assertEquals(ITEMS, iCount);
+            assertNull(buffer.poll());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+}
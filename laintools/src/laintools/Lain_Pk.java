@@ -36,11 +36,11 @@
 
 package laintools;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import jpsxdec.util.IO;
 
 
@@ -58,121 +58,215 @@ import jpsxdec.util.IO;
 public class Lain_Pk {
     
     public static int DEBUG = 2;
-    
-    private static interface IZipField {
-        int getBitFlag();
-        void write(OutputStream os) throws IOException;
-    }
-    
-    /** Represents a run of bytes prior the current position that are
-     *  identical to the bytes at the current position. */
-    private static class BackCopy implements IZipField {
-        private final int _iRelativePosition;
-        private final int _iLength;
 
-        public BackCopy(int iPosition, int iLength) {
-            if (iPosition > 255+1)
+    /** Farthest back a copy can start. */
+    private static final int MAX_COPY_DISTANCE = 255 + 1;
+    /** Longest run of bytes a copy can hold. */
+    private static final int MAX_COPY_LENGTH = 255 + 3;
+    /** Shortest run of bytes a copy can hold. */
+    private static final int MIN_COPY_LENGTH = 3;
+
+    /** Size in bits of a literal byte field, including its flag bit. */
+    private static final int DIRECT_COPY_BITS = 8 + 1;
+    /** Size in bits of a back copy field, including its flag bit. */
+    private static final int BACK_COPY_BITS = 16 + 1;
+
+    /** Writes the fields in groups of 8, each group preceded by a byte
+     *  of flags indicating which fields are back copies. */
+    private static class FieldWriter {
+        private final OutputStream _os;
+        /** Flags byte followed by up to 8 fields of up to 2 bytes each. */
+        private final byte[] _abGroup = new byte[1 + 8 * 2];
+        private int _iGroupSize = 1;
+        private int _iFieldCount = 0;
+
+        public FieldWriter(OutputStream os) {
+            _os = os;
+        }
+
+        /** A run of bytes prior the current position that are
+         *  identical to the bytes at the current position. */
+        public void backCopy(int iRelativePosition, int iLength) throws IOException {
+            if (iRelativePosition > MAX_COPY_DISTANCE)
                 throw new IllegalArgumentException();
-            if (iLength > 255+3)
+            if (iLength > MAX_COPY_LENGTH)
                 throw new IllegalArgumentException();
-            _iRelativePosition = iPosition;
-            _iLength = iLength;
+            _abGroup[0] |= 0x80 >>> _iFieldCount;
+            _abGroup[_iGroupSize++] = (byte)(iRelativePosition - 1);
+            _abGroup[_iGroupSize++] = (byte)(iLength - MIN_COPY_LENGTH);
+            fieldAdded();
         }
 
-        public int getBitFlag() {
-            return 1;
+        /** A literal byte at the current position. */
+        public void directCopy(byte bValue) throws IOException {
+            _abGroup[_iGroupSize++] = bValue;
+            fieldAdded();
         }
 
-        public void write(OutputStream os) throws IOException {
-            os.write(_iRelativePosition - 1);
-            os.write(_iLength - 3);
+        private void fieldAdded() throws IOException {
+            _iFieldCount++;
+            if (_iFieldCount == 8)
+                flush();
         }
-    }
-    /** Represents a literal byte at the current position. */
-    private static class DirectCopy implements IZipField {
-        private final int _iValue;
 
-        public DirectCopy(int iValue) {
-            _iValue = iValue;
+        /** Writes the last group, which may have fewer than 8 fields. */
+        public void flush() throws IOException {
+            if (_iFieldCount == 0)
+                return;
+            _os.write(_abGroup, 0, _iGroupSize);
+            _abGroup[0] = 0;
+            _iGroupSize = 1;
+            _iFieldCount = 0;
         }
+    }
+
+    /** Finds the longest run of bytes in the window before a position
+     *  that matches the bytes at the position. Instead of comparing against
+     *  every position in the window, only the positions that start with
+     *  the same 3 bytes (by hash) are compared, found by following a chain
+     *  of earlier positions with the same hash.
+     *<p>
+     *  Positions must be searched in increasing order. */
+    private static class MatchFinder {
+
+        private static final int HASH_BITS = 15;
+
+        private final byte[] _abData;
+        /** Most recent position with each hash, or -1. */
+        private final int[] _aiHead = new int[1 << HASH_BITS];
+        /** The previous position with the same hash as each position, or -1. */
+        private final int[] _aiPrev;
+        /** Positions before this have been added to the chains. */
+        private int _iAdded = 0;
+
+        /** Position of the match found by {@link #find(int)}. */
+        public int iMatchPos;
 
-        public int getBitFlag() {
-            return 0;
+        public MatchFinder(byte[] abData) {
+            _abData = abData;
+            _aiPrev = new int[abData.length];
+            Arrays.fill(_aiHead, -1);
         }
 
-        public void write(OutputStream os) throws IOException {
-            os.write(_iValue);
+        private int hash(int iPos) {
+            return ((_abData[iPos] & 0xff) << 7 ^
+                    (_abData[iPos+1] & 0xff) << 4 ^
+                    (_abData[iPos+2] & 0xff)) & ((1 << HASH_BITS) - 1);
         }
-    }
-    /** Compress data using the Lain compression method */
-    public static void compress(byte[] abData, OutputStream os) throws IOException {
 
-        ArrayList<IZipField> zipFields = new ArrayList<IZipField>();
-        
-        // search through the data to find how to compress it
-        int x = 0;
-        while (x < abData.length) {
-            BackCopy oBackCpy = searchForBackCopy(abData, x);
-            if (oBackCpy == null) {
-                zipFields.add(new DirectCopy(abData[x]));
-                x++;
-            } else {
-                zipFields.add(oBackCpy);
-                x += oBackCpy._iLength;
+        /** Finds the longest match for the bytes at {@code iEndPos}.
+         *  @param blnFarthest If there are several longest matches, use
+         *                     the farthest back (slower when the data is
+         *                     very repetitive), otherwise any of them.
+         *  @return the length of the match, or 0 if there is no match
+         *          of at least {@link #MIN_COPY_LENGTH}. */
+        public int find(int iEndPos, boolean blnFarthest) {
+            for (; _iAdded < iEndPos; _iAdded++) {
+                if (_iAdded + MIN_COPY_LENGTH <= _abData.length) {
+                    int iHash = hash(_iAdded);
+                    _aiPrev[_iAdded] = _aiHead[iHash];
+                    _aiHead[iHash] = _iAdded;
+                }
             }
+            if (iEndPos + MIN_COPY_LENGTH > _abData.length)
+                return 0;
 
+            int iLongestRunLen = 0;
+            int iWindowStart = iEndPos - MAX_COPY_DISTANCE;
+            // the chain goes from nearest to farthest
+            for (int iMatchPos = _aiHead[hash(iEndPos)];
+                 iMatchPos >= 0 && iMatchPos >= iWindowStart;
+                 iMatchPos = _aiPrev[iMatchPos])
+            {
+                int iMatchLen = matchLength(_abData, iMatchPos, iEndPos);
+                if (iMatchLen >= iLongestRunLen && iMatchLen >= MIN_COPY_LENGTH) {
+                    iLongestRunLen = iMatchLen;
+                    this.iMatchPos = iMatchPos;
+                    if (!blnFarthest && iMatchLen == MAX_COPY_LENGTH)
+                        break;
+                }
+            }
+            return iLongestRunLen;
         }
+    }
+
+    /** Compress data using the Lain compression method. Uses the longest
+     *  back copy available at each position, the same as the game's data. */
+    public static void compress(byte[] abData, OutputStream os) throws IOException {
+        compress(abData, os, false);
+    }
 
+    /** Compress data using the Lain compression method.
+     * @param blnOptimal Instead of always using the longest back copy
+     *                   available, choose the fields that result in the
+     *                   smallest output (ignoring the rounding of the
+     *                   flag bytes). Slower, and the output will likely
+     *                   differ from the game's data. */
+    public static void compress(byte[] abData, OutputStream os, boolean blnOptimal)
+            throws IOException
+    {
         // write the size of the uncompressed data
         IO.writeInt32LE(os, abData.length);
-        
-        IZipField[] ao8fields = new IZipField[8];
-        Iterator<IZipField> it = zipFields.iterator();
-        while (it.hasNext()) {
-            int iFieldsToWrite;
-            int iFlags = 0;
-            // grab 8 fields to write, and construct the bit-flag in the process.
-            // also exit this construction if we run out of data
-            for (iFieldsToWrite = 0; iFieldsToWrite < 8 && it.hasNext(); iFieldsToWrite++) 
-            {
-                ao8fields[iFieldsToWrite] = it.next();
-                iFlags |= ao8fields[iFieldsToWrite].getBitFlag() << (7 - iFieldsToWrite);
+
+        FieldWriter writer = new FieldWriter(os);
+        MatchFinder finder = new MatchFinder(abData);
+        if (!blnOptimal) {
+            int x = 0;
+            while (x < abData.length) {
+                int iLength = finder.find(x, true);
+                if (iLength == 0) {
+                    writer.directCopy(abData[x]);
+                    x++;
+                } else {
+                    writer.backCopy(x - finder.iMatchPos, iLength);
+                    x += iLength;
+                }
             }
-            // write the flags byte
-            os.write(iFlags);
-            // write the 8 fields (or as many as we have)
-            for (int i = 0; i < iFieldsToWrite; i++) {
-                ao8fields[i].write(os);
+        } else {
+            // find the longest match at every position
+            int[] aiMatchLen = new int[abData.length];
+            int[] aiMatchPos = new int[abData.length];
+            for (int x = 0; x < abData.length; x++) {
+                aiMatchLen[x] = finder.find(x, false);
+                aiMatchPos[x] = finder.iMatchPos;
             }
-        }
-        
-    }
-    
-    /** Find the longest run of bytes that match the current position. */
-    private static BackCopy searchForBackCopy(byte[] abData, final int iEndPos) {
-        int iLongestRunPos = 0;
-        int iLongestRunLen = 0;
-        
-        int iMatchPos = iEndPos - (255 + 1);
-        if (iMatchPos < 0) iMatchPos = 0;
-        for (; iMatchPos < iEndPos; iMatchPos++) {
-            int iMatchLen = matchLength(abData, iMatchPos, iEndPos);
-            if (iMatchLen > iLongestRunLen && iMatchLen >= 3) {
-                iLongestRunLen = iMatchLen;
-                iLongestRunPos = iMatchPos;
+            // working backwards, find the size of the smallest way to
+            // compress everything after each position. Any length shorter
+            // than the longest match is also available at the same position.
+            int[] aiBitsToEnd = new int[abData.length + 1];
+            int[] aiChosenLen = new int[abData.length];
+            for (int x = abData.length - 1; x >= 0; x--) {
+                int iBest = DIRECT_COPY_BITS + aiBitsToEnd[x + 1];
+                int iBestLen = 0;
+                for (int iLen = MIN_COPY_LENGTH; iLen <= aiMatchLen[x]; iLen++) {
+                    int iBits = BACK_COPY_BITS + aiBitsToEnd[x + iLen];
+                    if (iBits < iBest) {
+                        iBest = iBits;
+                        iBestLen = iLen;
+                    }
+                }
+                aiBitsToEnd[x] = iBest;
+                aiChosenLen[x] = iBestLen;
+            }
+            int x = 0;
+            while (x < abData.length) {
+                if (aiChosenLen[x] == 0) {
+                    writer.directCopy(abData[x]);
+                    x++;
+                } else {
+                    writer.backCopy(x - aiMatchPos[x], aiChosenLen[x]);
+                    x += aiChosenLen[x];
+                }
             }
         }
-        if (iLongestRunLen > 0)
-            return new BackCopy(iEndPos - iLongestRunPos, iLongestRunLen);
-        else
-            return null;
+        writer.flush();
     }
     
     /** Count how many bytes match the current position. */
     private static int matchLength(byte[] abData, int iMatchPos, int iEndPos) {
         int i = 0;
         while ((iEndPos + i < abData.length)
-                && i < (255 + 3)
+                && i < MAX_COPY_LENGTH
                 && abData[iMatchPos+i] == abData[iEndPos+i])
         {
             i++;
@@ -181,7 +275,44 @@ public class Lain_Pk {
     }
     
     ////////////////////////////////////////////////////////////////////////////
-    
+
+    /** Reads a {@link RandomAccessFile} a block at a time. */
+    private static class BlockReader {
+        private final RandomAccessFile _raf;
+        private final byte[] _abBuffer = new byte[4096];
+        /** File position of the start of the buffer. */
+        private long _lngBufferStart;
+        private int _iBufferSize = 0;
+        private int _iBufferPos = 0;
+
+        public BlockReader(RandomAccessFile raf) throws IOException {
+            _raf = raf;
+            _lngBufferStart = raf.getFilePointer();
+        }
+
+        public int readUnsignedByte() throws IOException {
+            if (_iBufferPos >= _iBufferSize) {
+                _lngBufferStart += _iBufferSize;
+                _iBufferSize = _raf.read(_abBuffer);
+                _iBufferPos = 0;
+                if (_iBufferSize <= 0) {
+                    _iBufferSize = 0;
+                    throw new EOFException();
+                }
+            }
+            return _abBuffer[_iBufferPos++] & 0xff;
+        }
+
+        public long getFilePointer() {
+            return _lngBufferStart + _iBufferPos;
+        }
+
+        /** Leaves the file just after the last byte read. */
+        public void finish() throws IOException {
+            _raf.seek(getFilePointer());
+        }
+    }
+
     /** 
      * read 4 bytes: size of decompressed data
      * While not all uncompressed:
@@ -191,6 +322,8 @@ public class Lain_Pk {
      *            - read 1 byte: number of bytes to copy, + 3
      *          - if 0
      *            - read 1 byte: literal byte value to use
+     *<p>
+     * The file is left just after the compressed data.
      */
     public static byte[] decompress(RandomAccessFile raf)
             throws IOException 
@@ -199,10 +332,11 @@ public class Lain_Pk {
         
         long lngUncompressedSize = IO.readUInt32LE(raf);
         byte[] abUncompressed = new byte[(int)lngUncompressedSize];
+        BlockReader in = new BlockReader(raf);
         
         while (iUncompressedPos < lngUncompressedSize)
         {
-            int iFlags = raf.readUnsignedByte();
+            int iFlags = in.readUnsignedByte();
             
             if (DEBUG > 2)
                 System.err.println(String.format("Flags %02x", iFlags));
@@ -213,15 +347,15 @@ public class Lain_Pk {
                 if (DEBUG > 2)
                     System.err.print(String.format(
                             "[InPos: %d OutPos: %d] Flags %02x: bit %02x: ",
-                            raf.getFilePointer(),
+                            in.getFilePointer(),
                             iUncompressedPos,
                             iFlags,
                             iFlagMask
                             ));
                     
                 if ((iFlags & iFlagMask) != 0) {
-                    int iCopyOffset = raf.readUnsignedByte();
-                    int iCopySize = raf.readUnsignedByte();
+                    int iCopyOffset = in.readUnsignedByte();
+                    int iCopySize = in.readUnsignedByte();
                     iCopyOffset = (iCopyOffset + 1);
                     iCopySize = (iCopySize + 3);
                     
@@ -231,15 +365,16 @@ public class Lain_Pk {
                                 " bytes from -" + iCopyOffset + 
                                 " (" + (iUncompressedPos - iCopyOffset) + ")");
                     
+                    if (iUncompressedPos + iCopySize > lngUncompressedSize) {
+                        throw new RuntimeException("This should never happen.");
+                    }
+                    // copies may overlap the bytes being written, so byte by byte
                     for (int i = 0; i < iCopySize; i++) {
-                        if (iUncompressedPos >= lngUncompressedSize) {
-                            throw new RuntimeException("This should never happen.");
-                        }
                         abUncompressed[iUncompressedPos] = abUncompressed[iUncompressedPos - iCopyOffset];
                         iUncompressedPos++;
                     }
                 } else {
-                    byte b = raf.readByte();
+                    byte b = (byte)in.readUnsignedByte();
                     
                     if (DEBUG > 2)
                         System.err.println(String.format("{Byte %02x}", b));
@@ -249,6 +384,7 @@ public class Lain_Pk {
                 }
             }
         }
+        in.finish();
         if (DEBUG > 2)
             System.err.println("File pos: " + raf.getFilePointer());
         
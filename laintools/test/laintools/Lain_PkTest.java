@@ -0,0 +1,237 @@
+/*
+ * LainTools: PSX Serial Experiments Lain Hacking and Translation Tools
+ * Copyright (C) 2011  Michael Sabin
+ *
+ * Redistribution and use of the LainTools code or any derivative works are
+ * permitted provided that the following conditions are met:
+ *
+ *  * Redistributions may not be sold, nor may they be used in commercial
+ *    or revenue-generating business activities.
+ *
+ *  * Redistributions that are modified from the original source must
+ *    include the complete source code, including the source code for all
+ *    components used by a binary built from the modified sources. However, as
+ *    a special exception, the source code distributed need not include
+ *    anything that is normally distributed (in either source or binary form)
+ *    with the major components (compiler, kernel, and so on) of the operating
+ *    system on which the executable runs, unless that component itself
+ *    accompanies the executable.
+ *
+ *  * Redistributions must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+ * IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package laintools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import jpsxdec.util.IO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class Lain_PkTest {
+
+    @Test
+    public void sameAsBruteForce() throws IOException {
+        for (byte[] abData : testData()) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            BruteForce.compress(abData, expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            Lain_Pk.compress(abData, actual);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        File file = File.createTempFile("Lain_PkTest", ".pk");
+        try {
+            for (boolean blnOptimal : new boolean[] {false, true}) {
+                for (byte[] abData : testData()) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    Lain_Pk.compress(abData, compressed, blnOptimal);
+                    // followed by other data that shouldn't be read
+                    compressed.write(new byte[] {1, 2, 3});
+                    IO.writeFile(file, compressed.toByteArray());
+
+                    RandomAccessFile raf = new RandomAccessFile(file, "r");
+                    try {
+                        assertArrayEquals(abData, Lain_Pk.decompress(raf));
+                        assertEquals(compressed.size() - 3, raf.getFilePointer());
+                    } finally {
+                        raf.close();
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /** Empty and tiny buffers, random bytes, long runs, data that repeats
+     * just inside and just outside the copy window, and text-like data
+     * with many equally long matches. */
+    private static ArrayList<byte[]> testData() {
+        Random rand = new Random(7);
+        ArrayList<byte[]> data = new ArrayList<byte[]>();
+        for (int i = 0; i <= 4; i++)
+            data.add(new byte[i]);
+        data.add(new byte[1000]);
+
+        byte[] ab = new byte[5000];
+        rand.nextBytes(ab);
+        data.add(ab);
+
+        for (int iPeriod : new int[] {3, 255, 256, 257, 258, 259, 300}) {
+            byte[] abPattern = new byte[iPeriod];
+            rand.nextBytes(abPattern);
+            ab = new byte[4000];
+            for (int i = 0; i < ab.length; i++)
+                ab[i] = abPattern[i % iPeriod];
+            // a few changes so the matches aren't all the same length
+            for (int i = 0; i < 20; i++)
+                ab[rand.nextInt(ab.length)] = (byte)rand.nextInt();
+            data.add(ab);
+        }
+
+        for (int iAlphabet : new int[] {2, 4, 16}) {
+            ab = new byte[20000];
+            for (int i = 0; i < ab.length; i++)
+                ab[i] = (byte)('a' + rand.nextInt(iAlphabet));
+            data.add(ab);
+        }
+        return data;
+    }
+
+    /** The original compressor, which searches every position in the window. */
+    private static class BruteForce {
+
+        private static interface IZipField {
+            int getBitFlag();
+            void write(OutputStream os) throws IOException;
+        }
+
+        private static class BackCopy implements IZipField {
+            private final int _iRelativePosition;
+            private final int _iLength;
+
+            public BackCopy(int iPosition, int iLength) {
+                if (iPosition > 255+1)
+                    throw new IllegalArgumentException();
+                if (iLength > 255+3)
+                    throw new IllegalArgumentException();
+                _iRelativePosition = iPosition;
+                _iLength = iLength;
+            }
+
+            public int getBitFlag() {
+                return 1;
+            }
+
+            public void write(OutputStream os) throws IOException {
+                os.write(_iRelativePosition - 1);
+                os.write(_iLength - 3);
+            }
+        }
+
+        private static class DirectCopy implements IZipField {
+            private final int _iValue;
+
+            public DirectCopy(int iValue) {
+                _iValue = iValue;
+            }
+
+            public int getBitFlag() {
+                return 0;
+            }
+
+            public void write(OutputStream os) throws IOException {
+                os.write(_iValue);
+            }
+        }
+
+        public static void compress(byte[] abData, OutputStream os) throws IOException {
+            ArrayList<IZipField> zipFields = new ArrayList<IZipField>();
+
+            int x = 0;
+            while (x < abData.length) {
+                BackCopy oBackCpy = searchForBackCopy(abData, x);
+                if (oBackCpy == null) {
+                    zipFields.add(new DirectCopy(abData[x]));
+                    x++;
+                } else {
+                    zipFields.add(oBackCpy);
+                    x += oBackCpy._iLength;
+                }
+            }
+
+            IO.writeInt32LE(os, abData.length);
+
+            IZipField[] ao8fields = new IZipField[8];
+            Iterator<IZipField> it = zipFields.iterator();
+            while (it.hasNext()) {
+                int iFieldsToWrite;
+                int iFlags = 0;
+                for (iFieldsToWrite = 0; iFieldsToWrite < 8 && it.hasNext(); iFieldsToWrite++)
+                {
+                    ao8fields[iFieldsToWrite] = it.next();
+                    iFlags |= ao8fields[iFieldsToWrite].getBitFlag() << (7 - iFieldsToWrite);
+                }
+                os.write(iFlags);
+                for (int i = 0; i < iFieldsToWrite; i++) {
+                    ao8fields[i].write(os);
+                }
+            }
+        }
+
+        private static BackCopy searchForBackCopy(byte[] abData, final int iEndPos) {
+            int iLongestRunPos = 0;
+            int iLongestRunLen = 0;
+
+            int iMatchPos = iEndPos - (255 + 1);
+            if (iMatchPos < 0) iMatchPos = 0;
+            for (; iMatchPos < iEndPos; iMatchPos++) {
+                int iMatchLen = matchLength(abData, iMatchPos, iEndPos);
+                if (iMatchLen > iLongestRunLen && iMatchLen >= 3) {
+                    iLongestRunLen = iMatchLen;
+                    iLongestRunPos = iMatchPos;
+                }
+            }
+            if (iLongestRunLen > 0)
+                return new BackCopy(iEndPos - iLongestRunPos, iLongestRunLen);
+            else
+                return null;
+        }
+
+        private static int matchLength(byte[] abData, int iMatchPos, int iEndPos) {
+            int i = 0;
+            while ((iEndPos + i < abData.length)
+                    && i < (255 + 3)
+                    && abData[iMatchPos+i] == abData[iEndPos+i])
+            {
+                i++;
+            }
+            return i;
+        }
+    }
+}